@@ -3,15 +3,26 @@ const api = "http://localhost:8081";
 const doanh_thu = document.getElementById("doanh_thu");
 const orders_week = document.getElementById("orders_week");
 const total_user = document.getElementById("total_user");
+function toDay(date) {
+    const pad = (number) => String(number).padStart(2, "0");
+    return `${date.getFullYear()}-${pad(date.getMonth() + 1)}-${pad(date.getDate())}`;
+}
+// doanh thu, số đơn theo ngày lấy từ /api/v1/stats (đếm sẵn ở backend), gọi một lần cho cả trang
+let salesStats = null;
+function fetchSalesStats() {
+    if (salesStats === null) {
+      salesStats = fetch(`${api}/api/v1/stats?days=31`, {
+        method: "GET",
+        headers: { 
+          "Content-Type": "application/json",
+          Accept: "application/json",
+          Authorization: "Bearer " + localStorage.getItem("token"),
+        },
+      }).then((res)=> res.json());
+    }
+    return salesStats;
+}
 async function load_orders() {
-    const response = await fetch(`${api}/api/v1/orders/admin`, {
-      method: "GET",
-      headers: { 
-        "Content-Type": "application/json",
-        Accept: "application/json",
-        Authorization: "Bearer " + localStorage.getItem("token"),
-      },
-    }).then((res)=> res.json());
     const response1 = await fetch(`${api}/api/users`, {
       method: "GET",
       headers: { 
@@ -26,15 +37,18 @@ async function load_orders() {
     const firstDayOfWeek = new Date(currentDate.getFullYear(), currentDate.getMonth(), currentDate.getDate() - currentDate.getDay() + 1);
     // Tìm ngày cuối cùng của tuần hiện tại (tính từ ngày Chủ nhật)
     const lastDayOfWeek = new Date(currentDate.getFullYear(), currentDate.getMonth(), currentDate.getDate() + (6 - currentDate.getDay() + 1));
-    // Lọc ra các đơn hàng có ngày tạo trong khoảng thời gian của tuần hiện tại
-    const ordersInCurrentWeek = response.filter(order => {
-        const orderDate = new Date(order.createdAt);
-        return orderDate >= firstDayOfWeek && orderDate <= lastDayOfWeek;
-    });
+    // Cộng doanh thu và số đơn của các ngày trong tuần hiện tại
+    const from = toDay(firstDayOfWeek);
+    const to = toDay(lastDayOfWeek);
+    const stats = await fetchSalesStats();
     let total_week = 0;
-    ordersInCurrentWeek.forEach((ele) => (total_week+=ele.total));
+    let orders_in_week = 0;
+    stats.revenueByDay.filter((ele) => ele.day >= from && ele.day <= to).forEach((ele) => {
+      total_week+=ele.revenue;
+      orders_in_week+=ele.orders;
+    });
     doanh_thu.innerHTML+=doanh_thu_tuan(total_week);
-    orders_week.innerHTML+=order_tuan(ordersInCurrentWeek.length);
+    orders_week.innerHTML+=order_tuan(orders_in_week);
     total_user.innerHTML+=nguoi_dung(response1.length);
 }
 function numberToVnd(number) {
@@ -367,9 +381,12 @@ function product_detail1(product, categories,sizes,colors,productId) {
       </div>
   </div>`;
 }
+// version của sản phẩm đang sửa, gửi lại trong If-Match để không ghi đè thay đổi của người khác
+let editingVersion = null;
 async function editProduct(productId) {
   add_product_body.innerHTML="";
   const res1 = await fetch(`${api}/api/v1/products/${productId}`).then(res => res.json());
+  editingVersion = res1.version;
   const res2 = await fetch(`${api}/api/v1/categories`).then(res => res.json());
   const res3 = await fetch(`${api}/api/v1/sizes`).then(res => res.json());
   const res4 = await fetch(`${api}/api/v1/colors`).then(res => res.json());
@@ -425,19 +442,26 @@ async function submit1(productId) {
   console.log(formData); 
 
   try {
+      const headers = {
+          "Content-Type": "application/json",
+          Accept: "application/json",
+          Authorization: "Bearer " + localStorage.getItem("token")
+      };
+      if (editingVersion !== null && editingVersion !== undefined) {
+          headers["If-Match"] = `"${editingVersion}"`;
+      }
       const updateProduct = await fetch(`${api}/api/v1/products/${productId}`, {
           method: "PUT",
-          headers: { 
-              "Content-Type": "application/json",
-              Accept: "application/json",
-              Authorization: "Bearer " + localStorage.getItem("token")
-          },
+          headers: headers,
           body: JSON.stringify(formData) // Chuyển đối tượng JSON thành chuỗi JSON
       });
       
       if (updateProduct.ok) {
           alert("Cập nhật thành công");
           trangchu()
+      } else if (updateProduct.status === 409 || updateProduct.status === 412) {
+          alert("Sản phẩm vừa được người khác cập nhật, vui lòng tải lại trước khi sửa");
+          editProduct(productId);
       } else {
           alert("Cập nhật thất bại");
       }
@@ -448,35 +472,17 @@ async function submit1(productId) {
 }
 
 async function load_chart(){
-var orders = [];
 var currentDate = new Date();
 var currentMonth = currentDate.getMonth() + 1; // Lấy tháng hiện tại (0-indexed)
 var currentYear = currentDate.getFullYear();
-var orders_month = await fetch(`${api}/api/v1/orders/admin`, {
-    method: "GET",
-    headers: { 
-      "Content-Type": "application/json",
-      Accept: "application/json",
-      Authorization: "Bearer " + localStorage.getItem("token"),
-    },
-  }).then((res)=> res.json());
-orders_month.forEach((ele,i)=>{
-  orders.push({
-    "id": i,
-    "createdAt": ele.createdAt
-  });}
-)
+var stats = await fetchSalesStats();
 
-// Tính toán tổng số đơn hàng được tạo ra theo ngày trong tháng hiện tại
+// Số đơn hàng theo ngày trong tháng hiện tại
 var orderCountByDay = {};
-orders.forEach(order => {
-  var orderDate = new Date(order.createdAt);
-  var orderDay = orderDate.getDate(); // Lấy ngày của đơn hàng
-  var ordersYear= orderDate.getFullYear();
-  var ordersMonth= orderDate.getMonth()+1;
-  console.log(ordersYear,ordersMonth)
-  if(ordersYear == currentYear && ordersMonth==currentMonth){
-     orderCountByDay[orderDay] = (orderCountByDay[orderDay] || 0) + 1;
+stats.revenueByDay.forEach(ele => {
+  var parts = ele.day.split("-").map(Number);
+  if(parts[0] == currentYear && parts[1] == currentMonth){
+     orderCountByDay[parts[2]] = ele.orders;
   }
 });
 
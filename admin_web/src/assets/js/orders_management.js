@@ -1,6 +1,32 @@
-// Lấy tất cả đơn hàng từ API
-async function getAllOrders() {
-    const response = await fetch(`${api}/api/v1/orders/admin`, {
+const ORDER_PAGE_SIZE = 20;
+let currentPage = 0;
+let orderStatuses = null;
+
+// Thêm createdFrom/createdTo từ ô ngày của bộ lọc
+function appendDateRange(params) {
+    const from = document.getElementById("filterFrom").value;
+    const to = document.getElementById("filterTo").value;
+    if (from) params.append("createdFrom", `${from}T00:00:00`);
+    if (to) {
+        // ngày kết thúc tính trọn ngày: createdTo là 0h ngày hôm sau
+        const end = new Date(`${to}T00:00:00`);
+        end.setDate(end.getDate() + 1);
+        params.append("createdTo", `${end.getFullYear()}-${String(end.getMonth() + 1).padStart(2, "0")}-${String(end.getDate()).padStart(2, "0")}T00:00:00`);
+    }
+}
+
+// Lấy một trang đơn hàng từ API, lọc và phân trang ở server
+async function getOrdersPage(page) {
+    const params = new URLSearchParams({ page: page, pageSize: ORDER_PAGE_SIZE });
+    const statusId = document.getElementById("filterStatus").value;
+    const minTotal = document.getElementById("filterMinTotal").value;
+    const maxTotal = document.getElementById("filterMaxTotal").value;
+    if (statusId) params.append("statusId", statusId);
+    appendDateRange(params);
+    if (minTotal) params.append("minTotal", minTotal);
+    if (maxTotal) params.append("maxTotal", maxTotal);
+
+    const response = await fetch(`${api}/api/v1/orders/admin?${params}`, {
         method: "GET",
         headers: {
             "Content-Type": "application/json",
@@ -12,15 +38,16 @@ async function getAllOrders() {
         throw new Error("Failed to fetch orders");
     }
 
-    const orders = await response.json();
-    return orders;
+    return await response.json();
 }
 
 async function loadOrdersToTable() {
-    const orders = await getAllOrders(); // Lấy danh sách đơn hàng
+    const result = await getOrdersPage(currentPage); // Lấy một trang đơn hàng
+    const orders = result.items;
     const tableBody = document.querySelector("table.table-striped tbody");
 
     tableBody.innerHTML = ""; 
+    renderPagination(result);
 
     for (const [index, order] of orders.entries()) {
         const row = document.createElement("tr");
@@ -43,7 +70,7 @@ async function loadOrdersToTable() {
         const statusOptions = await generateStatusOptions(order.status.id);
         
         row.innerHTML = `
-            <td>${index + 1}</td> 
+            <td>${result.page * result.pageSize + index + 1}</td> 
             <td>${order.firstName} ${order.lastName}</td> 
             <td>${order.phone}</td>  
             <td >${order.address}</td>  
@@ -67,30 +94,11 @@ async function loadOrdersToTable() {
     document.querySelectorAll(".btn-update-status").forEach(async (button) => {
         button.addEventListener("click", async function () {
             const orderId = this.getAttribute("data-order-id");
-    
-            // Lấy dữ liệu từ hàng tương ứng
-            const row = this.closest("tr");
-    
-            const firstName = row.children[1].textContent.split(" ")[0];
-            const lastName = row.children[1].textContent.split(" ")[1];
-            const phone = row.children[2].textContent;
-            console.log(phone);
-            const address = row.children[3].textContent;
-            const total = parseFloat(row.children[4].textContent); // Chuyển đổi thành số
             const statusDropdown = document.querySelector(`select[data-order-id="${orderId}"]`);
             const newStatusId = statusDropdown.value;
     
-            // Tạo đối tượng cập nhật
-            const updatedOrder = {
-                firstName: firstName,
-                lastName: lastName,
-                phoneNumber: phone,
-                address: address,
-                total: total,
-                status: newStatusId, // ID của trạng thái mới
-            };
-    
-            await updateOrderStatus(orderId, updatedOrder); // Cập nhật trạng thái và các thông tin khác
+            // Chỉ đổi trạng thái, không gửi lại thông tin khác của đơn để không ghi đè thay đổi của người khác
+            await updateOrderStatus(orderId, newStatusId);
             await loadOrdersToTable();
         });
     });
@@ -104,10 +112,54 @@ async function loadOrdersToTable() {
     });
 }
 
+// Xuất CSV cho kế toán theo khoảng ngày đang chọn (server stream từng dòng hàng)
+async function exportOrdersCsv() {
+    const params = new URLSearchParams({ format: "csv" });
+    appendDateRange(params);
+    const response = await fetch(`${api}/api/v1/orders/export?${params}`, {
+        method: "GET",
+        headers: {
+            "Authorization": "Bearer " + localStorage.getItem("token"),
+        },
+    });
+    if (!response.ok) {
+        alert("Xuất đơn hàng thất bại");
+        return;
+    }
+    const link = document.createElement("a");
+    link.href = URL.createObjectURL(await response.blob());
+    link.download = "orders.csv";
+    link.click();
+    URL.revokeObjectURL(link.href);
+}
+
+function renderPagination(result) {
+    const totalPages = Math.max(1, Math.ceil(result.total / result.pageSize));
+    document.getElementById("pageInfo").textContent = `Page ${result.page + 1} / ${totalPages} (${result.total} orders)`;
+    document.getElementById("prevPage").disabled = result.page === 0;
+    document.getElementById("nextPage").disabled = result.page + 1 >= totalPages;
+}
+
+// Danh sách trạng thái chỉ tải một lần cho cả trang
+async function getOrderStatuses() {
+    if (orderStatuses === null) {
+        const response = await fetch(`${api}/api/v1/order-statuses`);
+        orderStatuses = await response.json();
+    }
+    return orderStatuses;
+}
+
+async function loadStatusFilter() {
+    const statuses = await getOrderStatuses();
+    const select = document.getElementById("filterStatus");
+    statuses.forEach((status) => {
+        select.innerHTML += `<option value="${status.id}">${status.name}</option>`;
+    });
+}
+
 // Hàm để lấy các tùy chọn cho trạng thái
 async function generateStatusOptions(currentStatusId) {
-    const response = await fetch(`${api}/api/v1/order-statuses`);
-    const statuses = await response.json();
+    const statuses = await getOrderStatuses();
     
     let options = "";
 
@@ -119,14 +171,12 @@ async function generateStatusOptions(currentStatusId) {
     return options;
 }
 
-async function updateOrderStatus(orderId, order) {
-    const response = await fetch(`${api}/api/v1/orders/${orderId}`, {
+async function updateOrderStatus(orderId, statusId) {
+    const response = await fetch(`${api}/api/v1/orders/${orderId}/status/${statusId}`, {
         method: "PUT",
         headers: {
-            "Content-Type": "application/json",
             "Authorization": "Bearer " + localStorage.getItem("token"),
         },
-        body: JSON.stringify(order), // Gửi toàn bộ thông tin order
     });
 
     if (!response.ok) {
@@ -168,4 +218,21 @@ function numberToVnd(number) {
   }
 
 // Gọi hàm để tải dữ liệu vào bảng khi trang được tải
-document.addEventListener("DOMContentLoaded", loadOrdersToTable);
\ No newline at end of file
+document.addEventListener("DOMContentLoaded", async () => {
+    document.getElementById("orderFilterForm").addEventListener("submit", async (event) => {
+        event.preventDefault();
+        currentPage = 0;
+        await loadOrdersToTable();
+    });
+    document.getElementById("exportOrders").addEventListener("click", exportOrdersCsv);
+    document.getElementById("prevPage").addEventListener("click", async () => {
+        currentPage = Math.max(0, currentPage - 1);
+        await loadOrdersToTable();
+    });
+    document.getElementById("nextPage").addEventListener("click", async () => {
+        currentPage++;
+        await loadOrdersToTable();
+    });
+    await loadStatusFilter();
+    await loadOrdersToTable();
+});
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.example.demo.caching;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.demo.caching.CatalogVersions.Table;
+
+// GET có điều kiện cho các API catalog: ETag lấy từ phiên bản các bảng liên quan,
+// If-None-Match khớp thì trả 304 ngay, không chạm DB và không serialize
+@Component
+public class CatalogEtagFilter extends OncePerRequestFilter {
+
+    // sản phẩm trả về kèm màu, danh mục và size nên phụ thuộc cả các bảng đó
+    private static final Set<Table> PRODUCT_TABLES = EnumSet.of(Table.PRODUCTS, Table.CATEGORIES, Table.COLORS,
+            Table.SIZES);
+    private static final Set<Table> SUGGEST_TABLES = EnumSet.of(Table.SUGGESTIONS);
+    private static final Map<String, Set<Table>> TABLES_BY_PATH = new LinkedHashMap<>();
+
+    static {
+        TABLES_BY_PATH.put("/api/v1/products", PRODUCT_TABLES);
+        TABLES_BY_PATH.put("/api/v1/categories", EnumSet.of(Table.CATEGORIES));
+        TABLES_BY_PATH.put("/api/v1/colors", EnumSet.of(Table.COLORS));
+        TABLES_BY_PATH.put("/api/v1/sizes", EnumSet.of(Table.SIZES));
+        TABLES_BY_PATH.put("/api/v1/posts", EnumSet.of(Table.POSTS));
+    }
+
+    private final CatalogVersions catalogVersions;
+
+    @Value("${demo.http.catalog-cache-control:public, no-cache}")
+    private String cacheControl;
+
+    // thời gian nginx được giữ bản cache (X-Accel-Expires, nginx tự bỏ header này trước khi trả cho client)
+    @Value("${demo.http.catalog-proxy-ttl:0}")
+    private int proxyTtl;
+
+    public CatalogEtagFilter(CatalogVersions catalogVersions) {
+        this.catalogVersions = catalogVersions;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        final String method = request.getMethod();
+        return !("GET".equals(method) || "HEAD".equals(method)) || tablesFor(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // lấy phiên bản trước khi đọc dữ liệu: nếu có ghi xen giữa thì lần sau ETag sẽ khác và client tải lại
+        final String etag = catalogVersions.etag(tablesFor(request));
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            writeCacheHeaders(response, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        filterChain.doFilter(request, new CacheHeaderResponse(response, etag));
+    }
+
+    private Set<Table> tablesFor(final HttpServletRequest request) {
+        final String path = request.getRequestURI().substring(request.getContextPath().length());
+        // xuất feed dành cho admin, không được để proxy cache chung; tồn kho đổi theo từng đơn hàng
+        if (path.equals("/api/v1/products/export") || path.endsWith("/stock")) {
+            return null;
+        }
+        // trie gợi ý được dựng lại trễ sau lần ghi catalog nên có phiên bản riêng, tăng đúng lúc trie đổi
+        if (path.equals("/api/v1/products/suggest")) {
+            return SUGGEST_TABLES;
+        }
+        if (path.startsWith("/api/v1/categories/") && path.endsWith("/products")) {
+            return PRODUCT_TABLES;
+        }
+        for (Map.Entry<String, Set<Table>> entry : TABLES_BY_PATH.entrySet()) {
+            if (path.equals(entry.getKey()) || path.startsWith(entry.getKey() + "/")) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(final String ifNoneMatch, final String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeCacheHeaders(final HttpServletResponse response, final String etag) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (proxyTtl > 0) {
+            response.setHeader("X-Accel-Expires", String.valueOf(proxyTtl));
+        }
+    }
+
+    // chỉ gắn ETag khi bắt đầu ghi body với mã 2xx, không để response lỗi bị cache
+    private final class CacheHeaderResponse extends HttpServletResponseWrapper {
+        private final String etag;
+        private boolean headersWritten = false;
+
+        CacheHeaderResponse(HttpServletResponse response, String etag) {
+            super(response);
+            this.etag = etag;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeadersOnce();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeadersOnce();
+            return super.getWriter();
+        }
+
+        private void writeHeadersOnce() {
+            if (!headersWritten && !isCommitted() && getStatus() >= 200 && getStatus() < 300) {
+                writeCacheHeaders((HttpServletResponse) getResponse(), etag);
+            }
+            headersWritten = true;
+        }
+    }
+}
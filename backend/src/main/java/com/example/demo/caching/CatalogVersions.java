@@ -0,0 +1,44 @@
+package com.example.demo.caching;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.events.ProductChangedEvent;
+
+// bộ đếm phiên bản cho từng bảng dữ liệu catalog, tăng mỗi lần ghi để sinh ETag
+@Component
+public class CatalogVersions {
+
+    // SUGGESTIONS không phải bảng: tăng khi trie gợi ý được thay (dựng lại trễ sau khi ghi, đổi độ phổ biến)
+    public enum Table {
+        PRODUCTS, CATEGORIES, COLORS, SIZES, POSTS, SUGGESTIONS
+    }
+
+    // bộ đếm nằm trong bộ nhớ nên reset khi khởi động lại, ghép thêm thời điểm khởi động để ETag cũ không bị trùng
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLongArray versions = new AtomicLongArray(Table.values().length);
+
+    public void bump(final Table table) {
+        versions.incrementAndGet(table.ordinal());
+    }
+
+    public long get(final Table table) {
+        return versions.get(table.ordinal());
+    }
+
+    public String etag(final Set<Table> tables) {
+        final StringBuilder etag = new StringBuilder("\"").append(epoch);
+        for (Table table : tables) {
+            etag.append('-').append(get(table));
+        }
+        return etag.append('"').toString();
+    }
+
+    @EventListener
+    public void onProductChanged(final ProductChangedEvent event) {
+        bump(Table.PRODUCTS);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.caching;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Category;
+import com.example.demo.models.CategoryTreeNode;
+import com.example.demo.repositories.CategoryRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// bảng bao đóng (closure) của cây danh mục giữ trong bộ nhớ, dựng lại mỗi khi danh mục được ghi
+@Component
+@Slf4j
+public class CategoryTreeCache {
+
+    private final CategoryRepository categoryRepository;
+
+    private volatile Snapshot snapshot;
+
+    public CategoryTreeCache(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    public synchronized void rebuild() {
+        snapshot = new Snapshot(categoryRepository.findAll());
+    }
+
+    public List<CategoryTreeNode> tree() {
+        return current().roots;
+    }
+
+    public boolean contains(final Long id) {
+        return current().position.containsKey(id);
+    }
+
+    // danh mục và toàn bộ con cháu của nó (rỗng nếu không tồn tại)
+    public List<Long> descendantIds(final Long id) {
+        final Snapshot current = current();
+        final Integer position = current.position.get(id);
+        if (position == null) {
+            return Collections.emptyList();
+        }
+        final List<Long> ids = new ArrayList<>(current.subtreeEnd[position] - position);
+        for (int i = position; i < current.subtreeEnd[position]; i++) {
+            ids.add(current.preorder[i]);
+        }
+        return ids;
+    }
+
+    public Set<Long> descendantIds(final Collection<Long> ids) {
+        final Set<Long> result = new LinkedHashSet<>();
+        for (Long id : ids) {
+            result.addAll(descendantIds(id));
+        }
+        return result;
+    }
+
+    // danh mục và các tổ tiên của nó, từ chính nó lên tới gốc
+    public List<Long> ancestorIds(final Long id) {
+        final Snapshot current = current();
+        final Integer position = current.position.get(id);
+        if (position == null) {
+            return Collections.emptyList();
+        }
+        final List<Long> ids = new ArrayList<>();
+        for (int i = position; i >= 0; i = current.parent[i]) {
+            ids.add(current.preorder[i]);
+        }
+        return ids;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    // duyệt cây theo thứ tự trước: con cháu của preorder[i] nằm liền nhau trong [i + 1, subtreeEnd[i])
+    private static final class Snapshot {
+        private final long[] preorder;
+        private final int[] subtreeEnd;
+        private final int[] parent;
+        private final Map<Long, Integer> position = new HashMap<>();
+        private final List<CategoryTreeNode> roots;
+
+        private int next = 0;
+
+        Snapshot(final List<Category> categories) {
+            final int size = categories.size();
+            preorder = new long[size];
+            subtreeEnd = new int[size];
+            parent = new int[size];
+
+            final Map<Long, Category> byId = new HashMap<>();
+            for (Category category : categories) {
+                byId.put(category.getId(), category);
+            }
+            final Map<Long, List<Category>> children = new HashMap<>();
+            final List<Category> rootCategories = new ArrayList<>();
+            for (Category category : categories) {
+                final Category parentCategory = category.getParentCategory();
+                if (parentCategory == null || !byId.containsKey(parentCategory.getId())) {
+                    rootCategories.add(category);
+                } else {
+                    children.computeIfAbsent(parentCategory.getId(), key -> new ArrayList<>()).add(category);
+                }
+            }
+            final Comparator<Category> byCategoryId = Comparator.comparing(Category::getId);
+            rootCategories.sort(byCategoryId);
+            children.values().forEach(list -> list.sort(byCategoryId));
+
+            final List<CategoryTreeNode> nodes = new ArrayList<>();
+            for (Category root : rootCategories) {
+                nodes.add(visit(root, -1, children));
+            }
+            // danh mục nằm trong vòng lặp cha-con không tới được từ gốc nào, coi như gốc để không bị mất
+            for (Category category : categories) {
+                if (!position.containsKey(category.getId())) {
+                    log.warn("Category {} is part of a parent cycle, treating it as a root", category.getId());
+                    nodes.add(visit(category, -1, children));
+                }
+            }
+            roots = Collections.unmodifiableList(nodes);
+        }
+
+        private CategoryTreeNode visit(final Category category, final int parentPosition,
+                final Map<Long, List<Category>> children) {
+            final int current = next++;
+            preorder[current] = category.getId();
+            parent[current] = parentPosition;
+            position.put(category.getId(), current);
+            final List<CategoryTreeNode> childNodes = new ArrayList<>();
+            for (Category child : children.getOrDefault(category.getId(), Collections.emptyList())) {
+                if (!position.containsKey(child.getId())) {
+                    childNodes.add(visit(child, current, children));
+                }
+            }
+            subtreeEnd[current] = next;
+            return new CategoryTreeNode(category.getId(), category.getName(),
+                    Collections.unmodifiableList(childNodes));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.caching;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.security.AuthService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+// kết quả checkout theo (user, Idempotency-Key): request trùng đang chạy thì chờ lần đầu, chạy xong thì trả lại id cũ;
+// cache có giới hạn, hết hạn thì tra lại DB (cột idempotency_key có ràng buộc unique)
+@Component
+@Slf4j
+public class OrderIdempotencyCache {
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private final OrderRepository orderRepository;
+    private final AuthService authService;
+    private final Cache<String, CompletableFuture<Long>> results;
+
+    @Value("${demo.orders.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    public OrderIdempotencyCache(OrderRepository orderRepository, AuthService authService,
+            @Value("${demo.orders.idempotency.max-entries:10000}") long maxEntries,
+            @Value("${demo.orders.idempotency.ttl-minutes:60}") long ttlMinutes) {
+        this.orderRepository = orderRepository;
+        this.authService = authService;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    // checkout phải tự mở transaction riêng: ở đây chỉ điều phối, không được nằm trong transaction
+    public Long execute(final String idempotencyKey, final Supplier<Long> checkout) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        final Long userId = authService.getCurrentUserId();
+        final String key = userId + ":" + idempotencyKey;
+        final CompletableFuture<Long> mine = new CompletableFuture<>();
+        final CompletableFuture<Long> existing = results.asMap().putIfAbsent(key, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            final Long orderId = findExisting(userId, idempotencyKey).orElseGet(() -> {
+                try {
+                    return checkout.get();
+                } catch (DataIntegrityViolationException e) {
+                    // instance khác đã tạo đơn với cùng key trước
+                    return findExisting(userId, idempotencyKey).orElseThrow(() -> e);
+                }
+            });
+            mine.complete(orderId);
+            return orderId;
+        } catch (RuntimeException e) {
+            // lỗi thì bỏ key để lần thử lại sau chạy lại, request đang chờ nhận cùng lỗi
+            results.asMap().remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Optional<Long> findExisting(final Long userId, final String idempotencyKey) {
+        return orderRepository.findIdByUserIdAndIdempotencyKey(userId, idempotencyKey);
+    }
+
+    private Long await(final CompletableFuture<Long> pending) {
+        try {
+            return pending.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
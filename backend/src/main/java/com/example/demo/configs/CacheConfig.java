@@ -0,0 +1,32 @@
+package com.example.demo.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String CATEGORIES = "categories";
+    public static final String CATEGORY = "category";
+    public static final String COLORS = "colors";
+    public static final String COLOR = "color";
+    public static final String SIZES = "sizes";
+    public static final String SIZE = "size";
+    public static final String ORDER_STATUSES = "orderStatuses";
+    public static final String ORDER_STATUS = "orderStatus";
+
+    // danh sách cache cố định để actuator đăng ký metrics hit/miss ngay khi khởi động
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${demo.cache.reference-data.spec:maximumSize=1000,expireAfterWrite=10m,recordStats}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CATEGORIES, CATEGORY, COLORS, COLOR, SIZES, SIZE,
+                ORDER_STATUSES, ORDER_STATUS);
+        cacheManager.setCacheSpecification(spec);
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
@@ -20,8 +20,8 @@ public class CorsConfig {
             public void addCorsMappings(CorsRegistry registry) {
                 registry.addMapping("/**") .allowedOrigins("http://127.0.0.1:5500") 
                 .allowedOriginPatterns("*")
-                .allowedMethods("GET", "POST", "PUT", "DELETE")
-                .exposedHeaders("Authorization")
+                .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE")
+                .exposedHeaders("Authorization", "ETag", "Content-Disposition", "X-Export-Watermark")
                 .maxAge(3600);
             }
         };
@@ -2,11 +2,14 @@ package com.example.demo.controllers;
 import com.example.demo.entities.CartItem;
 import com.example.demo.services.CartItemService;
 import com.example.demo.models.CartItemDTO;
+import com.example.demo.models.CartSummary;
+import com.example.demo.payload.request.CartItemOperation;
 
 import java.util.List;  
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -29,6 +32,11 @@ public class CartItemController {
         return ResponseEntity.ok(cartItemService.findAllByUserId());
     }
 
+    @GetMapping("/summary")
+    public ResponseEntity<CartSummary> summary() {
+        return ResponseEntity.ok(cartItemService.summary());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CartItem> findById(@PathVariable final Long id) {
         return ResponseEntity.ok(cartItemService.get(id));
@@ -40,6 +48,12 @@ public class CartItemController {
         return ResponseEntity.ok(cartItemService.create(cartItemDTO));
     }
 
+    // nhiều thao tác ADD/UPDATE/REMOVE trong một request, trả về giỏ sau khi áp
+    @PatchMapping
+    public ResponseEntity<List<CartItem>> applyAll(@RequestBody final List<CartItemOperation> operations) {
+        return ResponseEntity.ok(cartItemService.applyAll(operations));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<CartItem> update(@PathVariable final Long id, @RequestBody final CartItemDTO cartItemDTO) {
         return ResponseEntity.ok(cartItemService.update(id, cartItemDTO));
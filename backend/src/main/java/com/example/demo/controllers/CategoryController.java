@@ -2,7 +2,10 @@ package com.example.demo.controllers;
 
 import com.example.demo.entities.Category;
 import com.example.demo.models.CategoryDTO;
+import com.example.demo.models.CategoryTreeNode;
+import com.example.demo.models.ProductView;
 import com.example.demo.services.CategoryService;
+import com.example.demo.services.ProductService;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import java.util.List;
 import javax.validation.Valid;
@@ -27,8 +30,11 @@ public class CategoryController {
     @Autowired
     private final CategoryService categoryService;
 
-    public CategoryController(final CategoryService categoryService) {
+    private final ProductService productService;
+
+    public CategoryController(final CategoryService categoryService, final ProductService productService) {
         this.categoryService = categoryService;
+        this.productService = productService;
     }
 
     @GetMapping
@@ -36,11 +42,21 @@ public class CategoryController {
         return ResponseEntity.ok(categoryService.findAll());
     }
 
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryTreeNode>> getCategoryTree() {
+        return ResponseEntity.ok(categoryService.getTree());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Category> getCategory(@PathVariable final Long id) {
         return ResponseEntity.ok(categoryService.get(id));
     }
 
+    @GetMapping("/{id}/products")
+    public ResponseEntity<List<ProductView>> getCategoryProducts(@PathVariable final Long id) {
+        return ResponseEntity.ok(ProductView.from(productService.findAllInCategory(id)));
+    }
+
     @PostMapping
     @ApiResponse(responseCode = "201")
     public ResponseEntity<Long> createCategory(@RequestBody @Valid final CategoryDTO categoryDTO) {
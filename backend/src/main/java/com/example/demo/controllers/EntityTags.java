@@ -0,0 +1,35 @@
+package com.example.demo.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+// ETag theo @Version của từng bản ghi: "3"; client gửi lại trong If-Match khi sửa để không ghi đè thay đổi của người khác
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    static ResponseEntity.BodyBuilder ok(final Long version) {
+        final ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        return version == null ? builder : builder.eTag("\"" + version + "\"");
+    }
+
+    // không gửi hoặc "*" thì không kiểm tra trước; ETag yếu (W/) không dùng được cho If-Match nên coi là không khớp
+    static Long parseIfMatch(final String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        final String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Weak ETag cannot be used in If-Match");
+        }
+        try {
+            return Long.parseLong(tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")
+                    ? tag.substring(1, tag.length() - 1)
+                    : tag);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid If-Match: " + ifMatch);
+        }
+    }
+}
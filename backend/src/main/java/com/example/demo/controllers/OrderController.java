@@ -1,12 +1,28 @@
 package com.example.demo.controllers;
+import com.example.demo.caching.OrderIdempotencyCache;
+import com.example.demo.services.OrderExportService;
 import com.example.demo.services.OrderService;
+import com.example.demo.services.checkout.OrderCheckoutQueue;
+import com.example.demo.services.export.ExportFormat;
 
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
 import com.example.demo.entities.Order;
 import com.example.demo.models.OrderDTO;
+import com.example.demo.models.OrderListItem;
+import com.example.demo.models.OrderSummary;
+import com.example.demo.payload.request.OrderFilterRequest;
+import com.example.demo.payload.response.CursorPage;
+import com.example.demo.payload.response.OffsetPage;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,42 +35,102 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @RestController
 @RequestMapping(path = "/api/v1/orders")
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIdempotencyCache orderIdempotencyCache;
+    private final OrderCheckoutQueue orderCheckoutQueue;
+    private final OrderExportService orderExportService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIdempotencyCache orderIdempotencyCache,
+            OrderCheckoutQueue orderCheckoutQueue, OrderExportService orderExportService) {
         this.orderService = orderService;
+        this.orderIdempotencyCache = orderIdempotencyCache;
+        this.orderCheckoutQueue = orderCheckoutQueue;
+        this.orderExportService = orderExportService;
     }
 
     @GetMapping
     public ResponseEntity<List<Order>> getAll() {
         return ResponseEntity.ok(orderService.findAll());
     }
+    // lịch sử đơn của người dùng hiện tại cho trang cá nhân, chi tiết từng đơn lấy từ /{id}
+    @GetMapping("/summaries")
+    public ResponseEntity<CursorPage<OrderSummary>> getSummaries(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(orderService.findSummaries(cursor, size));
+    }
+
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
     @GetMapping("/admin")
-    public ResponseEntity<List<Order>> getAllByAdmin() {
-        return ResponseEntity.ok(orderService.findAllByAdmin());
+    public ResponseEntity<OffsetPage<OrderListItem>> getAllByAdmin(final OrderFilterRequest filterRequest) {
+        return ResponseEntity.ok(orderService.findAllByAdmin(filterRequest));
+    }
+
+    // xuất cho kế toán, mỗi dòng hàng một dòng; ghi thẳng vào response nên bộ nhớ không tăng theo số đơn
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
+    @GetMapping(value = "/export", produces = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    public void exportOrders(@RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestParam(value = "createdFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(value = "createdTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            final HttpServletResponse response) throws IOException {
+        final ExportFormat exportFormat = ExportFormat.from(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"orders." + exportFormat.getExtension() + "\"");
+        orderExportService.exportOrders(exportFormat, createdFrom, createdTo, response.getOutputStream());
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Order> getOrder(@PathVariable Long id) {
-        return ResponseEntity.ok(orderService.get(id));
+        final Order order = orderService.get(id);
+        return EntityTags.ok(order.getVersion()).body(order);
     }
 
     @PostMapping("")
     @ApiResponse(responseCode = "201")
-    public ResponseEntity<Long> createOrderFromCart(@RequestBody OrderDTO orderDTO) {
-        return new ResponseEntity<>(orderService.createOrderFromCart(orderDTO), HttpStatus.CREATED);
+    public ResponseEntity<Long> createOrderFromCart(@RequestBody OrderDTO orderDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return new ResponseEntity<>(checkout(orderDTO, null), HttpStatus.CREATED);
+        }
+        // gửi lại cùng key (retry khi timeout) trả về đúng đơn đã tạo thay vì tạo đơn mới
+        return new ResponseEntity<>(orderIdempotencyCache.execute(idempotencyKey,
+                () -> checkout(orderDTO, idempotencyKey)), HttpStatus.CREATED);
     }
 
+    // bật group commit thì đơn được ghi theo lô bởi luồng ghi, không thì ghi ngay trong transaction riêng
+    private Long checkout(OrderDTO orderDTO, String idempotencyKey) {
+        if (orderCheckoutQueue.isEnabled()) {
+            return orderCheckoutQueue.submit(orderDTO, idempotencyKey);
+        }
+        return idempotencyKey == null ? orderService.createOrderFromCart(orderDTO)
+                : orderService.createOrderFromCart(orderDTO, idempotencyKey);
+    }
+
+    // If-Match lệch version hiện tại thì 412, bị ghi xen giữa lúc đọc và lúc ghi thì 409
     @PutMapping("/{id}")
-    public ResponseEntity<Void> updateOrder(@PathVariable Long id, @RequestBody OrderDTO orderDTO) {
-        orderService.update(id, orderDTO);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<Void> updateOrder(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody OrderDTO orderDTO) {
+        final Order order = orderService.update(id, orderDTO, EntityTags.parseIfMatch(ifMatch));
+        return EntityTags.ok(order.getVersion()).build();
+    }
+
+    // chỉ đổi trạng thái, xung đột version được thử lại ở service nên không cần If-Match
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
+    @PutMapping("/{id}/status/{statusId}")
+    public ResponseEntity<Void> transitionStatus(@PathVariable Long id, @PathVariable Long statusId) {
+        final Order order = orderService.transitionStatus(id, statusId);
+        return EntityTags.ok(order.getVersion()).build();
     }
 
     @DeleteMapping("/{id}")
@@ -6,18 +6,35 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import com.example.demo.services.InventoryService;
+import com.example.demo.services.ProductExportService;
+import com.example.demo.services.ProductImportService;
+import com.example.demo.services.export.ExportFormat;
 import com.example.demo.services.ProductService;
-import com.example.demo.entities.Product;
 import com.example.demo.models.ProductDTO;
+import com.example.demo.models.ProductView;
+import com.example.demo.models.StockLevelDTO;
+import com.example.demo.models.Suggestion;
+import com.example.demo.payload.request.ProductFilterRequest;
+import com.example.demo.payload.response.CursorPage;
+import com.example.demo.payload.response.ProductFilterResponse;
+import com.example.demo.payload.response.ProductImportResponse;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -27,24 +44,55 @@ import org.springframework.security.access.prepost.PreAuthorize;
 @RequestMapping(value = "/api/v1/products", produces = MediaType.APPLICATION_JSON_VALUE)
 public class ProductController {
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final InventoryService inventoryService;
 
-    public ProductController(final ProductService productService) {
+    public ProductController(final ProductService productService, final ProductImportService productImportService,
+            final ProductExportService productExportService, final InventoryService inventoryService) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
+        this.inventoryService = inventoryService;
     }
 
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts(){
-        return ResponseEntity.ok(productService.findAll());
+    public ResponseEntity<List<ProductView>> getAllProducts(){
+        return ResponseEntity.ok(ProductView.from(productService.findAll()));
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<ProductView>> getProductPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "sort", defaultValue = "id") String sort) {
+        return ResponseEntity.ok(productService.findPage(cursor, size, sort));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProduct(@PathVariable final Long id) {
-        return ResponseEntity.ok(productService.get(id));
+    public ResponseEntity<ProductView> getProduct(@PathVariable final Long id) {
+        return ResponseEntity.ok(ProductView.from(productService.get(id)));
     }
     
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<List<StockLevelDTO>> getStock(@PathVariable final Long id) {
+        return ResponseEntity.ok(inventoryService.getStock(id));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam("query") String query) {
-        return ResponseEntity.ok(productService.search(query));
+    public ResponseEntity<List<ProductView>> searchProducts(@RequestParam("query") String query) {
+        return ResponseEntity.ok(ProductView.from(productService.search(query)));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggestProducts(@RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(productService.suggest(prefix, limit));
+    }
+
+    @GetMapping("/filter")
+    public ResponseEntity<ProductFilterResponse> filterProducts(final ProductFilterRequest filterRequest) {
+        return ResponseEntity.ok(productService.filter(filterRequest));
     }
 
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
@@ -54,10 +102,51 @@ public class ProductController {
         return new ResponseEntity<>(productService.create(productDTO), HttpStatus.CREATED);
     }
 
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ProductImportResponse> importProductsNdjson(final InputStream body) {
+        return ResponseEntity.ok(productImportService.importNdjson(body));
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ProductImportResponse> importProductsCsv(final InputStream body) {
+        return ResponseEntity.ok(productImportService.importCsv(body));
+    }
+
+    // ghi thẳng vào response (không qua ResponseEntity) để feed lớn không phải giữ trong bộ nhớ;
+    // X-Export-Watermark là mốc thời gian dùng làm modifiedSince cho lần xuất tăng dần kế tiếp; mốc chồng lấn với
+    // lần xuất này nên bên nhận phải gộp theo id (giữ dòng có updatedAt mới nhất)
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
+    @GetMapping(value = "/export", produces = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    public void exportProducts(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "modifiedSince", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime modifiedSince,
+            final HttpServletResponse response) throws IOException {
+        final ExportFormat exportFormat = ExportFormat.from(format);
+        final LocalDateTime watermark = productExportService.nextWatermark();
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"products." + exportFormat.getExtension() + "\"");
+        response.setHeader("X-Export-Watermark", watermark.toString());
+        productExportService.exportProducts(exportFormat, modifiedSince, response.getOutputStream());
+    }
+
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
     @PutMapping("/{id}")
-    public ResponseEntity<Product> updateProduct(@PathVariable final Long id, @RequestBody @Valid final ProductDTO productDTO) {
-        return ResponseEntity.ok(productService.update(id, productDTO));
+    public ResponseEntity<ProductView> updateProduct(@PathVariable final Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch,
+            @RequestBody @Valid final ProductDTO productDTO) {
+        // GET sản phẩm dùng ETag của cả catalog, nên If-Match ở đây là trường version trong ProductView
+        return ResponseEntity.ok(ProductView.from(
+                productService.update(id, productDTO, EntityTags.parseIfMatch(ifMatch))));
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')" )
+    @PutMapping("/{id}/stock")
+    public ResponseEntity<List<StockLevelDTO>> setStock(@PathVariable final Long id,
+            @RequestBody final List<StockLevelDTO> levels) {
+        return ResponseEntity.ok(inventoryService.setStock(id, levels));
     }
 
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')")
@@ -0,0 +1,29 @@
+package com.example.demo.controllers;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.payload.response.SalesStatsResponse;
+import com.example.demo.services.StatsService;
+
+@RestController
+@RequestMapping(path = "/api/v1/stats")
+public class StatsController {
+
+    private final StatsService statsService;
+
+    public StatsController(StatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MODERATOR')")
+    @GetMapping
+    public ResponseEntity<SalesStatsResponse> getSalesStats(
+            @RequestParam(value = "days", required = false) Integer days) {
+        return ResponseEntity.ok(statsService.getSalesStats(days));
+    }
+}
@@ -8,13 +8,25 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.FetchType;
 import javax.persistence.GenerationType;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
+import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.time.LocalDateTime;
 
 @Entity
+// mỗi (user, sản phẩm, size) chỉ một dòng: thêm vào giỏ là cộng số lượng (upsert), không sinh dòng mới
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cart_item_user_product_size", columnNames = { "user_id", "product_id", "size_id" })
+}, indexes = {
+        @Index(name = "idx_cart_item_user_updated_at", columnList = "user_id, updated_at")
+})
 @Getter
 @Setter
 public class CartItem {
@@ -39,4 +51,14 @@ public class CartItem {
     @JoinColumn(name="size_id")
     private Size size;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // lần sửa cuối để dọn giỏ bị bỏ quên (CartSweeper); các câu JDBC trong CartItemBatchRepositoryImpl tự đặt cột
+    // này, NULL là dòng có từ trước khi thêm cột
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
 }
@@ -7,10 +7,13 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import lombok.Getter;
@@ -18,9 +21,15 @@ import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "\"order\"")
+@Table(name = "\"order\"", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_order_user_idempotency_key", columnNames = { "user_id", "idempotency_key" })
+}, indexes = {
+        @Index(name = "idx_order_status_created_at", columnList = "status_id, created_at"),
+        @Index(name = "idx_order_user_created_at", columnList = "user_id, created_at")
+})
 @Getter
 @Setter
 public class Order {
@@ -58,10 +67,20 @@ public class Order {
     @JoinColumn(name = "user_id")
     private User user;
 
-    @Column(updatable = false)
+    @Column(name = "created_at", updatable = false)
     @CreationTimestamp
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
     private LocalDateTime updatedAt;
-}
\ No newline at end of file
+
+    // khóa lạc quan: UPDATE kèm điều kiện version, hai người sửa cùng lúc thì người sau nhận 409 thay vì ghi đè
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // Idempotency-Key của request checkout; ràng buộc unique chặn đơn trùng cả khi chạy nhiều instance
+    @JsonIgnore
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+}
@@ -10,6 +10,7 @@ import lombok.Setter;
 
 
 @Entity
+@Table(indexes = @Index(name = "idx_order_item_stock_applied", columnList = "stock_applied"))
 @Getter
 @Setter
 public class OrderItem {
@@ -41,4 +42,8 @@ public class OrderItem {
     @JoinColumn(name = "size_id")
     private Size size;
 
+    // false: đã giữ tồn kho trong bộ nhớ lúc checkout nhưng chưa trừ vào product_stock (null với dữ liệu cũ)
+    @JsonIgnore
+    @Column(name = "stock_applied")
+    private Boolean stockApplied;
 }
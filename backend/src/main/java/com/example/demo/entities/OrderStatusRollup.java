@@ -0,0 +1,23 @@
+package com.example.demo.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// số đơn hàng đang ở từng trạng thái
+@Entity
+@Table(name = "order_status_rollup")
+@Getter
+@Setter
+public class OrderStatusRollup {
+    @Id
+    @Column(name = "status_id", nullable = false, updatable = false)
+    private Long statusId;
+
+    @Column(nullable = false)
+    private Long orders;
+}
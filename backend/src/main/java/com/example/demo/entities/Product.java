@@ -1,5 +1,6 @@
 package com.example.demo.entities;
 
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -8,16 +9,26 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.FetchType;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.UpdateTimestamp;
 
 import lombok.Getter;
 import lombok.Setter;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_product_price_id", columnList = "price, id"),
+        @Index(name = "idx_product_name_id", columnList = "name, id"),
+        @Index(name = "idx_product_updated_at", columnList = "updated_at")
+})
 @Getter
 @Setter
 public class Product {
@@ -57,4 +68,14 @@ public class Product {
     @ManyToOne
     @JoinColumn(name = "category_id")
     private Category category;
+
+    // khóa lạc quan, đồng thời là ETag của sản phẩm
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // dùng cho xuất dữ liệu tăng dần (modifiedSince)
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
 }
\ No newline at end of file
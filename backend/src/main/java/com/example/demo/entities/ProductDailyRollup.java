@@ -0,0 +1,37 @@
+package com.example.demo.entities;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// số lượng đã bán theo (ngày tạo đơn, sản phẩm)
+@Entity
+@Table(name = "product_daily_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_daily_rollup_day_product", columnNames = { "sales_day", "product_id" })
+})
+@Getter
+@Setter
+public class ProductDailyRollup {
+    @Id
+    @Column(nullable = false, updatable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sales_day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long units;
+}
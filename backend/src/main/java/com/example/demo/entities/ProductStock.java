@@ -0,0 +1,36 @@
+package com.example.demo.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// tồn kho theo (sản phẩm, size); cặp không có dòng nào được coi là không giới hạn
+@Entity
+@Table(name = "product_stock", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_stock_product_size", columnNames = { "product_id", "size_id" })
+})
+@Getter
+@Setter
+public class ProductStock {
+    @Id
+    @Column(nullable = false, updatable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "size_id", nullable = false)
+    private Long sizeId;
+
+    // đã trừ các dòng đơn hàng có stock_applied = true
+    @Column(nullable = false)
+    private Long quantity;
+}
@@ -0,0 +1,28 @@
+package com.example.demo.entities;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// doanh thu và số đơn theo ngày tạo đơn, ảnh chụp định kỳ từ bộ đếm trong bộ nhớ (SalesStats)
+@Entity
+@Table(name = "sales_daily_rollup")
+@Getter
+@Setter
+public class SalesDailyRollup {
+    @Id
+    @Column(name = "sales_day", nullable = false, updatable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private Long revenue;
+
+    @Column(nullable = false)
+    private Long orders;
+}
@@ -0,0 +1,66 @@
+package com.example.demo.events;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.demo.entities.Order;
+import com.example.demo.entities.OrderItem;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// phát sau khi đơn hàng được tạo, đổi trạng thái hoặc bị xoá; thống kê chỉ nhận sau khi transaction commit
+@Getter
+@AllArgsConstructor
+public class OrderChangedEvent {
+
+    public enum Type {
+        PLACED, STATUS_CHANGED, DELETED
+    }
+
+    private final Type type;
+    private final Long orderId;
+    private final LocalDateTime createdAt;
+    private final Long total;
+    // null khi đơn mới tạo
+    private final Long previousStatusId;
+    // null khi đơn bị xoá
+    private final Long statusId;
+    // productId -> số lượng, chỉ có khi tạo/xoá đơn
+    private final Map<Long, Integer> productUnits;
+
+    public static OrderChangedEvent placed(final Order order, final Collection<OrderItem> orderItems) {
+        return new OrderChangedEvent(Type.PLACED, order.getId(), order.getCreatedAt(), order.getTotal(), null,
+                statusId(order), productUnits(orderItems));
+    }
+
+    public static OrderChangedEvent statusChanged(final Order order, final Long previousStatusId) {
+        return new OrderChangedEvent(Type.STATUS_CHANGED, order.getId(), order.getCreatedAt(), order.getTotal(),
+                previousStatusId, statusId(order), Collections.emptyMap());
+    }
+
+    public static OrderChangedEvent deleted(final Order order) {
+        return new OrderChangedEvent(Type.DELETED, order.getId(), order.getCreatedAt(), order.getTotal(),
+                statusId(order), null, productUnits(order.getOrderItems()));
+    }
+
+    private static Long statusId(final Order order) {
+        return order.getStatus() == null ? null : order.getStatus().getId();
+    }
+
+    private static Map<Long, Integer> productUnits(final Collection<OrderItem> orderItems) {
+        if (orderItems == null) {
+            return Collections.emptyMap();
+        }
+        final Map<Long, Integer> units = new HashMap<>();
+        for (OrderItem item : orderItems) {
+            if (item.getProduct() != null && item.getProduct().getId() != null && item.getQuantity() != null) {
+                units.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        return units;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.events;
+
+import com.example.demo.entities.Product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private final Long productId;
+
+    // null khi sản phẩm bị xoá
+    private final Product product;
+
+    public static ProductChangedEvent saved(final Product product) {
+        return new ProductChangedEvent(product.getId(), product);
+    }
+
+    public static ProductChangedEvent deleted(final Long productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
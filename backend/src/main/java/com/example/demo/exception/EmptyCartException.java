@@ -0,0 +1,12 @@
+package com.example.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class EmptyCartException extends RuntimeException {
+
+    public EmptyCartException() {
+        super("Cart is empty. Cannot create order.");
+    }
+}
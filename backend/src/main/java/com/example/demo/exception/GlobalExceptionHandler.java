@@ -6,11 +6,13 @@ import org.apache.catalina.connector.ClientAbortException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -22,6 +24,32 @@ public class GlobalExceptionHandler {
                 return new ResponseEntity<>(errorDetails, HttpStatus.NOT_FOUND);
         }
 
+        @ExceptionHandler(EmptyCartException.class)
+        public ResponseEntity<ErrorDetails> handleEmptyCartException(EmptyCartException exception,
+                                                                                WebRequest webRequest){
+                ErrorDetails errorDetails = new ErrorDetails(new Date(), exception.getMessage(),
+                        webRequest.getDescription(false));
+                return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
+        }
+
+        @ExceptionHandler(ResponseStatusException.class)
+        public ResponseEntity<ErrorDetails> handleResponseStatusException(ResponseStatusException exception,
+                                                                                WebRequest webRequest){
+                ErrorDetails errorDetails = new ErrorDetails(new Date(), exception.getReason(),
+                        webRequest.getDescription(false));
+                return new ResponseEntity<>(errorDetails, exception.getStatus());
+        }
+
+        // bản ghi đã bị người khác sửa giữa lúc đọc và lúc ghi (@Version không khớp)
+        @ExceptionHandler(OptimisticLockingFailureException.class)
+        public ResponseEntity<ErrorDetails> handleOptimisticLockingFailureException(
+                        OptimisticLockingFailureException exception, WebRequest webRequest){
+                ErrorDetails errorDetails = new ErrorDetails(new Date(),
+                        "The resource was modified concurrently, reload it and retry",
+                        webRequest.getDescription(false));
+                return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
+        }
+
         @ExceptionHandler(DataAccessException.class)
         public ResponseEntity<ErrorDetails> handleDataAccessException(DataAccessException exception,
                                                                                 WebRequest webRequest){
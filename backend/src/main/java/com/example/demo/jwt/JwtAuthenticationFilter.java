@@ -15,7 +15,11 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.example.demo.security.CustomUserDetails;
 import com.example.demo.security.CustomUserDetailsService;
+import com.example.demo.security.TokenValidationService;
+
+import io.jsonwebtoken.Claims;
 
 import lombok.extern.slf4j.Slf4j;
 @Slf4j
@@ -24,6 +28,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtTokenPovider JwtTokenPovider;
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
+    @Autowired
+    private TokenValidationService tokenValidationService;
 
     private String getJwtFromRequest (HttpServletRequest request){
         String bearerToken = request.getHeader("Authorization");
@@ -38,9 +44,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try{
             String jwt = getJwtFromRequest(request);
-            if(StringUtils.hasText(jwt)&&JwtTokenPovider.validateToken(jwt)){
-                String username=JwtTokenPovider.getUserNameFromJwt(jwt);
-                UserDetails userDetails=customUserDetailsService.loadUserByUsername(username);
+            Claims claims = StringUtils.hasText(jwt) ? JwtTokenPovider.getClaims(jwt) : null;
+            if(claims!=null){
+                // principal lấy từ claims đã ký, không tra bảng users; token cũ chưa có claim uid thì tra như trước
+                CustomUserDetails fromClaims=JwtTokenPovider.getUserDetailsFromClaims(claims);
+                UserDetails userDetails=fromClaims==null
+                        ? customUserDetailsService.loadUserByUsername(claims.getSubject())
+                        : tokenValidationService.validate(fromClaims, JwtTokenPovider.getIssuedAt(claims));
                 if(userDetails!=null){
                     UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken
                      = new UsernamePasswordAuthenticationToken(
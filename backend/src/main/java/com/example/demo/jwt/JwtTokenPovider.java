@@ -1,19 +1,27 @@
 package com.example.demo.jwt;
 
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import com.example.demo.security.CustomUserDetails;
+import com.example.demo.services.oauth2.security.OAuth2UserDetailCustom;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,29 +29,53 @@ import lombok.extern.slf4j.Slf4j;
 @Component
 @Slf4j
 public class JwtTokenPovider {
+    // claims đủ để dựng CustomUserDetails khi xác thực request mà không tra bảng users
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLES = "roles";
+    static final String CLAIM_STATUS = "status";
+    // iat chỉ chính xác tới giây; thời điểm cấp tính bằng ms để so với lần thu hồi tài khoản cùng giây
+    static final String CLAIM_ISSUED_AT_MS = "iat_ms";
+
     @Value("${demo.jwt.secret}")
     private String JWT_SECRET;
     @Value("${demo.jwt.expiration}")
     private int JWT_EXPIRATION;
     public String generateToken(CustomUserDetails CustomUserDetails){
-        Date now =new Date();
-        Date dateExpiration =new Date(now.getTime()+JWT_EXPIRATION);
-        return Jwts.builder()
-                    .setSubject(CustomUserDetails.getUsername())
-                    .setIssuedAt(now)
-                    .setExpiration(dateExpiration)
-                    .signWith(SignatureAlgorithm.HS512,JWT_SECRET)
+        return buildToken(CustomUserDetails.getUsername())
+                    .claim(CLAIM_USER_ID, CustomUserDetails.getUserId())
+                    .claim(CLAIM_ROLES, roleNames(CustomUserDetails.getAuthorities()))
+                    .claim(CLAIM_STATUS, CustomUserDetails.isUserStatus())
                     .compact();
     }
     public String generateToken(Authentication authentication){
+        if (authentication.getPrincipal() instanceof CustomUserDetails) {
+            return generateToken((CustomUserDetails) authentication.getPrincipal());
+        }
+        if (authentication.getPrincipal() instanceof OAuth2UserDetailCustom) {
+            // user OAuth2 vừa đăng nhập thành công nên coi như đang hoạt động
+            OAuth2UserDetailCustom principal = (OAuth2UserDetailCustom) authentication.getPrincipal();
+            return buildToken(principal.getUsername())
+                    .claim(CLAIM_USER_ID, principal.getUserId())
+                    .claim(CLAIM_ROLES, roleNames(principal.getAuthorities()))
+                    .claim(CLAIM_STATUS, true)
+                    .compact();
+        }
+        return buildToken(authentication.getName()).compact();
+    }
+
+    private JwtBuilder buildToken(String subject){
         Date now =new Date();
         Date dateExpiration =new Date(now.getTime()+JWT_EXPIRATION);
         return Jwts.builder()
-                    .setSubject(authentication.getName())
+                    .setSubject(subject)
                     .setIssuedAt(now)
+                    .claim(CLAIM_ISSUED_AT_MS, now.getTime())
                     .setExpiration(dateExpiration)
-                    .signWith(SignatureAlgorithm.HS512,JWT_SECRET)
-                    .compact();
+                    .signWith(SignatureAlgorithm.HS512,JWT_SECRET);
+    }
+
+    private static List<String> roleNames(Collection<? extends GrantedAuthority> authorities){
+        return authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
     }
    
     public String getUserNameFromJwt(String token){
@@ -52,21 +84,54 @@ public class JwtTokenPovider {
      
         return claims.getSubject();
     }
-    
-    public boolean validateToken(String token){
+
+    // claims đã kiểm tra chữ ký và hạn, null nếu token không hợp lệ
+    public Claims getClaims(String token){
         try{
-            Jwts.parser().setSigningKey(JWT_SECRET)
-                            .parseClaimsJws(token);
-            return true;
+            return Jwts.parser().setSigningKey(JWT_SECRET)
+                            .parseClaimsJws(token).getBody();
         }catch (MalformedJwtException e){
             log.error("Invalid JWT Token");
         }catch(ExpiredJwtException e){
             log.error("Expired JWT Token");
         }catch(UnsupportedJwtException e){
             log.error("UnsupportedJwt");
+        }catch(SignatureException e){
+            log.error("Invalid JWT signature");
         }catch (IllegalArgumentException e){
             log.error("JWT Claims String is empty");
         }
-        return false;
+        return null;
+    }
+
+    // thời điểm cấp chính xác tới ms; token cấp trước khi có claim iat_ms thì dùng iat (tròn giây)
+    public Date getIssuedAt(Claims claims){
+        Number issuedAtMs = claims.get(CLAIM_ISSUED_AT_MS, Number.class);
+        return issuedAtMs == null ? claims.getIssuedAt() : new Date(issuedAtMs.longValue());
+    }
+
+    // principal dựng từ claims (không có password, email, phone); null với token cấp trước khi có claim uid
+    public CustomUserDetails getUserDetailsFromClaims(Claims claims){
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        if (userId == null) {
+            return null;
+        }
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        List<GrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(role -> new SimpleGrantedAuthority(String.valueOf(role)))
+                .collect(Collectors.toList());
+        return new CustomUserDetails(
+            userId.longValue(),
+            claims.getSubject(),
+            null,
+            null,
+            null,
+            Boolean.TRUE.equals(claims.get(CLAIM_STATUS, Boolean.class)),
+            authorities
+        );
+    }
+    
+    public boolean validateToken(String token){
+        return getClaims(token) != null;
     }
 }
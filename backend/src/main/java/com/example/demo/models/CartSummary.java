@@ -0,0 +1,36 @@
+package com.example.demo.models;
+
+import java.util.List;
+
+import lombok.Getter;
+
+// tổng giỏ của một user; được cache dùng chung giữa các request nên không có setter
+@Getter
+public class CartSummary {
+
+    private final List<CartSummaryLine> lines;
+    // tổng số lượng sản phẩm trong giỏ
+    private final long itemCount;
+    private final long total;
+
+    public CartSummary(final List<CartSummaryLine> lines) {
+        this.lines = List.copyOf(lines);
+        long itemCount = 0;
+        long total = 0;
+        for (CartSummaryLine line : lines) {
+            itemCount += line.getQuantity() == null ? 0 : line.getQuantity();
+            total += line.getLineTotal();
+        }
+        this.itemCount = itemCount;
+        this.total = total;
+    }
+
+    public boolean containsProduct(final Long productId) {
+        for (CartSummaryLine line : lines) {
+            if (productId.equals(line.getProductId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
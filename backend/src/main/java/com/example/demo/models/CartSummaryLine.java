@@ -0,0 +1,33 @@
+package com.example.demo.models;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// một dòng giỏ đã tính sẵn thành tiền: chỉ các cột cần hiển thị, không nạp CartItem/User/Product đầy đủ
+@Getter
+@Setter
+public class CartSummaryLine {
+
+    private Long id;
+    private Long productId;
+    private String productName;
+    private String image;
+    private Long sizeId;
+    private String sizeName;
+    private Long price;
+    private Integer quantity;
+    private Long lineTotal;
+
+    public CartSummaryLine(Long id, Long productId, String productName, String image, Long sizeId, String sizeName,
+            Long price, Integer quantity) {
+        this.id = id;
+        this.productId = productId;
+        this.productName = productName;
+        this.image = image;
+        this.sizeId = sizeId;
+        this.sizeName = sizeName;
+        this.price = price;
+        this.quantity = quantity;
+        this.lineTotal = price == null || quantity == null ? 0L : price * quantity;
+    }
+}
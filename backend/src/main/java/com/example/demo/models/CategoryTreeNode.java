@@ -0,0 +1,17 @@
+package com.example.demo.models;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CategoryTreeNode {
+
+    private Long id;
+
+    private String name;
+
+    private List<CategoryTreeNode> children;
+}
@@ -0,0 +1,14 @@
+package com.example.demo.models;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DailySales {
+    private LocalDate day;
+    private long revenue;
+    private long orders;
+}
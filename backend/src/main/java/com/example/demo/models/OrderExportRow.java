@@ -0,0 +1,46 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// một dòng xuất cho kế toán: thông tin đơn lặp lại trên từng dòng hàng, đơn không có dòng hàng thì các cột item để trống
+@Getter
+@Setter
+public class OrderExportRow {
+
+    private Long orderId;
+
+    private LocalDateTime createdAt;
+
+    private Long statusId;
+
+    private String status;
+
+    private Long userId;
+
+    private String username;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String phone;
+
+    private String address;
+
+    private Long orderTotal;
+
+    private Long itemId;
+
+    private Long productId;
+
+    private String productName;
+
+    private String size;
+
+    private Long price;
+
+    private Integer quantity;
+}
@@ -0,0 +1,41 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// một dòng trong danh sách đơn hàng của admin: không kèm orderItems, user chỉ có id và username
+@Getter
+@Setter
+public class OrderListItem {
+
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private String address;
+    private Long total;
+    private OrderStatusDTO status;
+    private Long userId;
+    private String username;
+    private LocalDateTime createdAt;
+
+    public OrderListItem(Long id, String firstName, String lastName, String phone, String address, Long total,
+            Long statusId, String statusName, Long userId, String username, LocalDateTime createdAt) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phone = phone;
+        this.address = address;
+        this.total = total;
+        if (statusId != null) {
+            this.status = new OrderStatusDTO();
+            this.status.setId(statusId);
+            this.status.setName(statusName);
+        }
+        this.userId = userId;
+        this.username = username;
+        this.createdAt = createdAt;
+    }
+}
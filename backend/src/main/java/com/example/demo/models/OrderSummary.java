@@ -0,0 +1,32 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// một dòng lịch sử đơn hàng của người dùng: không kèm orderItems, chi tiết lấy từ /orders/{id}
+@Getter
+@Setter
+public class OrderSummary {
+
+    private Long id;
+    private LocalDateTime createdAt;
+    private OrderStatusDTO status;
+    private Long total;
+    // tổng số lượng sản phẩm trong đơn
+    private Long itemCount;
+
+    public OrderSummary(Long id, LocalDateTime createdAt, Long statusId, String statusName, Long total,
+            Long itemCount) {
+        this.id = id;
+        this.createdAt = createdAt;
+        if (statusId != null) {
+            this.status = new OrderStatusDTO();
+            this.status.setId(statusId);
+            this.status.setName(statusName);
+        }
+        this.total = total;
+        this.itemCount = itemCount;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// một dòng của feed sản phẩm, đọc thẳng từ JDBC nên không gắn với phiên Hibernate
+@Getter
+@Setter
+public class ProductFeedItem {
+
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private String materials;
+
+    private String instruction;
+
+    private String image;
+
+    private Long price;
+
+    private Long categoryId;
+
+    private String category;
+
+    private Long colorId;
+
+    private String color;
+
+    private List<String> sizes = new ArrayList<>();
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,11 @@
+package com.example.demo.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProductSales {
+    private Long productId;
+    private long units;
+}
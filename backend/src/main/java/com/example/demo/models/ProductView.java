@@ -0,0 +1,118 @@
+package com.example.demo.models;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.example.demo.entities.Category;
+import com.example.demo.entities.Color;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// dữ liệu sản phẩm trả về cho client, dựng từ entity đã fetch đủ color/category/listSizes
+@Getter
+@Setter
+public class ProductView {
+
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private ColorView color;
+
+    private String materials;
+
+    private List<SizeView> listSizes;
+
+    private String image;
+
+    private String instruction;
+
+    private Long price;
+
+    private CategoryView category;
+
+    // gửi lại trong If-Match khi sửa sản phẩm
+    private Long version;
+
+    public static ProductView from(final Product product) {
+        final ProductView view = new ProductView();
+        view.setId(product.getId());
+        view.setName(product.getName());
+        view.setDescription(product.getDescription());
+        view.setColor(ColorView.from(product.getColor()));
+        view.setMaterials(product.getMaterials());
+        view.setListSizes(product.getListSizes() == null ? new ArrayList<>() : product.getListSizes().stream()
+                .sorted(Comparator.comparing(Size::getSizeId, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(SizeView::from)
+                .collect(Collectors.toList()));
+        view.setImage(product.getImage());
+        view.setInstruction(product.getInstruction());
+        view.setPrice(product.getPrice());
+        view.setCategory(CategoryView.from(product.getCategory()));
+        view.setVersion(product.getVersion());
+        return view;
+    }
+
+    public static List<ProductView> from(final List<Product> products) {
+        return products.stream().map(ProductView::from).collect(Collectors.toList());
+    }
+
+    @Getter
+    @Setter
+    public static class ColorView {
+        private Long id;
+        private String name;
+        private String image;
+
+        static ColorView from(final Color color) {
+            if (color == null) {
+                return null;
+            }
+            final ColorView view = new ColorView();
+            view.setId(color.getId());
+            view.setName(color.getName());
+            view.setImage(color.getImage());
+            return view;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class SizeView {
+        private Long sizeId;
+        private String name;
+
+        static SizeView from(final Size size) {
+            final SizeView view = new SizeView();
+            view.setSizeId(size.getSizeId());
+            view.setName(size.getName());
+            return view;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class CategoryView {
+        private Long id;
+        private String name;
+        private CategoryView parentCategory;
+
+        static CategoryView from(final Category category) {
+            if (category == null) {
+                return null;
+            }
+            final CategoryView view = new CategoryView();
+            view.setId(category.getId());
+            view.setName(category.getName());
+            view.setParentCategory(from(category.getParentCategory()));
+            return view;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelDTO {
+    private Long sizeId;
+
+    private Long quantity;
+}
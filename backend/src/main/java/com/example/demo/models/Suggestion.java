@@ -0,0 +1,18 @@
+package com.example.demo.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Suggestion {
+
+    // "product" hoặc "category"
+    private String type;
+
+    private Long id;
+
+    private String text;
+
+    private long popularity;
+}
@@ -0,0 +1,29 @@
+package com.example.demo.payload.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// một thao tác trong PATCH /api/v1/cart-items
+@Getter
+@Setter
+public class CartItemOperation {
+
+    public enum Type {
+        // cộng quantity vào dòng (productId, size), chưa có thì tạo
+        ADD,
+        // đặt quantity/size cho dòng id
+        UPDATE,
+        // xoá dòng id, không có thì bỏ qua
+        REMOVE
+    }
+
+    private Type type;
+
+    private Long id;
+
+    private Long productId;
+
+    private Integer quantity;
+
+    private Long size;
+}
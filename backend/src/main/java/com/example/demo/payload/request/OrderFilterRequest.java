@@ -0,0 +1,28 @@
+package com.example.demo.payload.request;
+
+import java.time.LocalDateTime;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class OrderFilterRequest {
+    private Long statusId;
+    private Long userId;
+    // [createdFrom, createdTo)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+    private Long minTotal;
+    private Long maxTotal;
+    // createdAt, total hoặc id
+    private String sort;
+    // asc hoặc desc
+    private String direction;
+    private Integer page;
+    private Integer pageSize;
+}
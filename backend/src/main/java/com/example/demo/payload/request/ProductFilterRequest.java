@@ -0,0 +1,18 @@
+package com.example.demo.payload.request;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ProductFilterRequest {
+    private List<Long> categoryId;
+    private List<Long> colorId;
+    private List<Long> sizeId;
+    private Long minPrice;
+    private Long maxPrice;
+    private Integer page;
+    private Integer pageSize;
+}
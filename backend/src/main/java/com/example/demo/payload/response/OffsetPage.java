@@ -0,0 +1,15 @@
+package com.example.demo.payload.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class OffsetPage<T> {
+    private List<T> items;
+    private int page;
+    private int pageSize;
+    private long total;
+}
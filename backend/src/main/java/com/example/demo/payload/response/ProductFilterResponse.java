@@ -0,0 +1,26 @@
+package com.example.demo.payload.response;
+
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.models.ProductView;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ProductFilterResponse {
+    private List<ProductView> items;
+    private int total;
+    private int page;
+    private int pageSize;
+    private Map<Long, Integer> categoryCounts;
+    private Map<Long, Integer> colorCounts;
+    private Map<Long, Integer> sizeCounts;
+    // số sản phẩm trong từng khoảng giá, khoảng i là [bounds[i-1], bounds[i])
+    private List<Long> priceBucketBounds;
+    private List<Integer> priceBucketCounts;
+    private Long minPrice;
+    private Long maxPrice;
+}
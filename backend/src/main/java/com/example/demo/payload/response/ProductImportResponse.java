@@ -0,0 +1,25 @@
+package com.example.demo.payload.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ProductImportResponse {
+    private int total;
+    private int imported;
+    private int failed;
+    // chỉ giữ tối đa một số lỗi đầu tiên, failed vẫn đếm đủ
+    private List<RowError> errors = new ArrayList<>();
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
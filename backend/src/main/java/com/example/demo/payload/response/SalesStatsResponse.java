@@ -0,0 +1,21 @@
+package com.example.demo.payload.response;
+
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.models.DailySales;
+import com.example.demo.models.ProductSales;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SalesStatsResponse {
+    // từ ngày cũ nhất tới hôm nay, ngày không có đơn vẫn có mặt với giá trị 0
+    private List<DailySales> revenueByDay;
+    // statusId -> số đơn
+    private Map<Long, Long> ordersByStatus;
+    // tính lại sau mỗi lần ghi rollup
+    private List<ProductSales> topProducts;
+}
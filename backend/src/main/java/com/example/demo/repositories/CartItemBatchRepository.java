@@ -0,0 +1,28 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.demo.entities.CartItem;
+
+public interface CartItemBatchRepository {
+
+    // ghi số lượng và size của các dòng giỏ hàng bằng một JDBC batch, dòng đã bị xoá thì bỏ qua
+    void updateAll(List<CartItem> cartItems);
+
+    // thêm vào giỏ: chưa có dòng (user, sản phẩm, size) thì chèn, có rồi thì cộng số lượng; trả về id của dòng
+    Long addQuantity(Long userId, Long productId, Long sizeId, int quantity);
+
+    // gộp các nhóm trùng lấy từ CartItemRepository.findDuplicateGroups(): dòng id nhỏ nhất giữ tổng số lượng,
+    // các dòng còn lại của nhóm bị xoá
+    void mergeDuplicates(List<Object[]> groups);
+
+    // đặt updated_at = now cho các dòng chưa có (tạo trước khi thêm cột) trong khoảng id [fromId, toId)
+    int stampMissingUpdatedAt(long fromId, long toId, LocalDateTime now);
+
+    // [id, userId] của các dòng trong khoảng id [fromId, toId) thuộc giỏ không có dòng nào được sửa từ cutoff
+    List<Object[]> findAbandoned(long fromId, long toId, LocalDateTime cutoff);
+
+    // xoá theo id, bỏ qua dòng vừa được sửa lại sau cutoff; trả về số dòng đã xoá
+    int deleteAbandoned(List<Long> ids, LocalDateTime cutoff);
+}
@@ -0,0 +1,176 @@
+package com.example.demo.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import com.example.demo.entities.CartItem;
+
+// dùng cho ghi trễ từ CartStore: các thay đổi đã được gộp theo từng dòng nên chỉ cần UPDATE, không phải merge
+public class CartItemBatchRepositoryImpl implements CartItemBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean mysql;
+
+    public CartItemBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void updateAll(final List<CartItem> cartItems) {
+        if (cartItems.isEmpty()) {
+            return;
+        }
+        // JDBC đi vòng qua Hibernate nên phải tự tăng version và đặt updated_at thay cho @Version/@UpdateTimestamp
+        final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("UPDATE cart_item SET quantity = ?, size_id = ?, updated_at = ?, version = version + 1"
+                + " WHERE id = ?", cartItems, cartItems.size(), (statement, cartItem) -> {
+                    statement.setInt(1, cartItem.getQuantity());
+                    setNullableLong(statement, 2, cartItem.getSize() == null ? null : cartItem.getSize().getSizeId());
+                    statement.setTimestamp(3, now);
+                    statement.setLong(4, cartItem.getId());
+                });
+    }
+
+    @Override
+    public Long addQuantity(final Long userId, final Long productId, final Long sizeId, final int quantity) {
+        final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (isMySql()) {
+            // một câu nguyên tử trên khoá unique; id = LAST_INSERT_ID(id) để dòng đã có cũng trả id qua generated key
+            final KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                final PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO cart_item (user_id, product_id, size_id, quantity, updated_at, version)"
+                                + " VALUES (?, ?, ?, ?, ?, 0) ON DUPLICATE KEY UPDATE"
+                                + " quantity = quantity + VALUES(quantity), updated_at = VALUES(updated_at),"
+                                + " version = version + 1, id = LAST_INSERT_ID(id)",
+                        Statement.RETURN_GENERATED_KEYS);
+                statement.setLong(1, userId);
+                statement.setLong(2, productId);
+                statement.setLong(3, sizeId);
+                statement.setInt(4, quantity);
+                statement.setTimestamp(5, now);
+                return statement;
+            }, keyHolder);
+            return keyHolder.getKey().longValue();
+        }
+        // DB khác (H2 khi test): UPDATE trước, chưa có dòng thì INSERT; bị chèn trước một bước thì khoá unique
+        // chặn lại và UPDATE lần nữa
+        Long id = incrementExisting(userId, productId, sizeId, quantity, now);
+        if (id != null) {
+            return id;
+        }
+        try {
+            final KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                final PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO cart_item (user_id, product_id, size_id, quantity, updated_at, version)"
+                                + " VALUES (?, ?, ?, ?, ?, 0)",
+                        new String[] { "id" });
+                statement.setLong(1, userId);
+                statement.setLong(2, productId);
+                statement.setLong(3, sizeId);
+                statement.setInt(4, quantity);
+                statement.setTimestamp(5, now);
+                return statement;
+            }, keyHolder);
+            return keyHolder.getKey().longValue();
+        } catch (DuplicateKeyException e) {
+            return incrementExisting(userId, productId, sizeId, quantity, now);
+        }
+    }
+
+    @Override
+    public void mergeDuplicates(final List<Object[]> groups) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE cart_item SET quantity = ?, version = version + 1 WHERE id = ?", groups,
+                groups.size(), (statement, group) -> {
+                    statement.setLong(1, ((Number) group[4]).longValue());
+                    statement.setLong(2, (Long) group[3]);
+                });
+        jdbcTemplate.batchUpdate(
+                "DELETE FROM cart_item WHERE user_id = ? AND product_id = ? AND size_id = ? AND id <> ?", groups,
+                groups.size(), (statement, group) -> {
+                    statement.setLong(1, (Long) group[0]);
+                    statement.setLong(2, (Long) group[1]);
+                    statement.setLong(3, (Long) group[2]);
+                    statement.setLong(4, (Long) group[3]);
+                });
+    }
+
+    @Override
+    public int stampMissingUpdatedAt(final long fromId, final long toId, final LocalDateTime now) {
+        return jdbcTemplate.update(
+                "UPDATE cart_item SET updated_at = ? WHERE id >= ? AND id < ? AND updated_at IS NULL",
+                Timestamp.valueOf(now), fromId, toId);
+    }
+
+    // chỉ đọc (không khoá); MySQL không cho DELETE có subquery trên chính bảng bị xoá nên tách thành SELECT rồi
+    // DELETE theo khoá chính
+    @Override
+    public List<Object[]> findAbandoned(final long fromId, final long toId, final LocalDateTime cutoff) {
+        final Timestamp cutoffTime = Timestamp.valueOf(cutoff);
+        return jdbcTemplate.query("SELECT c.id, c.user_id FROM cart_item c WHERE c.id >= ? AND c.id < ?"
+                + " AND c.updated_at < ? AND NOT EXISTS (SELECT 1 FROM cart_item r"
+                + " WHERE r.user_id = c.user_id AND r.updated_at >= ?)",
+                (rs, rowNum) -> new Object[] { rs.getLong(1), (Long) rs.getObject(2, Long.class) },
+                fromId, toId, cutoffTime, cutoffTime);
+    }
+
+    @Override
+    public int deleteAbandoned(final List<Long> ids, final LocalDateTime cutoff) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        final List<Object> args = new ArrayList<>(ids);
+        args.add(Timestamp.valueOf(cutoff));
+        return jdbcTemplate.update("DELETE FROM cart_item WHERE id IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ") AND updated_at < ?", args.toArray());
+    }
+
+    private Long incrementExisting(final Long userId, final Long productId, final Long sizeId, final int quantity,
+            final Timestamp now) {
+        final int updated = jdbcTemplate.update("UPDATE cart_item SET quantity = quantity + ?, updated_at = ?,"
+                + " version = version + 1 WHERE user_id = ? AND product_id = ? AND size_id = ?", quantity, now, userId,
+                productId, sizeId);
+        if (updated == 0) {
+            return null;
+        }
+        return jdbcTemplate.queryForObject(
+                "SELECT id FROM cart_item WHERE user_id = ? AND product_id = ? AND size_id = ?", Long.class, userId,
+                productId, sizeId);
+    }
+
+    private boolean isMySql() {
+        if (mysql == null) {
+            mysql = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                final String product = connection.getMetaData().getDatabaseProductName();
+                return product.startsWith("MySQL") || product.startsWith("MariaDB");
+            });
+        }
+        return mysql;
+    }
+
+    private static void setNullableLong(final PreparedStatement statement, final int index, final Long value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+}
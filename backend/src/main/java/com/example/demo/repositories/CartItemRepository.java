@@ -1,14 +1,52 @@
 package com.example.demo.repositories;
 import com.example.demo.entities.CartItem;
+import com.example.demo.models.CartSummaryLine;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
-    void deleteAllByUserId(Long userId);
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemBatchRepository {
+    // một câu DELETE thay vì nạp rồi xóa từng dòng như phương thức deleteBy... sinh tự động
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId")
+    void deleteAllByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.id IN :ids")
+    void deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // nạp sản phẩm (kèm màu, danh mục) và size trong cùng câu truy vấn, tránh N+1 khi hiển thị giỏ và checkout
+    @EntityGraph(attributePaths = { "product", "product.color", "product.category", "product.category.parentCategory",
+            "size" })
     List<CartItem> findAllByUserId(Long userId);
     CartItem findByUserIdAndProductId(Long userId, Long productId);
+
+    // chỉ lấy các cột để tính tổng giỏ, không nạp user (EAGER kèm roles) hay màu/danh mục của sản phẩm
+    @Query("SELECT new com.example.demo.models.CartSummaryLine(c.id, p.id, p.name, p.image, s.sizeId, s.name,"
+            + " p.price, c.quantity) FROM CartItem c JOIN c.product p LEFT JOIN c.size s"
+            + " WHERE c.user.id = :userId ORDER BY c.id")
+    List<CartSummaryLine> findSummaryLines(@Param("userId") Long userId);
+
+    @Query("SELECT MIN(c.id) FROM CartItem c")
+    Long findMinId();
+
+    @Query("SELECT MAX(c.id) FROM CartItem c")
+    Long findMaxId();
+
+    // [userId, productId, sizeId, id nhỏ nhất, tổng số lượng] của các nhóm bị trùng; size NULL không bị
+    // khoá unique chặn (NULL khác NULL) nên không gộp
+    @Query("SELECT c.user.id, c.product.id, c.size.sizeId, MIN(c.id), SUM(c.quantity) FROM CartItem c"
+            + " WHERE c.user IS NOT NULL AND c.product IS NOT NULL AND c.size IS NOT NULL"
+            + " GROUP BY c.user.id, c.product.id, c.size.sizeId HAVING COUNT(c) > 1")
+    List<Object[]> findDuplicateGroups();
 }
\ No newline at end of file
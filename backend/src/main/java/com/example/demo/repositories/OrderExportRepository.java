@@ -0,0 +1,12 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import com.example.demo.models.OrderExportRow;
+
+public interface OrderExportRepository {
+
+    // duyệt các dòng hàng của đơn tạo trong [createdFrom, createdTo) theo id đơn rồi id dòng hàng, mỗi lần giữ một dòng
+    void streamExportRows(LocalDateTime createdFrom, LocalDateTime createdTo, Consumer<OrderExportRow> consumer);
+}
@@ -0,0 +1,97 @@
+package com.example.demo.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import com.example.demo.models.OrderExportRow;
+
+// đọc đơn hàng bằng con trỏ JDBC chỉ-đi-tới, không dựng Order/OrderItem/User như /orders/admin
+public class OrderExportRepositoryImpl implements OrderExportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // MySQL Connector/J chỉ stream từng dòng khi fetch size là Integer.MIN_VALUE, các DB khác dùng số dương
+    @Value("${demo.orders.export.fetch-size:500}")
+    private int fetchSize;
+
+    public OrderExportRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void streamExportRows(final LocalDateTime createdFrom, final LocalDateTime createdTo,
+            final Consumer<OrderExportRow> consumer) {
+        jdbcTemplate.query(connection -> {
+            // bảng order trùng từ khóa SQL nên phải quote theo đúng DB đang dùng
+            final String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+            final List<String> conditions = new ArrayList<>();
+            if (createdFrom != null) {
+                conditions.add("o.created_at >= ?");
+            }
+            if (createdTo != null) {
+                conditions.add("o.created_at < ?");
+            }
+            final String sql = "SELECT o.id AS order_id, o.created_at, o.status_id, st.name AS status_name,"
+                    + " o.user_id, u.username, o.first_name, o.last_name, o.phone, o.address, o.total,"
+                    + " oi.id AS item_id, oi.product_id, oi.name AS product_name, s.name AS size_name,"
+                    + " oi.price, oi.quantity"
+                    + " FROM " + quote + "order" + quote + " o"
+                    + " LEFT JOIN order_status st ON st.id = o.status_id"
+                    + " LEFT JOIN users u ON u.id = o.user_id"
+                    + " LEFT JOIN order_item oi ON oi.order_id = o.id"
+                    + " LEFT JOIN size s ON s.size_id = oi.size_id"
+                    + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                    + " ORDER BY o.id, oi.id";
+            final PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            int index = 1;
+            if (createdFrom != null) {
+                statement.setTimestamp(index++, Timestamp.valueOf(createdFrom));
+            }
+            if (createdTo != null) {
+                statement.setTimestamp(index, Timestamp.valueOf(createdTo));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(toRow(rs)));
+    }
+
+    private static OrderExportRow toRow(final ResultSet rs) throws SQLException {
+        final OrderExportRow row = new OrderExportRow();
+        row.setOrderId(rs.getLong("order_id"));
+        final Timestamp createdAt = rs.getTimestamp("created_at");
+        row.setCreatedAt(createdAt == null ? null : createdAt.toLocalDateTime());
+        row.setStatusId(getNullableLong(rs, "status_id"));
+        row.setStatus(rs.getString("status_name"));
+        row.setUserId(getNullableLong(rs, "user_id"));
+        row.setUsername(rs.getString("username"));
+        row.setFirstName(rs.getString("first_name"));
+        row.setLastName(rs.getString("last_name"));
+        row.setPhone(rs.getString("phone"));
+        row.setAddress(rs.getString("address"));
+        row.setOrderTotal(getNullableLong(rs, "total"));
+        row.setItemId(getNullableLong(rs, "item_id"));
+        row.setProductId(getNullableLong(rs, "product_id"));
+        row.setProductName(rs.getString("product_name"));
+        row.setSize(rs.getString("size_name"));
+        row.setPrice(getNullableLong(rs, "price"));
+        final int quantity = rs.getInt("quantity");
+        row.setQuantity(rs.wasNull() ? null : quantity);
+        return row;
+    }
+
+    private static Long getNullableLong(final ResultSet rs, final String column) throws SQLException {
+        final long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import com.example.demo.entities.OrderItem;
+
+public interface OrderItemBatchRepository {
+
+    // chèn các dòng đơn hàng bằng một JDBC batch và gán id được sinh vào từng đối tượng
+    void insertAll(List<OrderItem> orderItems);
+}
@@ -0,0 +1,69 @@
+package com.example.demo.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.entities.OrderItem;
+
+// OrderItem.id dùng IDENTITY nên Hibernate ghi từng dòng một, checkout đi thẳng JDBC batch
+// (chạy trong transaction JPA hiện tại nên đơn hàng vừa lưu đã thấy được)
+public class OrderItemBatchRepositoryImpl implements OrderItemBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderItemBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(final List<OrderItem> orderItems) {
+        if (orderItems.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            // stock_applied = FALSE: tồn kho đã được giữ trong bộ nhớ, product_stock sẽ trừ sau (write-behind)
+            final String sql = "INSERT INTO order_item (name, price, quantity, order_id, product_id, size_id,"
+                    + " stock_applied) VALUES (?, ?, ?, ?, ?, ?, FALSE)";
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (OrderItem item : orderItems) {
+                    statement.setString(1, item.getName());
+                    setNullableLong(statement, 2, item.getPrice());
+                    statement.setInt(3, item.getQuantity());
+                    statement.setLong(4, item.getOrder().getId());
+                    setNullableLong(statement, 5, item.getProduct() == null ? null : item.getProduct().getId());
+                    setNullableLong(statement, 6, item.getSize() == null ? null : item.getSize().getSizeId());
+                    statement.addBatch();
+                    item.setStockApplied(false);
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < orderItems.size()) {
+                        orderItems.get(i++).setId(keys.getLong(1));
+                    }
+                    if (i != orderItems.size()) {
+                        throw new IncorrectResultSizeDataAccessException(orderItems.size(), i);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void setNullableLong(final PreparedStatement statement, final int index, final Long value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+}
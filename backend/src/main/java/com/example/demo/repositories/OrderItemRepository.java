@@ -1,10 +1,25 @@
 package com.example.demo.repositories;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.demo.entities.OrderItem;
 
 @Repository
-public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, OrderItemBatchRepository {
+
+    // [productId, tổng số lượng đã bán]
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi WHERE oi.product IS NOT NULL GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProduct();
+
+    // [ngày tạo đơn, productId, tổng số lượng] của các đơn tạo từ since
+    @Query("SELECT cast(o.createdAt as date), oi.product.id, SUM(oi.quantity) FROM OrderItem oi JOIN oi.order o"
+            + " WHERE o.createdAt >= :since AND oi.product IS NOT NULL"
+            + " GROUP BY cast(o.createdAt as date), oi.product.id")
+    List<Object[]> sumQuantityByDayAndProductSince(@Param("since") LocalDateTime since);
 }
@@ -1,13 +1,47 @@
 package com.example.demo.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.demo.entities.Order;
+import com.example.demo.models.OrderSummary;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderSearchRepository, OrderExportRepository {
     List<Order> findAllByUserId(Long userId);
+
+    String SUMMARY_SELECT = "SELECT new com.example.demo.models.OrderSummary(o.id, o.createdAt, s.id, s.name, o.total,"
+            + " COALESCE(SUM(oi.quantity), 0L)) FROM Order o LEFT JOIN o.status s LEFT JOIN o.orderItems oi";
+    String SUMMARY_GROUP_ORDER = " GROUP BY o.id, o.createdAt, s.id, s.name, o.total"
+            + " ORDER BY o.createdAt DESC, o.id DESC";
+
+    // lịch sử đơn của user, mới nhất trước; số lượng sản phẩm tính luôn trong cùng câu truy vấn
+    @Query(SUMMARY_SELECT + " WHERE o.user.id = :userId" + SUMMARY_GROUP_ORDER)
+    List<OrderSummary> findSummaries(@Param("userId") Long userId, Pageable pageable);
+
+    // trang tiếp theo theo keyset (createdAt, id) của dòng cuối trang trước, đi theo index (user_id, created_at)
+    @Query(SUMMARY_SELECT + " WHERE o.user.id = :userId"
+            + " AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id))" + SUMMARY_GROUP_ORDER)
+    List<OrderSummary> findSummariesBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId AND o.idempotencyKey = :idempotencyKey")
+    Optional<Long> findIdByUserIdAndIdempotencyKey(@Param("userId") Long userId,
+            @Param("idempotencyKey") String idempotencyKey);
+
+    // [ngày tạo, tổng tiền, số đơn] của các đơn tạo từ since
+    @Query("SELECT cast(o.createdAt as date), SUM(o.total), COUNT(o) FROM Order o WHERE o.createdAt >= :since"
+            + " GROUP BY cast(o.createdAt as date)")
+    List<Object[]> sumTotalByDaySince(@Param("since") LocalDateTime since);
+
+    // [statusId, số đơn]
+    @Query("SELECT o.status.id, COUNT(o) FROM Order o WHERE o.status IS NOT NULL GROUP BY o.status.id")
+    List<Object[]> countByStatus();
 }
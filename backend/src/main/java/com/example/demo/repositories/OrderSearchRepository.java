@@ -0,0 +1,17 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+
+import com.example.demo.models.OrderListItem;
+import com.example.demo.payload.request.OrderFilterRequest;
+
+public interface OrderSearchRepository {
+
+    // một trang danh sách đơn hàng cho admin, chỉ lấy các cột cần hiển thị
+    List<OrderListItem> findListItems(OrderFilterRequest filter, Pageable pageable);
+
+    // đếm trên riêng bảng order (không join), dùng được index (status_id, created_at) / (user_id, created_at)
+    long countListItems(OrderFilterRequest filter);
+}
@@ -0,0 +1,85 @@
+package com.example.demo.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.example.demo.entities.Order;
+import com.example.demo.entities.OrderStatus;
+import com.example.demo.entities.User;
+import com.example.demo.models.OrderListItem;
+import com.example.demo.payload.request.OrderFilterRequest;
+
+public class OrderSearchRepositoryImpl implements OrderSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderListItem> findListItems(final OrderFilterRequest filter, final Pageable pageable) {
+        final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<OrderListItem> query = cb.createQuery(OrderListItem.class);
+        final Root<Order> order = query.from(Order.class);
+        final Join<Order, OrderStatus> status = order.join("status", JoinType.LEFT);
+        final Join<Order, User> user = order.join("user", JoinType.LEFT);
+        query.select(cb.construct(OrderListItem.class, order.get("id"), order.get("firstName"),
+                order.get("lastName"), order.get("phone"), order.get("address"), order.get("total"),
+                status.get("id"), status.get("name"), user.get("id"), user.get("username"), order.get("createdAt")))
+                .where(predicates(cb, order, filter));
+        final List<javax.persistence.criteria.Order> orderBy = new ArrayList<>();
+        for (Sort.Order sort : pageable.getSort()) {
+            orderBy.add(sort.isAscending() ? cb.asc(order.get(sort.getProperty()))
+                    : cb.desc(order.get(sort.getProperty())));
+        }
+        query.orderBy(orderBy);
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    @Override
+    public long countListItems(final OrderFilterRequest filter) {
+        final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        final Root<Order> order = query.from(Order.class);
+        query.select(cb.count(order)).where(predicates(cb, order, filter));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // lọc theo khóa ngoại status_id / user_id trực tiếp, không cần join
+    private static Predicate[] predicates(final CriteriaBuilder cb, final Root<Order> order,
+            final OrderFilterRequest filter) {
+        final List<Predicate> predicates = new ArrayList<>();
+        if (filter.getStatusId() != null) {
+            predicates.add(cb.equal(order.get("status").get("id"), filter.getStatusId()));
+        }
+        if (filter.getUserId() != null) {
+            predicates.add(cb.equal(order.get("user").get("id"), filter.getUserId()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.get("createdAt"), filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(order.get("createdAt"), filter.getCreatedTo()));
+        }
+        if (filter.getMinTotal() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.get("total"), filter.getMinTotal()));
+        }
+        if (filter.getMaxTotal() != null) {
+            predicates.add(cb.lessThanOrEqualTo(order.get("total"), filter.getMaxTotal()));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import com.example.demo.entities.Product;
+
+public interface ProductBatchRepository {
+
+    // chèn nhiều sản phẩm (kèm size) bằng JDBC batch và gán id được sinh vào từng đối tượng
+    void insertAll(List<Product> products);
+}
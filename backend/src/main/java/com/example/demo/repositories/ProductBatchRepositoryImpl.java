@@ -0,0 +1,91 @@
+package com.example.demo.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+
+// Product.id dùng IDENTITY nên Hibernate không gom batch được, đi thẳng JDBC cho nhập dữ liệu số lượng lớn
+public class ProductBatchRepositoryImpl implements ProductBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(final List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            // cột description được khai báo có ngoặc kép trong entity nên phải quote theo đúng DB đang dùng
+            final String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+            final String sql = "INSERT INTO product (name, " + quote + "description" + quote
+                    + ", materials, instruction, image, price, category_id, color_id, updated_at, version)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+            // JDBC đi vòng qua Hibernate nên phải tự điền updated_at thay cho @UpdateTimestamp, version thay cho @Version
+            final LocalDateTime now = LocalDateTime.now();
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (Product product : products) {
+                    statement.setString(1, product.getName());
+                    statement.setString(2, product.getDescription());
+                    statement.setString(3, product.getMaterials());
+                    statement.setString(4, product.getInstruction());
+                    statement.setString(5, product.getImage());
+                    statement.setLong(6, product.getPrice());
+                    setNullableLong(statement, 7, product.getCategory() == null ? null : product.getCategory().getId());
+                    setNullableLong(statement, 8, product.getColor() == null ? null : product.getColor().getId());
+                    statement.setTimestamp(9, Timestamp.valueOf(now));
+                    product.setUpdatedAt(now);
+                    product.setVersion(0L);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < products.size()) {
+                        products.get(i++).setId(keys.getLong(1));
+                    }
+                    if (i != products.size()) {
+                        throw new IncorrectResultSizeDataAccessException(products.size(), i);
+                    }
+                }
+            }
+
+            try (PreparedStatement statement = connection
+                    .prepareStatement("INSERT INTO product_size (product_id, size_id) VALUES (?, ?)")) {
+                for (Product product : products) {
+                    for (Size size : product.getListSizes()) {
+                        statement.setLong(1, product.getId());
+                        statement.setLong(2, size.getSizeId());
+                        statement.addBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    private static void setNullableLong(final PreparedStatement statement, final int index, final Long value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+}
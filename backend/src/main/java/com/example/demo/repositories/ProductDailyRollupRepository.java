@@ -0,0 +1,22 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.entities.ProductDailyRollup;
+
+@Repository
+public interface ProductDailyRollupRepository extends JpaRepository<ProductDailyRollup, Long> {
+
+    // [productId, tổng số lượng] của các ngày trước day
+    @Query("SELECT r.productId, SUM(r.units) FROM ProductDailyRollup r WHERE r.day < :day GROUP BY r.productId")
+    List<Object[]> sumUnitsByProductBefore(@Param("day") LocalDate day);
+
+    List<ProductDailyRollup> findAllByDayAndProductIdIn(LocalDate day, Collection<Long> productIds);
+}
@@ -0,0 +1,15 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import com.example.demo.models.ProductFeedItem;
+
+public interface ProductFeedRepository {
+
+    // duyệt toàn bộ sản phẩm (hoặc chỉ các sản phẩm sửa từ modifiedSince) theo id tăng dần, mỗi lần giữ một sản phẩm
+    void streamFeed(LocalDateTime modifiedSince, Consumer<ProductFeedItem> consumer);
+
+    // giờ hiện tại theo đồng hồ DB, dùng chung cho mọi instance
+    LocalDateTime currentTimestamp();
+}
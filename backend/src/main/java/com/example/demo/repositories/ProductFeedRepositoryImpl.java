@@ -0,0 +1,109 @@
+package com.example.demo.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import com.example.demo.models.ProductFeedItem;
+
+// đọc feed bằng con trỏ JDBC chỉ-đi-tới, không nạp cả bảng vào bộ nhớ như findAll()
+public class ProductFeedRepositoryImpl implements ProductFeedRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // MySQL Connector/J chỉ stream từng dòng khi fetch size là Integer.MIN_VALUE, các DB khác dùng số dương
+    @Value("${demo.catalog.export.fetch-size:500}")
+    private int fetchSize;
+
+    public ProductFeedRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void streamFeed(final LocalDateTime modifiedSince, final Consumer<ProductFeedItem> consumer) {
+        final FeedRowHandler handler = new FeedRowHandler(consumer);
+        jdbcTemplate.query(connection -> {
+            final String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+            // một sản phẩm có nhiều size nên ra nhiều dòng liền nhau (sắp theo p.id), gom lại ở FeedRowHandler
+            final String sql = "SELECT p.id, p.name, p." + quote + "description" + quote
+                    + ", p.materials, p.instruction, p.image, p.price, p.updated_at,"
+                    + " c.id AS category_id, c.name AS category_name, co.id AS color_id, co.name AS color_name,"
+                    + " s.name AS size_name"
+                    + " FROM product p"
+                    + " LEFT JOIN category c ON c.id = p.category_id"
+                    + " LEFT JOIN color co ON co.id = p.color_id"
+                    + " LEFT JOIN product_size ps ON ps.product_id = p.id"
+                    + " LEFT JOIN size s ON s.size_id = ps.size_id"
+                    + (modifiedSince == null ? "" : " WHERE p.updated_at >= ?")
+                    + " ORDER BY p.id";
+            final PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            if (modifiedSince != null) {
+                statement.setTimestamp(1, Timestamp.valueOf(modifiedSince));
+            }
+            return statement;
+        }, handler);
+        handler.finish();
+    }
+
+    @Override
+    public LocalDateTime currentTimestamp() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class).toLocalDateTime();
+    }
+
+    private static final class FeedRowHandler implements RowCallbackHandler {
+        private final Consumer<ProductFeedItem> consumer;
+        private ProductFeedItem current;
+
+        FeedRowHandler(Consumer<ProductFeedItem> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(final ResultSet rs) throws SQLException {
+            final long id = rs.getLong("id");
+            if (current == null || current.getId() != id) {
+                finish();
+                current = new ProductFeedItem();
+                current.setId(id);
+                current.setName(rs.getString("name"));
+                current.setDescription(rs.getString("description"));
+                current.setMaterials(rs.getString("materials"));
+                current.setInstruction(rs.getString("instruction"));
+                current.setImage(rs.getString("image"));
+                current.setPrice(rs.getLong("price"));
+                final Timestamp updatedAt = rs.getTimestamp("updated_at");
+                current.setUpdatedAt(updatedAt == null ? null : updatedAt.toLocalDateTime());
+                current.setCategoryId(getNullableLong(rs, "category_id"));
+                current.setCategory(rs.getString("category_name"));
+                current.setColorId(getNullableLong(rs, "color_id"));
+                current.setColor(rs.getString("color_name"));
+            }
+            final String size = rs.getString("size_name");
+            if (size != null) {
+                current.getSizes().add(size);
+            }
+        }
+
+        void finish() {
+            if (current != null) {
+                current.getSizes().sort(null);
+                consumer.accept(current);
+                current = null;
+            }
+        }
+
+        private static Long getNullableLong(final ResultSet rs, final String column) throws SQLException {
+            final long value = rs.getLong(column);
+            return rs.wasNull() ? null : value;
+        }
+    }
+}
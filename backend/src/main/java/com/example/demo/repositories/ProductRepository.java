@@ -1,15 +1,58 @@
 package com.example.demo.repositories;
 import com.example.demo.entities.Product;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long>{
-    @Query("SELECT p FROM Product p WHERE " +
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductBatchRepository, ProductFeedRepository {
+    @Override
+    @EntityGraph(attributePaths = { "color", "category", "category.parentCategory", "listSizes" })
+    @Query("SELECT DISTINCT p FROM Product p")
+    List<Product> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = { "color", "category", "category.parentCategory", "listSizes" })
+    Optional<Product> findById(Long id);
+
+    @EntityGraph(attributePaths = { "color", "category", "category.parentCategory", "listSizes" })
+    @Query("SELECT DISTINCT p FROM Product p WHERE " +
             "p.name LIKE CONCAT('%',:query, '%')" +
             "Or p.description LIKE CONCAT('%', :query, '%')")
     List<Product> searchProducts(String query);
+
+    @Query("SELECT p FROM Product p WHERE p.id > :lastId ORDER BY p.id ASC")
+    List<Product> findPageAfterId(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p WHERE p.price > :lastPrice " +
+            "OR (p.price = :lastPrice AND p.id > :lastId) ORDER BY p.price ASC, p.id ASC")
+    List<Long> findIdsAfterPrice(@Param("lastPrice") Long lastPrice, @Param("lastId") Long lastId,
+            Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p WHERE p.name > :lastName " +
+            "OR (p.name = :lastName AND p.id > :lastId) ORDER BY p.name ASC, p.id ASC")
+    List<Long> findIdsAfterName(@Param("lastName") String lastName, @Param("lastId") Long lastId,
+            Pageable pageable);
+
+    @EntityGraph(attributePaths = { "color", "category", "category.parentCategory", "listSizes" })
+    @Query("SELECT DISTINCT p FROM Product p WHERE p.category.id IN :categoryIds ORDER BY p.id ASC")
+    List<Product> findAllByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
+
+    // [id, name, categoryId] của toàn bộ sản phẩm, không nạp entity
+    @Query("SELECT p.id, p.name, c.id FROM Product p LEFT JOIN p.category c")
+    List<Object[]> findAllNames();
+
+    @Query("SELECT p.id FROM Product p WHERE p.id > :lastId ORDER BY p.id ASC")
+    List<Long> findIdsAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    @EntityGraph(attributePaths = { "color", "category", "category.parentCategory", "listSizes" })
+    @Query("SELECT DISTINCT p FROM Product p WHERE p.id IN :ids")
+    List<Product> findAllByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,8 @@
+package com.example.demo.repositories;
+
+public interface ProductStockLedgerRepository {
+
+    // trừ vào product_stock các dòng đơn hàng đã commit nhưng chưa được áp (stock_applied = false),
+    // đánh dấu chúng đã áp trong cùng transaction; trả về số dòng đơn hàng đã xử lý
+    int applyPendingSales(int limit);
+}
@@ -0,0 +1,47 @@
+package com.example.demo.repositories;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// sổ cái doanh số: dòng order_item là nguồn sự thật đã commit, product_stock chỉ được cập nhật trễ (write-behind)
+public class ProductStockLedgerRepositoryImpl implements ProductStockLedgerRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductStockLedgerRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int applyPendingSales(final int limit) {
+        final List<Long> itemIds = new ArrayList<>();
+        final Map<List<Long>, Long> soldByStock = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, product_id, size_id, quantity FROM order_item"
+                + " WHERE stock_applied = FALSE ORDER BY id LIMIT ?", rs -> {
+                    itemIds.add(rs.getLong("id"));
+                    final long productId = rs.getLong("product_id");
+                    final boolean noProduct = rs.wasNull();
+                    final long sizeId = rs.getLong("size_id");
+                    if (!noProduct && !rs.wasNull()) {
+                        soldByStock.merge(List.of(productId, sizeId), rs.getLong("quantity"), Long::sum);
+                    }
+                }, limit);
+        if (itemIds.isEmpty()) {
+            return 0;
+        }
+        final List<Object[]> stockUpdates = new ArrayList<>(soldByStock.size());
+        soldByStock.forEach((key, sold) -> stockUpdates.add(new Object[] { sold, key.get(0), key.get(1) }));
+        // cặp không theo dõi tồn kho không có dòng nào nên UPDATE không ảnh hưởng gì
+        jdbcTemplate.batchUpdate("UPDATE product_stock SET quantity = quantity - ? WHERE product_id = ? AND size_id = ?",
+                stockUpdates);
+        // đánh dấu theo id cụ thể: dòng commit sau lần SELECT ở trên vẫn còn chờ lần áp kế tiếp
+        final List<Object[]> applied = new ArrayList<>(itemIds.size());
+        itemIds.forEach(id -> applied.add(new Object[] { id }));
+        jdbcTemplate.batchUpdate("UPDATE order_item SET stock_applied = TRUE WHERE id = ?", applied);
+        return itemIds.size();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.entities.ProductStock;
+
+@Repository
+public interface ProductStockRepository extends JpaRepository<ProductStock, Long>, ProductStockLedgerRepository {
+
+    List<ProductStock> findAllByProductId(Long productId);
+
+    Optional<ProductStock> findByProductIdAndSizeId(Long productId, Long sizeId);
+
+    // cộng/trừ tương đối để không ghi đè phần đã trừ bởi các lần áp doanh số khác
+    @Modifying
+    @Query("UPDATE ProductStock s SET s.quantity = s.quantity + :delta WHERE s.productId = :productId AND s.sizeId = :sizeId")
+    int addQuantity(@Param("productId") Long productId, @Param("sizeId") Long sizeId, @Param("delta") long delta);
+}
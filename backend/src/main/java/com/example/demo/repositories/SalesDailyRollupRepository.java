@@ -0,0 +1,19 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.entities.SalesDailyRollup;
+
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, LocalDate> {
+
+    @Query("SELECT MAX(r.day) FROM SalesDailyRollup r")
+    LocalDate findLastDay();
+
+    List<SalesDailyRollup> findAllByDayBefore(LocalDate day);
+}
@@ -0,0 +1,79 @@
+package com.example.demo.security;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.entities.User;
+import com.example.demo.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// kiểm tra principal dựng từ claims JWT mà không tra bảng users mỗi request:
+// - danh sách thu hồi: token cấp trước (tính theo ms) lần revoke(userId) gần nhất bị từ chối,
+//   giữ bằng đúng thời hạn token
+// - cửa sổ kiểm tra lại: token cấp quá revalidate-after-minutes thì dùng trạng thái trong DB, mỗi user tra tối đa
+//   một lần mỗi cửa sổ; danh sách thu hồi chỉ nằm trong instance này nên cửa sổ là giới hạn trễ giữa các instance
+@Service
+public class TokenValidationService {
+
+    private final UserRepository userRepository;
+    private final long revalidateAfterMs;
+    // userId -> thời điểm thu hồi (ms). Token mang claim iat_ms nên đăng nhập lại ngay sau khi thu hồi, kể cả trong
+    // cùng giây, vẫn hợp lệ; token cũ chỉ có iat tròn giây thì bị coi là cấp trước lần thu hồi trong cùng giây đó
+    private final Cache<Long, Long> revokedAt;
+    private final Cache<Long, Optional<CustomUserDetails>> revalidated;
+
+    public TokenValidationService(UserRepository userRepository,
+            @Value("${demo.jwt.expiration:864000000}") long tokenLifetimeMs,
+            @Value("${demo.jwt.revalidate-after-minutes:15}") long revalidateAfterMinutes,
+            @Value("${demo.jwt.revalidation.max-entries:10000}") long maxEntries) {
+        this.userRepository = userRepository;
+        this.revalidateAfterMs = TimeUnit.MINUTES.toMillis(revalidateAfterMinutes);
+        this.revokedAt = Caffeine.newBuilder()
+                .expireAfterWrite(tokenLifetimeMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.revalidated = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Math.max(revalidateAfterMs, 1), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    // trả về principal dùng cho request, null nếu token không còn được chấp nhận
+    public CustomUserDetails validate(final CustomUserDetails principal, final Date issuedAt) {
+        if (!principal.isUserStatus()) {
+            return null;
+        }
+        final Long revoked = revokedAt.getIfPresent(principal.getUserId());
+        if (revoked != null && (issuedAt == null || issuedAt.getTime() < revoked)) {
+            return null;
+        }
+        if (revalidateAfterMs <= 0
+                || issuedAt != null && System.currentTimeMillis() - issuedAt.getTime() < revalidateAfterMs) {
+            return principal;
+        }
+        return revalidated.get(principal.getUserId(), userId -> userRepository.findById(userId)
+                .filter(User::isUserStatus)
+                .map(CustomUserDetails::mapUserToUserDetails))
+                .orElse(null);
+    }
+
+    // đổi tài khoản/xoá user: token đã cấp hết hiệu lực, trạng thái đã kiểm tra lại bị bỏ cả khi transaction kết thúc
+    public void revoke(final Long userId) {
+        revokedAt.put(userId, System.currentTimeMillis());
+        revalidated.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    revalidated.invalidate(userId);
+                }
+            });
+        }
+    }
+}
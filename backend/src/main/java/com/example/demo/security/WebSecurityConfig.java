@@ -12,7 +12,9 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.web.filter.CorsFilter;
 
+import com.example.demo.caching.CatalogEtagFilter;
 import com.example.demo.jwt.JwtAuthenticationFilter;
 import com.example.demo.services.oauth2.security.CustomOAuth2UserDetailService;
 import com.example.demo.services.oauth2.security.handler.CustomOAuth2FailureHandler;
@@ -30,6 +32,8 @@ public class WebSecurityConfig {
     public CustomOAuth2FailureHandler customOAuth2FailureHandler;
     @Autowired
     public CustomOAuth2SuccessHandler customOAuth2SuccessHandler;
+    @Autowired
+    private CatalogEtagFilter catalogEtagFilter;
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
@@ -64,6 +68,7 @@ public class WebSecurityConfig {
                 .antMatchers("/api/v1/orders/**").permitAll()
                 .antMatchers("/api/v1/order-statuses/**").permitAll()
                 .antMatchers("/api/users/**").permitAll()
+                .antMatchers("/actuator/**").hasRole("ADMIN")
                 .antMatchers("/swagger-ui/**","/v3/**","/authenticate","/swagger-resources/**").permitAll()
                 .anyRequest().authenticated()
                 .and()
@@ -76,6 +81,8 @@ public class WebSecurityConfig {
                 .and()
                 .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+        // kiểm tra ETag ngay sau CORS để 304 vẫn có header CORS mà không phải xác thực JWT
+        http.addFilterAfter(catalogEtagFilter, CorsFilter.class);
         return http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class).build();
     }
 }
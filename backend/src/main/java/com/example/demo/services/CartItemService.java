@@ -3,12 +3,20 @@ package com.example.demo.services;
 import com.example.demo.entities.CartItem;
 
 import com.example.demo.models.CartItemDTO;
+import com.example.demo.models.CartSummary;
+import com.example.demo.payload.request.CartItemOperation;
 import java.util.List;
 
 public interface CartItemService {
 
     public List<CartItem> findAllByUserId();
 
+    // ghi hết thay đổi giỏ đang chờ rồi đọc giỏ từ DB (giá sản phẩm mới nhất) để tạo đơn
+    public List<CartItem> findAllForCheckout();
+
+    // thành tiền từng dòng, số lượng và tổng tiền của giỏ, được cache theo user
+    public CartSummary summary();
+
     public void deleteAllByUserId();
 
     public CartItem get(final Long id);
@@ -18,4 +26,7 @@ public interface CartItemService {
     public CartItem update(Long id, CartItemDTO cartItemDTO);
 
     public void delete(Long id);
+
+    // áp cả danh sách thêm/sửa/xoá trong một transaction, trả về giỏ sau khi áp
+    public List<CartItem> applyAll(List<CartItemOperation> operations);
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.demo.services;
 
 import com.example.demo.entities.Category;
 import com.example.demo.models.CategoryDTO;
+import com.example.demo.models.CategoryTreeNode;
 
 import java.util.List;
 
@@ -10,6 +11,8 @@ public interface CategoryService {
 
     public List<Category> findAll();
 
+    public List<CategoryTreeNode> getTree();
+
     public Category get(final Long id);
 
     public Long create(final CategoryDTO categoryDTO);
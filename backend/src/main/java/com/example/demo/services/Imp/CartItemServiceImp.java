@@ -6,18 +6,31 @@ import com.example.demo.repositories.ProductRepository;
 import com.example.demo.repositories.SizeRepository;
 import com.example.demo.security.AuthService;
 import com.example.demo.services.CartItemService;
+import com.example.demo.services.cart.CartStore;
+import com.example.demo.services.cart.CartSummaryCache;
+import com.example.demo.services.inventory.StockTable;
 import com.example.demo.entities.CartItem;
+import com.example.demo.entities.Product;
 import com.example.demo.entities.Size;
+import com.example.demo.entities.User;
 import com.example.demo.models.CartItemDTO;
+import com.example.demo.models.CartSummary;
+import com.example.demo.payload.request.CartItemOperation;
 
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class CartItemServiceImp implements CartItemService {
@@ -38,6 +51,18 @@ public class CartItemServiceImp implements CartItemService {
     @Autowired
     private SizeServiceImp sizeService;
 
+    @Autowired
+    private StockTable stockTable;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartSummaryCache cartSummaryCache;
+
+    @Value("${demo.cart.bulk.max-operations:100}")
+    private int maxBulkOperations;
+
     public CartItemServiceImp(final CartItemRepository cartItemRepository, final UserRepository userRepository,
             final ProductRepository productRepository, final SizeRepository sizeRepository) {
         this.cartItemRepository = cartItemRepository;
@@ -45,50 +70,234 @@ public class CartItemServiceImp implements CartItemService {
         this.productRepository = productRepository;
     }
 
+    // giỏ được đọc từ CartStore, chỉ lần đầu (hoặc sau khi bị đẩy khỏi bộ nhớ) mới chạm DB
     @Override
     public List<CartItem> findAllByUserId() {
-        return cartItemRepository.findAllByUserId(authService.getCurrentUserId());
+        return cartStore.items(authService.getCurrentUserId());
+    }
+
+    @Override
+    public List<CartItem> findAllForCheckout() {
+        final Long userId = authService.getCurrentUserId();
+        cartStore.flush(userId);
+        return cartItemRepository.findAllByUserId(userId);
+    }
+
+    @Override
+    public CartSummary summary() {
+        return cartSummaryCache.get(authService.getCurrentUserId());
     }
 
     @Override
     public void deleteAllByUserId() {
-        cartItemRepository.deleteAllByUserId(authService.getCurrentUserId());
+        final Long userId = authService.getCurrentUserId();
+        cartItemRepository.deleteAllByUserId(userId);
+        cartStore.clear(userId);
+        cartSummaryCache.invalidate(userId);
     }
 
     @Override
     public CartItem get(final Long id) {
-        return cartItemRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Can't find cartItem with id: " + id));
+        final CartItem cartItem = cartStore.item(authService.getCurrentUserId(), id);
+        if (cartItem == null) {
+            throw new RuntimeException("Can't find cartItem with id: " + id);
+        }
+        return cartItem;
     }
 
+    // thêm vào giỏ là cộng số lượng vào dòng (sản phẩm, size) đã có: dòng đã nạp trong CartStore thì cộng trong
+    // bộ nhớ và ghi trễ, chưa có thì upsert xuống DB (khoá unique user/sản phẩm/size) để lấy id thật trả về client
     @Override
     @Transactional
     public CartItem create(CartItemDTO cartItemDTO) {
-        CartItem cartItem = cartItemRepository.findByUserIdAndProductId(authService.getCurrentUserId(),
-                cartItemDTO.getProductId());
-        cartItem = new CartItem();
-        cartItem.setQuantity(cartItemDTO.getQuantity());
-        cartItem.setUser(authService.getCurrentUser());
-        cartItem.setProduct(productService.get(cartItemDTO.getProductId()));
-        cartItem.setSize(sizeService.get(cartItemDTO.getSize()));
-        cartItemRepository.save(cartItem);
+        requirePositive(cartItemDTO.getQuantity());
+        final User user = authService.getCurrentUser();
+        final Product product = productService.get(cartItemDTO.getProductId());
+        final Size size = sizeService.get(cartItemDTO.getSize());
+        final CartItem existing = cartStore.find(user.getId(), product.getId(), size.getSizeId());
+        stockTable.requireAvailable(product.getId(), size.getSizeId(),
+                cartItemDTO.getQuantity() + (existing == null ? 0 : existing.getQuantity()));
+        final CartItem merged = cartStore.addQuantity(user.getId(), product.getId(), size.getSizeId(),
+                cartItemDTO.getQuantity());
+        if (merged != null) {
+            cartSummaryCache.invalidate(user.getId());
+            return merged;
+        }
+        // dòng đang chờ xoá trong CartStore mà chưa xuống DB thì upsert sẽ cộng vào chính dòng sắp bị xoá
+        cartStore.flush(user.getId());
+        final Long id = cartItemRepository.addQuantity(user.getId(), product.getId(), size.getSizeId(),
+                cartItemDTO.getQuantity());
+        final CartItem cartItem = cartItemRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Can't find cartItem with id: " + id));
+        cartStore.added(user.getId(), cartItem);
+        cartSummaryCache.invalidate(user.getId());
         return cartItem;
     }
 
     @Override
     public CartItem update(Long id, CartItemDTO cartItemDTO) {
-        CartItem cartItem = cartItemRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                        "Can't find cartItem with id: " + id + " to update", null));
-        cartItem.setQuantity(cartItemDTO.getQuantity());
-        cartItem.setSize(sizeService.get(cartItemDTO.getSize()));
-        cartItemRepository.save(cartItem);
+        requirePositive(cartItemDTO.getQuantity());
+        final Long userId = authService.getCurrentUserId();
+        final CartItem current = cartStore.item(userId, id);
+        if (current == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Can't find cartItem with id: " + id + " to update", null);
+        }
+        final Size size = sizeService.get(cartItemDTO.getSize());
+        stockTable.requireAvailable(current.getProduct() == null ? null : current.getProduct().getId(),
+                cartItemDTO.getSize(), cartItemDTO.getQuantity());
+        final CartItem cartItem = cartStore.update(userId, id, cartItemDTO.getQuantity(), size);
+        if (cartItem == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Can't find cartItem with id: " + id + " to update", null);
+        }
+        cartSummaryCache.invalidate(userId);
         return cartItem;
     }
 
     @Override
     public void delete(Long id) {
-        cartItemRepository.deleteById(id);
+        final Long userId = authService.getCurrentUserId();
+        cartStore.remove(userId, id);
+        cartSummaryCache.invalidate(userId);
+    }
+
+    // PATCH: kiểm tra mọi thao tác trên bản sao của giỏ trước, một thao tác sai thì không ghi gì; sau đó ghi thẳng
+    // xuống DB trong transaction này theo lô (xoá, sửa, rồi upsert dòng mới) thay vì ghi trễ
+    @Override
+    @Transactional
+    public List<CartItem> applyAll(List<CartItemOperation> operations) {
+        if (operations == null || operations.size() > maxBulkOperations) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Expected 0 to " + maxBulkOperations + " cart operations");
+        }
+        final Long userId = authService.getCurrentUserId();
+        // thay đổi chờ ghi phải xuống trước, không thì lần ghi trễ sau sẽ đè lên kết quả của lô này
+        cartStore.flush(userId);
+        final Map<Long, CartItem> lines = new LinkedHashMap<>();
+        for (CartItem cartItem : cartStore.items(userId)) {
+            lines.put(cartItem.getId(), cartItem);
+        }
+        final Map<Long, CartItem> changed = new LinkedHashMap<>();
+        final Set<Long> removed = new LinkedHashSet<>();
+        final List<CartItem> added = new ArrayList<>();
+        for (CartItemOperation operation : operations) {
+            if (operation.getType() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cart operation type is required");
+            }
+            switch (operation.getType()) {
+                case ADD: {
+                    requirePositive(operation.getQuantity());
+                    if (operation.getProductId() == null || operation.getSize() == null) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ADD needs productId and size");
+                    }
+                    final Product product = productService.get(operation.getProductId());
+                    final Size size = sizeService.get(operation.getSize());
+                    final CartItem line = findLine(lines.values(), added, product.getId(), size.getSizeId(), null);
+                    if (line == null) {
+                        final CartItem cartItem = new CartItem();
+                        cartItem.setProduct(product);
+                        cartItem.setSize(size);
+                        cartItem.setQuantity(operation.getQuantity());
+                        added.add(cartItem);
+                    } else if (line.getId() == null) {
+                        line.setQuantity(line.getQuantity() + operation.getQuantity());
+                    } else {
+                        final CartItem updated = copyOf(line);
+                        updated.setQuantity(line.getQuantity() + operation.getQuantity());
+                        lines.put(updated.getId(), updated);
+                        changed.put(updated.getId(), updated);
+                    }
+                    break;
+                }
+                case UPDATE: {
+                    final CartItem line = lines.get(operation.getId());
+                    if (line == null) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                "Can't find cartItem with id: " + operation.getId() + " to update", null);
+                    }
+                    requirePositive(operation.getQuantity());
+                    // không gửi size thì giữ size cũ
+                    final Size size = operation.getSize() == null ? line.getSize() : sizeService.get(operation.getSize());
+                    if (line.getProduct() != null && size != null && findLine(lines.values(), added,
+                            line.getProduct().getId(), size.getSizeId(), line.getId()) != null) {
+                        throw new ResponseStatusException(HttpStatus.CONFLICT, "Cart already has product "
+                                + line.getProduct().getId() + " in size " + size.getSizeId());
+                    }
+                    final CartItem updated = copyOf(line);
+                    updated.setQuantity(operation.getQuantity());
+                    updated.setSize(size);
+                    lines.put(updated.getId(), updated);
+                    changed.put(updated.getId(), updated);
+                    break;
+                }
+                case REMOVE:
+                    if (lines.remove(operation.getId()) != null) {
+                        changed.remove(operation.getId());
+                        removed.add(operation.getId());
+                    }
+                    break;
+            }
+        }
+        for (CartItem cartItem : changed.values()) {
+            requireStock(cartItem);
+        }
+        for (CartItem cartItem : added) {
+            requireStock(cartItem);
+        }
+
+        if (!removed.isEmpty()) {
+            cartItemRepository.deleteAllByIdIn(removed);
+        }
+        cartItemRepository.updateAll(new ArrayList<>(changed.values()));
+        for (CartItem cartItem : added) {
+            cartItem.setId(cartItemRepository.addQuantity(userId, cartItem.getProduct().getId(),
+                    cartItem.getSize().getSizeId(), cartItem.getQuantity()));
+            cartItem.setVersion(0L);
+            lines.put(cartItem.getId(), cartItem);
+        }
+        // giỏ trong bộ nhớ nạp lại từ DB sau khi lô này commit
+        cartStore.clear(userId);
+        cartSummaryCache.invalidate(userId);
+        return new ArrayList<>(lines.values());
+    }
+
+    private void requireStock(final CartItem cartItem) {
+        stockTable.requireAvailable(cartItem.getProduct() == null ? null : cartItem.getProduct().getId(),
+                cartItem.getSize() == null ? null : cartItem.getSize().getSizeId(), cartItem.getQuantity());
+    }
+
+    private static void requirePositive(final Integer quantity) {
+        if (quantity == null || quantity < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be at least 1");
+        }
+    }
+
+    private static CartItem findLine(final Iterable<CartItem> lines, final List<CartItem> added, final Long productId,
+            final Long sizeId, final Long exceptId) {
+        for (Iterable<CartItem> group : List.of(lines, added)) {
+            for (CartItem cartItem : group) {
+                if (cartItem.getProduct() != null && cartItem.getSize() != null
+                        && (exceptId == null || !exceptId.equals(cartItem.getId()))
+                        && productId.equals(cartItem.getProduct().getId())
+                        && sizeId.equals(cartItem.getSize().getSizeId())) {
+                    return cartItem;
+                }
+            }
+        }
+        return null;
+    }
+
+    // không sửa đối tượng đang nằm trong CartStore
+    private static CartItem copyOf(final CartItem cartItem) {
+        final CartItem copy = new CartItem();
+        copy.setId(cartItem.getId());
+        copy.setQuantity(cartItem.getQuantity());
+        copy.setUser(cartItem.getUser());
+        copy.setProduct(cartItem.getProduct());
+        copy.setSize(cartItem.getSize());
+        copy.setVersion(cartItem.getVersion());
+        return copy;
     }
 
-}
\ No newline at end of file
+}
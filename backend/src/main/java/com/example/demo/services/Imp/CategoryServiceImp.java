@@ -1,15 +1,24 @@
 package com.example.demo.services.Imp;
 
 
+import com.example.demo.caching.CatalogVersions;
+import com.example.demo.caching.CatalogVersions.Table;
+import com.example.demo.caching.CategoryTreeCache;
+import com.example.demo.configs.CacheConfig;
 import com.example.demo.entities.Category;
 import com.example.demo.models.CategoryDTO;
+import com.example.demo.models.CategoryTreeNode;
 import com.example.demo.repositories.CategoryRepository;
 import com.example.demo.services.CategoryService;
+import com.example.demo.services.search.ProductSuggestIndex;
 
 import java.util.List;
 import java.util.stream.Collectors;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -22,41 +31,76 @@ public class CategoryServiceImp implements CategoryService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
     public CategoryServiceImp(CategoryRepository categoryRepository) {
         this.categoryRepository = categoryRepository;
 
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'all'")
     public List<Category> findAll() {
         return categoryRepository.findAll();
     }
 
     @Override
+    public List<CategoryTreeNode> getTree() {
+        return categoryTreeCache.tree();
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.CATEGORY, key = "#id")
     public Category get(final Long id) {
         return categoryRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CATEGORY, allEntries = true) })
     public Long create(final CategoryDTO categoryDTO) {
         final Category category = mapToEntity(categoryDTO, new Category());
-        return categoryRepository.save(category).getId();
+        final Long id = categoryRepository.save(category).getId();
+        categoryTreeCache.rebuild();
+        productSuggestIndex.scheduleRebuild();
+        catalogVersions.bump(Table.CATEGORIES);
+        return id;
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CATEGORY, allEntries = true) })
     public Category update(final Long id, final CategoryDTO categoryDTO) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(
                         () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cannot find category with id: " + id));
         category = mapToEntity(categoryDTO, category);
         categoryRepository.save(category);
+        categoryTreeCache.rebuild();
+        productSuggestIndex.scheduleRebuild();
+        catalogVersions.bump(Table.CATEGORIES);
         return category;
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CATEGORY, allEntries = true) })
     public void delete(final Long id) {
         categoryRepository.deleteById(id);
+        categoryTreeCache.rebuild();
+        productSuggestIndex.scheduleRebuild();
+        catalogVersions.bump(Table.CATEGORIES);
     }
 
     private Category mapToEntity(final CategoryDTO categoryDTO, Category category) {
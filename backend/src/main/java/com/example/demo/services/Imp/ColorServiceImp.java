@@ -1,5 +1,8 @@
 package com.example.demo.services.Imp;
 
+import com.example.demo.caching.CatalogVersions;
+import com.example.demo.caching.CatalogVersions.Table;
+import com.example.demo.configs.CacheConfig;
 import com.example.demo.entities.Color;
 import com.example.demo.models.ColorDTO;
 import com.example.demo.repositories.ColorRepository;
@@ -9,6 +12,9 @@ import java.util.List;
 
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -20,41 +26,59 @@ public class ColorServiceImp implements ColorService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
     public ColorServiceImp(ColorRepository colorRepository) {
         this.colorRepository = colorRepository;
 
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.COLORS, key = "'all'")
     public List<Color> findAll() {
         return colorRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.COLOR, key = "#id")
     public Color get(final Long id) {
         return colorRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.COLORS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.COLOR, allEntries = true) })
     public Long create(final ColorDTO colorDTO) {
         final Color color = mapToEntity(colorDTO, new Color());
-        return colorRepository.save(color).getId();
+        final Long id = colorRepository.save(color).getId();
+        catalogVersions.bump(Table.COLORS);
+        return id;
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.COLORS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.COLOR, allEntries = true) })
     public Color update(final Long id, final ColorDTO colorDTO) {
         Color color = colorRepository.findById(id)
                 .orElseThrow(
                         () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cannot find color with id: " + id));
         color = mapToEntity(colorDTO, color);
         colorRepository.save(color);
+        catalogVersions.bump(Table.COLORS);
         return color;
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.COLORS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.COLOR, allEntries = true) })
     public void delete(final Long id) {
         colorRepository.deleteById(id);
+        catalogVersions.bump(Table.COLORS);
     }
 
     private Color mapToEntity(final ColorDTO colorDTO, Color color) {
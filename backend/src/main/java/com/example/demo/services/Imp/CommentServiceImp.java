@@ -9,6 +9,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.example.demo.caching.CatalogVersions;
+import com.example.demo.caching.CatalogVersions.Table;
 import com.example.demo.entities.Comment;
 import com.example.demo.models.CommentDTO;
 import com.example.demo.repositories.CommentRepository;
@@ -27,6 +29,8 @@ public class CommentServiceImp implements CommentService {
     private AuthService authService;
     @Autowired
     private PostService postService;
+    @Autowired
+    private CatalogVersions catalogVersions;
     public Comment get(Long id){
              return commentRepository.findById(id)
              .orElseThrow(
@@ -42,12 +46,16 @@ public class CommentServiceImp implements CommentService {
         comment.setUser(authService.getCurrentUser());
         comment.setBody(commentDTO.getBody());
         comment.setPost(postService.get(commentDTO.getPostId()));
-        return commentRepository.save(comment).getId();
+        final Long id = commentRepository.save(comment).getId();
+        // bài viết trả về kèm bình luận
+        catalogVersions.bump(Table.POSTS);
+        return id;
     }
     
     @Override
     public void delete(Long id) {
         commentRepository.deleteById(id);
+        catalogVersions.bump(Table.POSTS);
     }
      @Override
     public List<Comment> findAll(Long id) {
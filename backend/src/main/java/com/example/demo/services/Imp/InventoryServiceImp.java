@@ -0,0 +1,67 @@
+package com.example.demo.services.Imp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.entities.ProductStock;
+import com.example.demo.models.StockLevelDTO;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.ProductStockRepository;
+import com.example.demo.repositories.SizeRepository;
+import com.example.demo.services.InventoryService;
+import com.example.demo.services.inventory.StockTable;
+
+@Service
+public class InventoryServiceImp implements InventoryService {
+
+    private final ProductStockRepository productStockRepository;
+    private final ProductRepository productRepository;
+    private final SizeRepository sizeRepository;
+    private final StockTable stockTable;
+
+    public InventoryServiceImp(ProductStockRepository productStockRepository, ProductRepository productRepository,
+            SizeRepository sizeRepository, StockTable stockTable) {
+        this.productStockRepository = productStockRepository;
+        this.productRepository = productRepository;
+        this.sizeRepository = sizeRepository;
+        this.stockTable = stockTable;
+    }
+
+    // số lượng lấy từ bảng trong bộ nhớ (đã trừ phần đang được giữ), không phải từ product_stock ghi trễ
+    @Override
+    public List<StockLevelDTO> getStock(final Long productId) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Can't find product with id: " + productId);
+        }
+        final List<StockLevelDTO> levels = new ArrayList<>();
+        for (ProductStock stock : productStockRepository.findAllByProductId(productId)) {
+            levels.add(new StockLevelDTO(stock.getSizeId(), stockTable.available(productId, stock.getSizeId())));
+        }
+        levels.sort(Comparator.comparing(StockLevelDTO::getSizeId));
+        return levels;
+    }
+
+    @Override
+    public List<StockLevelDTO> setStock(final Long productId, final List<StockLevelDTO> levels) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Can't find product with id: " + productId);
+        }
+        for (StockLevelDTO level : levels) {
+            if (level.getSizeId() == null || level.getQuantity() == null || level.getQuantity() < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sizeId and a non-negative quantity are required");
+            }
+            if (!sizeRepository.existsById(level.getSizeId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown size: " + level.getSizeId());
+            }
+        }
+        for (StockLevelDTO level : levels) {
+            stockTable.set(productId, level.getSizeId(), level.getQuantity());
+        }
+        return getStock(productId);
+    }
+}
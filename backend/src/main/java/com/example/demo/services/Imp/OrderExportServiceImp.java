@@ -0,0 +1,79 @@
+package com.example.demo.services.Imp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.models.OrderExportRow;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.services.OrderExportService;
+import com.example.demo.services.export.ExportFormat;
+import com.example.demo.services.export.ExportWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class OrderExportServiceImp implements OrderExportService {
+
+    private static final List<String> COLUMNS = Arrays.asList("orderId", "createdAt", "statusId", "status", "userId",
+            "username", "firstName", "lastName", "phone", "address", "orderTotal", "itemId", "productId",
+            "productName", "size", "price", "quantity", "lineTotal");
+
+    private final OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${demo.orders.export.flush-rows:500}")
+    private int flushRows;
+
+    public OrderExportServiceImp(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    @Override
+    public long exportOrders(final ExportFormat format, final LocalDateTime createdFrom,
+            final LocalDateTime createdTo, final OutputStream output) throws IOException {
+        if (createdFrom != null && createdTo != null && !createdFrom.isBefore(createdTo)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "createdFrom must be before createdTo");
+        }
+        final long start = System.nanoTime();
+        try (ExportWriter writer = new ExportWriter(output, format, COLUMNS, flushRows, objectMapper)) {
+            try {
+                orderRepository.streamExportRows(createdFrom, createdTo, row -> {
+                    try {
+                        writer.writeRow(toRow(row));
+                    } catch (IOException e) {
+                        // client ngắt kết nối: ném ra để dừng đọc con trỏ
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            log.info("Exported {} order rows as {} in {} ms", writer.getRows(), format,
+                    (System.nanoTime() - start) / 1_000_000);
+            return writer.getRows();
+        }
+    }
+
+    private static List<Object> toRow(final OrderExportRow row) {
+        final Long lineTotal = row.getPrice() == null || row.getQuantity() == null ? null
+                : row.getPrice() * row.getQuantity();
+        return Arrays.asList(row.getOrderId(), row.getCreatedAt() == null ? null : row.getCreatedAt().toString(),
+                row.getStatusId(), row.getStatus(), row.getUserId(), row.getUsername(), row.getFirstName(),
+                row.getLastName(), row.getPhone(), row.getAddress(), row.getOrderTotal(), row.getItemId(),
+                row.getProductId(), row.getProductName(), row.getSize(), row.getPrice(), row.getQuantity(), lineTotal);
+    }
+}
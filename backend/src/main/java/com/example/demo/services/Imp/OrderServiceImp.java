@@ -7,22 +7,43 @@ import com.example.demo.repositories.UserRepository;
 import com.example.demo.security.AuthService;
 import com.example.demo.entities.Order;
 import com.example.demo.models.OrderDTO;
+import com.example.demo.models.OrderListItem;
+import com.example.demo.models.OrderSummary;
+import com.example.demo.payload.request.OrderFilterRequest;
+import com.example.demo.payload.response.CursorPage;
+import com.example.demo.payload.response.OffsetPage;
 import com.example.demo.entities.OrderItem;
 import com.example.demo.entities.OrderStatus;
 import com.example.demo.entities.User;
 import com.example.demo.entities.CartItem;
+import com.example.demo.events.OrderChangedEvent;
+import com.example.demo.exception.EmptyCartException;
+import com.example.demo.services.CursorCodec;
 import com.example.demo.services.OrderService;
 import com.example.demo.services.SizeService;
+import com.example.demo.services.inventory.StockKey;
+import com.example.demo.services.inventory.StockTable;
 
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
@@ -49,6 +70,30 @@ public class OrderServiceImp implements OrderService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private StockTable stockTable;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${demo.orders.admin.page-size:20}")
+    private int defaultAdminPageSize;
+
+    @Value("${demo.orders.admin.max-page-size:100}")
+    private int maxAdminPageSize;
+
+    @Value("${demo.orders.history.page-size:10}")
+    private int defaultHistoryPageSize;
+
+    @Value("${demo.orders.history.max-page-size:50}")
+    private int maxHistoryPageSize;
+
+    @Value("${demo.orders.status-retry.max-attempts:5}")
+    private int statusRetryAttempts;
+
+    @Value("${demo.orders.status-retry.backoff-ms:10}")
+    private long statusRetryBackoffMs;
+
     public OrderServiceImp(OrderRepository orderRepository, OrderStatusRepository orderStatusRepository,
             UserRepository userRepository) {
         this.orderRepository = orderRepository;
@@ -60,9 +105,61 @@ public class OrderServiceImp implements OrderService {
     public List<Order> findAll() {
         return orderRepository.findAllByUserId(authService.getCurrentUserId());
     }
+
     @Override
-    public List<Order> findAllByAdmin() {
-        return orderRepository.findAll();
+    public CursorPage<OrderSummary> findSummaries(final String cursor, final Integer size) {
+        final int pageSize = size == null || size <= 0 ? defaultHistoryPageSize : Math.min(size, maxHistoryPageSize);
+        final Long userId = authService.getCurrentUserId();
+        // lấy dư 1 dòng để biết còn trang tiếp theo hay không
+        final PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<OrderSummary> summaries;
+        if (cursor == null) {
+            summaries = orderRepository.findSummaries(userId, limit);
+        } else {
+            final String[] last = CursorCodec.decode(cursor, 2);
+            try {
+                summaries = orderRepository.findSummariesBefore(userId, LocalDateTime.parse(last[0]),
+                        Long.parseLong(last[1]), limit);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+        String next = null;
+        if (summaries.size() > pageSize) {
+            summaries = summaries.subList(0, pageSize);
+            final OrderSummary last = summaries.get(pageSize - 1);
+            next = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+        return new CursorPage<>(summaries, pageSize, next);
+    }
+
+    @Override
+    public OffsetPage<OrderListItem> findAllByAdmin(final OrderFilterRequest filterRequest) {
+        final int page = filterRequest.getPage() == null || filterRequest.getPage() < 0 ? 0 : filterRequest.getPage();
+        final int pageSize = filterRequest.getPageSize() == null || filterRequest.getPageSize() <= 0
+                ? defaultAdminPageSize
+                : Math.min(filterRequest.getPageSize(), maxAdminPageSize);
+        final String sortKey = filterRequest.getSort() == null ? "createdAt" : filterRequest.getSort();
+        if (!sortKey.equals("createdAt") && !sortKey.equals("total") && !sortKey.equals("id")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort: " + sortKey);
+        }
+        final Sort.Direction direction;
+        if (filterRequest.getDirection() == null) {
+            direction = Sort.Direction.DESC;
+        } else {
+            direction = Sort.Direction.fromOptionalString(filterRequest.getDirection()).orElseThrow(
+                    () -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Unsupported direction: " + filterRequest.getDirection()));
+        }
+        // id làm khóa phụ để thứ tự ổn định giữa các trang khi createdAt/total trùng nhau
+        final Sort sort = sortKey.equals("id") ? Sort.by(direction, "id")
+                : Sort.by(direction, sortKey).and(Sort.by(direction, "id"));
+        final List<OrderListItem> items = orderRepository.findListItems(filterRequest,
+                PageRequest.of(page, pageSize, sort));
+        // trang đầu chưa đầy thì đã biết tổng, không cần câu đếm
+        final long total = page == 0 && items.size() < pageSize ? items.size()
+                : orderRepository.countListItems(filterRequest);
+        return new OffsetPage<>(items, page, pageSize, total);
     }
 
     @Override
@@ -80,19 +177,42 @@ public class OrderServiceImp implements OrderService {
     @Override
     @Transactional
     public Long createOrderFromCart(OrderDTO orderDTO) {
+        return createOrderFromCart(orderDTO, null);
+    }
+
+    @Override
+    @Transactional
+    public Long createOrderFromCart(OrderDTO orderDTO, String idempotencyKey) {
         Order order = new Order();
+        order.setIdempotencyKey(idempotencyKey);
         order.setPhone(orderDTO.getPhoneNumber());
         order.setUser(authService.getCurrentUser());
-        Long totalPrice = 0L;
-        order.setTotal(totalPrice);
         order.setFirstName(orderDTO.getFirstName());
         order.setLastName(orderDTO.getLastName());
         order.setAddress(orderDTO.getAddress());
         order.setStatus(orderStatusRepository.findById(orderDTO.getStatus()).orElseThrow(
                 () -> new RuntimeException("Can't find orderStatus with id: " + orderDTO.getStatus() + " to update")));
+        List<CartItem> cartItems = cartItemService.findAllForCheckout();
+        if (cartItems.isEmpty()) {
+            throw new EmptyCartException();
+        }
+        // giữ tồn kho cho cả giỏ một lần, thiếu một dòng thì không giữ dòng nào; rollback sẽ trả lại
+        Map<StockKey, Integer> stockLines = new HashMap<>();
+        for (CartItem c : cartItems) {
+            if (c.getProduct().getId() != null && c.getSize() != null && c.getSize().getSizeId() != null) {
+                stockLines.merge(StockKey.of(c.getProduct().getId(), c.getSize().getSizeId()), c.getQuantity(),
+                        Integer::sum);
+            }
+        }
+        stockTable.reserveAll(stockLines);
+        // tính tổng trước để đơn hàng chỉ cần một câu INSERT, không phải UPDATE lại total
+        Long totalPrice = 0L;
+        for (CartItem c : cartItems) {
+            totalPrice += c.getProduct().getPrice() * c.getQuantity();
+        }
+        order.setTotal(totalPrice);
         Order updateOrder = orderRepository.save(order);
-        List<OrderItem> orderItems = new ArrayList<>();
-        List<CartItem> cartItems = cartItemService.findAllByUserId();
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
         for (CartItem c : cartItems) {
             OrderItem o = new OrderItem();
             o.setName(c.getProduct().getName());
@@ -101,28 +221,86 @@ public class OrderServiceImp implements OrderService {
             o.setOrder(updateOrder);
             o.setProduct(c.getProduct());
             o.setSize(c.getSize());
-            OrderItem orderItemSave = orderItemRepository.save(o);
-            orderItems.add(orderItemSave);
-            totalPrice += o.getPrice() * o.getQuantity();
+            orderItems.add(o);
         }
-        updateOrder.setTotal(totalPrice);
-        Set<OrderItem> os = new HashSet<>(orderItems);
-        updateOrder.setOrderItems(os);
+        orderItemRepository.insertAll(orderItems);
+        updateOrder.setOrderItems(new HashSet<>(orderItems));
         cartItemService.deleteAllByUserId();
+        eventPublisher.publishEvent(OrderChangedEvent.placed(updateOrder, orderItems));
         return updateOrder.getId();
     }
 
     @Override
     public void update(final Long id, final OrderDTO orderDTO) {
+        update(id, orderDTO, null);
+    }
+
+    // expectedVersion lấy từ If-Match; không gửi thì không so trước, nhưng UPDATE vẫn kèm version vừa đọc
+    // nên ghi xen giữa lúc đọc và lúc ghi vẫn bị chặn (409)
+    @Override
+    public Order update(final Long id, final OrderDTO orderDTO, final Long expectedVersion) {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (expectedVersion != null && !expectedVersion.equals(order.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                    "Order " + id + " is at version " + order.getVersion() + ", not " + expectedVersion);
+        }
+        final Long previousStatusId = order.getStatus() == null ? null : order.getStatus().getId();
         order = mapToEntity(orderDTO, order);
-        orderRepository.save(order);
+        final Order saved = orderRepository.save(order);
+        if (!Objects.equals(previousStatusId, order.getStatus().getId())) {
+            eventPublisher.publishEvent(OrderChangedEvent.statusChanged(order, previousStatusId));
+        }
+        return saved;
+    }
+
+    // chuyển trạng thái nội bộ chỉ đổi status, áp lại lên bản mới nhất là an toàn: xung đột version thì
+    // đọc lại và thử lại (chờ ngẫu nhiên tăng dần) thay vì trả 409; mỗi lần thử là một transaction ngắn riêng
+    @Override
+    public Order transitionStatus(final Long id, final Long statusId) {
+        final OrderStatus status = orderStatusRepository.findById(statusId).orElseThrow(
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Can't find orderStatus with id: " + statusId));
+        for (int attempt = 1;; attempt++) {
+            final Order order = orderRepository.findById(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            final Long previousStatusId = order.getStatus() == null ? null : order.getStatus().getId();
+            if (statusId.equals(previousStatusId)) {
+                return order;
+            }
+            order.setStatus(status);
+            try {
+                final Order saved = orderRepository.save(order);
+                eventPublisher.publishEvent(OrderChangedEvent.statusChanged(order, previousStatusId));
+                return saved;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= statusRetryAttempts) {
+                    throw e;
+                }
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private void backoff(final int attempt, final OptimisticLockingFailureException cause) {
+        final long maxMillis = statusRetryBackoffMs * attempt;
+        if (maxMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(maxMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
     }
 
     @Override
     public void delete(final Long id) {
+        final Order order = orderRepository.findById(id).orElse(null);
         orderRepository.deleteById(id);
+        if (order != null) {
+            eventPublisher.publishEvent(OrderChangedEvent.deleted(order));
+        }
     }
 
     private Order mapToEntity(final OrderDTO orderDTO, Order order) {
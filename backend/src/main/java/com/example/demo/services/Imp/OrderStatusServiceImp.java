@@ -1,6 +1,7 @@
 package com.example.demo.services.Imp;
 
 
+import com.example.demo.configs.CacheConfig;
 import com.example.demo.repositories.OrderStatusRepository;
 import com.example.demo.services.OrderStatusService;
 import com.example.demo.entities.OrderStatus;
@@ -10,6 +11,9 @@ import java.util.List;
 
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -25,23 +29,31 @@ public class OrderStatusServiceImp implements OrderStatusService {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.ORDER_STATUSES, key = "'all'")
     public List<OrderStatus> findAll() {
         return orderStatusRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.ORDER_STATUS, key = "#id")
     public OrderStatus get(final Long id) {
         return orderStatusRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Can't find orderStatus with id: " + id));
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ORDER_STATUSES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.ORDER_STATUS, allEntries = true) })
     public Long create(final OrderStatusDTO orderStatusDTO) {
         OrderStatus orderStatus = modelMapper.map(orderStatusDTO, OrderStatus.class);
         return orderStatusRepository.save(orderStatus).getId();
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ORDER_STATUSES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.ORDER_STATUS, allEntries = true) })
     public void update(final Long id, final OrderStatusDTO orderStatusDTO) {
         OrderStatus orderStatus = orderStatusRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Can't find orderStatus with id: " + id + " to update"));
@@ -51,6 +63,9 @@ public class OrderStatusServiceImp implements OrderStatusService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ORDER_STATUSES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.ORDER_STATUS, allEntries = true) })
     public void delete(final Long id) {
         orderStatusRepository.deleteById(id);
     }
@@ -8,6 +8,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.example.demo.caching.CatalogVersions;
+import com.example.demo.caching.CatalogVersions.Table;
 import com.example.demo.entities.OrderItem;
 import com.example.demo.entities.Post;
 import com.example.demo.models.PostDTO;
@@ -20,6 +22,8 @@ public class PostsServiceImp implements PostService {
     private PostRepository postRepository;
     @Autowired
     private ModelMapper modelMapper;
+    @Autowired
+    private CatalogVersions catalogVersions;
     @Override
     public List<Post> findAll() {
         return postRepository.findAll();
@@ -39,7 +43,9 @@ public class PostsServiceImp implements PostService {
     @Override
     public Long create(PostDTO postDTO) {
           final Post post = mapToEntity(postDTO,new Post());
-        return postRepository.save(post).getId();
+        final Long id = postRepository.save(post).getId();
+        catalogVersions.bump(Table.POSTS);
+        return id;
     }
 
     @Override
@@ -58,12 +64,15 @@ public class PostsServiceImp implements PostService {
         post.setTitle(postDTO.getTitle());
         post.setModifyDate(postDTO.getModifyDate());
         post.setImageUrl(postDTO.getImageUrl());
-        return postRepository.save(post);
+        final Post saved = postRepository.save(post);
+        catalogVersions.bump(Table.POSTS);
+        return saved;
     }
 
     @Override
     public void delete(Long id) {
         postRepository.deleteById(id);
+        catalogVersions.bump(Table.POSTS);
     }
 
 
@@ -0,0 +1,83 @@
+package com.example.demo.services.Imp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.models.ProductFeedItem;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.services.ProductExportService;
+import com.example.demo.services.export.ExportFormat;
+import com.example.demo.services.export.ExportWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class ProductExportServiceImp implements ProductExportService {
+
+    // tên cột khớp với file import (category, color, sizes) để xuất ra có thể nhập lại
+    private static final List<String> COLUMNS = Arrays.asList("id", "name", "description", "materials",
+            "instruction", "image", "price", "categoryId", "category", "colorId", "color", "sizes", "updatedAt");
+
+    private final ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${demo.catalog.export.flush-rows:500}")
+    private int flushRows;
+
+    @Value("${demo.catalog.export.watermark-overlap-seconds:300}")
+    private long watermarkOverlapSeconds;
+
+    public ProductExportServiceImp(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    public long exportProducts(final ExportFormat format, final LocalDateTime modifiedSince,
+            final OutputStream output) throws IOException {
+        final long start = System.nanoTime();
+        try (ExportWriter writer = new ExportWriter(output, format, COLUMNS, flushRows, objectMapper)) {
+            try {
+                productRepository.streamFeed(modifiedSince, item -> {
+                    try {
+                        writer.writeRow(toRow(item));
+                    } catch (IOException e) {
+                        // client ngắt kết nối: ném ra để dừng đọc con trỏ
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            log.info("Exported {} products as {} in {} ms", writer.getRows(), format,
+                    (System.nanoTime() - start) / 1_000_000);
+            return writer.getRows();
+        }
+    }
+
+    // updated_at được gán (@UpdateTimestamp, giờ của app) trước khi transaction commit: bản ghi gán trước mốc nhưng
+    // commit sau khi con trỏ mở sẽ lọt cả lần này lẫn lần sau. Lùi mốc theo giờ DB một khoảng chồng lấn (dài hơn
+    // transaction ghi sản phẩm lâu nhất cộng độ lệch đồng hồ) nên lần sau xuất lại vài dòng, bên nhận gộp theo id
+    @Override
+    public LocalDateTime nextWatermark() {
+        return productRepository.currentTimestamp().minusSeconds(watermarkOverlapSeconds);
+    }
+
+    private static List<Object> toRow(final ProductFeedItem item) {
+        return Arrays.asList(item.getId(), item.getName(), item.getDescription(), item.getMaterials(),
+                item.getInstruction(), item.getImage(), item.getPrice(), item.getCategoryId(), item.getCategory(),
+                item.getColorId(), item.getColor(), item.getSizes(),
+                item.getUpdatedAt() == null ? null : item.getUpdatedAt().toString());
+    }
+}
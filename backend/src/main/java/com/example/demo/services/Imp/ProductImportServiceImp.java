@@ -0,0 +1,373 @@
+package com.example.demo.services.Imp;
+
+import com.example.demo.entities.Category;
+import com.example.demo.entities.Color;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.payload.response.ProductImportResponse;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.services.CategoryService;
+import com.example.demo.services.ColorService;
+import com.example.demo.services.ProductImportService;
+import com.example.demo.services.SizeService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class ProductImportServiceImp implements ProductImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ProductRepository productRepository;
+    private final CategoryService categoryService;
+    private final ColorService colorService;
+    private final SizeService sizeService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${demo.catalog.import-batch-size:500}")
+    private int batchSize;
+
+    public ProductImportServiceImp(ProductRepository productRepository, CategoryService categoryService,
+            ColorService colorService, SizeService sizeService, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.categoryService = categoryService;
+        this.colorService = colorService;
+        this.sizeService = sizeService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public ProductImportResponse importNdjson(final InputStream input) {
+        final ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                final JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (JsonProcessingException e) {
+                    run.reject(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+                    continue;
+                }
+                if (!node.isObject()) {
+                    run.reject(lineNumber, "Expected a JSON object");
+                    continue;
+                }
+                run.accept(lineNumber, toFields(node));
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot read import body", e);
+        }
+        return run.finish();
+    }
+
+    @Override
+    public ProductImportResponse importCsv(final InputStream input) {
+        final ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            final long[] lineNumber = { 0 };
+            final List<String> header = readCsvRecord(reader, lineNumber);
+            if (header == null) {
+                return run.finish();
+            }
+            final List<String> columns = new ArrayList<>(header.size());
+            for (String column : header) {
+                columns.add(column.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+            }
+            List<String> record;
+            while (true) {
+                final long recordLine = lineNumber[0] + 1;
+                record = readCsvRecord(reader, lineNumber);
+                if (record == null) {
+                    break;
+                }
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                if (record.size() > columns.size()) {
+                    run.reject(recordLine, "Expected " + columns.size() + " columns but found " + record.size());
+                    continue;
+                }
+                final Map<String, String> fields = new HashMap<>();
+                for (int i = 0; i < record.size(); i++) {
+                    fields.put(columns.get(i), record.get(i));
+                }
+                run.accept(recordLine, fields);
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot read import body", e);
+        }
+        return run.finish();
+    }
+
+    private Map<String, String> toFields(final JsonNode node) {
+        final Map<String, String> fields = new HashMap<>();
+        final Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, JsonNode> field = iterator.next();
+            final JsonNode value = field.getValue();
+            final String key = field.getKey().toLowerCase(Locale.ROOT);
+            if (value.isNull()) {
+                continue;
+            }
+            if (value.isArray()) {
+                final List<String> parts = new ArrayList<>();
+                value.forEach(part -> parts.add(part.asText()));
+                fields.put(key, String.join("|", parts));
+            } else {
+                fields.put(key, value.asText());
+            }
+        }
+        return fields;
+    }
+
+    // đọc một bản ghi CSV (RFC 4180), trường trong ngoặc kép được phép chứa dấu phẩy và xuống dòng
+    private List<String> readCsvRecord(final BufferedReader reader, final long[] lineNumber) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        lineNumber[0]++;
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                final char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            line = reader.readLine();
+            if (line == null) {
+                break;
+            }
+            lineNumber[0]++;
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // trạng thái của một lần nhập: bảng tra cứu, batch đang gom và kết quả
+    private final class ImportRun {
+        private final Lookup<Category> categories = new Lookup<>(categoryService.findAll(), Category::getId,
+                Category::getName, "category");
+        private final Lookup<Color> colors = new Lookup<>(colorService.findAll(), Color::getId, Color::getName,
+                "color");
+        private final Lookup<Size> sizes = new Lookup<>(sizeService.findAll(), Size::getSizeId, Size::getName,
+                "size");
+        private final List<Product> pending = new ArrayList<>();
+        private final List<Long> pendingLines = new ArrayList<>();
+        private final ProductImportResponse response = new ProductImportResponse();
+
+        void accept(final long line, final Map<String, String> fields) {
+            final Product product;
+            try {
+                product = toProduct(fields);
+            } catch (IllegalArgumentException e) {
+                reject(line, e.getMessage());
+                return;
+            }
+            pending.add(product);
+            pendingLines.add(line);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(final long line, final String message) {
+            response.setFailed(response.getFailed() + 1);
+            if (response.getErrors().size() < MAX_REPORTED_ERRORS) {
+                response.getErrors().add(new ProductImportResponse.RowError(line, message));
+            }
+        }
+
+        ProductImportResponse finish() {
+            flush();
+            response.setTotal(response.getImported() + response.getFailed());
+            log.info("Product import finished: {} imported, {} failed", response.getImported(), response.getFailed());
+            return response;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> productRepository.insertAll(pending));
+                pending.forEach(this::imported);
+            } catch (DataAccessException | TransactionException e) {
+                // một dòng lỗi làm rollback cả batch, chèn lại từng dòng để biết chính xác dòng nào hỏng
+                for (int i = 0; i < pending.size(); i++) {
+                    final Product product = pending.get(i);
+                    product.setId(null);
+                    try {
+                        transactionTemplate.executeWithoutResult(
+                                status -> productRepository.insertAll(List.of(product)));
+                        imported(product);
+                    } catch (DataAccessException | TransactionException rowError) {
+                        reject(pendingLines.get(i), NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+                    }
+                }
+            }
+            pending.clear();
+            pendingLines.clear();
+        }
+
+        private void imported(final Product product) {
+            response.setImported(response.getImported() + 1);
+            eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+        }
+
+        private Product toProduct(final Map<String, String> fields) {
+            final Product product = new Product();
+            product.setName(required(fields, "name", 255));
+            product.setDescription(optional(fields, "description", 255));
+            product.setMaterials(required(fields, "materials", 255));
+            product.setInstruction(required(fields, "instruction", 255));
+            product.setImage(optional(fields, "image", 255));
+            final String price = required(fields, "price", Integer.MAX_VALUE);
+            try {
+                product.setPrice(Long.parseLong(price));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid price: " + price);
+            }
+            if (product.getPrice() < 0) {
+                throw new IllegalArgumentException("Invalid price: " + price);
+            }
+            product.setCategory(categories.resolve(fields.get("category")));
+            product.setColor(colors.resolve(fields.get("color")));
+            final String sizeRefs = fields.get("sizes");
+            if (sizeRefs != null) {
+                for (String sizeRef : sizeRefs.split("\\|")) {
+                    if (!sizeRef.isBlank()) {
+                        product.getListSizes().add(sizes.resolve(sizeRef));
+                    }
+                }
+            }
+            return product;
+        }
+
+        private String required(final Map<String, String> fields, final String key, final int maxLength) {
+            final String value = optional(fields, key, maxLength);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing " + key);
+            }
+            return value;
+        }
+
+        private String optional(final Map<String, String> fields, final String key, final int maxLength) {
+            final String value = fields.get(key);
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            if (value.length() > maxLength) {
+                throw new IllegalArgumentException(key + " is longer than " + maxLength + " characters");
+            }
+            return value.trim();
+        }
+    }
+
+    // tra cứu theo id hoặc theo tên (không phân biệt hoa thường), tên trùng nhau thì bắt buộc dùng id
+    private static final class Lookup<T> {
+        private final Map<Long, T> byId = new HashMap<>();
+        private final Map<String, T> byName = new HashMap<>();
+        private final Set<String> ambiguousNames = new HashSet<>();
+        private final String kind;
+
+        Lookup(final List<T> values, final Function<T, Long> id, final Function<T, String> name, final String kind) {
+            this.kind = kind;
+            for (T value : values) {
+                byId.put(id.apply(value), value);
+                if (name.apply(value) != null) {
+                    final String key = name.apply(value).trim().toLowerCase(Locale.ROOT);
+                    if (byName.putIfAbsent(key, value) != null) {
+                        ambiguousNames.add(key);
+                    }
+                }
+            }
+        }
+
+        T resolve(final String reference) {
+            if (reference == null || reference.isBlank()) {
+                return null;
+            }
+            final String key = reference.trim().toLowerCase(Locale.ROOT);
+            T value = null;
+            if (key.length() <= 18 && key.chars().allMatch(Character::isDigit)) {
+                value = byId.get(Long.parseLong(key));
+            }
+            if (value == null) {
+                if (ambiguousNames.contains(key)) {
+                    throw new IllegalArgumentException("Ambiguous " + kind + " name, use its id: " + reference);
+                }
+                value = byName.get(key);
+            }
+            if (value == null) {
+                throw new IllegalArgumentException("Unknown " + kind + ": " + reference);
+            }
+            return value;
+        }
+    }
+}
@@ -1,19 +1,38 @@
 package com.example.demo.services.Imp;
 
+import com.example.demo.caching.CategoryTreeCache;
 import com.example.demo.entities.Product;
 import com.example.demo.entities.Category;
 import com.example.demo.entities.Color;
+import com.example.demo.events.ProductChangedEvent;
 import com.example.demo.models.ProductDTO;
-import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.models.ProductView;
+import com.example.demo.models.Suggestion;
+import com.example.demo.payload.request.ProductFilterRequest;
+import com.example.demo.payload.response.CursorPage;
+import com.example.demo.payload.response.ProductFilterResponse;
 import com.example.demo.repositories.OrderItemRepository;
 import com.example.demo.repositories.ProductRepository;
-import com.example.demo.repositories.ColorRepository;
 import com.example.demo.repositories.SizeRepository;
+import com.example.demo.services.CategoryService;
+import com.example.demo.services.ColorService;
+import com.example.demo.services.CursorCodec;
 import com.example.demo.services.ProductService;
+import com.example.demo.services.search.ProductFacetIndex;
+import com.example.demo.services.search.ProductSearchIndex;
+import com.example.demo.services.search.ProductSuggestIndex;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -22,19 +41,42 @@ import org.springframework.web.server.ResponseStatusException;
 public class ProductServiceImp implements ProductService {
 
     private final ProductRepository productRepository;
-    private final CategoryRepository categoryRepository;
-    private final ColorRepository colorRepository;
     private final SizeRepository sizeRepository;
     private final OrderItemRepository orderItemRepository;
 
     @Autowired
     private ModelMapper modelMapper;
 
-    public ProductServiceImp(ProductRepository productRepository, CategoryRepository categoryRepository,
-            ColorRepository colorRepository, SizeRepository sizeRepository, OrderItemRepository orderItemRepository) {
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ColorService colorService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${demo.catalog.page-size:24}")
+    private int defaultPageSize;
+
+    @Value("${demo.catalog.max-page-size:100}")
+    private int maxPageSize;
+
+    public ProductServiceImp(ProductRepository productRepository, SizeRepository sizeRepository,
+            OrderItemRepository orderItemRepository) {
         this.productRepository = productRepository;
-        this.categoryRepository = categoryRepository;
-        this.colorRepository = colorRepository;
         this.sizeRepository = sizeRepository;
         this.orderItemRepository = orderItemRepository;
     }
@@ -44,6 +86,54 @@ public class ProductServiceImp implements ProductService {
         return productRepository.findAll();
     }
 
+    @Override
+    public CursorPage<ProductView> findPage(final String cursor, final Integer size, final String sort) {
+        final int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        final String sortKey = sort == null ? "id" : sort;
+        // lấy dư 1 bản ghi để biết còn trang tiếp theo hay không
+        final Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Long> ids;
+        switch (sortKey) {
+            case "id": {
+                String[] last = cursor == null ? null : decodeCursor(cursor, sortKey, 2);
+                ids = productRepository.findIdsAfter(last == null ? 0L : parseCursorLong(last[1]), limit);
+                break;
+            }
+            case "price": {
+                String[] last = cursor == null ? null : decodeCursor(cursor, sortKey, 3);
+                ids = last == null
+                        ? productRepository.findIdsAfterPrice(Long.MIN_VALUE, 0L, limit)
+                        : productRepository.findIdsAfterPrice(parseCursorLong(last[2]), parseCursorLong(last[1]), limit);
+                break;
+            }
+            case "name": {
+                String[] last = cursor == null ? null : decodeCursor(cursor, sortKey, 3);
+                ids = last == null
+                        ? productRepository.findIdsAfterName("", 0L, limit)
+                        : productRepository.findIdsAfterName(last[2], parseCursorLong(last[1]), limit);
+                break;
+            }
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort: " + sort);
+        }
+
+        final boolean hasNext = ids.size() > pageSize;
+        // trang id chỉ quét index, sau đó nạp đủ quan hệ của cả trang bằng một truy vấn
+        final List<Product> products = findAllInOrder(hasNext ? ids.subList(0, pageSize) : ids);
+        String next = null;
+        if (hasNext && !products.isEmpty()) {
+            final Product last = products.get(products.size() - 1);
+            if ("price".equals(sortKey)) {
+                next = CursorCodec.encode(sortKey, last.getId(), last.getPrice());
+            } else if ("name".equals(sortKey)) {
+                next = CursorCodec.encode(sortKey, last.getId(), last.getName());
+            } else {
+                next = CursorCodec.encode(sortKey, last.getId());
+            }
+        }
+        return new CursorPage<>(ProductView.from(products), pageSize, next);
+    }
+
     @Override
     public Product get(final Long id) {
         return productRepository.findById(id)
@@ -53,32 +143,90 @@ public class ProductServiceImp implements ProductService {
 
     @Override
     public Long create(final ProductDTO productDTO) {
-        final Product product = mapToEntity(productDTO, new Product());
-        return productRepository.save(product).getId();
+        final Product product = productRepository.save(mapToEntity(productDTO, new Product()));
+        eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+        return product.getId();
     }
 
     @Override
     public List<Product> search(final String query) {
-        List<Product> products = productRepository.searchProducts(query);
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No products found with query: " + query);
+        }
+        List<Product> products;
+        if (productSearchIndex.isReady()) {
+            products = findAllInOrder(productSearchIndex.search(query));
+        } else {
+            // chỉ mục chưa build xong thì tìm trực tiếp trong DB
+            products = productRepository.searchProducts(query);
+        }
         if (products.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No products found with query: " + query);
         }
         return products;
     }
 
+    @Override
+    public List<Suggestion> suggest(final String prefix, final Integer limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return new ArrayList<>();
+        }
+        return productSuggestIndex.suggest(prefix, limit == null ? 0 : limit);
+    }
+
+    @Override
+    public List<Product> findAllInCategory(final Long categoryId) {
+        // lấy cả danh mục con từ cây trong bộ nhớ rồi truy vấn một lần bằng IN
+        final List<Long> categoryIds = categoryTreeCache.descendantIds(categoryId);
+        if (categoryIds.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cannot find category with id: " + categoryId);
+        }
+        return productRepository.findAllByCategoryIdIn(categoryIds);
+    }
+
+    @Override
+    public ProductFilterResponse filter(final ProductFilterRequest filterRequest) {
+        if (!productFacetIndex.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product catalog is still loading");
+        }
+        final int page = filterRequest.getPage() == null || filterRequest.getPage() < 0 ? 0 : filterRequest.getPage();
+        final int pageSize = filterRequest.getPageSize() == null || filterRequest.getPageSize() <= 0
+                ? defaultPageSize
+                : Math.min(filterRequest.getPageSize(), maxPageSize);
+        final ProductFacetIndex.Result result = productFacetIndex.filter(filterRequest, page, pageSize);
+        final ProductFilterResponse response = result.getResponse();
+        response.setItems(ProductView.from(findAllInOrder(result.getPageProductIds())));
+        return response;
+    }
+
     @Override
     public Product update(Long id, final ProductDTO productDTO) {
+        return update(id, productDTO, null);
+    }
+
+    @Override
+    public Product update(Long id, final ProductDTO productDTO, final Long expectedVersion) {
         Product product = productRepository.findById(id)
                 .orElseThrow(
                         () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cannot find product with id: " + id));
+        if (expectedVersion != null && !expectedVersion.equals(product.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                    "Product " + id + " is at version " + product.getVersion() + ", not " + expectedVersion);
+        }
+        final Long version = product.getVersion();
         product = mapToEntity(productDTO, product);
-        productRepository.save(product);
+        // mapToEntity dựng entity mới từ DTO, mang theo version đã đọc để UPDATE kiểm tra không ai ghi xen vào
+        product.setVersion(version);
+        // bản merge trả về có thể chưa nạp listSizes, chỉ lấy version mới từ nó
+        product.setVersion(productRepository.save(product).getVersion());
+        eventPublisher.publishEvent(ProductChangedEvent.saved(product));
         return product;
     }
 
     @Override
     public void delete(final Long id) {
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
     }
 
     public Product mapToEntity(final ProductDTO productDTO, Product product) {
@@ -86,14 +234,12 @@ public class ProductServiceImp implements ProductService {
         product = modelMapper.map(productDTO, Product.class);
         if (productDTO.getCategory() != null
                 && (product.getCategory() == null || !product.getCategory().getId().equals(productDTO.getCategory()))) {
-            final Category category = categoryRepository.findById(productDTO.getCategory())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "category not found"));
+            final Category category = categoryService.get(productDTO.getCategory());
             product.setCategory(category);
         }
         if (productDTO.getColor() != null
                 && (product.getColor() == null || !product.getColor().getId().equals(productDTO.getColor()))) {
-            final Color color = colorRepository.findById(productDTO.getColor())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "color not found"));
+            final Color color = colorService.get(productDTO.getColor());
             product.setColor(color);
         }
         if (productDTO.getListSizes() != null) {
@@ -102,4 +248,36 @@ public class ProductServiceImp implements ProductService {
         return product;
     }
 
+    private List<Product> findAllInOrder(final List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final Map<Long, Product> byId = productRepository.findAllByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        final List<Product> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            final Product product = byId.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    private String[] decodeCursor(final String cursor, final String sortKey, final int parts) {
+        final String[] decoded = CursorCodec.decode(cursor, parts);
+        if (!sortKey.equals(decoded[0])) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor does not match sort: " + sortKey);
+        }
+        return decoded;
+    }
+
+    private long parseCursorLong(final String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.example.demo.services.Imp;
 
+import com.example.demo.caching.CatalogVersions;
+import com.example.demo.caching.CatalogVersions.Table;
+import com.example.demo.configs.CacheConfig;
 import com.example.demo.repositories.SizeRepository;
 import com.example.demo.services.SizeService;
 import com.example.demo.entities.Size;
@@ -7,6 +10,9 @@ import com.example.demo.models.SizeDTO;
 
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -20,41 +26,59 @@ public class SizeServiceImp implements SizeService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
     public SizeServiceImp(SizeRepository sizeRepository) {
         this.sizeRepository = sizeRepository;
 
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.SIZES, key = "'all'")
     public List<Size> findAll() {
         return sizeRepository.findAll();
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.SIZE, key = "#id")
     public Size get(final Long id) {
         return sizeRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.SIZES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.SIZE, allEntries = true) })
     public Long create(final SizeDTO sizeDTO) {
         final Size size = mapToEntity(sizeDTO, new Size());
-        return sizeRepository.save(size).getSizeId();
+        final Long id = sizeRepository.save(size).getSizeId();
+        catalogVersions.bump(Table.SIZES);
+        return id;
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.SIZES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.SIZE, allEntries = true) })
     public Size update(final Long id, final SizeDTO sizeDTO) {
         Size size = sizeRepository.findById(id)
                 .orElseThrow(
                         () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cannot find size with id: " + id));
         size = mapToEntity(sizeDTO, size);
         sizeRepository.save(size);
+        catalogVersions.bump(Table.SIZES);
         return size;
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.SIZES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.SIZE, allEntries = true) })
     public void delete(final Long id) {
         sizeRepository.deleteById(id);
+        catalogVersions.bump(Table.SIZES);
     }
 
     private Size mapToEntity(final SizeDTO sizeDTO, Size size) {
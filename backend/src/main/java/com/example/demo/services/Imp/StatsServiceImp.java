@@ -0,0 +1,35 @@
+package com.example.demo.services.Imp;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.payload.response.SalesStatsResponse;
+import com.example.demo.services.StatsService;
+import com.example.demo.services.stats.SalesStats;
+
+@Service
+public class StatsServiceImp implements StatsService {
+
+    private final SalesStats salesStats;
+
+    @Value("${demo.stats.default-days:30}")
+    private int defaultDays;
+
+    @Value("${demo.stats.max-days:366}")
+    private int maxDays;
+
+    public StatsServiceImp(SalesStats salesStats) {
+        this.salesStats = salesStats;
+    }
+
+    // đọc thẳng từ bộ đếm trong bộ nhớ, không truy vấn DB
+    @Override
+    public SalesStatsResponse getSalesStats(final Integer days) {
+        final int range = days == null || days <= 0 ? defaultDays : Math.min(days, maxDays);
+        final LocalDate today = LocalDate.now();
+        return new SalesStatsResponse(salesStats.revenueBetween(today.minusDays(range - 1L), today),
+                salesStats.ordersByStatus(), salesStats.topProducts());
+    }
+}
@@ -18,6 +18,7 @@ import com.example.demo.entities.Role;
 import com.example.demo.entities.User;
 import com.example.demo.models.UserDTO;
 import com.example.demo.repositories.UserRepository;
+import com.example.demo.security.TokenValidationService;
 import com.example.demo.services.RoleService;
 import com.example.demo.services.UserService;
 
@@ -34,6 +35,8 @@ public class UserServiceImp implements UserService {
     private RoleService roleService;
     @Autowired
     private PasswordEncoder encoder;
+    @Autowired
+    private TokenValidationService tokenValidationService;
     private User mapToEntity(UserDTO userDTO, User user) {
         user = modelMapper.map(userDTO, User.class);
         user.setPassword(encoder.encode(userDTO.getPassword()));
@@ -62,6 +65,10 @@ public class UserServiceImp implements UserService {
 
     @Override
     public User saveOrUpdate(User user) {
+        // sửa tài khoản (đổi username, email, mật khẩu) thì token đã cấp mang claims cũ, phải đăng nhập lại
+        if (user.getId() != null) {
+            tokenValidationService.revoke(user.getId());
+        }
         return userRepository.save(user);
     }
 
@@ -118,6 +125,7 @@ public class UserServiceImp implements UserService {
     @Override
     public void delete(Long id) {
         userRepository.deleteById(id);
+        tokenValidationService.revoke(id);
     }
 
     @Override
@@ -0,0 +1,12 @@
+package com.example.demo.services;
+
+import java.util.List;
+
+import com.example.demo.models.StockLevelDTO;
+
+public interface InventoryService {
+
+    public List<StockLevelDTO> getStock(final Long productId);
+
+    public List<StockLevelDTO> setStock(final Long productId, final List<StockLevelDTO> levels);
+}
@@ -0,0 +1,14 @@
+package com.example.demo.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+import com.example.demo.services.export.ExportFormat;
+
+public interface OrderExportService {
+
+    // trả về số dòng đã ghi
+    public long exportOrders(final ExportFormat format, final LocalDateTime createdFrom, final LocalDateTime createdTo,
+            final OutputStream output) throws IOException;
+}
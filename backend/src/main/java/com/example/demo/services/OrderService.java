@@ -2,6 +2,11 @@ package com.example.demo.services;
 
 import com.example.demo.entities.Order;
 import com.example.demo.models.OrderDTO;
+import com.example.demo.models.OrderListItem;
+import com.example.demo.models.OrderSummary;
+import com.example.demo.payload.request.OrderFilterRequest;
+import com.example.demo.payload.response.CursorPage;
+import com.example.demo.payload.response.OffsetPage;
 
 import org.springframework.stereotype.Service;
 
@@ -13,14 +18,22 @@ public interface OrderService {
 
     public List<Order> findAll();
 
+    public CursorPage<OrderSummary> findSummaries(final String cursor, final Integer size);
+
     public Order get(Long id);
 
     public Long create(final OrderDTO orderDTO);
 
     public Long createOrderFromCart(OrderDTO orderDTO);
 
+    public Long createOrderFromCart(OrderDTO orderDTO, String idempotencyKey);
+
     public void update(final Long id, final OrderDTO orderDTO);
 
+    public Order update(final Long id, final OrderDTO orderDTO, final Long expectedVersion);
+
+    public Order transitionStatus(final Long id, final Long statusId);
+
     public void delete(final Long id);
-    public List<Order> findAllByAdmin();
+    public OffsetPage<OrderListItem> findAllByAdmin(OrderFilterRequest filterRequest);
 }
@@ -0,0 +1,17 @@
+package com.example.demo.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+import com.example.demo.services.export.ExportFormat;
+
+public interface ProductExportService {
+
+    // trả về số sản phẩm đã ghi
+    public long exportProducts(final ExportFormat format, final LocalDateTime modifiedSince,
+            final OutputStream output) throws IOException;
+
+    // mốc modifiedSince cho lần xuất tăng dần kế tiếp, lấy trước khi mở con trỏ
+    public LocalDateTime nextWatermark();
+}
@@ -0,0 +1,12 @@
+package com.example.demo.services;
+
+import java.io.InputStream;
+
+import com.example.demo.payload.response.ProductImportResponse;
+
+public interface ProductImportService {
+
+    public ProductImportResponse importNdjson(final InputStream input);
+
+    public ProductImportResponse importCsv(final InputStream input);
+}
@@ -2,6 +2,11 @@ package com.example.demo.services;
 
 import com.example.demo.entities.Product;
 import com.example.demo.models.ProductDTO;
+import com.example.demo.models.ProductView;
+import com.example.demo.models.Suggestion;
+import com.example.demo.payload.request.ProductFilterRequest;
+import com.example.demo.payload.response.CursorPage;
+import com.example.demo.payload.response.ProductFilterResponse;
 
 import java.util.List;
 
@@ -12,14 +17,24 @@ public interface ProductService {
 
     public List<Product> findAll();
 
+    public CursorPage<ProductView> findPage(final String cursor, final Integer size, final String sort);
+
     public Product get(final Long id);
 
     public Long create(final ProductDTO productDTO);
 
     public List<Product> search(final String query);
 
+    public List<Product> findAllInCategory(final Long categoryId);
+
+    public List<Suggestion> suggest(final String prefix, final Integer limit);
+
+    public ProductFilterResponse filter(final ProductFilterRequest filterRequest);
+
     public Product update(Long id, final ProductDTO productDTO);
 
+    public Product update(Long id, final ProductDTO productDTO, final Long expectedVersion);
+
     public void delete(final Long id);
 
 }
\ No newline at end of file
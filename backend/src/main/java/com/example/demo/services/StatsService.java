@@ -0,0 +1,8 @@
+package com.example.demo.services;
+
+import com.example.demo.payload.response.SalesStatsResponse;
+
+public interface StatsService {
+
+    public SalesStatsResponse getSalesStats(final Integer days);
+}
@@ -0,0 +1,108 @@
+package com.example.demo.services.cart;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.repositories.CartItemRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// gộp các dòng giỏ trùng (user, sản phẩm, size) sinh ra trước khi thêm vào giỏ là upsert, chạy một lần lúc khởi động.
+// DB cũ còn dòng trùng thì ddl-auto=update không tạo được khoá unique, nên gộp xong sẽ tự tạo nếu còn thiếu
+@Component
+@Slf4j
+public class CartCompaction {
+
+    private static final Set<String> UNIQUE_KEY_COLUMNS = Set.of("user_id", "product_id", "size_id");
+
+    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
+    private final CartSummaryCache cartSummaryCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${demo.cart.compaction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.cart.compaction.batch-size:500}")
+    private int batchSize;
+
+    public CartCompaction(CartItemRepository cartItemRepository, CartStore cartStore,
+            CartSummaryCache cartSummaryCache, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.cartSummaryCache = cartSummaryCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.error("Cannot compact duplicate cart items", e);
+        }
+    }
+
+    // trả về số nhóm dòng trùng đã gộp; mỗi lô batch-size nhóm một transaction
+    public int compact() {
+        final List<Object[]> groups = cartItemRepository.findDuplicateGroups();
+        for (int from = 0; from < groups.size(); from += batchSize) {
+            final List<Object[]> batch = groups.subList(from, Math.min(from + batchSize, groups.size()));
+            transactionTemplate.executeWithoutResult(status -> cartItemRepository.mergeDuplicates(batch));
+        }
+        if (!groups.isEmpty()) {
+            cartStore.invalidateAll();
+            cartSummaryCache.invalidateAll();
+            log.info("Merged {} duplicate cart item groups", groups.size());
+        }
+        ensureUniqueKey();
+        return groups.size();
+    }
+
+    private void ensureUniqueKey() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            final DatabaseMetaData metaData = connection.getMetaData();
+            final String table = metaData.storesUpperCaseIdentifiers() ? "CART_ITEM" : "cart_item";
+            final Map<String, Set<String>> columnsByIndex = new HashMap<>();
+            try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, table, true, false)) {
+                while (indexes.next()) {
+                    final String index = indexes.getString("INDEX_NAME");
+                    final String column = indexes.getString("COLUMN_NAME");
+                    if (index != null && column != null) {
+                        columnsByIndex.computeIfAbsent(index, key -> new HashSet<>())
+                                .add(column.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            if (!columnsByIndex.containsValue(UNIQUE_KEY_COLUMNS)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE UNIQUE INDEX uk_cart_item_user_product_size"
+                            + " ON cart_item (user_id, product_id, size_id)");
+                }
+                log.info("Created unique key uk_cart_item_user_product_size on cart_item");
+            }
+            return null;
+        });
+    }
+}
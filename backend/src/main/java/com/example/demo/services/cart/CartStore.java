@@ -0,0 +1,505 @@
+package com.example.demo.services.cart;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.entities.CartItem;
+import com.example.demo.entities.Size;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.repositories.CartItemRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// giỏ hàng trong bộ nhớ, chia shard theo user id: đọc giỏ không chạm DB, sửa/xoá dòng được gộp theo id
+// rồi ghi trễ (write-behind) xuống cart_item theo lô. Thêm dòng mới vẫn INSERT ngay vì client cần id thật.
+// Checkout gọi flush(userId) trước khi đọc giỏ từ DB nên luôn thấy đúng giỏ người dùng vừa sửa
+@Component
+@Slf4j
+public class CartStore {
+
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // lô ghi định kỳ và flush(userId) lúc checkout không chạy chồng lên nhau
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Set<UserCart> dirtyCarts = ConcurrentHashMap.newKeySet();
+    private Shard[] shards;
+
+    @Value("${demo.cart.store.shards:16}")
+    private int shardCount;
+
+    @Value("${demo.cart.store.max-users-per-shard:1000}")
+    private int maxUsersPerShard;
+
+    @Value("${demo.cart.store.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    public CartStore(CartItemRepository cartItemRepository, PlatformTransactionManager transactionManager) {
+        this.cartItemRepository = cartItemRepository;
+        // transaction riêng: checkout rollback không được kéo theo các thay đổi giỏ đã ghi
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void init() {
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    public List<CartItem> items(final Long userId) {
+        return withCart(userId, cart -> new ArrayList<>(cart.items.values()));
+    }
+
+    // null nếu dòng không thuộc giỏ của userId
+    public CartItem item(final Long userId, final Long id) {
+        return withCart(userId, cart -> cart.items.get(id));
+    }
+
+    // dòng (sản phẩm, size) trong giỏ của userId, null nếu chưa có
+    public CartItem find(final Long userId, final Long productId, final Long sizeId) {
+        return withCart(userId, cart -> findLine(cart, productId, sizeId, null));
+    }
+
+    // thêm vào giỏ khi đã có dòng (sản phẩm, size): cộng số lượng trong bộ nhớ rồi ghi trễ như sửa dòng;
+    // null nếu chưa có dòng, khi đó phải upsert xuống DB
+    public CartItem addQuantity(final Long userId, final Long productId, final Long sizeId, final int quantity) {
+        return withCart(userId, cart -> {
+            final CartItem current = findLine(cart, productId, sizeId, null);
+            if (current == null) {
+                return null;
+            }
+            final CartItem updated = copyOf(current);
+            updated.setQuantity(current.getQuantity() + quantity);
+            cart.items.put(updated.getId(), updated);
+            cart.pendingUpdates.put(updated.getId(), updated);
+            dirtyCarts.add(cart);
+            return updated;
+        });
+    }
+
+    // gọi sau khi INSERT dòng mới; trong transaction thì chờ commit, để lần nạp giỏ chen vào giữa không bỏ sót dòng này
+    public void added(final Long userId, final CartItem cartItem) {
+        prepare(cartItem);
+        afterCommit(() -> {
+            final UserCart cart = existingCart(userId);
+            if (cart == null) {
+                return;
+            }
+            cart.lock.lock();
+            try {
+                // giỏ chưa nạp thì lần đọc sau sẽ lấy cả dòng này từ DB
+                if (!cart.evicted && cart.items != null) {
+                    cart.items.put(cartItem.getId(), cartItem);
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        });
+    }
+
+    // null nếu dòng không thuộc giỏ của userId; đối tượng cũ không bị sửa vì có thể đang được serialize ở request khác
+    public CartItem update(final Long userId, final Long id, final Integer quantity, final Size size) {
+        return withCart(userId, cart -> {
+            final CartItem current = cart.items.get(id);
+            if (current == null) {
+                return null;
+            }
+            // đổi sang size đã có dòng khác trong giỏ sẽ trùng khoá (user, sản phẩm, size)
+            if (current.getProduct() != null && size != null
+                    && findLine(cart, current.getProduct().getId(), size.getSizeId(), id) != null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Cart already has product " + current.getProduct().getId() + " in size " + size.getSizeId());
+            }
+            final CartItem updated = copyOf(current);
+            updated.setQuantity(quantity);
+            updated.setSize(size);
+            cart.items.put(id, updated);
+            cart.pendingUpdates.put(id, updated);
+            dirtyCarts.add(cart);
+            return updated;
+        });
+    }
+
+    public boolean remove(final Long userId, final Long id) {
+        return withCart(userId, cart -> {
+            if (cart.items.remove(id) == null) {
+                return false;
+            }
+            cart.pendingUpdates.remove(id);
+            cart.pendingDeletes.add(id);
+            dirtyCarts.add(cart);
+            return true;
+        });
+    }
+
+    // gọi sau khi xoá cart_item của user trong transaction hiện tại; phần chờ ghi trỏ vào dòng đã xoá thì
+    // UPDATE/DELETE không khớp dòng nào nên cứ để nguyên. Nạp lại cả sau khi transaction kết thúc
+    // vì giỏ có thể đã bị nạp lại trong lúc lệnh xoá chưa commit
+    public void clear(final Long userId) {
+        invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(userId);
+                }
+            });
+        }
+    }
+
+    // ghi ngay phần chờ ghi của một user (checkout); lỗi thì ném ra để checkout không đọc giỏ cũ
+    public void flush(final Long userId) {
+        final UserCart cart = existingCart(userId);
+        if (cart == null) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            dirtyCarts.remove(cart);
+            write(List.of(cart));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${demo.cart.store.flush-interval-ms:500}")
+    public void flush() {
+        if (dirtyCarts.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            final List<UserCart> carts = new ArrayList<>(dirtyCarts);
+            dirtyCarts.removeAll(carts);
+            try {
+                write(carts);
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                writeEach(carts);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cannot write cart changes, retrying on next flush", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // một giỏ lỗi không được chặn cả lô mãi: ghi lại từng giỏ, giỏ vẫn lỗi (vi phạm ràng buộc, dữ liệu không ghi
+    // được...) thì bỏ thay đổi của nó và nạp lại từ DB. DB không phản hồi thì dừng, giữ các giỏ còn lại cho lần sau
+    private void writeEach(final List<UserCart> carts) {
+        for (int i = 0; i < carts.size(); i++) {
+            try {
+                write(List.of(carts.get(i)));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    dirtyCarts.addAll(carts.subList(i, carts.size()));
+                    throw e;
+                }
+                drop(carts.get(i), e);
+            }
+        }
+    }
+
+    // lỗi kết nối/timeout: thử lại nguyên lô ở lần flush sau, không tách từng giỏ
+    private static boolean isTransient(final RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private void drop(final UserCart cart, final RuntimeException cause) {
+        cart.lock.lock();
+        try {
+            dirtyCarts.remove(cart);
+            cart.pendingUpdates.clear();
+            cart.pendingDeletes.clear();
+            cart.items = null;
+        } finally {
+            cart.lock.unlock();
+        }
+        log.warn("Dropping cart changes that cannot be written", cause);
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    // đổi giá, tên... thì nạp lại các giỏ có sản phẩm này (phần chờ ghi vẫn giữ và được áp lại khi nạp)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        forEachCart(cart -> {
+            if (cart.items != null && containsProduct(cart, event.getProductId())) {
+                cart.items = null;
+            }
+        });
+    }
+
+    // sau khi sửa cart_item ngoài CartStore (vd. gộp dòng trùng): mọi giỏ nạp lại ở lần đọc sau
+    public void invalidateAll() {
+        forEachCart(cart -> cart.items = null);
+    }
+
+    private void forEachCart(final Consumer<UserCart> action) {
+        for (Shard shard : shards) {
+            final List<UserCart> carts;
+            synchronized (shard) {
+                carts = new ArrayList<>(shard.carts.values());
+            }
+            for (UserCart cart : carts) {
+                cart.lock.lock();
+                try {
+                    action.accept(cart);
+                } finally {
+                    cart.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // số user đang có giỏ trong bộ nhớ
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.carts.size();
+            }
+        }
+        return size;
+    }
+
+    // chụp phần chờ ghi rồi ghi ngoài khoá giỏ; chỉ bỏ khỏi hàng chờ những dòng chưa bị sửa tiếp trong lúc ghi,
+    // nên giỏ nạp lại giữa chừng vẫn thấy thay đổi chưa xuống DB
+    private void write(final List<UserCart> carts) {
+        final Map<UserCart, Map<Long, CartItem>> updatesByCart = new LinkedHashMap<>();
+        final Map<UserCart, Set<Long>> deletesByCart = new LinkedHashMap<>();
+        final List<CartItem> updates = new ArrayList<>();
+        final List<Long> deletes = new ArrayList<>();
+        for (UserCart cart : carts) {
+            cart.lock.lock();
+            try {
+                updatesByCart.put(cart, new LinkedHashMap<>(cart.pendingUpdates));
+                deletesByCart.put(cart, new LinkedHashSet<>(cart.pendingDeletes));
+                updates.addAll(cart.pendingUpdates.values());
+                deletes.addAll(cart.pendingDeletes);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+        if (updates.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // xoá trước: dòng vừa đổi sang size của một dòng đã xoá không được đụng khoá unique
+                for (int from = 0; from < deletes.size(); from += flushBatchSize) {
+                    cartItemRepository
+                            .deleteAllByIdIn(deletes.subList(from, Math.min(from + flushBatchSize, deletes.size())));
+                }
+                for (int from = 0; from < updates.size(); from += flushBatchSize) {
+                    cartItemRepository.updateAll(updates.subList(from, Math.min(from + flushBatchSize, updates.size())));
+                }
+            });
+        } catch (RuntimeException e) {
+            dirtyCarts.addAll(carts);
+            throw e;
+        }
+        for (UserCart cart : carts) {
+            cart.lock.lock();
+            try {
+                updatesByCart.get(cart).forEach(cart.pendingUpdates::remove);
+                cart.pendingDeletes.removeAll(deletesByCart.get(cart));
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+        log.debug("Cart changes written: {} updates, {} deletes for {} users", updates.size(), deletes.size(),
+                carts.size());
+    }
+
+    private <T> T withCart(final Long userId, final Function<UserCart, T> action) {
+        while (true) {
+            final UserCart cart = cartOf(userId);
+            cart.lock.lock();
+            try {
+                // bị đẩy ra khỏi shard ngay trước khi khoá được thì lấy lại giỏ mới
+                if (cart.evicted) {
+                    continue;
+                }
+                if (cart.items == null) {
+                    load(userId, cart);
+                }
+                return action.apply(cart);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private void load(final Long userId, final UserCart cart) {
+        final LinkedHashMap<Long, CartItem> items = new LinkedHashMap<>();
+        for (CartItem cartItem : cartItemRepository.findAllByUserId(userId)) {
+            if (cart.pendingDeletes.contains(cartItem.getId())) {
+                continue;
+            }
+            final CartItem pending = cart.pendingUpdates.get(cartItem.getId());
+            if (pending != null) {
+                cartItem.setQuantity(pending.getQuantity());
+                cartItem.setSize(pending.getSize());
+            }
+            prepare(cartItem);
+            items.put(cartItem.getId(), cartItem);
+        }
+        cart.items = items;
+    }
+
+    private UserCart cartOf(final Long userId) {
+        final Shard shard = shard(userId);
+        synchronized (shard) {
+            return shard.carts.computeIfAbsent(userId, id -> new UserCart());
+        }
+    }
+
+    private UserCart existingCart(final Long userId) {
+        final Shard shard = shard(userId);
+        synchronized (shard) {
+            return shard.carts.get(userId);
+        }
+    }
+
+    private void invalidate(final Long userId) {
+        final UserCart cart = existingCart(userId);
+        if (cart == null) {
+            return;
+        }
+        cart.lock.lock();
+        try {
+            cart.items = null;
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    private Shard shard(final Long userId) {
+        return shards[Math.floorMod(userId.hashCode(), shards.length)];
+    }
+
+    private static CartItem findLine(final UserCart cart, final Long productId, final Long sizeId,
+            final Long exceptId) {
+        for (CartItem cartItem : cart.items.values()) {
+            if (cartItem.getProduct() != null && cartItem.getSize() != null && !cartItem.getId().equals(exceptId)
+                    && productId.equals(cartItem.getProduct().getId())
+                    && sizeId.equals(cartItem.getSize().getSizeId())) {
+                return cartItem;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsProduct(final UserCart cart, final Long productId) {
+        for (CartItem cartItem : cart.items.values()) {
+            if (cartItem.getProduct() != null && productId.equals(cartItem.getProduct().getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // nạp sẵn listSizes: cùng một đối tượng được nhiều request serialize, không để lazy-load chạy đồng thời
+    private static void prepare(final CartItem cartItem) {
+        if (cartItem.getProduct() != null) {
+            Hibernate.initialize(cartItem.getProduct().getListSizes());
+        }
+    }
+
+    private static CartItem copyOf(final CartItem cartItem) {
+        final CartItem copy = new CartItem();
+        copy.setId(cartItem.getId());
+        copy.setQuantity(cartItem.getQuantity());
+        copy.setUser(cartItem.getUser());
+        copy.setProduct(cartItem.getProduct());
+        copy.setSize(cartItem.getSize());
+        copy.setVersion(cartItem.getVersion());
+        return copy;
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // LRU theo lần dùng cuối; chỉ đẩy ra giỏ không còn gì chờ ghi
+    private final class Shard {
+        private final Map<Long, UserCart> carts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserCart> eldest) {
+                return size() > maxUsersPerShard && eldest.getValue().tryEvict();
+            }
+        };
+    }
+
+    private static final class UserCart {
+        private final ReentrantLock lock = new ReentrantLock();
+        // null: chưa nạp hoặc phải nạp lại từ DB
+        private LinkedHashMap<Long, CartItem> items;
+        // trạng thái mới nhất của các dòng đã sửa/xoá nhưng chưa ghi xuống DB
+        private final Map<Long, CartItem> pendingUpdates = new LinkedHashMap<>();
+        private final Set<Long> pendingDeletes = new LinkedHashSet<>();
+        private boolean evicted;
+
+        // không chờ khoá: đang bị luồng khác dùng thì để lại lần sau
+        private boolean tryEvict() {
+            if (!lock.tryLock()) {
+                return false;
+            }
+            try {
+                if (!pendingUpdates.isEmpty() || !pendingDeletes.isEmpty()) {
+                    return false;
+                }
+                evicted = true;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
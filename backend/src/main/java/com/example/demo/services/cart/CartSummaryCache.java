@@ -0,0 +1,69 @@
+package com.example.demo.services.cart;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.models.CartSummary;
+import com.example.demo.repositories.CartItemRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// tổng giỏ theo user, tính bằng một câu projection và giữ đến khi giỏ đổi hoặc giá sản phẩm trong giỏ đổi.
+// Mọi chỗ sửa giỏ phải gọi invalidate sau khi sửa: đang tính dở thì Caffeine chờ tính xong rồi mới xoá
+@Component
+public class CartSummaryCache {
+
+    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
+    private final Cache<Long, CartSummary> summaries;
+
+    public CartSummaryCache(CartItemRepository cartItemRepository, CartStore cartStore,
+            @Value("${demo.cart.summary.max-entries:10000}") long maxEntries,
+            @Value("${demo.cart.summary.ttl-minutes:30}") long ttlMinutes) {
+        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    public CartSummary get(final Long userId) {
+        final CartSummary cached = summaries.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        // projection đọc DB nên thay đổi đang chờ ghi trong CartStore phải xuống trước
+        cartStore.flush(userId);
+        return summaries.get(userId, id -> new CartSummary(cartItemRepository.findSummaryLines(id)));
+    }
+
+    // bỏ ngay và bỏ lần nữa khi transaction kết thúc, tránh request khác kịp cache giỏ cũ trước khi commit
+    public void invalidate(final Long userId) {
+        summaries.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    summaries.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        summaries.invalidateAll();
+    }
+
+    // đổi giá, tên, ảnh hoặc xoá sản phẩm: bỏ tổng của các giỏ có sản phẩm đó
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        summaries.asMap().values().removeIf(summary -> summary.containsProduct(event.getProductId()));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.services.cart;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.repositories.CartItemRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+// dọn giỏ không được sửa trong retention-days ngày. Quét theo từng khoảng id chunk-size dòng, mỗi khoảng một
+// transaction ngắn và nghỉ pause-ms giữa hai khoảng để không giữ khoá lâu hay phình undo log trên MySQL dùng chung.
+// Số liệu lần chạy gần nhất xem ở /actuator/metrics/demo.cart.sweeper.*
+@Component
+@Slf4j
+public class CartSweeper {
+
+    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
+    private final CartSummaryCache cartSummaryCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter deletedRows;
+    private final Timer duration;
+    private final AtomicLong lastDeletedRows = new AtomicLong();
+    private final AtomicLong lastDeletedCarts = new AtomicLong();
+    private final AtomicLong lastChunks = new AtomicLong();
+
+    @Value("${demo.cart.sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${demo.cart.sweeper.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${demo.cart.sweeper.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${demo.cart.sweeper.pause-ms:100}")
+    private long pauseMs;
+
+    public CartSweeper(CartItemRepository cartItemRepository, CartStore cartStore, CartSummaryCache cartSummaryCache,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.cartSummaryCache = cartSummaryCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deletedRows = Counter.builder("demo.cart.sweeper.deleted.rows")
+                .description("Cart item rows deleted by the abandoned cart sweeper")
+                .register(meterRegistry);
+        this.duration = Timer.builder("demo.cart.sweeper.duration")
+                .description("Duration of abandoned cart sweeper runs")
+                .register(meterRegistry);
+        Gauge.builder("demo.cart.sweeper.last.deleted.rows", lastDeletedRows, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("demo.cart.sweeper.last.deleted.carts", lastDeletedCarts, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("demo.cart.sweeper.last.chunks", lastChunks, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${demo.cart.sweeper.cron:0 30 3 * * *}")
+    public void scheduledSweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.error("Abandoned cart sweep failed", e);
+        }
+    }
+
+    // trả về số dòng đã xoá
+    public long sweep() {
+        final long start = System.nanoTime();
+        // thay đổi đang chờ ghi trong CartStore phải xuống trước, không thì updated_at trong DB còn cũ
+        cartStore.flush();
+        final LocalDateTime now = LocalDateTime.now();
+        final LocalDateTime cutoff = now.minusDays(retentionDays);
+        final Long minId = cartItemRepository.findMinId();
+        final Long maxId = cartItemRepository.findMaxId();
+        long deleted = 0;
+        long chunks = 0;
+        final Set<Long> carts = new LinkedHashSet<>();
+        if (minId != null) {
+            for (long from = minId; from <= maxId; from += chunkSize) {
+                if (chunks > 0 && !pause()) {
+                    break;
+                }
+                final long chunkFrom = from;
+                final long chunkTo = from + chunkSize;
+                final Set<Long> users = new LinkedHashSet<>();
+                deleted += transactionTemplate.execute(status -> {
+                    // dòng có từ trước khi thêm cột được tính từ lần quét đầu tiên
+                    cartItemRepository.stampMissingUpdatedAt(chunkFrom, chunkTo, now);
+                    final List<Long> ids = new ArrayList<>();
+                    for (Object[] row : cartItemRepository.findAbandoned(chunkFrom, chunkTo, cutoff)) {
+                        ids.add((Long) row[0]);
+                        if (row[1] != null) {
+                            users.add((Long) row[1]);
+                        }
+                    }
+                    return cartItemRepository.deleteAbandoned(ids, cutoff);
+                });
+                chunks++;
+                // giỏ nằm trên nhiều khoảng id thì chỉ cần bỏ khỏi bộ nhớ một lần
+                for (Long userId : users) {
+                    if (carts.add(userId)) {
+                        cartStore.clear(userId);
+                        cartSummaryCache.invalidate(userId);
+                    }
+                }
+            }
+        }
+        final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        deletedRows.increment(deleted);
+        duration.record(elapsed);
+        lastDeletedRows.set(deleted);
+        lastDeletedCarts.set(carts.size());
+        lastChunks.set(chunks);
+        log.info("Swept {} abandoned cart items from {} carts in {} chunks ({} ms)", deleted, carts.size(), chunks,
+                elapsed.toMillis());
+        return deleted;
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
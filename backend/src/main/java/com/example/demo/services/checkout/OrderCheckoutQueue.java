@@ -0,0 +1,242 @@
+package com.example.demo.services.checkout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.models.OrderDTO;
+import com.example.demo.services.OrderService;
+
+import lombok.extern.slf4j.Slf4j;
+
+// chế độ group commit cho checkout (flash sale): request xếp vào hàng đợi có giới hạn, một luồng ghi gom thành
+// lô nhỏ và commit cả lô trong một transaction, nên mỗi lần fsync của MySQL được chia cho nhiều đơn hàng.
+// Một đơn trong lô lỗi (giỏ trống, hết hàng, trùng Idempotency-Key...) thì cả lô rollback rồi chạy lại từng đơn
+// trong transaction riêng, để lỗi chỉ trả về đúng người gửi
+@Component
+@Slf4j
+public class OrderCheckoutQueue {
+
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${demo.orders.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${demo.orders.group-commit.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${demo.orders.group-commit.batch-size:50}")
+    private int batchSize;
+
+    @Value("${demo.orders.group-commit.linger-ms:5}")
+    private long lingerMs;
+
+    @Value("${demo.orders.group-commit.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    private BlockingQueue<PendingCheckout> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    public OrderCheckoutQueue(OrderService orderService, PlatformTransactionManager transactionManager) {
+        this.orderService = orderService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::writeLoop, "order-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Order group commit enabled: queue {}, batch {}, linger {} ms", queueCapacity, batchSize, lingerMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final List<PendingCheckout> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (PendingCheckout pending : remaining) {
+            pending.result.completeExceptionally(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server is shutting down"));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // gọi từ luồng request: xếp hàng rồi chờ id đơn hàng; hàng đợi đầy thì trả 429 ngay
+    public Long submit(final OrderDTO orderDTO, final String idempotencyKey) {
+        return await(enqueue(orderDTO, idempotencyKey));
+    }
+
+    public CompletableFuture<Long> enqueue(final OrderDTO orderDTO, final String idempotencyKey) {
+        if (!running) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order group commit is not running");
+        }
+        // luồng ghi không có SecurityContext của request, chép lại để AuthService biết đơn của ai
+        final SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        final PendingCheckout pending = new PendingCheckout(orderDTO, idempotencyKey, securityContext);
+        if (!queue.offer(pending)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many checkouts, please retry");
+        }
+        return pending.result;
+    }
+
+    private Long await(final CompletableFuture<Long> result) {
+        try {
+            return result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // chưa vào lô nào thì luồng ghi sẽ bỏ qua; đã vào lô thì đơn vẫn có thể được tạo (gửi lại với Idempotency-Key)
+            result.cancel(false);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Checkout timed out, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                final List<PendingCheckout> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Order group commit writer failed", e);
+            }
+        }
+    }
+
+    // chờ đơn đầu tiên, sau đó gom thêm tối đa linger-ms hoặc tới khi đủ batch-size
+    List<PendingCheckout> nextBatch() throws InterruptedException {
+        final List<PendingCheckout> batch = new ArrayList<>(batchSize);
+        final PendingCheckout first = queue.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            final long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            final PendingCheckout next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        // người gửi đã hết thời gian chờ thì không tạo đơn nữa
+        batch.removeIf(pending -> pending.result.isDone());
+        return batch;
+    }
+
+    void commit(final List<PendingCheckout> batch) {
+        if (batch.size() == 1) {
+            commitOne(batch.get(0));
+            return;
+        }
+        final List<Long> orderIds;
+        try {
+            orderIds = transactionTemplate.execute(status -> {
+                final List<Long> ids = new ArrayList<>(batch.size());
+                for (PendingCheckout pending : batch) {
+                    ids.add(checkout(pending));
+                    // ghi xong đơn nào thì bỏ khỏi persistence context, để các câu query sau không phải
+                    // dirty-check lại toàn bộ các đơn trước trong lô
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+                return ids;
+            });
+        } catch (RuntimeException e) {
+            log.debug("Group commit of {} checkouts failed, retrying one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::commitOne);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(orderIds.get(i));
+        }
+    }
+
+    private void commitOne(final PendingCheckout pending) {
+        try {
+            pending.result.complete(checkout(pending));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private Long checkout(final PendingCheckout pending) {
+        SecurityContextHolder.setContext(pending.securityContext);
+        try {
+            return orderService.createOrderFromCart(pending.orderDTO, pending.idempotencyKey);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    static final class PendingCheckout {
+        private final OrderDTO orderDTO;
+        private final String idempotencyKey;
+        private final SecurityContext securityContext;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private PendingCheckout(OrderDTO orderDTO, String idempotencyKey, SecurityContext securityContext) {
+            this.orderDTO = orderDTO;
+            this.idempotencyKey = idempotencyKey;
+            this.securityContext = securityContext;
+        }
+    }
+}
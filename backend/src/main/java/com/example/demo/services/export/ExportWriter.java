@@ -0,0 +1,115 @@
+package com.example.demo.services.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// ghi từng dòng ra NDJSON hoặc CSV qua bộ đệm cố định, cứ flushRows dòng thì đẩy xuống stream (chunked)
+public class ExportWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<String> columns;
+    private final int flushRows;
+    private final Writer writer;
+    private final JsonGenerator generator;
+
+    private long rows = 0;
+
+    public ExportWriter(final OutputStream output, final ExportFormat format, final List<String> columns,
+            final int flushRows, final ObjectMapper objectMapper) throws IOException {
+        this.columns = columns;
+        this.flushRows = Math.max(1, flushRows);
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == ExportFormat.NDJSON) {
+            // generator chỉ đẩy vào bộ đệm của writer, việc flush xuống stream do writer quyết định
+            this.generator = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        } else {
+            this.generator = null;
+            // BOM để Excel đọc đúng tiếng Việt, phía import đã bỏ qua BOM
+            writer.write('\uFEFF');
+            writeCsvRow(columns);
+        }
+    }
+
+    public void writeRow(final List<?> values) throws IOException {
+        if (values.size() != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values but got " + values.size());
+        }
+        if (generator != null) {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.size(); i++) {
+                generator.writeFieldName(columns.get(i));
+                generator.writeObject(values.get(i));
+            }
+            generator.writeEndObject();
+            generator.flush();
+            writer.write('\n');
+        } else {
+            writeCsvRow(values);
+        }
+        if (++rows % flushRows == 0) {
+            writer.flush();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    // chỉ flush, stream bên dưới (response) do container đóng
+    @Override
+    public void close() throws IOException {
+        if (generator != null) {
+            generator.close();
+        }
+        writer.flush();
+    }
+
+    private void writeCsvRow(final List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvField(values.get(i));
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCsvField(final Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        final String text;
+        if (value instanceof Collection) {
+            // cùng quy ước với file import: nhiều giá trị ngăn cách bằng "|"
+            final StringBuilder joined = new StringBuilder();
+            for (Object item : (Collection<?>) value) {
+                if (joined.length() > 0) {
+                    joined.append('|');
+                }
+                joined.append(item);
+            }
+            text = joined.toString();
+        } else {
+            text = value.toString();
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.services.inventory;
+
+import java.util.Objects;
+
+public final class StockKey {
+
+    private final long productId;
+    private final long sizeId;
+
+    private StockKey(long productId, long sizeId) {
+        this.productId = productId;
+        this.sizeId = sizeId;
+    }
+
+    public static StockKey of(final long productId, final long sizeId) {
+        return new StockKey(productId, sizeId);
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public long getSizeId() {
+        return sizeId;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof StockKey)) {
+            return false;
+        }
+        final StockKey key = (StockKey) other;
+        return productId == key.productId && sizeId == key.sizeId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId, sizeId);
+    }
+
+    @Override
+    public String toString() {
+        return "product " + productId + " size " + sizeId;
+    }
+}
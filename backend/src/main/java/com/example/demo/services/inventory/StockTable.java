@@ -0,0 +1,199 @@
+package com.example.demo.services.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.entities.ProductStock;
+import com.example.demo.repositories.ProductStockRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// bảng tồn kho trong bộ nhớ: giữ hàng bằng CAS trên từng bộ đếm, không khóa dòng nào trong DB.
+// product_stock được cập nhật trễ từ các dòng order_item đã commit (stock_applied = false),
+// nên khởi động lại sau crash chỉ cần áp nốt các dòng đó rồi nạp lại bảng
+@Component
+@Slf4j
+public class StockTable {
+
+    private final ProductStockRepository productStockRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // cặp (sản phẩm, size) không có trong map thì không giới hạn tồn kho
+    private final Map<StockKey, AtomicLong> available = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    @Value("${demo.inventory.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    public StockTable(ProductStockRepository productStockRepository, PlatformTransactionManager transactionManager) {
+        this.productStockRepository = productStockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        ensureLoaded();
+    }
+
+    // null nếu không theo dõi tồn kho
+    public Long available(final Long productId, final Long sizeId) {
+        if (productId == null || sizeId == null) {
+            return null;
+        }
+        ensureLoaded();
+        final AtomicLong counter = available.get(StockKey.of(productId, sizeId));
+        return counter == null ? null : counter.get();
+    }
+
+    // kiểm tra lúc thêm vào giỏ, không giữ hàng (giỏ bị bỏ quên không được chiếm tồn kho)
+    public void requireAvailable(final Long productId, final Long sizeId, final Integer quantity) {
+        final Long current = available(productId, sizeId);
+        if (current != null && quantity != null && current < quantity) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Not enough stock for " + StockKey.of(productId, sizeId) + ": " + current + " left");
+        }
+    }
+
+    // giữ đủ mọi dòng hoặc không giữ dòng nào; nếu transaction hiện tại rollback thì tự trả lại.
+    // Số lượng < 1 bị từ chối trước khi giữ: trừ một số âm là cộng thêm tồn kho không có thật
+    public void reserveAll(final Map<StockKey, Integer> lines) {
+        for (Map.Entry<StockKey, Integer> line : lines.entrySet()) {
+            if (line.getValue() == null || line.getValue() < 1) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invalid quantity for " + line.getKey() + ": " + line.getValue());
+            }
+        }
+        ensureLoaded();
+        final List<Map.Entry<StockKey, Integer>> reserved = new ArrayList<>(lines.size());
+        for (Map.Entry<StockKey, Integer> line : lines.entrySet()) {
+            final AtomicLong counter = available.get(line.getKey());
+            if (counter == null) {
+                continue;
+            }
+            if (!tryTake(counter, line.getValue())) {
+                release(reserved);
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Not enough stock for " + line.getKey() + ": " + counter.get() + " left");
+            }
+            reserved.add(line);
+        }
+        if (!reserved.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(reserved);
+                    }
+                }
+            });
+        }
+    }
+
+    // đặt số lượng tuyệt đối; DB được cộng phần chênh lệch so với bộ nhớ nên không mất phần đang được giữ
+    public synchronized void set(final Long productId, final Long sizeId, final long quantity) {
+        ensureLoaded();
+        final StockKey key = StockKey.of(productId, sizeId);
+        final AtomicLong counter = available.get(key);
+        if (counter == null) {
+            // áp hết doanh số cũ trước, để chúng không bị trừ vào dòng tồn kho mới
+            drainPendingSales();
+            transactionTemplate.executeWithoutResult(status -> {
+                ProductStock stock = new ProductStock();
+                stock.setProductId(productId);
+                stock.setSizeId(sizeId);
+                stock.setQuantity(quantity);
+                productStockRepository.save(stock);
+            });
+            available.put(key, new AtomicLong(quantity));
+            return;
+        }
+        final long previous = counter.getAndSet(quantity);
+        final long delta = quantity - previous;
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> productStockRepository.addQuantity(productId, sizeId, delta));
+        } catch (RuntimeException e) {
+            counter.addAndGet(-delta);
+            throw e;
+        }
+    }
+
+    // ghi trễ (write-behind) doanh số đã commit xuống product_stock
+    @Scheduled(fixedDelayString = "${demo.inventory.flush-interval-ms:1000}")
+    public void flush() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            drainPendingSales();
+        } catch (RuntimeException e) {
+            log.warn("Cannot apply pending sales to product_stock", e);
+        }
+    }
+
+    synchronized void load() {
+        final int applied = drainPendingSales();
+        available.clear();
+        for (ProductStock stock : productStockRepository.findAll()) {
+            available.put(StockKey.of(stock.getProductId(), stock.getSizeId()), new AtomicLong(stock.getQuantity()));
+        }
+        loaded = true;
+        log.info("Stock table loaded: {} tracked product sizes, {} pending order items reconciled", available.size(),
+                applied);
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                }
+            }
+        }
+    }
+
+    private synchronized int drainPendingSales() {
+        int total = 0;
+        int applied;
+        do {
+            applied = transactionTemplate.execute(status -> productStockRepository.applyPendingSales(flushBatchSize));
+            total += applied;
+        } while (applied >= flushBatchSize);
+        return total;
+    }
+
+    private static boolean tryTake(final AtomicLong counter, final long quantity) {
+        long current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    private void release(final List<Map.Entry<StockKey, Integer>> reserved) {
+        for (Map.Entry<StockKey, Integer> line : reserved) {
+            final AtomicLong counter = available.get(line.getKey());
+            if (counter != null) {
+                counter.addAndGet(line.getValue());
+            }
+        }
+    }
+}
@@ -26,6 +26,9 @@ public class OAuth2UserDetailCustom implements OAuth2User,UserDetails{
         this.password=password;
         this.authorities=authorities;
     }
+    public Long getUserId() {
+        return userId;
+    }
     @Override
     public Map<String, Object> getAttributes() {
         return attributes;
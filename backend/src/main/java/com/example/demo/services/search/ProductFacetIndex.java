@@ -0,0 +1,355 @@
+package com.example.demo.services.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.caching.CategoryTreeCache;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.payload.request.ProductFilterRequest;
+import com.example.demo.payload.response.ProductFilterResponse;
+import com.example.demo.repositories.ProductRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+// snapshot thuộc tính sản phẩm trong bộ nhớ, lọc và đếm facet bằng phép giao bitset
+@Component
+@Slf4j
+public class ProductFacetIndex {
+
+    private static final int BUILD_BATCH_SIZE = 500;
+
+    private final ProductRepository productRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${demo.catalog.price-buckets:200000,400000,600000,800000}")
+    private long[] priceBucketBounds;
+
+    private final Map<Long, Integer> slotByProductId = new HashMap<>();
+    private long[] productIdBySlot = new long[1024];
+    private long[] priceBySlot = new long[1024];
+    private Long[] categoryBySlot = new Long[1024];
+    private Long[] colorBySlot = new Long[1024];
+    private long[][] sizesBySlot = new long[1024][];
+    private int nextSlot = 0;
+    // slot của sản phẩm đã xoá được cấp lại, mảng và bitset chỉ lớn theo số sản phẩm đang có
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private final BitSet alive = new BitSet();
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private final Map<Long, BitSet> byColor = new HashMap<>();
+    private final Map<Long, BitSet> bySize = new HashMap<>();
+
+    private final Set<Long> touchedDuringBuild = new HashSet<>();
+    private volatile boolean ready = false;
+
+    public ProductFacetIndex(ProductRepository productRepository, CategoryTreeCache categoryTreeCache) {
+        this.productRepository = productRepository;
+        this.categoryTreeCache = categoryTreeCache;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        try {
+            long lastId = 0L;
+            List<Long> ids;
+            do {
+                ids = productRepository.findIdsAfter(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                List<Product> batch = productRepository.findAllByIdIn(ids);
+                lock.writeLock().lock();
+                try {
+                    for (Product product : batch) {
+                        if (!touchedDuringBuild.contains(product.getId())) {
+                            putLocked(product);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                lastId = ids.get(ids.size() - 1);
+            } while (ids.size() == BUILD_BATCH_SIZE);
+
+            lock.writeLock().lock();
+            try {
+                touchedDuringBuild.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Product facet index built: {} products in {} ms", alive.cardinality(),
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Cannot build product facet index", e);
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                touchedDuringBuild.add(event.getProductId());
+            }
+            if (event.isDeleted()) {
+                Integer slot = slotByProductId.remove(event.getProductId());
+                if (slot != null) {
+                    clearSlotLocked(slot);
+                    freeSlots.push(slot);
+                }
+            } else {
+                putLocked(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Result filter(final ProductFilterRequest request, final int page, final int pageSize) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryMask = null;
+            if (request.getCategoryId() != null && !request.getCategoryId().isEmpty()) {
+                categoryMask = union(byCategory, categoryTreeCache.descendantIds(request.getCategoryId()));
+            }
+            BitSet colorMask = isEmpty(request.getColorId()) ? null : union(byColor, request.getColorId());
+            BitSet sizeMask = isEmpty(request.getSizeId()) ? null : union(bySize, request.getSizeId());
+            BitSet priceMask = request.getMinPrice() == null && request.getMaxPrice() == null ? null
+                    : priceMask(request.getMinPrice(), request.getMaxPrice());
+
+            BitSet matches = intersect(categoryMask, colorMask, sizeMask, priceMask);
+
+            ProductFilterResponse response = new ProductFilterResponse();
+            response.setTotal(matches.cardinality());
+            response.setPage(page);
+            response.setPageSize(pageSize);
+            // mỗi chiều được đếm trên tập đã áp dụng các bộ lọc của những chiều còn lại
+            response.setCategoryCounts(rollUpCategoryCounts(
+                    countBy(byCategory, intersect(null, colorMask, sizeMask, priceMask))));
+            response.setColorCounts(countBy(byColor, intersect(categoryMask, null, sizeMask, priceMask)));
+            response.setSizeCounts(countBy(bySize, intersect(categoryMask, colorMask, null, priceMask)));
+            fillPriceFacets(response, intersect(categoryMask, colorMask, sizeMask, null), matches);
+
+            // tính bằng long: page lớn nhân pageSize có thể tràn int thành số âm và trả về trang đầu
+            long skip = (long) page * pageSize;
+            if (skip >= response.getTotal()) {
+                return new Result(new ArrayList<>(), response);
+            }
+            // slot được cấp lại nên thứ tự slot không còn theo id: sắp theo productId để phân trang ổn định
+            long[] ids = new long[response.getTotal()];
+            int count = 0;
+            for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+                ids[count++] = productIdBySlot[slot];
+            }
+            Arrays.sort(ids);
+            List<Long> pageIds = new ArrayList<>(pageSize);
+            for (int i = (int) skip; i < ids.length && pageIds.size() < pageSize; i++) {
+                pageIds.add(ids[i]);
+            }
+            return new Result(pageIds, response);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // cộng dồn số lượng của danh mục con lên các danh mục cha
+    private Map<Long, Integer> rollUpCategoryCounts(final Map<Long, Integer> direct) {
+        Map<Long, Integer> total = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : direct.entrySet()) {
+            List<Long> ancestors = categoryTreeCache.ancestorIds(entry.getKey());
+            if (ancestors.isEmpty()) {
+                total.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+            for (Long id : ancestors) {
+                total.merge(id, entry.getValue(), Integer::sum);
+            }
+        }
+        return total;
+    }
+
+    private void fillPriceFacets(final ProductFilterResponse response, final BitSet base, final BitSet matches) {
+        int[] bucketCounts = new int[priceBucketBounds.length + 1];
+        for (int slot = base.nextSetBit(0); slot >= 0; slot = base.nextSetBit(slot + 1)) {
+            int bucket = Arrays.binarySearch(priceBucketBounds, priceBySlot[slot]);
+            bucketCounts[bucket >= 0 ? bucket + 1 : -bucket - 1]++;
+        }
+        List<Long> bounds = new ArrayList<>();
+        for (long bound : priceBucketBounds) {
+            bounds.add(bound);
+        }
+        List<Integer> counts = new ArrayList<>();
+        for (int count : bucketCounts) {
+            counts.add(count);
+        }
+        response.setPriceBucketBounds(bounds);
+        response.setPriceBucketCounts(counts);
+
+        Long min = null;
+        Long max = null;
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            long price = priceBySlot[slot];
+            min = min == null ? price : Math.min(min, price);
+            max = max == null ? price : Math.max(max, price);
+        }
+        response.setMinPrice(min);
+        response.setMaxPrice(max);
+    }
+
+    private BitSet priceMask(final Long minPrice, final Long maxPrice) {
+        long min = minPrice == null ? Long.MIN_VALUE : minPrice;
+        long max = maxPrice == null ? Long.MAX_VALUE : maxPrice;
+        BitSet mask = new BitSet(nextSlot);
+        for (int slot = alive.nextSetBit(0); slot >= 0; slot = alive.nextSetBit(slot + 1)) {
+            if (priceBySlot[slot] >= min && priceBySlot[slot] <= max) {
+                mask.set(slot);
+            }
+        }
+        return mask;
+    }
+
+    private BitSet intersect(final BitSet... masks) {
+        BitSet result = (BitSet) alive.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) {
+                result.and(mask);
+            }
+        }
+        return result;
+    }
+
+    private static BitSet union(final Map<Long, BitSet> index, final Collection<Long> keys) {
+        BitSet result = new BitSet();
+        for (Long key : keys) {
+            BitSet bits = index.get(key);
+            if (bits != null) {
+                result.or(bits);
+            }
+        }
+        return result;
+    }
+
+    private static Map<Long, Integer> countBy(final Map<Long, BitSet> index, final BitSet base) {
+        Map<Long, Integer> counts = new TreeMap<>();
+        BitSet scratch = new BitSet();
+        for (Map.Entry<Long, BitSet> entry : index.entrySet()) {
+            scratch.clear();
+            scratch.or(entry.getValue());
+            scratch.and(base);
+            int count = scratch.cardinality();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    private static boolean isEmpty(final Collection<?> values) {
+        return values == null || values.isEmpty();
+    }
+
+    private void putLocked(final Product product) {
+        Integer slot = slotByProductId.get(product.getId());
+        if (slot == null) {
+            slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+            ensureCapacity(slot);
+            slotByProductId.put(product.getId(), slot);
+        } else {
+            clearSlotLocked(slot);
+        }
+        productIdBySlot[slot] = product.getId();
+        priceBySlot[slot] = product.getPrice() == null ? 0L : product.getPrice();
+        categoryBySlot[slot] = product.getCategory() == null ? null : product.getCategory().getId();
+        colorBySlot[slot] = product.getColor() == null ? null : product.getColor().getId();
+        List<Long> sizeIds = new ArrayList<>();
+        if (product.getListSizes() != null) {
+            for (Size size : product.getListSizes()) {
+                sizeIds.add(size.getSizeId());
+            }
+        }
+        sizesBySlot[slot] = sizeIds.stream().mapToLong(Long::longValue).toArray();
+
+        alive.set(slot);
+        setBit(byCategory, categoryBySlot[slot], slot);
+        setBit(byColor, colorBySlot[slot], slot);
+        for (long sizeId : sizesBySlot[slot]) {
+            setBit(bySize, sizeId, slot);
+        }
+    }
+
+    private void clearSlotLocked(final int slot) {
+        alive.clear(slot);
+        clearBit(byCategory, categoryBySlot[slot], slot);
+        clearBit(byColor, colorBySlot[slot], slot);
+        if (sizesBySlot[slot] != null) {
+            for (long sizeId : sizesBySlot[slot]) {
+                clearBit(bySize, sizeId, slot);
+            }
+        }
+    }
+
+    private void ensureCapacity(final int slot) {
+        if (slot < productIdBySlot.length) {
+            return;
+        }
+        int capacity = productIdBySlot.length * 2;
+        productIdBySlot = Arrays.copyOf(productIdBySlot, capacity);
+        priceBySlot = Arrays.copyOf(priceBySlot, capacity);
+        categoryBySlot = Arrays.copyOf(categoryBySlot, capacity);
+        colorBySlot = Arrays.copyOf(colorBySlot, capacity);
+        sizesBySlot = Arrays.copyOf(sizesBySlot, capacity);
+    }
+
+    private static void setBit(final Map<Long, BitSet> index, final Long key, final int slot) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new BitSet()).set(slot);
+        }
+    }
+
+    private static void clearBit(final Map<Long, BitSet> index, final Long key, final int slot) {
+        if (key == null) {
+            return;
+        }
+        BitSet bits = index.get(key);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final List<Long> pageProductIds;
+        private final ProductFilterResponse response;
+    }
+}
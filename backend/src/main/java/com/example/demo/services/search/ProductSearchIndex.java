@@ -0,0 +1,334 @@
+package com.example.demo.services.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Product;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.repositories.ProductRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// chỉ mục đảo (inverted index) cho tên và mô tả sản phẩm, giữ toàn bộ trong bộ nhớ
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 2;
+    private static final int BUILD_BATCH_SIZE = 500;
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> danh sách slot (tăng dần) kèm tần suất
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, Integer> slotByProductId = new HashMap<>();
+    private final Map<Integer, String[]> termsBySlot = new HashMap<>();
+    private long[] productIdBySlot = new long[1024];
+    private int nextSlot = 0;
+    // slot của sản phẩm đã xoá được cấp lại, số slot chỉ tăng theo số sản phẩm đang có
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    // sản phẩm thay đổi trong lúc đang build, bản trong DB đọc được có thể đã cũ
+    private final Set<Long> touchedDuringBuild = new HashSet<>();
+    private volatile boolean ready = false;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        try {
+            long lastId = 0L;
+            List<Product> batch;
+            do {
+                batch = productRepository.findPageAfterId(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+                lock.writeLock().lock();
+                try {
+                    for (Product product : batch) {
+                        if (!touchedDuringBuild.contains(product.getId())) {
+                            indexLocked(product);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == BUILD_BATCH_SIZE);
+
+            lock.writeLock().lock();
+            try {
+                touchedDuringBuild.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Product search index built: {} products, {} terms in {} ms", slotByProductId.size(),
+                    postings.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Cannot build product search index, falling back to database search", e);
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                touchedDuringBuild.add(event.getProductId());
+            }
+            if (event.isDeleted()) {
+                removeLocked(event.getProductId());
+                Integer slot = slotByProductId.remove(event.getProductId());
+                if (slot != null) {
+                    freeSlots.push(slot);
+                }
+            } else {
+                indexLocked(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // trả về id sản phẩm khớp tất cả các từ trong truy vấn (từ cuối khớp theo tiền tố), sắp xếp theo điểm tf
+    public List<Long> search(final String query) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<List<PostingList>> groups = new ArrayList<>();
+            for (int i = 0; i < tokens.size() - 1; i++) {
+                PostingList exact = postings.get(tokens.get(i));
+                if (exact == null) {
+                    return Collections.emptyList();
+                }
+                groups.add(Collections.singletonList(exact));
+            }
+            groups.sort((a, b) -> Integer.compare(a.get(0).size, b.get(0).size));
+
+            String prefix = tokens.get(tokens.size() - 1);
+            List<PostingList> prefixGroup = new ArrayList<>(
+                    postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+            if (prefixGroup.isEmpty()) {
+                return Collections.emptyList();
+            }
+            groups.add(prefixGroup);
+
+            // cộng điểm thưa: bắt đầu từ nhóm nhỏ nhất rồi lọc dần, bộ nhớ theo số ứng viên chứ không theo số slot
+            Candidates candidates = groups.size() == 1 ? Candidates.union(prefixGroup)
+                    : Candidates.of(groups.get(0).get(0));
+            for (int g = 1; g < groups.size() && candidates.size > 0; g++) {
+                candidates.retain(groups.get(g));
+            }
+
+            final Candidates matches = candidates;
+            Integer[] order = new Integer[matches.size];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> matches.scores[a] != matches.scores[b]
+                    ? Integer.compare(matches.scores[b], matches.scores[a])
+                    : Long.compare(productIdBySlot[matches.slots[a]], productIdBySlot[matches.slots[b]]));
+            List<Long> productIds = new ArrayList<>(order.length);
+            for (int i : order) {
+                productIds.add(productIdBySlot[matches.slots[i]]);
+            }
+            return productIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexLocked(final Product product) {
+        removeLocked(product.getId());
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : TextNormalizer.tokenize(product.getName())) {
+            frequencies.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : TextNormalizer.tokenize(product.getDescription())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        Integer slot = slotByProductId.get(product.getId());
+        if (slot == null) {
+            slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+            if (slot >= productIdBySlot.length) {
+                productIdBySlot = Arrays.copyOf(productIdBySlot, productIdBySlot.length * 2);
+            }
+            productIdBySlot[slot] = product.getId();
+            slotByProductId.put(product.getId(), slot);
+        }
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), key -> new PostingList()).add(slot, entry.getValue());
+        }
+        termsBySlot.put(slot, frequencies.keySet().toArray(new String[0]));
+    }
+
+    private void removeLocked(final Long productId) {
+        Integer slot = slotByProductId.get(productId);
+        if (slot == null) {
+            return;
+        }
+        String[] terms = termsBySlot.remove(slot);
+        if (terms != null) {
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list != null && list.remove(slot) && list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    // ứng viên của một truy vấn: slot tăng dần kèm điểm cộng dồn
+    static final class Candidates {
+        private final int[] slots;
+        private final int[] scores;
+        private int size;
+
+        private Candidates(final int[] slots, final int[] scores, final int size) {
+            this.slots = slots;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        static Candidates of(final PostingList list) {
+            return new Candidates(Arrays.copyOf(list.slots, list.size), Arrays.copyOf(list.freqs, list.size),
+                    list.size);
+        }
+
+        // hợp các posting list của từ cuối (khớp tiền tố), slot trùng thì cộng tần suất
+        static Candidates union(final List<PostingList> lists) {
+            int total = 0;
+            for (PostingList list : lists) {
+                total += list.size;
+            }
+            final long[] packed = new long[total];
+            int n = 0;
+            for (PostingList list : lists) {
+                for (int i = 0; i < list.size; i++) {
+                    packed[n++] = ((long) list.slots[i] << 32) | list.freqs[i];
+                }
+            }
+            Arrays.sort(packed);
+            final int[] slots = new int[total];
+            final int[] scores = new int[total];
+            int size = 0;
+            for (long entry : packed) {
+                final int slot = (int) (entry >>> 32);
+                if (size > 0 && slots[size - 1] == slot) {
+                    scores[size - 1] += (int) entry;
+                } else {
+                    slots[size] = slot;
+                    scores[size++] = (int) entry;
+                }
+            }
+            return new Candidates(slots, scores, size);
+        }
+
+        // giữ ứng viên có trong ít nhất một list của nhóm, cộng tần suất ở mọi list chứa nó;
+        // tìm nhị phân phía có ít phần tử hơn
+        void retain(final List<PostingList> group) {
+            final boolean[] hit = new boolean[size];
+            for (PostingList list : group) {
+                if (list.size < size) {
+                    for (int i = 0; i < list.size; i++) {
+                        final int pos = Arrays.binarySearch(slots, 0, size, list.slots[i]);
+                        if (pos >= 0) {
+                            hit[pos] = true;
+                            scores[pos] += list.freqs[i];
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < size; i++) {
+                        final int pos = Arrays.binarySearch(list.slots, 0, list.size, slots[i]);
+                        if (pos >= 0) {
+                            hit[i] = true;
+                            scores[i] += list.freqs[pos];
+                        }
+                    }
+                }
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (hit[i]) {
+                    slots[kept] = slots[i];
+                    scores[kept++] = scores[i];
+                }
+            }
+            size = kept;
+        }
+    }
+
+    // posting list dạng mảng int nguyên thuỷ, slot được giữ theo thứ tự tăng dần
+    static final class PostingList {
+        private int[] slots = new int[4];
+        private int[] freqs = new int[4];
+        private int size = 0;
+
+        void add(final int slot, final int freq) {
+            int pos = Arrays.binarySearch(slots, 0, size, slot);
+            if (pos >= 0) {
+                freqs[pos] = freq;
+                return;
+            }
+            pos = -pos - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            System.arraycopy(slots, pos, slots, pos + 1, size - pos);
+            System.arraycopy(freqs, pos, freqs, pos + 1, size - pos);
+            slots[pos] = slot;
+            freqs[pos] = freq;
+            size++;
+        }
+
+        boolean remove(final int slot) {
+            int pos = Arrays.binarySearch(slots, 0, size, slot);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(slots, pos + 1, slots, pos, size - pos - 1);
+            System.arraycopy(freqs, pos + 1, freqs, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.demo.services.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.caching.CatalogVersions;
+import com.example.demo.caching.CatalogVersions.Table;
+import com.example.demo.caching.CategoryTreeCache;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.models.CategoryTreeNode;
+import com.example.demo.models.Suggestion;
+import com.example.demo.repositories.OrderItemRepository;
+import com.example.demo.repositories.ProductRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// trie tiền tố cho gợi ý tìm kiếm (tên sản phẩm và tên danh mục), mỗi nút giữ sẵn top-k theo độ phổ biến
+@Component
+@Slf4j
+public class ProductSuggestIndex {
+
+    private static final String PRODUCT = "product";
+    private static final String CATEGORY = "category";
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final CatalogVersions catalogVersions;
+
+    @Value("${demo.catalog.suggest.top-k:10}")
+    private int topK;
+
+    // gom nhiều lần ghi sản phẩm/danh mục liên tiếp (ví dụ khi import) vào một lần dựng lại
+    @Value("${demo.catalog.suggest.rebuild-delay-ms:500}")
+    private long rebuildDelayMs;
+
+    @Value("${demo.catalog.suggest.popularity-refresh-minutes:10}")
+    private long popularityRefreshMinutes;
+
+    private final Map<Long, ProductName> products = new ConcurrentHashMap<>();
+    private final Set<Long> touchedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile Map<Long, Long> popularity = Collections.emptyMap();
+    private volatile Trie trie;
+    private volatile boolean loaded = false;
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-suggest");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductSuggestIndex(ProductRepository productRepository, OrderItemRepository orderItemRepository,
+            CategoryTreeCache categoryTreeCache, CatalogVersions catalogVersions) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.catalogVersions = catalogVersions;
+    }
+
+    public boolean isReady() {
+        return trie != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            for (Object[] row : productRepository.findAllNames()) {
+                Long id = (Long) row[0];
+                if (!touchedDuringLoad.contains(id)) {
+                    products.put(id, new ProductName((String) row[1], (Long) row[2]));
+                }
+            }
+            loaded = true;
+            touchedDuringLoad.clear();
+            refreshPopularity();
+            if (popularityRefreshMinutes > 0) {
+                executor.scheduleWithFixedDelay(this::refreshPopularitySafely, popularityRefreshMinutes,
+                        popularityRefreshMinutes, TimeUnit.MINUTES);
+            }
+        } catch (RuntimeException e) {
+            log.error("Cannot build product suggest index", e);
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!loaded) {
+            touchedDuringLoad.add(event.getProductId());
+        }
+        if (event.isDeleted()) {
+            products.remove(event.getProductId());
+        } else {
+            products.put(event.getProductId(), new ProductName(event.getProduct().getName(),
+                    event.getProduct().getCategory() == null ? null : event.getProduct().getCategory().getId()));
+        }
+        scheduleRebuild();
+    }
+
+    // danh mục được thêm/sửa/xoá: gọi sau khi CategoryTreeCache đã dựng lại cây
+    public void scheduleRebuild() {
+        if (loaded && rebuildPending.compareAndSet(false, true)) {
+            executor.schedule(this::rebuildSafely, rebuildDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public List<Suggestion> suggest(final String prefix, final int limit) {
+        final Trie current = trie;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        String key = String.join(" ", TextNormalizer.tokenize(prefix));
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // "ao " chỉ khớp từ "ao" trọn vẹn, không khớp "aokhoac"
+        if (Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            key = key + " ";
+        }
+        return current.find(key, limit <= 0 ? topK : Math.min(limit, topK));
+    }
+
+    void refreshPopularity() {
+        Map<Long, Long> sold = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+            sold.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        popularity = sold;
+        rebuild();
+    }
+
+    synchronized void rebuild() {
+        rebuildPending.set(false);
+        long start = System.nanoTime();
+        List<Suggestion> entries = collectEntries();
+        trie = Trie.build(entries, topK);
+        // tăng sau khi thay trie: request nằm giữa lần ghi và lần dựng lại vẫn mang ETag cũ nên không bị cache nhầm
+        catalogVersions.bump(Table.SUGGESTIONS);
+        log.debug("Product suggest index rebuilt: {} entries in {} ms", entries.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void refreshPopularitySafely() {
+        try {
+            refreshPopularity();
+        } catch (RuntimeException e) {
+            log.warn("Cannot refresh product popularity for suggestions", e);
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Cannot rebuild product suggest index", e);
+        }
+    }
+
+    private List<Suggestion> collectEntries() {
+        final Map<Long, Long> sold = popularity;
+        final Map<Long, Long> soldByCategory = new HashMap<>();
+        final List<Suggestion> entries = new ArrayList<>(products.size());
+        for (Map.Entry<Long, ProductName> entry : products.entrySet()) {
+            final long count = sold.getOrDefault(entry.getKey(), 0L);
+            entries.add(new Suggestion(PRODUCT, entry.getKey(), entry.getValue().name, count));
+            if (entry.getValue().categoryId != null && count > 0) {
+                // độ phổ biến của danh mục cộng dồn từ sản phẩm trong cả cây con
+                for (Long categoryId : categoryTreeCache.ancestorIds(entry.getValue().categoryId)) {
+                    soldByCategory.merge(categoryId, count, Long::sum);
+                }
+            }
+        }
+        final Deque<CategoryTreeNode> pending = new ArrayDeque<>(categoryTreeCache.tree());
+        while (!pending.isEmpty()) {
+            final CategoryTreeNode node = pending.pop();
+            entries.add(new Suggestion(CATEGORY, node.getId(), node.getName(),
+                    soldByCategory.getOrDefault(node.getId(), 0L)));
+            pending.addAll(node.getChildren());
+        }
+        return entries;
+    }
+
+    private static final class ProductName {
+        private final String name;
+        private final Long categoryId;
+
+        ProductName(String name, Long categoryId) {
+            this.name = name;
+            this.categoryId = categoryId;
+        }
+    }
+
+    // trie bất biến lưu bằng mảng: cạnh của nút n nằm trong [edgeStart[n], edgeStart[n + 1]), sắp theo ký tự
+    static final class Trie {
+        private final int[] edgeStart;
+        private final char[] edgeChar;
+        private final int[] edgeTarget;
+        private final int[] topStart;
+        private final int[] topEntry;
+        private final Suggestion[] entries;
+
+        private Trie(int[] edgeStart, char[] edgeChar, int[] edgeTarget, int[] topStart, int[] topEntry,
+                Suggestion[] entries) {
+            this.edgeStart = edgeStart;
+            this.edgeChar = edgeChar;
+            this.edgeTarget = edgeTarget;
+            this.topStart = topStart;
+            this.topEntry = topEntry;
+            this.entries = entries;
+        }
+
+        List<Suggestion> find(final String key, final int limit) {
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                node = child(node, key.charAt(i));
+                if (node < 0) {
+                    return Collections.emptyList();
+                }
+            }
+            final int end = Math.min(topStart[node + 1], topStart[node] + limit);
+            final List<Suggestion> result = new ArrayList<>(end - topStart[node]);
+            for (int i = topStart[node]; i < end; i++) {
+                result.add(entries[topEntry[i]]);
+            }
+            return result;
+        }
+
+        private int child(final int node, final char c) {
+            int low = edgeStart[node];
+            int high = edgeStart[node + 1] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (edgeChar[mid] < c) {
+                    low = mid + 1;
+                } else if (edgeChar[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    return edgeTarget[mid];
+                }
+            }
+            return -1;
+        }
+
+        static Trie build(final List<Suggestion> unsorted, final int topK) {
+            final Suggestion[] entries = unsorted.toArray(new Suggestion[0]);
+            // duyệt theo độ phổ biến giảm dần nên k mục đầu tiên đi qua một nút chính là top-k của nút đó
+            Arrays.sort(entries, Comparator.comparingLong(Suggestion::getPopularity).reversed()
+                    .thenComparingInt(entry -> entry.getText() == null ? 0 : entry.getText().length())
+                    .thenComparing(Suggestion::getText, Comparator.nullsLast(Comparator.naturalOrder())));
+
+            final BuildNode root = new BuildNode();
+            int nodeCount = 1;
+            for (int index = 0; index < entries.length; index++) {
+                final List<String> tokens = TextNormalizer.tokenize(entries[index].getText());
+                // chèn mọi hậu tố bắt đầu ở đầu một từ để "thun" khớp được "Áo thun"
+                for (int start = 0; start < tokens.size(); start++) {
+                    final String key = String.join(" ", tokens.subList(start, tokens.size()));
+                    BuildNode node = root;
+                    for (int i = 0; i < key.length(); i++) {
+                        BuildNode next = node.children.get(key.charAt(i));
+                        if (next == null) {
+                            next = new BuildNode();
+                            node.children.put(key.charAt(i), next);
+                            nodeCount++;
+                        }
+                        node = next;
+                        node.offer(index, topK);
+                    }
+                }
+            }
+
+            final int[] edgeStart = new int[nodeCount + 1];
+            final char[] edgeChar = new char[nodeCount - 1];
+            final int[] edgeTarget = new int[nodeCount - 1];
+            final int[] topStart = new int[nodeCount + 1];
+            final List<Integer> topEntries = new ArrayList<>();
+            // đánh số nút theo BFS, con của một nút được đánh số liên tiếp
+            final List<BuildNode> order = new ArrayList<>(nodeCount);
+            order.add(root);
+            int edge = 0;
+            for (int n = 0; n < order.size(); n++) {
+                final BuildNode node = order.get(n);
+                edgeStart[n] = edge;
+                topStart[n] = topEntries.size();
+                for (int i = 0; i < node.topSize; i++) {
+                    topEntries.add(node.top[i]);
+                }
+                for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+                    edgeChar[edge] = child.getKey();
+                    edgeTarget[edge] = order.size();
+                    order.add(child.getValue());
+                    edge++;
+                }
+            }
+            edgeStart[nodeCount] = edge;
+            topStart[nodeCount] = topEntries.size();
+            final int[] topEntry = topEntries.stream().mapToInt(Integer::intValue).toArray();
+            return new Trie(edgeStart, edgeChar, edgeTarget, topStart, topEntry, entries);
+        }
+    }
+
+    private static final class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private int[] top;
+        private int topSize = 0;
+
+        void offer(final int entry, final int topK) {
+            if (top == null) {
+                top = new int[topK];
+            }
+            // cùng một mục có thể đi qua nút nhiều lần (nhiều hậu tố), các lần đó luôn liền nhau
+            if (topSize < topK && (topSize == 0 || top[topSize - 1] != entry)) {
+                top[topSize++] = entry;
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.demo.services.stats;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.entities.OrderStatusRollup;
+import com.example.demo.entities.ProductDailyRollup;
+import com.example.demo.entities.SalesDailyRollup;
+import com.example.demo.events.OrderChangedEvent;
+import com.example.demo.models.DailySales;
+import com.example.demo.models.ProductSales;
+import com.example.demo.repositories.OrderItemRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.OrderStatusRollupRepository;
+import com.example.demo.repositories.ProductDailyRollupRepository;
+import com.example.demo.repositories.SalesDailyRollupRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// thống kê bán hàng cộng dồn theo từng đơn đã commit (LongAdder, không khóa), đọc O(1) từ bộ nhớ.
+// Định kỳ ghi giá trị tuyệt đối của các ô vừa đổi xuống bảng rollup; khởi động lại thì nạp rollup của các ngày cũ
+// và tính lại từ bảng order/order_item các ngày từ lần ghi cuối, nên mất phần chưa kịp ghi cũng không sai số
+@Component
+@Slf4j
+public class SalesStats {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1970, 1, 1);
+
+    private final SalesDailyRollupRepository salesDailyRollupRepository;
+    private final ProductDailyRollupRepository productDailyRollupRepository;
+    private final OrderStatusRollupRepository orderStatusRollupRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${demo.stats.top-products:10}")
+    private int topProductCount;
+
+    private final Map<LocalDate, DayCounters> days = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> unitsByProduct = new ConcurrentHashMap<>();
+    // chỉ giữ hôm nay và hôm qua (cùng các ô chưa ghi), ngày cũ hơn đọc lại từ rollup khi cần
+    private final Map<ProductDay, LongAdder> unitsByProductDay = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> ordersByStatus = new ConcurrentHashMap<>();
+
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+    private final Set<ProductDay> dirtyProductDays = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyStatuses = ConcurrentHashMap.newKeySet();
+
+    private volatile List<ProductSales> topProducts = List.of();
+    private volatile boolean loaded = false;
+
+    public SalesStats(SalesDailyRollupRepository salesDailyRollupRepository,
+            ProductDailyRollupRepository productDailyRollupRepository,
+            OrderStatusRollupRepository orderStatusRollupRepository, OrderRepository orderRepository,
+            OrderItemRepository orderItemRepository, PlatformTransactionManager transactionManager) {
+        this.salesDailyRollupRepository = salesDailyRollupRepository;
+        this.productDailyRollupRepository = productDailyRollupRepository;
+        this.orderStatusRollupRepository = orderStatusRollupRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        load();
+    }
+
+    // fallbackExecution: update/delete đơn hàng không chạy trong transaction thì nhận ngay
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(final OrderChangedEvent event) {
+        if (!loaded) {
+            // đơn đã commit trước lúc nạp sẽ được tính lại từ bảng order khi nạp
+            return;
+        }
+        final LocalDate day = event.getCreatedAt() == null ? LocalDate.now() : event.getCreatedAt().toLocalDate();
+        final long total = event.getTotal() == null ? 0L : event.getTotal();
+        switch (event.getType()) {
+            case PLACED:
+                addSale(day, total, 1, event.getProductUnits(), 1);
+                addStatus(event.getStatusId(), 1);
+                break;
+            case STATUS_CHANGED:
+                addStatus(event.getPreviousStatusId(), -1);
+                addStatus(event.getStatusId(), 1);
+                break;
+            case DELETED:
+                addSale(day, -total, -1, event.getProductUnits(), -1);
+                addStatus(event.getPreviousStatusId(), -1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // doanh thu từng ngày trong [from, to], thiếu ngày nào thì điền 0
+    public List<DailySales> revenueBetween(final LocalDate from, final LocalDate to) {
+        final List<DailySales> result = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            final DayCounters counters = days.get(day);
+            result.add(counters == null ? new DailySales(day, 0L, 0L)
+                    : new DailySales(day, counters.revenue.sum(), counters.orders.sum()));
+        }
+        return result;
+    }
+
+    public Map<Long, Long> ordersByStatus() {
+        final Map<Long, Long> result = new LinkedHashMap<>();
+        ordersByStatus.forEach((statusId, count) -> result.put(statusId, count.sum()));
+        return result;
+    }
+
+    public List<ProductSales> topProducts() {
+        return topProducts;
+    }
+
+    // ghi các ô đã đổi xuống rollup; bỏ khỏi tập dirty trước rồi mới đọc giá trị,
+    // nên lần cộng xảy ra trong lúc ghi sẽ đánh dấu lại và được ghi ở lần sau
+    @Scheduled(fixedDelayString = "${demo.stats.flush-interval-ms:10000}")
+    public void flush() {
+        if (!loaded) {
+            return;
+        }
+        final List<LocalDate> dayKeys = drain(dirtyDays);
+        final List<ProductDay> productDayKeys = drain(dirtyProductDays);
+        final List<Long> statusKeys = drain(dirtyStatuses);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                writeDays(dayKeys);
+                writeProductDays(productDayKeys);
+                writeStatuses(statusKeys);
+            });
+        } catch (RuntimeException e) {
+            dirtyDays.addAll(dayKeys);
+            dirtyProductDays.addAll(productDayKeys);
+            dirtyStatuses.addAll(statusKeys);
+            log.warn("Cannot write sales rollups", e);
+        }
+        topProducts = computeTopProducts();
+        pruneProductDays();
+    }
+
+    synchronized void load() {
+        transactionTemplate.executeWithoutResult(status -> {
+            days.clear();
+            unitsByProduct.clear();
+            unitsByProductDay.clear();
+            ordersByStatus.clear();
+            final LocalDate lastDay = salesDailyRollupRepository.findLastDay();
+            // ngày ghi cuối có thể chưa đủ, tính lại từ hôm trước đó; chưa có rollup thì tính lại toàn bộ
+            final LocalDate from = lastDay == null ? FIRST_DAY : lastDay.minusDays(1);
+            for (SalesDailyRollup rollup : salesDailyRollupRepository.findAllByDayBefore(from)) {
+                counters(rollup.getDay()).add(rollup.getRevenue(), rollup.getOrders());
+            }
+            for (Object[] row : productDailyRollupRepository.sumUnitsByProductBefore(from)) {
+                adder(unitsByProduct, (Long) row[0]).add(((Number) row[1]).longValue());
+            }
+            for (Object[] row : orderRepository.sumTotalByDaySince(from.atStartOfDay())) {
+                final LocalDate day = toLocalDate(row[0]);
+                counters(day).add(((Number) row[1]).longValue(), ((Number) row[2]).longValue());
+                dirtyDays.add(day);
+            }
+            for (Object[] row : orderItemRepository.sumQuantityByDayAndProductSince(from.atStartOfDay())) {
+                final ProductDay key = new ProductDay(toLocalDate(row[0]), (Long) row[1]);
+                final long units = ((Number) row[2]).longValue();
+                adder(unitsByProduct, key.productId).add(units);
+                adder(unitsByProductDay, key).add(units);
+                dirtyProductDays.add(key);
+            }
+            for (OrderStatusRollup rollup : orderStatusRollupRepository.findAll()) {
+                // trạng thái không còn đơn nào vẫn phải ghi lại 0
+                adder(ordersByStatus, rollup.getStatusId());
+                dirtyStatuses.add(rollup.getStatusId());
+            }
+            for (Object[] row : orderRepository.countByStatus()) {
+                adder(ordersByStatus, (Long) row[0]).add(((Number) row[1]).longValue());
+                dirtyStatuses.add((Long) row[0]);
+            }
+        });
+        loaded = true;
+        topProducts = computeTopProducts();
+        log.info("Sales stats loaded: {} days, {} products, {} statuses", days.size(), unitsByProduct.size(),
+                ordersByStatus.size());
+    }
+
+    private void addSale(final LocalDate day, final long revenue, final long orders,
+            final Map<Long, Integer> productUnits, final int sign) {
+        counters(day).add(revenue, orders);
+        dirtyDays.add(day);
+        for (Map.Entry<Long, Integer> line : productUnits.entrySet()) {
+            final long units = (long) sign * line.getValue();
+            final ProductDay key = new ProductDay(day, line.getKey());
+            adder(unitsByProduct, key.productId).add(units);
+            if (day.isBefore(LocalDate.now().minusDays(1))) {
+                addOldProductDay(key, units);
+            } else {
+                adder(unitsByProductDay, key).add(units);
+            }
+            dirtyProductDays.add(key);
+        }
+    }
+
+    // hiếm (xoá đơn cũ): ô của ngày cũ không có trong bộ nhớ thì đọc giá trị hiện tại từ rollup trước khi cộng
+    private synchronized void addOldProductDay(final ProductDay key, final long units) {
+        if (!unitsByProductDay.containsKey(key)) {
+            final LongAdder current = new LongAdder();
+            productDailyRollupRepository.findAllByDayAndProductIdIn(key.day, List.of(key.productId))
+                    .forEach(rollup -> current.add(rollup.getUnits()));
+            unitsByProductDay.put(key, current);
+        }
+        unitsByProductDay.get(key).add(units);
+    }
+
+    private synchronized void pruneProductDays() {
+        final LocalDate keepFrom = LocalDate.now().minusDays(1);
+        unitsByProductDay.keySet()
+                .removeIf(key -> key.day.isBefore(keepFrom) && !dirtyProductDays.contains(key));
+    }
+
+    private void addStatus(final Long statusId, final long delta) {
+        if (statusId == null) {
+            return;
+        }
+        adder(ordersByStatus, statusId).add(delta);
+        dirtyStatuses.add(statusId);
+    }
+
+    private void writeDays(final List<LocalDate> dayKeys) {
+        final List<SalesDailyRollup> rollups = new ArrayList<>(dayKeys.size());
+        for (LocalDate day : dayKeys) {
+            final SalesDailyRollup rollup = new SalesDailyRollup();
+            rollup.setDay(day);
+            rollup.setRevenue(counters(day).revenue.sum());
+            rollup.setOrders(counters(day).orders.sum());
+            rollups.add(rollup);
+        }
+        salesDailyRollupRepository.saveAll(rollups);
+    }
+
+    private void writeProductDays(final List<ProductDay> productDayKeys) {
+        final Map<LocalDate, List<Long>> productsByDay = productDayKeys.stream().collect(
+                Collectors.groupingBy(key -> key.day, Collectors.mapping(key -> key.productId, Collectors.toList())));
+        final List<ProductDailyRollup> rollups = new ArrayList<>(productDayKeys.size());
+        for (Map.Entry<LocalDate, List<Long>> entry : productsByDay.entrySet()) {
+            final Map<Long, ProductDailyRollup> existing = new HashMap<>();
+            for (ProductDailyRollup rollup : productDailyRollupRepository
+                    .findAllByDayAndProductIdIn(entry.getKey(), entry.getValue())) {
+                existing.put(rollup.getProductId(), rollup);
+            }
+            for (Long productId : entry.getValue()) {
+                final ProductDailyRollup rollup = existing.computeIfAbsent(productId, id -> {
+                    final ProductDailyRollup created = new ProductDailyRollup();
+                    created.setDay(entry.getKey());
+                    created.setProductId(id);
+                    return created;
+                });
+                final LongAdder units = unitsByProductDay.get(new ProductDay(entry.getKey(), productId));
+                rollup.setUnits(units == null ? 0L : units.sum());
+                rollups.add(rollup);
+            }
+        }
+        productDailyRollupRepository.saveAll(rollups);
+    }
+
+    private void writeStatuses(final List<Long> statusKeys) {
+        final List<OrderStatusRollup> rollups = new ArrayList<>(statusKeys.size());
+        for (Long statusId : statusKeys) {
+            final OrderStatusRollup rollup = new OrderStatusRollup();
+            rollup.setStatusId(statusId);
+            rollup.setOrders(adder(ordersByStatus, statusId).sum());
+            rollups.add(rollup);
+        }
+        orderStatusRollupRepository.saveAll(rollups);
+    }
+
+    private List<ProductSales> computeTopProducts() {
+        final PriorityQueue<ProductSales> top = new PriorityQueue<>(
+                Comparator.comparingLong(ProductSales::getUnits));
+        unitsByProduct.forEach((productId, units) -> {
+            final long sum = units.sum();
+            if (sum <= 0) {
+                return;
+            }
+            top.add(new ProductSales(productId, sum));
+            if (top.size() > topProductCount) {
+                top.poll();
+            }
+        });
+        final List<ProductSales> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingLong(ProductSales::getUnits).reversed());
+        return List.copyOf(result);
+    }
+
+    private DayCounters counters(final LocalDate day) {
+        return days.computeIfAbsent(day, d -> new DayCounters());
+    }
+
+    private static <K> LongAdder adder(final Map<K, LongAdder> map, final K key) {
+        return map.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private static <T> List<T> drain(final Set<T> dirty) {
+        final List<T> keys = new ArrayList<>(dirty);
+        dirty.removeAll(keys);
+        return keys;
+    }
+
+    private static LocalDate toLocalDate(final Object value) {
+        return value instanceof Date ? ((Date) value).toLocalDate() : (LocalDate) value;
+    }
+
+    private static final class DayCounters {
+        private final LongAdder revenue = new LongAdder();
+        private final LongAdder orders = new LongAdder();
+
+        private void add(final long revenueDelta, final long ordersDelta) {
+            revenue.add(revenueDelta);
+            orders.add(ordersDelta);
+        }
+    }
+
+    private static final class ProductDay {
+        private final LocalDate day;
+        private final Long productId;
+
+        private ProductDay(LocalDate day, Long productId) {
+            this.day = day;
+            this.productId = productId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProductDay)) {
+                return false;
+            }
+            final ProductDay other = (ProductDay) o;
+            return day.equals(other.day) && productId.equals(other.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, productId);
+        }
+    }
+}
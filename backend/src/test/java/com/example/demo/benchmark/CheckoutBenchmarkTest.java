@@ -0,0 +1,153 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entities.CartItem;
+import com.example.demo.entities.OrderStatus;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.entities.User;
+import com.example.demo.models.OrderDTO;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.security.AuthService;
+import com.example.demo.services.Imp.CartItemServiceImp;
+import com.example.demo.services.Imp.OrderServiceImp;
+import com.example.demo.services.Imp.ProductServiceImp;
+import com.example.demo.services.Imp.SizeServiceImp;
+import com.example.demo.services.Imp.UserServiceImp;
+import com.example.demo.services.cart.CartStore;
+import com.example.demo.services.cart.CartSummaryCache;
+import com.example.demo.services.inventory.StockTable;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark độ trễ checkout (createOrderFromCart) theo số dòng trong giỏ.
+ * Không chạy cùng bộ test thường, chạy riêng bằng: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ OrderServiceImp.class, CartItemServiceImp.class, CartStore.class, CartSummaryCache.class, StockTable.class })
+class CheckoutBenchmarkTest {
+
+    private static final int[] CART_SIZES = { 1, 10, 30, 100 };
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+
+    @Autowired
+    private OrderServiceImp orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockBean
+    private AuthService authService;
+
+    @MockBean
+    private UserServiceImp userService;
+
+    @MockBean
+    private ProductServiceImp productService;
+
+    // vừa là SizeService của OrderServiceImp vừa là SizeServiceImp của CartItemServiceImp
+    @MockBean
+    private SizeServiceImp sizeService;
+
+    @MockBean
+    private ModelMapper modelMapper;
+
+    @Test
+    void benchmarkCheckoutLatencyByCartSize() {
+        User user = new User();
+        user.setUsername("benchmark");
+        user.setPassword("password");
+        user.setEmail("benchmark@example.com");
+        user.setUserStatus(true);
+        user.setProviderId("local");
+        entityManager.persist(user);
+        OrderStatus status = new OrderStatus();
+        status.setName("Pending");
+        entityManager.persist(status);
+        Size size = new Size();
+        size.setName("M");
+        entityManager.persist(size);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < CART_SIZES[CART_SIZES.length - 1]; i++) {
+            Product product = new Product();
+            product.setName("Sản phẩm " + i);
+            product.setMaterials("Cotton");
+            product.setInstruction("Giặt tay");
+            product.setPrice(100000L + i);
+            entityManager.persist(product);
+            products.add(product);
+        }
+        entityManager.flush();
+        when(authService.getCurrentUserId()).thenReturn(user.getId());
+        when(authService.getCurrentUser()).thenAnswer(invocation -> entityManager.find(User.class, user.getId()));
+
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setPhoneNumber("0991234567");
+        orderDTO.setFirstName("Benchmark");
+        orderDTO.setLastName("User");
+        orderDTO.setAddress("1 Test Street");
+        orderDTO.setStatus(status.getId());
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        System.out.printf("%n%-10s %12s %12s %18s%n", "cart size", "median ms", "p95 ms", "JPA statements");
+        for (int cartSize : CART_SIZES) {
+            for (int i = 0; i < WARMUP; i++) {
+                fillCart(user, products, size, cartSize);
+                orderService.createOrderFromCart(orderDTO);
+            }
+            long[] nanos = new long[ITERATIONS];
+            long statements = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                fillCart(user, products, size, cartSize);
+                statistics.clear();
+                long start = System.nanoTime();
+                Long orderId = orderService.createOrderFromCart(orderDTO);
+                entityManager.flush();
+                nanos[i] = System.nanoTime() - start;
+                statements += statistics.getPrepareStatementCount();
+                assertThat(orderId).isNotNull();
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%-10d %12.3f %12.3f %18.1f%n", cartSize, nanos[ITERATIONS / 2] / 1e6,
+                    nanos[(int) (ITERATIONS * 0.95)] / 1e6, (double) statements / ITERATIONS);
+        }
+        assertThat(orderRepository.findAllByUserId(user.getId()))
+                .hasSize(Arrays.stream(CART_SIZES).map(cartSize -> WARMUP + ITERATIONS).sum());
+    }
+
+    // mỗi lần checkout xóa giỏ nên phải tạo lại trước mỗi lần đo; clear để lần đọc giỏ đi xuống DB như thật
+    private void fillCart(User user, List<Product> products, Size size, int cartSize) {
+        for (int i = 0; i < cartSize; i++) {
+            CartItem item = new CartItem();
+            item.setUser(user);
+            item.setProduct(products.get(i));
+            item.setSize(size);
+            item.setQuantity(1 + i % 3);
+            entityManager.persist(item);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
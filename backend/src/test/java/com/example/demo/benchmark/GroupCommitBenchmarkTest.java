@@ -0,0 +1,251 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entities.CartItem;
+import com.example.demo.entities.OrderStatus;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.entities.User;
+import com.example.demo.models.OrderDTO;
+import com.example.demo.repositories.CartItemRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.OrderStatusRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.SizeRepository;
+import com.example.demo.repositories.UserRepository;
+import com.example.demo.security.AuthService;
+import com.example.demo.services.Imp.CartItemServiceImp;
+import com.example.demo.services.Imp.OrderServiceImp;
+import com.example.demo.services.Imp.ProductServiceImp;
+import com.example.demo.services.Imp.SizeServiceImp;
+import com.example.demo.services.Imp.UserServiceImp;
+import com.example.demo.services.cart.CartStore;
+import com.example.demo.services.cart.CartSummaryCache;
+import com.example.demo.services.checkout.OrderCheckoutQueue;
+import com.example.demo.services.inventory.StockTable;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark thông lượng checkout đồng thời: mỗi đơn một transaction so với group commit (gom lô một transaction).
+ * H2 không fsync khi commit nên mỗi lần commit được cộng thêm COMMIT_LATENCY_MICROS để giả lập fsync redo log
+ * của MySQL (innodb_flush_log_at_trx_commit=1); các lần fsync xếp hàng nhau như trên cùng một file log.
+ * Chạy riêng bằng: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@DataJpaTest(showSql = false, properties = { "demo.orders.group-commit.enabled=true", "demo.orders.group-commit.batch-size=32",
+        "demo.orders.group-commit.linger-ms=2", "spring.datasource.hikari.maximum-pool-size=16" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ OrderServiceImp.class, CartItemServiceImp.class, CartStore.class, CartSummaryCache.class, StockTable.class,
+        OrderCheckoutQueue.class })
+class GroupCommitBenchmarkTest {
+
+    private static final long COMMIT_LATENCY_MICROS = 2000;
+    private static final int USERS = 256;
+    private static final int THREADS = 64;
+    private static final int CART_SIZE = 3;
+    private static final int ROUNDS = 3;
+
+    @TestConfiguration
+    static class CommitLatencyConfig {
+        @Bean
+        static BeanPostProcessor commitLatencyDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? new CommitLatencyDataSource((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private OrderServiceImp orderService;
+
+    @Autowired
+    private OrderCheckoutQueue orderCheckoutQueue;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SizeRepository sizeRepository;
+
+    @Autowired
+    private OrderStatusRepository orderStatusRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private AuthService authService;
+
+    @MockBean
+    private UserServiceImp userService;
+
+    @MockBean
+    private ProductServiceImp productService;
+
+    @MockBean
+    private SizeServiceImp sizeService;
+
+    @MockBean
+    private ModelMapper modelMapper;
+
+    @Test
+    void benchmarkSynchronousVersusGroupCommit() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername("flash" + i);
+            user.setPassword("password");
+            user.setEmail("flash" + i + "@example.com");
+            user.setUserStatus(true);
+            user.setProviderId("local");
+            users.add(userRepository.save(user));
+        }
+        Size size = new Size();
+        size.setName("M");
+        sizeRepository.save(size);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < CART_SIZE; i++) {
+            Product product = new Product();
+            product.setName("Flash sale " + i);
+            product.setMaterials("Cotton");
+            product.setInstruction("Giặt tay");
+            product.setPrice(100000L + i);
+            products.add(productRepository.save(product));
+        }
+        OrderStatus status = new OrderStatus();
+        status.setName("Pending");
+        orderStatusRepository.save(status);
+        // AuthService đọc user từ SecurityContext của luồng đang chạy (luồng request hoặc luồng ghi)
+        when(authService.getCurrentUserId()).thenAnswer(
+                invocation -> SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        when(authService.getCurrentUser()).thenAnswer(invocation -> userRepository
+                .findById((Long) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).get());
+        when(modelMapper.map(any(), any())).thenReturn(null);
+
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setPhoneNumber("0991234567");
+        orderDTO.setFirstName("Flash");
+        orderDTO.setLastName("Sale");
+        orderDTO.setAddress("1 Test Street");
+        orderDTO.setStatus(status.getId());
+
+        System.out.printf("%nconcurrent checkouts: %d users, %d threads, simulated commit %d us%n", USERS, THREADS,
+                COMMIT_LATENCY_MICROS);
+        System.out.printf("%-14s %12s %14s %12s%n", "mode", "round", "orders/s", "commits");
+        for (int round = 1; round <= ROUNDS; round++) {
+            run("synchronous", round, users, products, size,
+                    ignored -> orderService.createOrderFromCart(orderDTO, null));
+            run("group commit", round, users, products, size,
+                    ignored -> orderCheckoutQueue.submit(orderDTO, null));
+        }
+        assertThat(orderRepository.count()).isEqualTo(2L * ROUNDS * USERS);
+    }
+
+    private void run(String mode, int round, List<User> users, List<Product> products, Size size,
+            Function<Long, Long> checkout) throws Exception {
+        List<CartItem> cartItems = new ArrayList<>();
+        for (User user : users) {
+            for (Product product : products) {
+                CartItem item = new CartItem();
+                item.setUser(user);
+                item.setProduct(product);
+                item.setSize(size);
+                item.setQuantity(1);
+                cartItems.add(item);
+            }
+        }
+        cartItemRepository.saveAll(cartItems);
+        CommitLatencyDataSource.commits = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (User user : users) {
+            results.add(executor.submit(() -> {
+                SecurityContextHolder.getContext()
+                        .setAuthentication(new UsernamePasswordAuthenticationToken(user.getId(), null));
+                try {
+                    return checkout.apply(user.getId());
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }));
+        }
+        for (Future<Long> result : results) {
+            assertThat(result.get(60, TimeUnit.SECONDS)).isNotNull();
+        }
+        long nanos = System.nanoTime() - start;
+        executor.shutdown();
+        System.out.printf("%-14s %12d %14.0f %12d%n", mode, round, USERS / (nanos / 1e9),
+                CommitLatencyDataSource.commits);
+        assertThat(cartItemRepository.count()).isZero();
+    }
+
+    // cộng độ trễ cố định vào mỗi lần commit, lần lượt từng commit một, giống fsync trên cùng một file log
+    static class CommitLatencyDataSource extends DelegatingDataSource {
+
+        static volatile long commits;
+
+        CommitLatencyDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws java.sql.SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("commit")) {
+                            synchronized (CommitLatencyDataSource.class) {
+                                commits++;
+                                TimeUnit.MICROSECONDS.sleep(COMMIT_LATENCY_MICROS);
+                            }
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
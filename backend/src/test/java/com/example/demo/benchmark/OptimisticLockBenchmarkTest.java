@@ -0,0 +1,213 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entities.Order;
+import com.example.demo.entities.OrderStatus;
+import com.example.demo.events.OrderChangedEvent;
+import com.example.demo.models.OrderDTO;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.OrderStatusRepository;
+import com.example.demo.security.AuthService;
+import com.example.demo.services.Imp.CartItemServiceImp;
+import com.example.demo.services.Imp.OrderServiceImp;
+import com.example.demo.services.Imp.ProductServiceImp;
+import com.example.demo.services.Imp.SizeServiceImp;
+import com.example.demo.services.Imp.UserServiceImp;
+import com.example.demo.services.cart.CartStore;
+import com.example.demo.services.cart.CartSummaryCache;
+import com.example.demo.services.inventory.StockTable;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark tranh chấp khi nhiều luồng cùng sửa một nhóm đơn hàng nhỏ (HOT_ORDERS càng ít càng tranh chấp):
+ * - if-match: đọc rồi sửa kèm version đã đọc, xung đột trả 412/409 cho client (không thử lại)
+ * - status retry: transitionStatus, xung đột thì service tự đọc lại và thử lại
+ * Cả hai chế độ đều kiểm tra không mất cập nhật: tổng số lần tăng version bằng đúng số lần ghi thành công.
+ * Chạy riêng bằng: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@DataJpaTest(showSql = false, properties = { "spring.datasource.hikari.maximum-pool-size=16",
+        "demo.orders.status-retry.max-attempts=5", "demo.orders.status-retry.backoff-ms=2" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ OrderServiceImp.class, CartItemServiceImp.class, CartStore.class, CartSummaryCache.class, StockTable.class })
+class OptimisticLockBenchmarkTest {
+
+    private static final int[] HOT_ORDERS = { 1, 4, 64 };
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 2000;
+
+    @TestConfiguration
+    static class StatusChangeCounterConfig {
+        @Bean
+        StatusChangeCounter statusChangeCounter() {
+            return new StatusChangeCounter();
+        }
+    }
+
+    // mỗi lần chuyển trạng thái ghi thành công phát đúng một sự kiện STATUS_CHANGED
+    static class StatusChangeCounter {
+        final AtomicLong changes = new AtomicLong();
+
+        @EventListener
+        public void onOrderChanged(OrderChangedEvent event) {
+            if (event.getType() == OrderChangedEvent.Type.STATUS_CHANGED) {
+                changes.incrementAndGet();
+            }
+        }
+    }
+
+    @Autowired
+    private OrderServiceImp orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStatusRepository orderStatusRepository;
+
+    @Autowired
+    private StatusChangeCounter statusChangeCounter;
+
+    @MockBean
+    private AuthService authService;
+
+    @MockBean
+    private UserServiceImp userService;
+
+    @MockBean
+    private ProductServiceImp productService;
+
+    @MockBean
+    private SizeServiceImp sizeService;
+
+    @MockBean
+    private ModelMapper modelMapper;
+
+    @Test
+    void benchmarkConditionalUpdateVersusStatusRetry() throws Exception {
+        List<OrderStatus> statuses = new ArrayList<>();
+        for (String name : new String[] { "Pending", "Shipping", "Delivered" }) {
+            OrderStatus status = new OrderStatus();
+            status.setName(name);
+            statuses.add(orderStatusRepository.save(status));
+        }
+
+        System.out.printf("%n%d operations, %d threads%n", OPERATIONS, THREADS);
+        System.out.printf("%-14s %6s %10s %10s %10s %10s%n", "mode", "hot", "ops/s", "written", "rejected",
+                "failed");
+        for (int hot : HOT_ORDERS) {
+            runIfMatch(createOrders(hot, statuses.get(0)), statuses.get(0));
+            runStatusRetry(createOrders(hot, statuses.get(0)), statuses);
+        }
+    }
+
+    private List<Order> createOrders(int count, OrderStatus status) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            order.setTotal(100000L);
+            order.setAddress("Address");
+            order.setStatus(status);
+            orders.add(orderRepository.save(order));
+        }
+        return orders;
+    }
+
+    // client đọc đơn, sửa địa chỉ và gửi If-Match; lệch version thì 412, bị ghi xen vào thì 409
+    private void runIfMatch(List<Order> orders, OrderStatus status) throws Exception {
+        AtomicLong written = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long nanos = run(() -> {
+            Long id = orders.get(ThreadLocalRandom.current().nextInt(orders.size())).getId();
+            Order current = orderService.get(id);
+            OrderDTO orderDTO = new OrderDTO();
+            orderDTO.setAddress("Address " + ThreadLocalRandom.current().nextLong());
+            orderDTO.setStatus(status.getId());
+            try {
+                orderService.update(id, orderDTO, current.getVersion());
+                written.incrementAndGet();
+            } catch (ResponseStatusException e) {
+                if (e.getStatus() != HttpStatus.PRECONDITION_FAILED) {
+                    throw e;
+                }
+                rejected.incrementAndGet();
+            } catch (OptimisticLockingFailureException e) {
+                rejected.incrementAndGet();
+            }
+        });
+        report("if-match", orders, nanos, written.get(), rejected.get(), failed.get());
+        assertThat(versionIncrements(orders)).isEqualTo(written.get());
+    }
+
+    // chuyển sang một trạng thái ngẫu nhiên, service tự thử lại khi xung đột
+    private void runStatusRetry(List<Order> orders, List<OrderStatus> statuses) throws Exception {
+        AtomicLong failed = new AtomicLong();
+        long before = statusChangeCounter.changes.get();
+        long nanos = run(() -> {
+            Long id = orders.get(ThreadLocalRandom.current().nextInt(orders.size())).getId();
+            Long statusId = statuses.get(ThreadLocalRandom.current().nextInt(statuses.size())).getId();
+            try {
+                orderService.transitionStatus(id, statusId);
+            } catch (OptimisticLockingFailureException e) {
+                failed.incrementAndGet();
+            }
+        });
+        long written = statusChangeCounter.changes.get() - before;
+        report("status retry", orders, nanos, written, 0, failed.get());
+        assertThat(versionIncrements(orders)).isEqualTo(written);
+    }
+
+    private long run(Runnable operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            results.add(executor.submit(operation));
+        }
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        long nanos = System.nanoTime() - start;
+        executor.shutdown();
+        return nanos;
+    }
+
+    private long versionIncrements(List<Order> orders) {
+        long increments = 0;
+        for (Order order : orders) {
+            increments += orderRepository.findById(order.getId()).get().getVersion() - order.getVersion();
+        }
+        return increments;
+    }
+
+    private void report(String mode, List<Order> orders, long nanos, long written, long rejected, long failed) {
+        System.out.printf("%-14s %6d %10.0f %10d %10d %10d%n", mode, orders.size(), OPERATIONS / (nanos / 1e9),
+                written, rejected, failed);
+    }
+}
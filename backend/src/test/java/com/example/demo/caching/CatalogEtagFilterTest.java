@@ -0,0 +1,96 @@
+package com.example.demo.caching;
+
+import com.example.demo.caching.CatalogVersions.Table;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogEtagFilterTest {
+
+    private CatalogVersions catalogVersions;
+
+    private CatalogEtagFilter catalogEtagFilter;
+
+    // đếm số lần request thực sự đi tới controller
+    private final AtomicInteger handled = new AtomicInteger();
+
+    private final HttpServlet servlet = new HttpServlet() {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            handled.incrementAndGet();
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.getWriter().write("[]");
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        catalogVersions = new CatalogVersions();
+        catalogEtagFilter = new CatalogEtagFilter(catalogVersions);
+        ReflectionTestUtils.setField(catalogEtagFilter, "cacheControl", "public, no-cache");
+    }
+
+    private MockHttpServletResponse get(String uri, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        catalogEtagFilter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    // C052: Kiểm tra gửi lại ETag đã nhận thì trả 304 mà không gọi tới controller
+    @Test
+    void testConditionalGet_ReturnsNotModified() throws Exception {
+        MockHttpServletResponse first = get("/api/v1/products", null);
+        String etag = first.getHeader("ETag");
+
+        MockHttpServletResponse second = get("/api/v1/products", etag);
+
+        assertEquals(200, first.getStatus());
+        assertNotNull(etag);
+        assertEquals("public, no-cache", first.getHeader("Cache-Control"));
+        assertEquals(304, second.getStatus());
+        assertEquals(etag, second.getHeader("ETag"));
+        assertEquals(1, handled.get());
+    }
+
+    // C053: Kiểm tra ETag đổi khi bảng liên quan được ghi (danh mục ảnh hưởng sản phẩm, bài viết thì không)
+    @Test
+    void testEtagChanges_WhenRelatedTableBumped() throws Exception {
+        String productEtag = get("/api/v1/products/1", null).getHeader("ETag");
+        String postEtag = get("/api/v1/posts", null).getHeader("ETag");
+
+        catalogVersions.bump(Table.CATEGORIES);
+
+        assertEquals(200, get("/api/v1/products/1", productEtag).getStatus());
+        assertEquals(304, get("/api/v1/posts", postEtag).getStatus());
+        assertNull(get("/api/v1/orders", null).getHeader("ETag"));
+    }
+
+    // C055: Kiểm tra gợi ý tìm kiếm có ETag riêng: ghi sản phẩm chưa đổi ETag gợi ý, chỉ đổi khi trie được thay
+    @Test
+    void testSuggestEtag_ChangesOnlyWhenSuggestionsRebuilt() throws Exception {
+        String etag = get("/api/v1/products/suggest", null).getHeader("ETag");
+
+        catalogVersions.bump(Table.PRODUCTS);
+        catalogVersions.bump(Table.CATEGORIES);
+        assertEquals(304, get("/api/v1/products/suggest", etag).getStatus());
+
+        catalogVersions.bump(Table.SUGGESTIONS);
+        assertEquals(200, get("/api/v1/products/suggest", etag).getStatus());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.caching;
+
+import com.example.demo.entities.Category;
+import com.example.demo.models.CategoryTreeNode;
+import com.example.demo.repositories.CategoryRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CategoryTreeCacheTest {
+
+    private CategoryRepository categoryRepository;
+
+    private CategoryTreeCache categoryTreeCache;
+
+    private final List<Category> categories = new ArrayList<>();
+
+    private Category createCategory(Long id, String name, Category parent) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        category.setParentCategory(parent);
+        categories.add(category);
+        return category;
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Cây: Nam (1) -> Áo (2) -> Áo thun (4); Nam (1) -> Quần (3); Nữ (5)
+        Category men = createCategory(1L, "Nam", null);
+        Category shirt = createCategory(2L, "Áo", men);
+        createCategory(3L, "Quần", men);
+        createCategory(4L, "Áo thun", shirt);
+        createCategory(5L, "Nữ", null);
+
+        categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(categories);
+        categoryTreeCache = new CategoryTreeCache(categoryRepository);
+    }
+
+    // SI054: Kiểm tra cây danh mục, con cháu và tổ tiên được tính từ một lần đọc DB
+    @Test
+    void testTreeDescendantsAndAncestors() {
+        List<CategoryTreeNode> tree = categoryTreeCache.tree();
+
+        assertEquals(2, tree.size());
+        assertEquals("Nam", tree.get(0).getName());
+        assertEquals(Arrays.asList(2L, 3L), Arrays.asList(tree.get(0).getChildren().get(0).getId(),
+                tree.get(0).getChildren().get(1).getId()));
+        assertEquals(Arrays.asList(1L, 2L, 4L, 3L), categoryTreeCache.descendantIds(1L));
+        assertEquals(Arrays.asList(2L, 4L), categoryTreeCache.descendantIds(2L));
+        assertEquals(Arrays.asList(4L, 2L, 1L), categoryTreeCache.ancestorIds(4L));
+        assertTrue(categoryTreeCache.descendantIds(99L).isEmpty());
+        verify(categoryRepository, times(1)).findAll();
+    }
+
+    // SI055: Kiểm tra dựng lại cây sau khi danh mục thay đổi
+    @Test
+    void testRebuildAfterWrite() {
+        assertEquals(Arrays.asList(5L), categoryTreeCache.descendantIds(5L));
+
+        createCategory(6L, "Váy", categories.get(4));
+        categoryTreeCache.rebuild();
+
+        assertEquals(Arrays.asList(5L, 6L), categoryTreeCache.descendantIds(5L));
+        assertEquals(Arrays.asList(6L, 5L), categoryTreeCache.ancestorIds(6L));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.caching;
+
+import com.example.demo.exception.EmptyCartException;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.security.AuthService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class OrderIdempotencyCacheTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private AuthService authService;
+
+    private OrderIdempotencyCache orderIdempotencyCache;
+
+    // đếm số lần checkout thực sự chạy
+    private final AtomicInteger checkouts = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderIdempotencyCache = new OrderIdempotencyCache(orderRepository, authService, 100, 60);
+        ReflectionTestUtils.setField(orderIdempotencyCache, "waitTimeoutMs", 5000L);
+        when(authService.getCurrentUserId()).thenReturn(1L);
+        when(orderRepository.findIdByUserIdAndIdempotencyKey(anyLong(), anyString())).thenReturn(Optional.empty());
+    }
+
+    // SI060: Kiểm tra request trùng key gửi đồng thời chờ lần đầu chạy xong, gửi lại sau đó nhận đúng id cũ
+    @Test
+    void testExecute_ConcurrentDuplicatesRunCheckoutOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = executor.submit(() -> orderIdempotencyCache.execute("key-1", () -> {
+                checkouts.incrementAndGet();
+                started.countDown();
+                await(release);
+                return 42L;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Long> duplicate = executor.submit(() -> orderIdempotencyCache.execute("key-1", () -> {
+                checkouts.incrementAndGet();
+                return 99L;
+            }));
+            release.countDown();
+
+            assertEquals(42L, first.get(5, TimeUnit.SECONDS));
+            assertEquals(42L, duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(42L, orderIdempotencyCache.execute("key-1", () -> 100L));
+            assertEquals(1, checkouts.get());
+            // replay lấy từ bộ nhớ, chỉ lần chạy đầu tra DB
+            verify(orderRepository, times(1)).findIdByUserIdAndIdempotencyKey(1L, "key-1");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // SI061: Kiểm tra checkout lỗi thì key được giải phóng để thử lại, còn key đã có đơn trong DB thì trả về đơn đó
+    @Test
+    void testExecute_FailureReleasesKeyAndDbFallback() {
+        assertThrows(EmptyCartException.class, () -> orderIdempotencyCache.execute("key-2", () -> {
+            throw new EmptyCartException();
+        }));
+        assertEquals(7L, orderIdempotencyCache.execute("key-2", () -> 7L));
+
+        // instance khác đã ghi đơn cùng key: insert vi phạm unique, lấy lại id từ DB
+        when(orderRepository.findIdByUserIdAndIdempotencyKey(1L, "key-3"))
+                .thenReturn(Optional.empty(), Optional.of(55L));
+        assertEquals(55L, orderIdempotencyCache.execute("key-3", () -> {
+            throw new DataIntegrityViolationException("Duplicate entry");
+        }));
+        assertThrows(RuntimeException.class, () -> orderIdempotencyCache.execute(" ", () -> 1L));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
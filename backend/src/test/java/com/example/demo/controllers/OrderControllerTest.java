@@ -2,18 +2,28 @@ package com.example.demo.controllers;
 
 import com.example.demo.entities.Order;
 import com.example.demo.models.OrderDTO;
+import com.example.demo.models.OrderListItem;
+import com.example.demo.payload.request.OrderFilterRequest;
+import com.example.demo.payload.response.OffsetPage;
+import com.example.demo.services.OrderExportService;
 import com.example.demo.services.OrderService;
+import com.example.demo.services.checkout.OrderCheckoutQueue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 public class OrderControllerTest {
@@ -24,6 +34,13 @@ public class OrderControllerTest {
     @Mock
     private OrderService orderService;
 
+    // group commit mặc định tắt: isEnabled() của mock trả về false
+    @Mock
+    private OrderCheckoutQueue orderCheckoutQueue;
+
+    @Mock
+    private OrderExportService orderExportService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -61,22 +78,22 @@ public class OrderControllerTest {
     @Test
     void testGetAllOrdersByAdmin_C019() {
         // Mock dữ liệu trả về từ service
-        Order order1 = new Order();
-        order1.setId(1L);
+        OrderListItem order1 = new OrderListItem(1L, "A", "B", "0123", "HN", 100L, 1L, "Pending", 1L, "a", null);
+        OrderListItem order2 = new OrderListItem(2L, "C", "D", "0456", "HCM", 200L, 1L, "Pending", 2L, "c", null);
+        OrderFilterRequest filterRequest = new OrderFilterRequest();
+        filterRequest.setStatusId(1L);
 
-        Order order2 = new Order();
-        order2.setId(2L);
-
-        List<Order> mockOrders = Arrays.asList(order1, order2);
-        when(orderService.findAllByAdmin()).thenReturn(mockOrders);
+        OffsetPage<OrderListItem> mockPage = new OffsetPage<>(Arrays.asList(order1, order2), 0, 20, 2L);
+        when(orderService.findAllByAdmin(filterRequest)).thenReturn(mockPage);
 
         // Gọi phương thức controller
-        ResponseEntity<List<Order>> response = orderController.getAllByAdmin();
+        ResponseEntity<OffsetPage<OrderListItem>> response = orderController.getAllByAdmin(filterRequest);
 
         // Kiểm tra kết quả trả về
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(2, response.getBody().size());
-        verify(orderService, times(1)).findAllByAdmin();
+        assertEquals(2, response.getBody().getItems().size());
+        assertEquals(2L, response.getBody().getTotal());
+        verify(orderService, times(1)).findAllByAdmin(filterRequest);
     }
 
     /**
@@ -119,7 +136,7 @@ public class OrderControllerTest {
         when(orderService.createOrderFromCart(orderDTO)).thenReturn(mockOrderId);
 
         // Gọi phương thức controller
-        ResponseEntity<Long> response = orderController.createOrderFromCart(orderDTO);
+        ResponseEntity<Long> response = orderController.createOrderFromCart(orderDTO, null);
 
         // Kiểm tra kết quả trả về
         assertEquals(201, response.getStatusCodeValue());
@@ -141,12 +158,45 @@ public class OrderControllerTest {
         orderDTO.setLastName("Smith");
         orderDTO.setStatus(2L);
 
-        // Gọi phương thức controller
-        ResponseEntity<Void> response = orderController.updateOrder(1L, orderDTO);
+        // Mock đơn hàng sau khi cập nhật: version tăng từ 3 lên 4
+        Order updatedOrder = new Order();
+        updatedOrder.setId(1L);
+        updatedOrder.setVersion(4L);
+        when(orderService.update(1L, orderDTO, 3L)).thenReturn(updatedOrder);
+
+        // Gọi phương thức controller, If-Match là ETag đã đọc trước đó
+        ResponseEntity<Void> response = orderController.updateOrder(1L, "\"3\"", orderDTO);
 
         // Kiểm tra kết quả trả về
         assertEquals(200, response.getStatusCodeValue());
-        verify(orderService, times(1)).update(1L, orderDTO);
+        assertEquals("\"4\"", response.getHeaders().getETag());
+        verify(orderService, times(1)).update(1L, orderDTO, 3L);
+    }
+
+    /**
+     * C054 - Test If-Match không hợp lệ và chuyển trạng thái đơn hàng.
+     * Mô tả: If-Match không phải version thì 400, ETag yếu thì 412; chuyển trạng thái không cần If-Match.
+     */
+    @Test
+    void testIfMatchAndTransitionStatus_C054() {
+        OrderDTO orderDTO = new OrderDTO();
+
+        ResponseStatusException invalid = assertThrows(ResponseStatusException.class,
+                () -> orderController.updateOrder(1L, "\"abc\"", orderDTO));
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatus());
+        ResponseStatusException weak = assertThrows(ResponseStatusException.class,
+                () -> orderController.updateOrder(1L, "W/\"3\"", orderDTO));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, weak.getStatus());
+        verify(orderService, never()).update(anyLong(), any(), any());
+
+        Order order = new Order();
+        order.setVersion(7L);
+        when(orderService.transitionStatus(1L, 2L)).thenReturn(order);
+
+        ResponseEntity<Void> response = orderController.transitionStatus(1L, 2L);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("\"7\"", response.getHeaders().getETag());
     }
 
     /**
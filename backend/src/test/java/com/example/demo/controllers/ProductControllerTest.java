@@ -2,6 +2,7 @@ package com.example.demo.controllers;
 
 import com.example.demo.entities.Product;
 import com.example.demo.models.ProductDTO;
+import com.example.demo.models.ProductView;
 import com.example.demo.services.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -48,7 +49,7 @@ public class ProductControllerTest {
         when(productService.findAll()).thenReturn(mockProducts);
 
         // Gọi phương thức controller
-        ResponseEntity<List<Product>> response = productController.getAllProducts();
+        ResponseEntity<List<ProductView>> response = productController.getAllProducts();
 
         // Kiểm tra kết quả trả về
         assertEquals(200, response.getStatusCodeValue());
@@ -70,7 +71,7 @@ public class ProductControllerTest {
         when(productService.get(1L)).thenReturn(mockProduct);
 
         // Gọi phương thức controller
-        ResponseEntity<Product> response = productController.getProduct(1L);
+        ResponseEntity<ProductView> response = productController.getProduct(1L);
 
         // Kiểm tra kết quả trả về
         assertEquals(200, response.getStatusCodeValue());
@@ -97,7 +98,7 @@ public class ProductControllerTest {
         when(productService.search("Product")).thenReturn(mockProducts);
 
         // Gọi phương thức controller
-        ResponseEntity<List<Product>> response = productController.searchProducts("Product");
+        ResponseEntity<List<ProductView>> response = productController.searchProducts("Product");
 
         // Kiểm tra kết quả trả về
         assertEquals(200, response.getStatusCodeValue());
@@ -146,15 +147,15 @@ public class ProductControllerTest {
         mockUpdatedProduct.setName("Updated Product");
         mockUpdatedProduct.setPrice(150L);
 
-        when(productService.update(1L, productDTO)).thenReturn(mockUpdatedProduct);
+        when(productService.update(1L, productDTO, null)).thenReturn(mockUpdatedProduct);
 
-        // Gọi phương thức controller
-        ResponseEntity<Product> response = productController.updateProduct(1L, productDTO);
+        // Gọi phương thức controller (không gửi If-Match)
+        ResponseEntity<ProductView> response = productController.updateProduct(1L, null, productDTO);
 
         // Kiểm tra kết quả trả về
         assertEquals(200, response.getStatusCodeValue());
         assertEquals("Updated Product", response.getBody().getName());
-        verify(productService, times(1)).update(1L, productDTO);
+        verify(productService, times(1)).update(1L, productDTO, null);
     }
 
     /**
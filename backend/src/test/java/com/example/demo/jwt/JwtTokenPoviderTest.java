@@ -0,0 +1,60 @@
+package com.example.demo.jwt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.security.CustomUserDetails;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+public class JwtTokenPoviderTest {
+
+    private JwtTokenPovider jwtTokenPovider;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenPovider = new JwtTokenPovider();
+        ReflectionTestUtils.setField(jwtTokenPovider, "JWT_SECRET", "secret");
+        ReflectionTestUtils.setField(jwtTokenPovider, "JWT_EXPIRATION", 60000);
+    }
+
+    /* S012 */
+    // Token mang userId, roles, status: dựng lại principal từ claims không cần DB; token cũ chỉ có subject trả null,
+    // token sai chữ ký không hợp lệ
+    @Test
+    void generateToken_ShouldEmbedClaimsForStatelessPrincipal() {
+        CustomUserDetails user = new CustomUserDetails(7L, "alice", "hash", "alice@example.com", "0123", true,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")));
+
+        Claims claims = jwtTokenPovider.getClaims(jwtTokenPovider.generateToken(user));
+        CustomUserDetails principal = jwtTokenPovider.getUserDetailsFromClaims(claims);
+
+        assertEquals(7L, principal.getUserId());
+        assertEquals("alice", principal.getUsername());
+        assertTrue(principal.isUserStatus());
+        assertNull(principal.getPassword());
+        assertEquals(2, principal.getAuthorities().size());
+        assertNotNull(claims.getIssuedAt());
+        Date issuedAt = jwtTokenPovider.getIssuedAt(claims);
+        assertEquals(claims.get(JwtTokenPovider.CLAIM_ISSUED_AT_MS, Number.class).longValue(), issuedAt.getTime());
+        assertEquals(claims.getIssuedAt().getTime() / 1000, issuedAt.getTime() / 1000);
+
+        String legacy = Jwts.builder().setSubject("alice").setIssuedAt(new Date())
+                .signWith(SignatureAlgorithm.HS512, "secret").compact();
+        assertNull(jwtTokenPovider.getUserDetailsFromClaims(jwtTokenPovider.getClaims(legacy)));
+        Claims legacyClaims = jwtTokenPovider.getClaims(legacy);
+        assertEquals(legacyClaims.getIssuedAt(), jwtTokenPovider.getIssuedAt(legacyClaims));
+        String forged = Jwts.builder().setSubject("alice").signWith(SignatureAlgorithm.HS512, "other").compact();
+        assertNull(jwtTokenPovider.getClaims(forged));
+        assertFalse(jwtTokenPovider.validateToken(forged));
+    }
+}
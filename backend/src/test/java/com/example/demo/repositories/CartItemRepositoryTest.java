@@ -4,15 +4,20 @@ import com.example.demo.entities.CartItem;
 import com.example.demo.entities.Product;
 import com.example.demo.entities.Size;
 import com.example.demo.entities.User;
+import com.example.demo.models.CartSummary;
+import com.example.demo.models.CartSummaryLine;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Unit test cho CartItemRepository.
@@ -33,6 +38,9 @@ public class CartItemRepositoryTest {
     @Autowired
     private SizeRepository sizeRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     /**
      * Hàm tạo User test và lưu vào database.
      */
@@ -89,11 +97,12 @@ public class CartItemRepositoryTest {
     void testFindAllByUserId() {
         User user = createUser("cartuser");
         Product product = createProduct("Áo sơ mi");
-        Size size = createSize("M");
+        Size sizeM = createSize("M");
+        Size sizeL = createSize("L");
 
-        // Thêm 2 cart item cho cùng user
-        createCartItem(user, product, size, 2);
-        createCartItem(user, product, size, 3);
+        // Thêm 2 cart item cho cùng user (khác size vì mỗi user/sản phẩm/size chỉ có một dòng)
+        createCartItem(user, product, sizeM, 2);
+        createCartItem(user, product, sizeL, 3);
 
         // Thực hiện truy vấn
         List<CartItem> items = cartItemRepository.findAllByUserId(user.getId());
@@ -132,11 +141,12 @@ public class CartItemRepositoryTest {
     void testDeleteAllByUserId() {
         User user = createUser("deleteuser");
         Product product = createProduct("Giày thể thao");
-        Size size = createSize("42");
+        Size size42 = createSize("42");
+        Size size43 = createSize("43");
 
         // Tạo 2 cart item cho user
-        createCartItem(user, product, size, 2);
-        createCartItem(user, product, size, 1);
+        createCartItem(user, product, size42, 2);
+        createCartItem(user, product, size43, 1);
 
         // Xóa toàn bộ cart item của user
         cartItemRepository.deleteAllByUserId(user.getId());
@@ -146,4 +156,92 @@ public class CartItemRepositoryTest {
 
         assertThat(items).isEmpty();
     }
+
+    /**
+     * R036 - Kiểm tra ghi trễ từ CartStore: updateAll đổi số lượng, size và tăng version bằng JDBC batch,
+     * deleteAllByIdIn chỉ xoá đúng các dòng được chọn.
+     */
+    @Test
+    @DisplayName("updateAll()/deleteAllByIdIn() ghi lô thay đổi giỏ hàng")
+    void testUpdateAllAndDeleteAllByIdIn() {
+        User user = createUser("batchcartuser");
+        Product product = createProduct("Quần jean");
+        Size sizeM = createSize("M");
+        Size sizeL = createSize("L");
+        CartItem kept = createCartItem(user, product, sizeM, 1);
+        CartItem removed = createCartItem(user, product, sizeL, 2);
+        entityManager.flush();
+        Long version = kept.getVersion();
+
+        CartItem change = new CartItem();
+        change.setId(kept.getId());
+        change.setQuantity(4);
+        change.setSize(sizeL);
+        // xoá trước rồi mới đổi sang size của dòng vừa xoá, đúng thứ tự CartStore ghi
+        cartItemRepository.deleteAllByIdIn(List.of(removed.getId()));
+        cartItemRepository.updateAll(List.of(change));
+        entityManager.clear();
+
+        List<CartItem> items = cartItemRepository.findAllByUserId(user.getId());
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getQuantity()).isEqualTo(4);
+        assertThat(items.get(0).getSize().getSizeId()).isEqualTo(sizeL.getSizeId());
+        assertThat(items.get(0).getVersion()).isEqualTo(version + 1);
+    }
+
+    /**
+     * R037 - Kiểm tra thêm vào giỏ dạng upsert: cùng user/sản phẩm/size thì cộng số lượng vào một dòng,
+     * khác size thì tạo dòng mới; khoá unique chặn chèn trùng trực tiếp.
+     */
+    @Test
+    @DisplayName("addQuantity() upsert theo khoá (user, sản phẩm, size)")
+    void testAddQuantityUpsert() {
+        User user = createUser("upsertuser");
+        Product product = createProduct("Áo khoác");
+        Size sizeM = createSize("M");
+        Size sizeL = createSize("L");
+
+        Long first = cartItemRepository.addQuantity(user.getId(), product.getId(), sizeM.getSizeId(), 1);
+        Long second = cartItemRepository.addQuantity(user.getId(), product.getId(), sizeM.getSizeId(), 2);
+        Long other = cartItemRepository.addQuantity(user.getId(), product.getId(), sizeL.getSizeId(), 1);
+        entityManager.clear();
+
+        assertThat(second).isEqualTo(first);
+        assertThat(other).isNotEqualTo(first);
+        assertThat(cartItemRepository.findById(first).get().getQuantity()).isEqualTo(3);
+        assertThat(cartItemRepository.findAllByUserId(user.getId())).hasSize(2);
+        assertThatThrownBy(() -> {
+            createCartItem(user, product, sizeM, 1);
+            entityManager.flush();
+        }).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    /**
+     * R038 - Kiểm tra projection tổng giỏ: chỉ lấy dòng của đúng user, thành tiền = giá x số lượng,
+     * tổng số lượng và tổng tiền cộng đúng.
+     */
+    @Test
+    @DisplayName("findSummaryLines() trả thành tiền từng dòng của user")
+    void testFindSummaryLines() {
+        User user = createUser("summaryuser");
+        User other = createUser("summaryother");
+        Product product = createProduct("Áo sơ mi");
+        Size sizeM = createSize("M");
+        Size sizeL = createSize("L");
+        createCartItem(user, product, sizeM, 2);
+        createCartItem(user, product, sizeL, 3);
+        createCartItem(other, product, sizeM, 5);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<CartSummaryLine> lines = cartItemRepository.findSummaryLines(user.getId());
+        CartSummary summary = new CartSummary(lines);
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0).getProductName()).isEqualTo("Áo sơ mi");
+        assertThat(lines.get(0).getSizeName()).isEqualTo("M");
+        assertThat(lines.get(0).getLineTotal()).isEqualTo(200L);
+        assertThat(summary.getItemCount()).isEqualTo(5);
+        assertThat(summary.getTotal()).isEqualTo(500L);
+    }
 }
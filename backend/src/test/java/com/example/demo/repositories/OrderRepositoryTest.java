@@ -1,16 +1,33 @@
 package com.example.demo.repositories;
 
 import com.example.demo.entities.Order;
+import com.example.demo.entities.OrderItem;
+import com.example.demo.entities.OrderStatus;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
 import com.example.demo.entities.User;
+import com.example.demo.models.OrderExportRow;
+import com.example.demo.models.OrderListItem;
+import com.example.demo.models.OrderSummary;
+import com.example.demo.payload.request.OrderFilterRequest;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Unit Test cho OrderRepository.
@@ -25,6 +42,12 @@ class OrderRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
     /**
      * Tạo một đối tượng User và lưu vào cơ sở dữ liệu.
      *
@@ -82,4 +105,255 @@ class OrderRepositoryTest {
         assertThat(ordersUserB).hasSize(1);
         assertThat(ordersUserA).allMatch(order -> order.getUser().getId().equals(userA.getId()));
     }
+
+    /**
+     * R031 - Kiểm tra danh sách đơn hàng của admin: lọc theo trạng thái, user, khoảng tổng tiền, phân trang theo
+     * tổng tiền giảm dần và câu đếm trả về đúng số đơn khớp bộ lọc.
+     */
+    @Test
+    @DisplayName("findListItems()/countListItems() lọc, sắp xếp và phân trang đơn hàng")
+    void testFindListItemsFiltered() {
+        User userA = createUser("adminListA");
+        User userB = createUser("adminListB");
+        OrderStatus pending = new OrderStatus();
+        pending.setName("Pending");
+        entityManager.persist(pending);
+        OrderStatus shipped = new OrderStatus();
+        shipped.setName("Shipped");
+        entityManager.persist(shipped);
+        for (long total : new long[] { 100L, 200L, 300L, 400L }) {
+            Order order = new Order();
+            order.setUser(userA);
+            order.setTotal(total);
+            order.setStatus(pending);
+            orderRepository.save(order);
+        }
+        Order other = new Order();
+        other.setUser(userB);
+        other.setTotal(250L);
+        other.setStatus(shipped);
+        orderRepository.save(other);
+        entityManager.flush();
+
+        OrderFilterRequest filter = new OrderFilterRequest();
+        filter.setStatusId(pending.getId());
+        filter.setUserId(userA.getId());
+        filter.setMinTotal(150L);
+        Sort byTotal = Sort.by(Sort.Direction.DESC, "total").and(Sort.by(Sort.Direction.DESC, "id"));
+        List<OrderListItem> firstPage = orderRepository.findListItems(filter, PageRequest.of(0, 2, byTotal));
+        List<OrderListItem> secondPage = orderRepository.findListItems(filter, PageRequest.of(1, 2, byTotal));
+
+        assertThat(firstPage).extracting(OrderListItem::getTotal).containsExactly(400L, 300L);
+        assertThat(secondPage).extracting(OrderListItem::getTotal).containsExactly(200L);
+        assertThat(firstPage.get(0).getStatus().getName()).isEqualTo("Pending");
+        assertThat(firstPage.get(0).getUsername()).isEqualTo("adminListA");
+        assertThat(orderRepository.countListItems(filter)).isEqualTo(3L);
+        assertThat(orderRepository.countListItems(new OrderFilterRequest())).isEqualTo(5L);
+    }
+
+    /**
+     * R032 - Kiểm tra các câu tổng hợp dùng để tính lại thống kê: doanh thu/số đơn theo ngày tạo, số lượng bán theo
+     * (ngày, sản phẩm) và số đơn theo trạng thái.
+     */
+    @Test
+    @DisplayName("Tổng hợp doanh thu theo ngày, số lượng theo sản phẩm và số đơn theo trạng thái")
+    void testSalesAggregates() {
+        User user = createUser("statsUser");
+        OrderStatus pending = new OrderStatus();
+        pending.setName("Pending");
+        entityManager.persist(pending);
+        Product product = new Product();
+        product.setName("Áo thống kê");
+        product.setMaterials("Cotton");
+        product.setInstruction("Giặt tay");
+        product.setPrice(100L);
+        entityManager.persist(product);
+        for (long total : new long[] { 100L, 300L }) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setTotal(total);
+            order.setStatus(pending);
+            orderRepository.save(order);
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(product);
+            item.setName(product.getName());
+            item.setPrice(product.getPrice());
+            item.setQuantity((int) (total / 100));
+            entityManager.persist(item);
+        }
+        entityManager.flush();
+        LocalDateTime since = LocalDate.now().atStartOfDay();
+
+        List<Object[]> revenue = orderRepository.sumTotalByDaySince(since);
+        List<Object[]> units = orderItemRepository.sumQuantityByDayAndProductSince(since);
+        List<Object[]> statuses = orderRepository.countByStatus();
+
+        assertThat(revenue).hasSize(1);
+        assertThat(((Date) revenue.get(0)[0]).toLocalDate()).isEqualTo(LocalDate.now());
+        assertThat(((Number) revenue.get(0)[1]).longValue()).isEqualTo(400L);
+        assertThat(((Number) revenue.get(0)[2]).longValue()).isEqualTo(2L);
+        assertThat(units).hasSize(1);
+        assertThat(units.get(0)[1]).isEqualTo(product.getId());
+        assertThat(((Number) units.get(0)[2]).longValue()).isEqualTo(4L);
+        assertThat(statuses).hasSize(1);
+        assertThat(((Number) statuses.get(0)[1]).longValue()).isEqualTo(2L);
+        assertThat(orderRepository.sumTotalByDaySince(since.plusDays(1))).isEmpty();
+    }
+
+    /**
+     * R033 - Kiểm tra khóa lạc quan: mỗi lần cập nhật tăng version, lưu một bản đã cũ (version lạc hậu) thì bị từ chối
+     * thay vì ghi đè thay đổi của người khác.
+     */
+    @Test
+    @DisplayName("Lưu bản đơn hàng cũ bị từ chối bởi @Version")
+    void testOptimisticLock() {
+        Order order = new Order();
+        order.setUser(createUser("versioned"));
+        order.setTotal(100L);
+        order = orderRepository.saveAndFlush(order);
+        assertThat(order.getVersion()).isZero();
+        entityManager.detach(order);
+
+        // hai người cùng đọc version 0
+        Order first = orderRepository.findById(order.getId()).get();
+        entityManager.detach(first);
+        Order second = orderRepository.findById(order.getId()).get();
+        entityManager.detach(second);
+
+        first.setAddress("First address");
+        assertThat(orderRepository.saveAndFlush(first).getVersion()).isEqualTo(1L);
+
+        second.setAddress("Second address");
+        assertThatThrownBy(() -> orderRepository.saveAndFlush(second))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
+
+    /**
+     * R034 - Kiểm tra đọc dữ liệu xuất đơn hàng: mỗi dòng hàng một dòng theo thứ tự id, đơn không có dòng hàng vẫn
+     * ra một dòng, lọc theo khoảng ngày tạo [createdFrom, createdTo).
+     */
+    @Test
+    @DisplayName("streamExportRows() trả từng dòng hàng và lọc theo ngày tạo")
+    void testStreamExportRows() {
+        User user = createUser("exportUser");
+        OrderStatus paid = new OrderStatus();
+        paid.setName("Paid");
+        entityManager.persist(paid);
+        Size size = new Size();
+        size.setName("M");
+        entityManager.persist(size);
+        Product product = new Product();
+        product.setName("Áo xuất");
+        product.setMaterials("Cotton");
+        product.setInstruction("Giặt tay");
+        product.setPrice(100L);
+        entityManager.persist(product);
+        Order withItems = new Order();
+        withItems.setUser(user);
+        withItems.setTotal(500L);
+        withItems.setStatus(paid);
+        orderRepository.save(withItems);
+        for (int quantity : new int[] { 2, 3 }) {
+            OrderItem item = new OrderItem();
+            item.setOrder(withItems);
+            item.setProduct(product);
+            item.setSize(quantity == 2 ? size : null);
+            item.setName(product.getName());
+            item.setPrice(product.getPrice());
+            item.setQuantity(quantity);
+            entityManager.persist(item);
+        }
+        Order empty = new Order();
+        empty.setTotal(0L);
+        orderRepository.save(empty);
+        Order old = new Order();
+        old.setUser(user);
+        old.setTotal(100L);
+        orderRepository.save(old);
+        entityManager.flush();
+        entityManager.getEntityManager().createNativeQuery("UPDATE \"order\" SET created_at = ? WHERE id = ?")
+                .setParameter(1, LocalDateTime.of(2020, 1, 1, 0, 0))
+                .setParameter(2, old.getId())
+                .executeUpdate();
+        LocalDateTime cutoff = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+        List<OrderExportRow> recent = new ArrayList<>();
+        orderRepository.streamExportRows(cutoff, null, recent::add);
+        List<OrderExportRow> before = new ArrayList<>();
+        orderRepository.streamExportRows(null, cutoff, before::add);
+
+        assertThat(recent).extracting(OrderExportRow::getOrderId)
+                .containsExactly(withItems.getId(), withItems.getId(), empty.getId());
+        assertThat(recent).extracting(OrderExportRow::getQuantity).containsExactly(2, 3, null);
+        assertThat(recent.get(0).getSize()).isEqualTo("M");
+        assertThat(recent.get(0).getStatus()).isEqualTo("Paid");
+        assertThat(recent.get(0).getUsername()).isEqualTo("exportUser");
+        assertThat(recent.get(1).getSize()).isNull();
+        assertThat(recent.get(2).getItemId()).isNull();
+        assertThat(recent.get(2).getUserId()).isNull();
+        assertThat(before).extracting(OrderExportRow::getOrderId).containsExactly(old.getId());
+    }
+
+    /**
+     * R035 - Kiểm tra lịch sử đơn hàng dạng tóm tắt: mới nhất trước, số lượng sản phẩm cộng trong cùng câu truy vấn,
+     * trang tiếp theo theo (createdAt, id) không trùng không sót, không lẫn đơn của người khác.
+     */
+    @Test
+    @DisplayName("findSummaries()/findSummariesBefore() phân trang lịch sử đơn hàng theo keyset")
+    void testFindSummaries() {
+        User owner = createUser("historyOwner");
+        User other = createUser("historyOther");
+        OrderStatus pending = new OrderStatus();
+        pending.setName("Pending");
+        entityManager.persist(pending);
+        Product product = new Product();
+        product.setName("Áo lịch sử");
+        product.setMaterials("Cotton");
+        product.setInstruction("Giặt tay");
+        product.setPrice(100L);
+        entityManager.persist(product);
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Long[] ids = new Long[4];
+        for (int i = 0; i < 4; i++) {
+            Order order = new Order();
+            order.setUser(owner);
+            order.setTotal(100L * (i + 1));
+            order.setStatus(pending);
+            orderRepository.save(order);
+            ids[i] = order.getId();
+            for (int line = 0; line < i; line++) {
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setProduct(product);
+                item.setName(product.getName());
+                item.setPrice(product.getPrice());
+                item.setQuantity(2);
+                entityManager.persist(item);
+            }
+        }
+        createOrderForUser(other, 999L);
+        entityManager.flush();
+        // hai đơn cuối tạo cùng thời điểm để kiểm tra id làm khóa phụ
+        LocalDateTime[] createdAt = { base, base.plusHours(1), base.plusHours(2), base.plusHours(2) };
+        for (int i = 0; i < 4; i++) {
+            entityManager.getEntityManager().createNativeQuery("UPDATE \"order\" SET created_at = ? WHERE id = ?")
+                    .setParameter(1, createdAt[i])
+                    .setParameter(2, ids[i])
+                    .executeUpdate();
+        }
+        entityManager.clear();
+
+        List<OrderSummary> first = orderRepository.findSummaries(owner.getId(), PageRequest.of(0, 2));
+        OrderSummary last = first.get(1);
+        List<OrderSummary> second = orderRepository.findSummariesBefore(owner.getId(), last.getCreatedAt(),
+                last.getId(), PageRequest.of(0, 2));
+
+        assertThat(first).extracting(OrderSummary::getId).containsExactly(ids[3], ids[2]);
+        assertThat(first).extracting(OrderSummary::getItemCount).containsExactly(6L, 4L);
+        assertThat(first.get(0).getStatus().getName()).isEqualTo("Pending");
+        assertThat(second).extracting(OrderSummary::getId).containsExactly(ids[1], ids[0]);
+        assertThat(second).extracting(OrderSummary::getItemCount).containsExactly(2L, 0L);
+        assertThat(second).extracting(OrderSummary::getTotal).containsExactly(200L, 100L);
+    }
 }
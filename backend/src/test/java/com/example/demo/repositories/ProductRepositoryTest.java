@@ -1,12 +1,24 @@
 package com.example.demo.repositories;
 
+import com.example.demo.entities.Category;
+import com.example.demo.entities.Color;
 import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.models.ProductFeedItem;
+import com.example.demo.models.ProductView;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -20,6 +32,9 @@ class ProductRepositoryTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     /**
      * Hàm tạo dữ liệu sản phẩm để dùng trong các test case.
      *
@@ -115,4 +130,140 @@ class ProductRepositoryTest {
         assertThat(results).hasSize(1);
         assertThat(results.get(0).getName()).containsIgnoringCase("đầm");
     }
+
+    /**
+     * R026 - Kiểm tra phân trang keyset theo (price, id): trang sau bắt đầu ngay sau bản ghi cuối của trang trước,
+     * kể cả khi nhiều sản phẩm có cùng giá.
+     */
+    @Test
+    @DisplayName("Phân trang keyset theo giá không bỏ sót và không trùng lặp")
+    void testFindPageAfterPrice() {
+        Product p1 = productRepository.save(createProduct("Áo 1", "Mô tả", "Cotton", "Giặt tay", 100000L));
+        Product p2 = productRepository.save(createProduct("Áo 2", "Mô tả", "Cotton", "Giặt tay", 200000L));
+        Product p3 = productRepository.save(createProduct("Áo 3", "Mô tả", "Cotton", "Giặt tay", 200000L));
+        Product p4 = productRepository.save(createProduct("Áo 4", "Mô tả", "Cotton", "Giặt tay", 300000L));
+
+        List<Long> firstPage = productRepository.findIdsAfterPrice(Long.MIN_VALUE, 0L, PageRequest.of(0, 2));
+        Long lastId = firstPage.get(firstPage.size() - 1);
+        List<Long> secondPage = productRepository.findIdsAfterPrice(p2.getPrice(), lastId, PageRequest.of(0, 2));
+
+        assertThat(firstPage).containsExactly(p1.getId(), p2.getId());
+        assertThat(secondPage).containsExactly(p3.getId(), p4.getId());
+    }
+
+    /**
+     * R027 - Kiểm tra đọc danh sách sản phẩm kèm màu, danh mục và size chỉ tốn số câu lệnh SQL cố định,
+     * không tăng theo số sản phẩm (không bị N+1).
+     */
+    @Test
+    @DisplayName("Đọc danh sách sản phẩm kèm quan hệ với số câu SQL không đổi")
+    void testFindAllFetchesAssociationsWithoutNPlusOne() {
+        Color color = new Color();
+        color.setName("Đen");
+        entityManager.persist(color);
+        Category parent = new Category();
+        parent.setName("Áo");
+        entityManager.persist(parent);
+        Category category = new Category();
+        category.setName("Áo thun");
+        category.setParentCategory(parent);
+        entityManager.persist(category);
+        Size sizeM = new Size();
+        sizeM.setName("M");
+        entityManager.persist(sizeM);
+        Size sizeL = new Size();
+        sizeL.setName("L");
+        entityManager.persist(sizeL);
+        for (int i = 0; i < 5; i++) {
+            Product product = createProduct("Áo " + i, "Mô tả", "Cotton", "Giặt tay", 100000L + i);
+            product.setColor(color);
+            product.setCategory(category);
+            product.getListSizes().add(sizeM);
+            product.getListSizes().add(sizeL);
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        List<ProductView> views = ProductView.from(productRepository.findAll());
+
+        assertThat(views).hasSize(5);
+        assertThat(views).allSatisfy(view -> {
+            assertThat(view.getListSizes()).hasSize(2);
+            assertThat(view.getColor().getName()).isEqualTo("Đen");
+            assertThat(view.getCategory().getParentCategory().getName()).isEqualTo("Áo");
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+    }
+
+    /**
+     * R028 - Kiểm tra chèn sản phẩm theo batch JDBC: id sinh ra được gán lại đúng thứ tự và size được ghi vào bảng nối.
+     */
+    @Test
+    @DisplayName("Chèn batch sản phẩm kèm size bằng JDBC")
+    void testInsertAllAssignsGeneratedIds() {
+        Size size = new Size();
+        size.setName("M");
+        entityManager.persist(size);
+        entityManager.flush();
+        Product first = createProduct("Áo batch 1", "Mô tả", "Cotton", "Giặt tay", 100000L);
+        first.getListSizes().add(size);
+        Product second = createProduct("Áo batch 2", "Mô tả", "Cotton", "Giặt tay", 200000L);
+
+        productRepository.insertAll(List.of(first, second));
+        entityManager.clear();
+
+        assertThat(first.getId()).isNotNull();
+        assertThat(second.getId()).isGreaterThan(first.getId());
+        List<Product> saved = productRepository.findAllByIdIn(List.of(first.getId(), second.getId()));
+        assertThat(saved).extracting(Product::getName).containsExactlyInAnyOrder("Áo batch 1", "Áo batch 2");
+        assertThat(saved).filteredOn(p -> p.getId().equals(first.getId()))
+                .allSatisfy(p -> assertThat(p.getListSizes()).extracting(Size::getName).containsExactly("M"));
+    }
+
+    /**
+     * R029 - Kiểm tra đọc feed bằng con trỏ JDBC: mỗi sản phẩm ra đúng một lần kèm đủ size (dù join ra nhiều dòng)
+     * và modifiedSince chỉ lấy các sản phẩm sửa sau mốc đó.
+     */
+    @Test
+    @DisplayName("Đọc feed sản phẩm theo con trỏ và lọc theo thời điểm sửa")
+    void testStreamFeedGroupsSizesAndFiltersModifiedSince() {
+        Color color = new Color();
+        color.setName("Đen");
+        entityManager.persist(color);
+        Size sizeM = new Size();
+        sizeM.setName("M");
+        entityManager.persist(sizeM);
+        Size sizeL = new Size();
+        sizeL.setName("L");
+        entityManager.persist(sizeL);
+        Product old = createProduct("Áo cũ", "Mô tả", "Cotton", "Giặt tay", 100000L);
+        entityManager.persist(old);
+        Product fresh = createProduct("Áo mới", "Mô tả", "Cotton", "Giặt tay", 200000L);
+        fresh.setColor(color);
+        fresh.getListSizes().add(sizeM);
+        fresh.getListSizes().add(sizeL);
+        entityManager.persist(fresh);
+        entityManager.flush();
+        entityManager.getEntityManager().createNativeQuery("UPDATE product SET updated_at = ? WHERE id = ?")
+                .setParameter(1, LocalDateTime.of(2020, 1, 1, 0, 0))
+                .setParameter(2, old.getId())
+                .executeUpdate();
+
+        List<ProductFeedItem> all = new ArrayList<>();
+        productRepository.streamFeed(null, all::add);
+        List<ProductFeedItem> changed = new ArrayList<>();
+        productRepository.streamFeed(LocalDateTime.of(2021, 1, 1, 0, 0), changed::add);
+
+        assertThat(all).extracting(ProductFeedItem::getName).containsExactly("Áo cũ", "Áo mới");
+        assertThat(all.get(1).getSizes()).containsExactly("L", "M");
+        assertThat(all.get(1).getColor()).isEqualTo("Đen");
+        assertThat(all.get(0).getColorId()).isNull();
+        assertThat(changed).extracting(ProductFeedItem::getId).containsExactly(fresh.getId());
+    }
 }
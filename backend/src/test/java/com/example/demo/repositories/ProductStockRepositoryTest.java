@@ -0,0 +1,90 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.Order;
+import com.example.demo.entities.OrderItem;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.ProductStock;
+import com.example.demo.entities.Size;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test cho ProductStockRepository – áp doanh số đã commit vào bảng tồn kho (write-behind).
+ */
+@DataJpaTest
+class ProductStockRepositoryTest {
+
+    @Autowired
+    private ProductStockRepository productStockRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Product createProduct(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setMaterials("Cotton");
+        product.setInstruction("Giặt tay");
+        product.setPrice(100000L);
+        return entityManager.persist(product);
+    }
+
+    private OrderItem createItem(Order order, Product product, Size size, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setSize(size);
+        item.setName(product.getName());
+        item.setPrice(product.getPrice());
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    /**
+     * R030 - Kiểm tra áp doanh số: chỉ dòng đơn hàng checkout (stock_applied = false) bị trừ vào tồn kho đúng
+     * (sản phẩm, size), được đánh dấu đã áp và không bị trừ lần hai; dữ liệu cũ (null) được bỏ qua.
+     */
+    @Test
+    @DisplayName("Áp doanh số đã commit vào product_stock đúng một lần")
+    void testApplyPendingSales() {
+        Size size = new Size();
+        size.setName("M");
+        entityManager.persist(size);
+        Product tracked = createProduct("Áo có tồn kho");
+        Product untracked = createProduct("Áo không theo dõi");
+        ProductStock stock = new ProductStock();
+        stock.setProductId(tracked.getId());
+        stock.setSizeId(size.getSizeId());
+        stock.setQuantity(10L);
+        entityManager.persist(stock);
+        Order order = new Order();
+        order.setTotal(0L);
+        entityManager.persist(order);
+        // dòng đơn hàng cũ ghi qua JPA, stock_applied = null
+        entityManager.persist(createItem(order, tracked, size, 4));
+        entityManager.flush();
+        orderItemRepository.insertAll(List.of(createItem(order, tracked, size, 2), createItem(order, tracked, size, 3),
+                createItem(order, untracked, size, 1)));
+
+        int applied = productStockRepository.applyPendingSales(100);
+        int appliedAgain = productStockRepository.applyPendingSales(100);
+        entityManager.clear();
+
+        assertThat(applied).isEqualTo(3);
+        assertThat(appliedAgain).isZero();
+        assertThat(productStockRepository.findByProductIdAndSizeId(tracked.getId(), size.getSizeId()))
+                .hasValueSatisfying(s -> assertThat(s.getQuantity()).isEqualTo(5L));
+        assertThat(productStockRepository.findAllByProductId(untracked.getId())).isEmpty();
+    }
+}
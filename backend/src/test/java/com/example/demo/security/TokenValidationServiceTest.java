@@ -0,0 +1,104 @@
+package com.example.demo.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.example.demo.entities.ERole;
+import com.example.demo.entities.Role;
+import com.example.demo.entities.User;
+import com.example.demo.repositories.UserRepository;
+
+public class TokenValidationServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private TokenValidationService tokenValidationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        tokenValidationService = new TokenValidationService(userRepository, 864000000L, 15, 100);
+    }
+
+    private static CustomUserDetails fromClaims(Long userId, boolean status) {
+        return new CustomUserDetails(userId, "user" + userId, null, null, null, status,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    private static Date minutesAgo(long minutes) {
+        return new Date(System.currentTimeMillis() - minutes * 60_000);
+    }
+
+    /* S010 */
+    // Token mới cấp: dùng thẳng claims, không tra DB; user bị khoá hoặc token cấp trước khi thu hồi bị từ chối,
+    // đăng nhập lại sau khi thu hồi thì hợp lệ
+    @Test
+    void validate_ShouldTrustFreshClaimsAndRejectRevokedTokens() {
+        CustomUserDetails principal = fromClaims(1L, true);
+
+        assertSame(principal, tokenValidationService.validate(principal, minutesAgo(1)));
+        assertNull(tokenValidationService.validate(fromClaims(1L, false), minutesAgo(1)));
+
+        tokenValidationService.revoke(1L);
+        assertNull(tokenValidationService.validate(principal, minutesAgo(1)));
+        assertSame(principal, tokenValidationService.validate(principal, new Date(System.currentTimeMillis() + 1000)));
+        verifyNoInteractions(userRepository);
+    }
+
+    /* S013 */
+    // Thu hồi so theo ms: đăng nhập lại ngay sau khi lưu hồ sơ (cùng giây) vẫn hợp lệ, token cấp trước đó bị từ chối
+    @Test
+    void validate_ShouldAcceptTokenIssuedInSameSecondAfterRevoke() {
+        CustomUserDetails principal = fromClaims(3L, true);
+
+        long before = System.currentTimeMillis();
+        tokenValidationService.revoke(3L);
+        long after = System.currentTimeMillis();
+
+        assertNull(tokenValidationService.validate(principal, new Date(before - 1)));
+        assertSame(principal, tokenValidationService.validate(principal, new Date(after)));
+        verifyNoInteractions(userRepository);
+    }
+
+    /* S011 */
+    // Token quá cửa sổ kiểm tra lại: tra DB một lần rồi dùng lại trong cửa sổ, user bị khoá thì từ chối
+    @Test
+    void validate_ShouldRevalidateOldTokensOncePerWindow() {
+        User user = new User();
+        user.setId(2L);
+        user.setUsername("user2");
+        user.setUserStatus(true);
+        Role role = new Role();
+        role.setRolename(ERole.ROLE_ADMIN);
+        Set<Role> roles = new HashSet<>();
+        roles.add(role);
+        user.setListRoles(roles);
+        when(userRepository.findById(2L)).thenReturn(Optional.of(user));
+
+        CustomUserDetails first = tokenValidationService.validate(fromClaims(2L, true), minutesAgo(60));
+        CustomUserDetails second = tokenValidationService.validate(fromClaims(2L, true), minutesAgo(60));
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals("ROLE_ADMIN", first.getAuthorities().iterator().next().getAuthority());
+        verify(userRepository, times(1)).findById(2L);
+
+        user.setUserStatus(false);
+        tokenValidationService.revoke(2L);
+        assertNull(tokenValidationService.validate(fromClaims(2L, true), minutesAgo(60)));
+        verify(userRepository, times(1)).findById(2L);
+    }
+}
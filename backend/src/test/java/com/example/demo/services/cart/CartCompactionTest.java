@@ -0,0 +1,92 @@
+package com.example.demo.services.cart;
+
+import com.example.demo.entities.CartItem;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.entities.User;
+import com.example.demo.repositories.CartItemRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.SizeRepository;
+import com.example.demo.repositories.UserRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// DDL trong H2 tự commit nên test không chạy trong transaction rollback được
+@DataJpaTest(properties = "demo.cart.compaction.enabled=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ CartCompaction.class, CartStore.class, CartSummaryCache.class })
+class CartCompactionTest {
+
+    @Autowired
+    private CartCompaction cartCompaction;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SizeRepository sizeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // SI076: Kiểm tra gộp dòng giỏ trùng từ trước khi có khoá unique: dòng id nhỏ nhất giữ tổng số lượng,
+    // dòng khác size giữ nguyên, khoá unique được tạo lại và chặn chèn trùng về sau
+    @Test
+    void testCompactMergesDuplicatesAndRestoresUniqueKey() {
+        User user = new User();
+        user.setUsername("compactuser");
+        user.setPassword("password");
+        user.setEmail("compactuser@example.com");
+        user.setUserStatus(true);
+        user.setProviderId("local");
+        userRepository.save(user);
+        Product product = new Product();
+        product.setName("Áo thun");
+        product.setMaterials("Cotton");
+        product.setInstruction("Giặt máy");
+        product.setPrice(100L);
+        productRepository.save(product);
+        Size sizeM = new Size();
+        sizeM.setName("M");
+        sizeRepository.save(sizeM);
+        Size sizeL = new Size();
+        sizeL.setName("L");
+        sizeRepository.save(sizeL);
+
+        // mô phỏng DB cũ: chưa có khoá unique, mỗi lần bấm "thêm vào giỏ" sinh một dòng
+        jdbcTemplate.execute("ALTER TABLE cart_item DROP CONSTRAINT uk_cart_item_user_product_size");
+        String insert = "INSERT INTO cart_item (user_id, product_id, size_id, quantity, version) VALUES (?, ?, ?, ?, 0)";
+        jdbcTemplate.update(insert, user.getId(), product.getId(), sizeM.getSizeId(), 1);
+        jdbcTemplate.update(insert, user.getId(), product.getId(), sizeM.getSizeId(), 2);
+        jdbcTemplate.update(insert, user.getId(), product.getId(), sizeM.getSizeId(), 4);
+        jdbcTemplate.update(insert, user.getId(), product.getId(), sizeL.getSizeId(), 1);
+
+        assertThat(cartCompaction.compact()).isEqualTo(1);
+
+        List<CartItem> items = cartItemRepository.findAllByUserId(user.getId());
+        assertThat(items).hasSize(2);
+        assertThat(items).filteredOn(item -> item.getSize().getSizeId().equals(sizeM.getSizeId()))
+                .singleElement().satisfies(item -> assertThat(item.getQuantity()).isEqualTo(7));
+        assertThat(cartCompaction.compact()).isZero();
+        assertThatThrownBy(() -> jdbcTemplate.update(insert, user.getId(), product.getId(), sizeM.getSizeId(), 1))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+}
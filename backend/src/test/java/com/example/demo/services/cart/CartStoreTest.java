@@ -0,0 +1,187 @@
+package com.example.demo.services.cart;
+
+import com.example.demo.entities.CartItem;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.repositories.CartItemRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class CartStoreTest {
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cartStore = new CartStore(cartItemRepository, transactionManager);
+        ReflectionTestUtils.setField(cartStore, "shardCount", 4);
+        ReflectionTestUtils.setField(cartStore, "maxUsersPerShard", 100);
+        ReflectionTestUtils.setField(cartStore, "flushBatchSize", 500);
+        cartStore.init();
+    }
+
+    private static CartItem cartItem(long id, long productId, int quantity) {
+        Product product = new Product();
+        product.setId(productId);
+        CartItem cartItem = new CartItem();
+        cartItem.setId(id);
+        cartItem.setProduct(product);
+        cartItem.setQuantity(quantity);
+        return cartItem;
+    }
+
+    private static Size size(long id) {
+        Size size = new Size();
+        size.setSizeId(id);
+        return size;
+    }
+
+    // SI074: Kiểm tra giỏ chỉ nạp từ DB một lần, nhiều lần sửa cùng một dòng gộp thành một UPDATE, xoá ghi bằng một DELETE
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReadsFromMemoryAndCoalescesWrites() {
+        when(cartItemRepository.findAllByUserId(1L))
+                .thenReturn(new ArrayList<>(List.of(cartItem(10L, 7L, 1), cartItem(11L, 8L, 1))));
+
+        assertEquals(2, cartStore.items(1L).size());
+        cartStore.update(1L, 10L, 2, size(1L));
+        cartStore.update(1L, 10L, 3, size(2L));
+        assertTrue(cartStore.remove(1L, 11L));
+        assertNull(cartStore.update(1L, 99L, 1, size(1L)));
+
+        List<CartItem> items = cartStore.items(1L);
+        assertEquals(1, items.size());
+        assertEquals(3, items.get(0).getQuantity());
+        verify(cartItemRepository, times(1)).findAllByUserId(1L);
+        verify(cartItemRepository, never()).updateAll(anyList());
+
+        cartStore.flush();
+
+        ArgumentCaptor<List<CartItem>> updates = ArgumentCaptor.forClass(List.class);
+        verify(cartItemRepository).updateAll(updates.capture());
+        assertEquals(1, updates.getValue().size());
+        assertEquals(3, updates.getValue().get(0).getQuantity());
+        assertEquals(2L, updates.getValue().get(0).getSize().getSizeId());
+        ArgumentCaptor<Collection<Long>> deletes = ArgumentCaptor.forClass(Collection.class);
+        verify(cartItemRepository).deleteAllByIdIn(deletes.capture());
+        assertEquals(List.of(11L), new ArrayList<>(deletes.getValue()));
+
+        // không còn gì chờ ghi thì lần flush sau không chạm DB
+        cartStore.flush();
+        verify(cartItemRepository, times(1)).updateAll(anyList());
+        verify(cartItemRepository, times(1)).deleteAllByIdIn(any());
+    }
+
+    // SI075: Kiểm tra ghi lỗi thì giữ lại thay đổi (checkout nhận lỗi), nạp lại giỏ vẫn áp thay đổi chưa ghi,
+    // nhiều user sửa đồng thời đều được ghi đủ
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedFlushKeepsPendingChanges() throws Exception {
+        when(cartItemRepository.findAllByUserId(1L)).thenAnswer(invocation -> List.of(cartItem(10L, 7L, 1)));
+        cartStore.update(1L, 10L, 5, size(1L));
+        doThrow(new DataAccessResourceFailureException("down")).when(cartItemRepository).updateAll(anyList());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> cartStore.flush(1L));
+
+        // đổi sản phẩm thì giỏ được nạp lại từ DB, số lượng chưa ghi vẫn phải còn
+        cartStore.onProductChanged(ProductChangedEvent.deleted(7L));
+        assertEquals(5, cartStore.items(1L).get(0).getQuantity());
+        verify(cartItemRepository, times(2)).findAllByUserId(1L);
+
+        doNothing().when(cartItemRepository).updateAll(anyList());
+        for (long userId = 2; userId <= 50; userId++) {
+            final long id = userId * 100;
+            when(cartItemRepository.findAllByUserId(userId)).thenAnswer(invocation -> List.of(cartItem(id, 7L, 1)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (long userId = 2; userId <= 50; userId++) {
+            final long user = userId;
+            executor.submit(() -> cartStore.update(user, user * 100, 2, size(1L)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        cartStore.flush();
+
+        ArgumentCaptor<List<CartItem>> updates = ArgumentCaptor.forClass(List.class);
+        verify(cartItemRepository, times(2)).updateAll(updates.capture());
+        assertEquals(50, updates.getValue().size());
+        assertEquals(50, cartStore.size());
+        cartStore.flush();
+        verify(cartItemRepository, times(2)).updateAll(anyList());
+    }
+
+    // SI078: Kiểm tra thêm sản phẩm đã có dòng thì cộng vào dòng đó, đổi size trùng dòng khác trong giỏ trả 409
+    @Test
+    void testAddQuantityAndSizeConflict() {
+        CartItem sizeM = cartItem(10L, 7L, 1);
+        sizeM.setSize(size(1L));
+        CartItem sizeL = cartItem(11L, 7L, 1);
+        sizeL.setSize(size(2L));
+        when(cartItemRepository.findAllByUserId(1L)).thenReturn(List.of(sizeM, sizeL));
+
+        assertEquals(3, cartStore.addQuantity(1L, 7L, 1L, 2).getQuantity());
+        assertNull(cartStore.addQuantity(1L, 7L, 3L, 2));
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                () -> cartStore.update(1L, 10L, 1, size(2L)));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatus());
+        assertEquals(3, cartStore.find(1L, 7L, 1L).getQuantity());
+    }
+
+    // SI087: Kiểm tra một giỏ không ghi được (lỗi không phải do DB tạm thời) không chặn các giỏ khác: ghi lại từng giỏ,
+    // bỏ thay đổi của giỏ lỗi và nạp lại giỏ đó từ DB
+    @Test
+    void testFlushIsolatesFailingCart() {
+        when(cartItemRepository.findAllByUserId(1L)).thenAnswer(invocation -> List.of(cartItem(10L, 7L, 1)));
+        when(cartItemRepository.findAllByUserId(2L)).thenAnswer(invocation -> List.of(cartItem(20L, 7L, 1)));
+        doAnswer(invocation -> {
+            List<CartItem> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(cartItem -> cartItem.getId() == 10L)) {
+                throw new NullPointerException("quantity");
+            }
+            return null;
+        }).when(cartItemRepository).updateAll(anyList());
+        cartStore.update(1L, 10L, 5, size(1L));
+        cartStore.update(2L, 20L, 3, size(1L));
+
+        cartStore.flush();
+
+        // cả lô lỗi, rồi ghi lại từng giỏ: giỏ 1 vẫn lỗi, giỏ 2 xuống DB
+        verify(cartItemRepository, times(3)).updateAll(anyList());
+        verify(cartItemRepository).updateAll(argThat(batch -> batch.size() == 1 && batch.get(0).getId() == 20L));
+        assertEquals(1, cartStore.items(1L).get(0).getQuantity());
+
+        cartStore.flush();
+        verify(cartItemRepository, times(3)).updateAll(anyList());
+    }
+}
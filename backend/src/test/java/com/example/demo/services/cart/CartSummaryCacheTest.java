@@ -0,0 +1,66 @@
+package com.example.demo.services.cart;
+
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.models.CartSummary;
+import com.example.demo.models.CartSummaryLine;
+import com.example.demo.repositories.CartItemRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CartSummaryCacheTest {
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private CartStore cartStore;
+
+    private CartSummaryCache cartSummaryCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cartSummaryCache = new CartSummaryCache(cartItemRepository, cartStore, 100, 30);
+    }
+
+    private static CartSummaryLine line(long id, long productId, long price, int quantity) {
+        return new CartSummaryLine(id, productId, "Áo " + productId, null, 1L, "M", price, quantity);
+    }
+
+    // SI081: Kiểm tra tổng giỏ chỉ truy vấn lần đầu (sau khi ghi phần chờ ghi của CartStore), sửa giỏ thì tính lại,
+    // đổi sản phẩm chỉ bỏ tổng của các giỏ có sản phẩm đó
+    @Test
+    void testSummaryCachedUntilCartOrProductChanges() {
+        when(cartItemRepository.findSummaryLines(1L)).thenReturn(List.of(line(10L, 7L, 100L, 2), line(11L, 8L, 50L, 1)));
+        when(cartItemRepository.findSummaryLines(2L)).thenReturn(List.of(line(20L, 9L, 30L, 1)));
+
+        CartSummary summary = cartSummaryCache.get(1L);
+        assertEquals(3, summary.getItemCount());
+        assertEquals(250L, summary.getTotal());
+        assertSame(summary, cartSummaryCache.get(1L));
+        InOrder inOrder = inOrder(cartStore, cartItemRepository);
+        inOrder.verify(cartStore).flush(1L);
+        inOrder.verify(cartItemRepository).findSummaryLines(1L);
+        verify(cartItemRepository, times(1)).findSummaryLines(1L);
+
+        cartSummaryCache.invalidate(1L);
+        when(cartItemRepository.findSummaryLines(1L)).thenReturn(List.of(line(10L, 7L, 100L, 1)));
+        assertEquals(100L, cartSummaryCache.get(1L).getTotal());
+
+        cartSummaryCache.get(2L);
+        cartSummaryCache.onProductChanged(ProductChangedEvent.deleted(7L));
+        cartSummaryCache.get(1L);
+        cartSummaryCache.get(2L);
+        verify(cartItemRepository, times(3)).findSummaryLines(1L);
+        verify(cartItemRepository, times(1)).findSummaryLines(2L);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo.services.cart;
+
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.entities.User;
+import com.example.demo.repositories.CartItemRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.SizeRepository;
+import com.example.demo.repositories.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+class CartSweeperTest {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SizeRepository sizeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("password");
+        user.setEmail(username + "@example.com");
+        user.setUserStatus(true);
+        user.setProviderId("local");
+        return userRepository.save(user);
+    }
+
+    private Size createSize(String name) {
+        Size size = new Size();
+        size.setName(name);
+        return sizeRepository.save(size);
+    }
+
+    private void insertCartItem(User user, Product product, Size size, LocalDateTime updatedAt) {
+        jdbcTemplate.update("INSERT INTO cart_item (user_id, product_id, size_id, quantity, updated_at, version)"
+                + " VALUES (?, ?, ?, 1, ?, 0)", user.getId(), product.getId(), size.getSizeId(),
+                updatedAt == null ? null : Timestamp.valueOf(updatedAt));
+    }
+
+    // SI082: Kiểm tra dọn giỏ bỏ quên theo từng khoảng id: giỏ không dòng nào được sửa trong 30 ngày bị xoá hết,
+    // giỏ còn một dòng mới sửa được giữ nguyên, dòng chưa có updated_at được đóng dấu thay vì bị xoá; số liệu đúng
+    @Test
+    void testSweepDeletesOnlyAbandonedCarts() {
+        User abandoned = createUser("abandoned");
+        User active = createUser("active");
+        User legacy = createUser("legacy");
+        Product product = new Product();
+        product.setName("Áo thun");
+        product.setMaterials("Cotton");
+        product.setInstruction("Giặt máy");
+        product.setPrice(100L);
+        productRepository.save(product);
+        Size sizeM = createSize("M");
+        Size sizeL = createSize("L");
+        entityManager.flush();
+
+        LocalDateTime old = LocalDateTime.now().minusDays(40);
+        insertCartItem(abandoned, product, sizeM, old);
+        insertCartItem(active, product, sizeM, old);
+        insertCartItem(abandoned, product, sizeL, old.minusDays(5));
+        insertCartItem(active, product, sizeL, LocalDateTime.now().minusDays(1));
+        insertCartItem(legacy, product, sizeM, null);
+
+        CartStore cartStore = mock(CartStore.class);
+        CartSummaryCache cartSummaryCache = mock(CartSummaryCache.class);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CartSweeper cartSweeper = new CartSweeper(cartItemRepository, cartStore, cartSummaryCache, transactionManager,
+                meterRegistry);
+        ReflectionTestUtils.setField(cartSweeper, "retentionDays", 30);
+        ReflectionTestUtils.setField(cartSweeper, "chunkSize", 2);
+        ReflectionTestUtils.setField(cartSweeper, "pauseMs", 0L);
+
+        assertThat(cartSweeper.sweep()).isEqualTo(2);
+
+        assertThat(cartItemRepository.findAllByUserId(abandoned.getId())).isEmpty();
+        assertThat(cartItemRepository.findAllByUserId(active.getId())).hasSize(2);
+        assertThat(cartItemRepository.findAllByUserId(legacy.getId())).singleElement()
+                .satisfies(item -> assertThat(item.getUpdatedAt()).isNotNull());
+        verify(cartStore).clear(abandoned.getId());
+        verify(cartSummaryCache).invalidate(abandoned.getId());
+        verify(cartStore, never()).clear(active.getId());
+        assertThat(meterRegistry.get("demo.cart.sweeper.deleted.rows").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("demo.cart.sweeper.last.deleted.carts").gauge().value()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("demo.cart.sweeper.last.chunks").gauge().value()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("demo.cart.sweeper.duration").timer().count()).isEqualTo(1);
+
+        // chạy lại không còn gì để xoá
+        assertThat(cartSweeper.sweep()).isZero();
+    }
+}
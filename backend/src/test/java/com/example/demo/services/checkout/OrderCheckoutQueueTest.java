@@ -0,0 +1,135 @@
+package com.example.demo.services.checkout;
+
+import com.example.demo.exception.EmptyCartException;
+import com.example.demo.models.OrderDTO;
+import com.example.demo.services.OrderService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class OrderCheckoutQueueTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private OrderCheckoutQueue orderCheckoutQueue;
+
+    private final OrderDTO orderDTO = new OrderDTO();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderCheckoutQueue = new OrderCheckoutQueue(orderService, transactionManager);
+        ReflectionTestUtils.setField(orderCheckoutQueue, "entityManager", entityManager);
+        ReflectionTestUtils.setField(orderCheckoutQueue, "enabled", true);
+        ReflectionTestUtils.setField(orderCheckoutQueue, "queueCapacity", 100);
+        ReflectionTestUtils.setField(orderCheckoutQueue, "batchSize", 10);
+        ReflectionTestUtils.setField(orderCheckoutQueue, "lingerMs", 500L);
+        ReflectionTestUtils.setField(orderCheckoutQueue, "waitTimeoutMs", 5000L);
+        // id đơn hàng = số thứ tự của user đang đăng nhập trên luồng ghi
+        when(orderService.createOrderFromCart(any(OrderDTO.class), isNull())).thenAnswer(invocation -> {
+            String user = (String) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            if (user.equals("user-2")) {
+                throw new EmptyCartException();
+            }
+            return Long.valueOf(user.substring("user-".length()));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderCheckoutQueue.stop();
+        SecurityContextHolder.clearContext();
+    }
+
+    private CompletableFuture<Long> enqueueAs(int user) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken("user-" + user, null));
+        return orderCheckoutQueue.enqueue(orderDTO, null);
+    }
+
+    // SI064: Kiểm tra các checkout đến cùng lúc được gom vào một transaction, mỗi người nhận đúng id đơn của mình
+    @Test
+    void testEnqueue_BatchCommittedInOneTransaction() throws Exception {
+        orderCheckoutQueue.start();
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+        for (int user : new int[] { 1, 3, 4, 5 }) {
+            results.add(enqueueAs(user));
+        }
+
+        assertEquals(1L, results.get(0).get(5, TimeUnit.SECONDS));
+        assertEquals(3L, results.get(1).get(5, TimeUnit.SECONDS));
+        assertEquals(4L, results.get(2).get(5, TimeUnit.SECONDS));
+        assertEquals(5L, results.get(3).get(5, TimeUnit.SECONDS));
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(orderService, times(4)).createOrderFromCart(any(OrderDTO.class), isNull());
+    }
+
+    // SI065: Kiểm tra một đơn trong lô lỗi thì lô rollback, các đơn còn lại vẫn được tạo, lỗi chỉ trả về người gửi đơn đó
+    @Test
+    void testEnqueue_FailedCheckoutDoesNotFailBatch() throws Exception {
+        orderCheckoutQueue.start();
+        CompletableFuture<Long> first = enqueueAs(1);
+        CompletableFuture<Long> failed = enqueueAs(2);
+        CompletableFuture<Long> last = enqueueAs(3);
+
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS));
+        assertEquals(3L, last.get(5, TimeUnit.SECONDS));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof EmptyCartException);
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    // SI066: Kiểm tra hàng đợi đầy thì từ chối ngay với 429 thay vì để request chờ
+    @Test
+    void testEnqueue_QueueFullReturns429() throws Exception {
+        ReflectionTestUtils.setField(orderCheckoutQueue, "queueCapacity", 1);
+        ReflectionTestUtils.setField(orderCheckoutQueue, "batchSize", 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrderFromCart(any(OrderDTO.class), isNull())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 1L;
+        });
+        orderCheckoutQueue.start();
+
+        CompletableFuture<Long> inProgress = enqueueAs(1);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Long> queued = enqueueAs(3);
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> enqueueAs(4));
+        assertEquals(429, exception.getRawStatusCode());
+
+        release.countDown();
+        assertEquals(1L, inProgress.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, queued.get(5, TimeUnit.SECONDS));
+    }
+}
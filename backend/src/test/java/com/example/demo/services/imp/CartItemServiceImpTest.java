@@ -5,6 +5,7 @@ import com.example.demo.entities.Product;
 import com.example.demo.entities.Size;
 import com.example.demo.entities.User;
 import com.example.demo.models.CartItemDTO;
+import com.example.demo.payload.request.CartItemOperation;
 import com.example.demo.repositories.CartItemRepository;
 import com.example.demo.repositories.UserRepository;
 import com.example.demo.repositories.ProductRepository;
@@ -13,16 +14,28 @@ import com.example.demo.security.AuthService;
 import com.example.demo.services.Imp.CartItemServiceImp;
 import com.example.demo.services.Imp.ProductServiceImp;
 import com.example.demo.services.Imp.SizeServiceImp;
+import com.example.demo.services.cart.CartStore;
+import com.example.demo.services.cart.CartSummaryCache;
+import com.example.demo.services.inventory.StockTable;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 class CartItemServiceImpTest {
@@ -53,6 +66,15 @@ class CartItemServiceImpTest {
 
     private CartItemServiceImp cartItemService;
 
+    @Mock
+    private StockTable stockTable;
+
+    @Mock
+    private CartStore cartStore;
+
+    @Mock
+    private CartSummaryCache cartSummaryCache;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -65,6 +87,10 @@ class CartItemServiceImpTest {
         ReflectionTestUtils.setField(cartItemService, "productService", productService);
         ReflectionTestUtils.setField(cartItemService, "sizeService", sizeService);
         ReflectionTestUtils.setField(cartItemService, "modelMapper", modelMapper);
+        ReflectionTestUtils.setField(cartItemService, "stockTable", stockTable);
+        ReflectionTestUtils.setField(cartItemService, "cartStore", cartStore);
+        ReflectionTestUtils.setField(cartItemService, "cartSummaryCache", cartSummaryCache);
+        ReflectionTestUtils.setField(cartItemService, "maxBulkOperations", 100);
     }
 
     // SI001: Kiểm tra việc tạo mới một mục giỏ hàng thành công - Add to Cart
@@ -103,8 +129,9 @@ class CartItemServiceImpTest {
         when(productService.get(1L)).thenReturn(mockProduct);
         when(sizeService.get(1L)).thenReturn(mockSize);
 
-        // Giả lập việc lưu cart item vào repository
-        when(cartItemRepository.save(any(CartItem.class))).thenReturn(mockCartItem);
+        // Giả lập upsert dòng giỏ vào repository (chưa có dòng này trong giỏ)
+        when(cartItemRepository.addQuantity(1L, 1L, 1L, 2)).thenReturn(1L);
+        when(cartItemRepository.findById(1L)).thenReturn(Optional.of(mockCartItem));
 
         // Gọi phương thức cần test
         CartItem createdCartItem = cartItemService.create(cartItemDTO);
@@ -114,8 +141,8 @@ class CartItemServiceImpTest {
         assertEquals(1L, createdCartItem.getId());
         assertEquals(2, createdCartItem.getQuantity());
 
-        // Kiểm tra phương thức save đã được gọi đúng 1 lần
-        verify(cartItemRepository, times(1)).save(any(CartItem.class));
+        // Kiểm tra phương thức upsert đã được gọi đúng 1 lần
+        verify(cartItemRepository, times(1)).addQuantity(1L, 1L, 1L, 2);
     }
 
     // SI002: Kiểm tra việc tạo mới một mục giỏ hàng với sản phẩm không tồn tại
@@ -183,4 +210,149 @@ class CartItemServiceImpTest {
         // Đảm bảo không lưu gì vào repository
         verify(cartItemRepository, never()).save(any(CartItem.class));
     }
+
+    // SI077: Kiểm tra thêm sản phẩm đã có trong giỏ (cùng size): cộng số lượng trong CartStore, không ghi DB ngay,
+    // kiểm tra tồn kho theo tổng số lượng sau khi cộng
+    @Test
+    void testCreateCartItem_MergesExistingLine() {
+        CartItemDTO cartItemDTO = new CartItemDTO();
+        cartItemDTO.setProductId(1L);
+        cartItemDTO.setSize(1L);
+        cartItemDTO.setQuantity(2);
+
+        User mockUser = new User();
+        mockUser.setId(1L);
+        Product mockProduct = new Product();
+        mockProduct.setId(1L);
+        Size mockSize = new Size();
+        mockSize.setSizeId(1L);
+        CartItem existing = new CartItem();
+        existing.setId(5L);
+        existing.setQuantity(3);
+        CartItem merged = new CartItem();
+        merged.setId(5L);
+        merged.setQuantity(5);
+
+        when(authService.getCurrentUser()).thenReturn(mockUser);
+        when(productService.get(1L)).thenReturn(mockProduct);
+        when(sizeService.get(1L)).thenReturn(mockSize);
+        when(cartStore.find(1L, 1L, 1L)).thenReturn(existing);
+        when(cartStore.addQuantity(1L, 1L, 1L, 2)).thenReturn(merged);
+
+        CartItem result = cartItemService.create(cartItemDTO);
+
+        assertEquals(5L, result.getId());
+        assertEquals(5, result.getQuantity());
+        verify(stockTable).requireAvailable(1L, 1L, 5);
+        verify(cartItemRepository, never()).addQuantity(any(), any(), any(), anyInt());
+        verify(cartItemRepository, never()).save(any(CartItem.class));
+    }
+
+    private static CartItem line(long id, Product product, Size size, int quantity) {
+        CartItem cartItem = new CartItem();
+        cartItem.setId(id);
+        cartItem.setProduct(product);
+        cartItem.setSize(size);
+        cartItem.setQuantity(quantity);
+        return cartItem;
+    }
+
+    private static CartItemOperation operation(CartItemOperation.Type type, Long id, Long productId, Integer quantity,
+            Long size) {
+        CartItemOperation operation = new CartItemOperation();
+        operation.setType(type);
+        operation.setId(id);
+        operation.setProductId(productId);
+        operation.setQuantity(quantity);
+        operation.setSize(size);
+        return operation;
+    }
+
+    // SI079: Kiểm tra PATCH giỏ hàng: sửa, xoá, cộng vào dòng có sẵn và thêm dòng mới được ghi theo lô trong một lần,
+    // trả về giỏ sau khi áp, giỏ trong bộ nhớ được nạp lại
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApplyAll() {
+        Product shirt = new Product();
+        shirt.setId(1L);
+        Product jeans = new Product();
+        jeans.setId(2L);
+        Size sizeM = new Size();
+        sizeM.setSizeId(1L);
+        Size sizeL = new Size();
+        sizeL.setSizeId(2L);
+        when(authService.getCurrentUserId()).thenReturn(9L);
+        when(cartStore.items(9L)).thenReturn(List.of(line(10L, shirt, sizeM, 1), line(11L, jeans, sizeM, 1)));
+        when(productService.get(1L)).thenReturn(shirt);
+        when(productService.get(2L)).thenReturn(jeans);
+        when(sizeService.get(1L)).thenReturn(sizeM);
+        when(sizeService.get(2L)).thenReturn(sizeL);
+        when(cartItemRepository.addQuantity(9L, 2L, 2L, 3)).thenReturn(12L);
+
+        List<CartItem> cart = cartItemService.applyAll(List.of(
+                operation(CartItemOperation.Type.UPDATE, 10L, null, 4, null),
+                operation(CartItemOperation.Type.ADD, null, 1L, 2, 1L),
+                operation(CartItemOperation.Type.REMOVE, 11L, null, null, null),
+                operation(CartItemOperation.Type.ADD, null, 2L, 1, 2L),
+                operation(CartItemOperation.Type.ADD, null, 2L, 2, 2L)));
+
+        assertEquals(2, cart.size());
+        assertEquals(10L, cart.get(0).getId());
+        assertEquals(6, cart.get(0).getQuantity());
+        assertEquals(12L, cart.get(1).getId());
+        assertEquals(3, cart.get(1).getQuantity());
+        InOrder inOrder = inOrder(cartStore, cartItemRepository);
+        inOrder.verify(cartStore).flush(9L);
+        inOrder.verify(cartItemRepository).deleteAllByIdIn(Set.of(11L));
+        ArgumentCaptor<List<CartItem>> updates = ArgumentCaptor.forClass(List.class);
+        inOrder.verify(cartItemRepository).updateAll(updates.capture());
+        inOrder.verify(cartItemRepository).addQuantity(9L, 2L, 2L, 3);
+        inOrder.verify(cartStore).clear(9L);
+        assertEquals(1, updates.getValue().size());
+        assertEquals(6, updates.getValue().get(0).getQuantity());
+        verify(stockTable).requireAvailable(1L, 1L, 6);
+        verify(stockTable).requireAvailable(2L, 2L, 3);
+    }
+
+    // SI080: Kiểm tra PATCH có một thao tác sai (sửa dòng không có trong giỏ) thì không ghi thao tác nào
+    @Test
+    void testApplyAll_InvalidOperationWritesNothing() {
+        Product shirt = new Product();
+        shirt.setId(1L);
+        Size sizeM = new Size();
+        sizeM.setSizeId(1L);
+        when(authService.getCurrentUserId()).thenReturn(9L);
+        when(cartStore.items(9L)).thenReturn(List.of(line(10L, shirt, sizeM, 1)));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> cartItemService.applyAll(List.of(
+                        operation(CartItemOperation.Type.REMOVE, 10L, null, null, null),
+                        operation(CartItemOperation.Type.UPDATE, 99L, null, 2, null))));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+        verify(cartItemRepository, never()).deleteAllByIdIn(any());
+        verify(cartItemRepository, never()).updateAll(any());
+        verify(cartStore, never()).clear(any());
+    }
+
+    // SI086: Kiểm tra thêm/sửa dòng giỏ thiếu số lượng hoặc số lượng < 1 trả 400, không chạm CartStore hay DB
+    @Test
+    void testCreateAndUpdate_RejectNonPositiveQuantity() {
+        when(authService.getCurrentUserId()).thenReturn(9L);
+        for (Integer quantity : new Integer[] {null, 0, -5}) {
+            CartItemDTO cartItemDTO = new CartItemDTO();
+            cartItemDTO.setProductId(1L);
+            cartItemDTO.setSize(1L);
+            cartItemDTO.setQuantity(quantity);
+
+            ResponseStatusException created = assertThrows(ResponseStatusException.class,
+                    () -> cartItemService.create(cartItemDTO));
+            ResponseStatusException updated = assertThrows(ResponseStatusException.class,
+                    () -> cartItemService.update(10L, cartItemDTO));
+
+            assertEquals(HttpStatus.BAD_REQUEST, created.getStatus());
+            assertEquals(HttpStatus.BAD_REQUEST, updated.getStatus());
+        }
+        verifyNoInteractions(cartStore, cartItemRepository, stockTable);
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.demo.services.imp;
 
+import com.example.demo.caching.CatalogVersions;
 import com.example.demo.entities.Comment;
 import com.example.demo.entities.Post;
 import com.example.demo.entities.User;
@@ -36,6 +37,9 @@ class CommentServiceImpTest {
     @Mock
     private PostService postService;
 
+    @Mock
+    private CatalogVersions catalogVersions;
+
     @InjectMocks
     private CommentServiceImp commentService;
 
@@ -0,0 +1,98 @@
+package com.example.demo.services.imp;
+
+import com.example.demo.models.OrderExportRow;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.services.Imp.OrderExportServiceImp;
+import com.example.demo.services.export.ExportFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderExportServiceImpTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private OrderExportServiceImp orderExportService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderExportService = new OrderExportServiceImp(orderRepository);
+        ReflectionTestUtils.setField(orderExportService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(orderExportService, "flushRows", 1);
+
+        OrderExportRow item = new OrderExportRow();
+        item.setOrderId(1L);
+        item.setCreatedAt(LocalDateTime.of(2024, 5, 1, 10, 30));
+        item.setStatus("Đã giao");
+        item.setFirstName("Nguyễn");
+        item.setLastName("An");
+        item.setAddress("12 Lê Lợi, Quận 1");
+        item.setOrderTotal(300000L);
+        item.setItemId(10L);
+        item.setProductId(5L);
+        item.setProductName("Áo thun");
+        item.setSize("M");
+        item.setPrice(150000L);
+        item.setQuantity(2);
+        OrderExportRow empty = new OrderExportRow();
+        empty.setOrderId(2L);
+        empty.setOrderTotal(0L);
+        doAnswer(invocation -> {
+            Consumer<OrderExportRow> consumer = invocation.getArgument(2);
+            consumer.accept(item);
+            consumer.accept(empty);
+            return null;
+        }).when(orderRepository).streamExportRows(any(), any(), any());
+    }
+
+    // SI072: Kiểm tra xuất đơn hàng: NDJSON mỗi dòng hàng một object kèm thành tiền, CSV có header và quote địa chỉ
+    // chứa dấu phẩy, khoảng ngày ngược thì 400
+    @Test
+    void testExportOrders_NdjsonCsvAndRange() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 5, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 6, 1, 0, 0);
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+
+        long rows = orderExportService.exportOrders(ExportFormat.NDJSON, from, to, ndjson);
+        orderExportService.exportOrders(ExportFormat.CSV, null, null, csv);
+
+        assertEquals(2, rows);
+        verify(orderRepository).streamExportRows(eq(from), eq(to), any());
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(300000L, first.get("lineTotal").asLong());
+        assertEquals("2024-05-01T10:30", first.get("createdAt").asText());
+        assertTrue(objectMapper.readTree(lines[1]).get("lineTotal").isNull());
+        String[] csvLines = csv.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, csvLines.length);
+        assertTrue(csvLines[0].startsWith("﻿orderId,createdAt,"));
+        assertTrue(csvLines[1].contains(",\"12 Lê Lợi, Quận 1\",300000,10,5,Áo thun,M,150000,2,300000"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> orderExportService.exportOrders(ExportFormat.CSV, to, from, new ByteArrayOutputStream()));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.demo.services.imp;
 
 import com.example.demo.entities.*;
+import com.example.demo.events.OrderChangedEvent;
 import com.example.demo.models.OrderDTO;
+import com.example.demo.models.OrderListItem;
+import com.example.demo.models.OrderSummary;
+import com.example.demo.payload.request.OrderFilterRequest;
+import com.example.demo.payload.response.CursorPage;
+import com.example.demo.payload.response.OffsetPage;
 import com.example.demo.repositories.OrderItemRepository;
 import com.example.demo.repositories.OrderRepository;
 import com.example.demo.repositories.OrderStatusRepository;
@@ -11,19 +17,29 @@ import com.example.demo.services.SizeService;
 import com.example.demo.services.Imp.CartItemServiceImp;
 import com.example.demo.services.Imp.OrderServiceImp;
 import com.example.demo.services.Imp.UserServiceImp;
+import com.example.demo.services.inventory.StockTable;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class OrderServiceImpTest {
@@ -55,6 +71,12 @@ class OrderServiceImpTest {
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private StockTable stockTable;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private OrderServiceImp orderService;
 
     @BeforeEach
@@ -71,6 +93,8 @@ class OrderServiceImpTest {
         ReflectionTestUtils.setField(orderService, "userService", userService);
         ReflectionTestUtils.setField(orderService, "sizeService", sizeService);
         ReflectionTestUtils.setField(orderService, "modelMapper", modelMapper);
+        ReflectionTestUtils.setField(orderService, "stockTable", stockTable);
+        ReflectionTestUtils.setField(orderService, "eventPublisher", eventPublisher);
 
         // Mặc định giả lập người dùng đã đăng nhập
         User mockUser = new User();
@@ -116,22 +140,10 @@ class OrderServiceImpTest {
 
         List<CartItem> cartItems = List.of(cartItem1, cartItem2);
 
-        // Tạo 2 order item tương ứng với cart item
-        OrderItem orderItem1 = new OrderItem();
-        orderItem1.setName("Product 1");
-        orderItem1.setPrice(100L);
-        orderItem1.setQuantity(2);
-
-        OrderItem orderItem2 = new OrderItem();
-        orderItem2.setName("Product 2");
-        orderItem2.setPrice(200L);
-        orderItem2.setQuantity(1);
-
         // Giả lập gọi đến các repository
         when(orderStatusRepository.findById(1L)).thenReturn(Optional.of(mockOrderStatus));
         when(orderRepository.save(any(Order.class))).thenReturn(mockOrder);
-        when(cartItemService.findAllByUserId()).thenReturn(cartItems);
-        when(orderItemRepository.save(any(OrderItem.class))).thenReturn(orderItem1, orderItem2);
+        when(cartItemService.findAllForCheckout()).thenReturn(cartItems);
 
         // Gọi hàm thực hiện đặt hàng từ giỏ
         Long orderId = orderService.createOrderFromCart(orderDTO);
@@ -142,8 +154,20 @@ class OrderServiceImpTest {
 
         // Đảm bảo các phương thức cần thiết được gọi
         verify(orderRepository, times(1)).save(any(Order.class));
-        verify(orderItemRepository, times(2)).save(any(OrderItem.class));
         verify(cartItemService, times(1)).deleteAllByUserId();
+        // thống kê bán hàng nhận sự kiện đơn mới
+        verify(eventPublisher, times(1)).publishEvent(any(OrderChangedEvent.class));
+
+        // Các order item được ghi bằng một lần insert theo batch, tổng tiền tính trước khi lưu đơn
+        ArgumentCaptor<List<OrderItem>> items = ArgumentCaptor.forClass(List.class);
+        verify(orderItemRepository, times(1)).insertAll(items.capture());
+        verify(orderItemRepository, never()).save(any(OrderItem.class));
+        assertEquals(2, items.getValue().size());
+        assertEquals("Product 1", items.getValue().get(0).getName());
+        assertEquals(mockOrder, items.getValue().get(1).getOrder());
+        ArgumentCaptor<Order> savedOrder = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(savedOrder.capture());
+        assertEquals(400L, savedOrder.getValue().getTotal());
     }
 
     // SI013: Kiểm tra tạo đơn hàng từ giỏ hàng không tồn tại
@@ -167,7 +191,7 @@ class OrderServiceImpTest {
         when(orderStatusRepository.findById(1L)).thenReturn(Optional.of(mockOrderStatus));
 
         // Giả lập người dùng có giỏ hàng rỗng
-        when(cartItemService.findAllByUserId()).thenReturn(List.of());
+        when(cartItemService.findAllForCheckout()).thenReturn(List.of());
 
         // Thực hiện test và kiểm tra ngoại lệ
         Exception exception = assertThrows(RuntimeException.class, () -> {
@@ -180,7 +204,7 @@ class OrderServiceImpTest {
         // Đảm bảo không có đơn hàng hay item nào được lưu
         verify(orderRepository, never()).save(any(Order.class));
         verify(orderItemRepository, never()).save(any(OrderItem.class));
-        verify(cartItemService, times(1)).findAllByUserId();
+        verify(cartItemService, times(1)).findAllForCheckout();
     }
 
     // SI014: Kiểm tra tạo đơn hàng từ giỏ hàng khi chưa đăng nhập
@@ -211,7 +235,119 @@ class OrderServiceImpTest {
         verify(authService, times(1)).getCurrentUser();
         verify(orderRepository, never()).save(any(Order.class));
         verify(orderItemRepository, never()).save(any(OrderItem.class));
-        verify(cartItemService, never()).findAllByUserId();
+        verify(cartItemService, never()).findAllForCheckout();
+    }
+
+    // SI067: Kiểm tra danh sách đơn hàng admin: giới hạn pageSize, sắp xếp kèm id, trang đầu chưa đầy thì không chạy câu đếm
+    @Test
+    void testFindAllByAdmin_PageSizeSortAndCount() {
+        ReflectionTestUtils.setField(orderService, "defaultAdminPageSize", 20);
+        ReflectionTestUtils.setField(orderService, "maxAdminPageSize", 100);
+        OrderListItem item = new OrderListItem(1L, "A", "B", "0123", "HN", 100L, 1L, "Pending", 1L, "a", null);
+        when(orderRepository.findListItems(any(OrderFilterRequest.class), any(Pageable.class)))
+                .thenReturn(List.of(item));
+        when(orderRepository.countListItems(any(OrderFilterRequest.class))).thenReturn(301L);
+
+        OrderFilterRequest filterRequest = new OrderFilterRequest();
+        filterRequest.setPageSize(1000);
+        filterRequest.setSort("total");
+        filterRequest.setDirection("asc");
+        OffsetPage<OrderListItem> firstPage = orderService.findAllByAdmin(filterRequest);
+        filterRequest.setPage(3);
+        OffsetPage<OrderListItem> laterPage = orderService.findAllByAdmin(filterRequest);
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(orderRepository, times(2)).findListItems(eq(filterRequest), pageable.capture());
+        assertEquals(100, pageable.getValue().getPageSize());
+        assertEquals(300L, pageable.getValue().getOffset());
+        assertEquals(Sort.by(Sort.Direction.ASC, "total").and(Sort.by(Sort.Direction.ASC, "id")),
+                pageable.getValue().getSort());
+        assertEquals(1L, firstPage.getTotal());
+        assertEquals(301L, laterPage.getTotal());
+        verify(orderRepository, times(1)).countListItems(filterRequest);
+
+        filterRequest.setSort("address");
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> orderService.findAllByAdmin(filterRequest));
+        assertEquals(400, exception.getRawStatusCode());
+    }
+
+    // SI070: Kiểm tra cập nhật đơn hàng với If-Match lệch version hiện tại thì trả 412 và không ghi gì
+    @Test
+    void testUpdate_StaleIfMatch() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setVersion(5L);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> orderService.update(1L, new OrderDTO(), 4L));
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatus());
+        verify(orderRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    // SI071: Kiểm tra chuyển trạng thái bị xung đột version thì đọc lại và thử lại, quá số lần thử thì trả lỗi
+    @Test
+    void testTransitionStatus_RetriesOnConflict() {
+        ReflectionTestUtils.setField(orderService, "statusRetryAttempts", 3);
+        ReflectionTestUtils.setField(orderService, "statusRetryBackoffMs", 0L);
+        OrderStatus pending = new OrderStatus();
+        pending.setId(1L);
+        OrderStatus shipped = new OrderStatus();
+        shipped.setId(2L);
+        when(orderStatusRepository.findById(2L)).thenReturn(Optional.of(shipped));
+        // mỗi lần đọc lại trả về một bản mới của đơn hàng
+        when(orderRepository.findById(1L)).thenAnswer(invocation -> {
+            Order order = new Order();
+            order.setId(1L);
+            order.setStatus(pending);
+            order.setCreatedAt(LocalDateTime.now());
+            order.setTotal(100L);
+            return Optional.of(order);
+        });
+        Order saved = new Order();
+        saved.setVersion(2L);
+        when(orderRepository.save(any(Order.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Order.class, 1L))
+                .thenReturn(saved);
+
+        assertSame(saved, orderService.transitionStatus(1L, 2L));
+        verify(orderRepository, times(2)).findById(1L);
+        verify(eventPublisher, times(1)).publishEvent(any(OrderChangedEvent.class));
+
+        when(orderRepository.save(any(Order.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Order.class, 1L));
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> orderService.transitionStatus(1L, 2L));
+        verify(orderRepository, times(2 + 3)).findById(1L);
     }
 
+    // SI073: Kiểm tra lịch sử đơn hàng: lấy dư một dòng để sinh cursor, cursor chứa (createdAt, id) của dòng cuối,
+    // cursor hỏng thì trả 400
+    @Test
+    void testFindSummaries_CursorPaging() {
+        ReflectionTestUtils.setField(orderService, "defaultHistoryPageSize", 2);
+        ReflectionTestUtils.setField(orderService, "maxHistoryPageSize", 50);
+        when(authService.getCurrentUserId()).thenReturn(1L);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 9, 0, 0, 123456000);
+        OrderSummary newest = new OrderSummary(3L, createdAt.plusHours(1), 1L, "Pending", 300L, 3L);
+        OrderSummary middle = new OrderSummary(2L, createdAt, 1L, "Pending", 200L, 2L);
+        OrderSummary oldest = new OrderSummary(1L, createdAt.minusHours(1), 1L, "Pending", 100L, 1L);
+        when(orderRepository.findSummaries(eq(1L), any(Pageable.class))).thenReturn(List.of(newest, middle, oldest));
+        when(orderRepository.findSummariesBefore(eq(1L), eq(createdAt), eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(oldest));
+
+        CursorPage<OrderSummary> first = orderService.findSummaries(null, null);
+        CursorPage<OrderSummary> second = orderService.findSummaries(first.getNext(), null);
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(orderRepository).findSummaries(eq(1L), pageable.capture());
+        assertEquals(3, pageable.getValue().getPageSize());
+        assertEquals(List.of(newest, middle), first.getItems());
+        assertNotNull(first.getNext());
+        assertEquals(List.of(oldest), second.getItems());
+        assertNull(second.getNext());
+        assertThrows(ResponseStatusException.class, () -> orderService.findSummaries("not-a-cursor", null));
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.demo.services.imp;
 
+import com.example.demo.caching.CatalogVersions;
 import com.example.demo.entities.Post;
 import com.example.demo.models.PostDTO;
 import com.example.demo.repositories.PostRepository;
@@ -30,6 +31,9 @@ class PostsServiceImpTest {
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private CatalogVersions catalogVersions;
+
     @InjectMocks
     private PostsServiceImp postsService;
 
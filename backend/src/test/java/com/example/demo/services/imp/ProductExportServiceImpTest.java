@@ -0,0 +1,103 @@
+package com.example.demo.services.imp;
+
+import com.example.demo.models.ProductFeedItem;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.services.Imp.ProductExportServiceImp;
+import com.example.demo.services.export.ExportFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductExportServiceImpTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductExportServiceImp productExportService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        productExportService = new ProductExportServiceImp(productRepository);
+        ReflectionTestUtils.setField(productExportService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(productExportService, "flushRows", 1);
+
+        ProductFeedItem first = new ProductFeedItem();
+        first.setId(1L);
+        first.setName("Áo, trắng");
+        first.setDescription("Dòng 1\n\"Dòng 2\"");
+        first.setMaterials("Cotton");
+        first.setInstruction("Giặt tay");
+        first.setPrice(150000L);
+        first.setCategoryId(2L);
+        first.setCategory("Áo thun");
+        first.setSizes(Arrays.asList("L", "M"));
+        first.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 10, 30));
+        ProductFeedItem second = new ProductFeedItem();
+        second.setId(2L);
+        second.setName("Quần");
+        second.setMaterials("Kaki");
+        second.setInstruction("Giặt máy");
+        second.setPrice(200000L);
+        doAnswer(invocation -> {
+            Consumer<ProductFeedItem> consumer = invocation.getArgument(1);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(productRepository).streamFeed(any(), any());
+    }
+
+    // SI059: Kiểm tra xuất feed: NDJSON mỗi dòng một object, CSV có header và quote trường chứa dấu phẩy/xuống dòng
+    @Test
+    void testExportProducts_NdjsonAndCsv() throws Exception {
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 0, 0);
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+
+        long rows = productExportService.exportProducts(ExportFormat.NDJSON, since, ndjson);
+        productExportService.exportProducts(ExportFormat.CSV, null, csv);
+
+        assertEquals(2, rows);
+        verify(productRepository).streamFeed(eq(since), any());
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode json = objectMapper.readTree(lines[0]);
+        assertEquals("Áo, trắng", json.get("name").asText());
+        assertEquals("M", json.get("sizes").get(1).asText());
+        assertEquals("2024-05-01T10:30", json.get("updatedAt").asText());
+        assertTrue(objectMapper.readTree(lines[1]).get("categoryId").isNull());
+
+        String text = csv.toString(StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("\uFEFFid,name,description,"));
+        assertTrue(text.contains("1,\"Áo, trắng\",\"Dòng 1\n\"\"Dòng 2\"\"\",Cotton,Giặt tay,,150000,2,Áo thun,,,L|M,"
+                + "2024-05-01T10:30\r\n"));
+        assertTrue(text.endsWith("2,Quần,,Kaki,Giặt máy,,200000,,,,,,\r\n"));
+    }
+
+    // SI090: Kiểm tra mốc cho lần xuất tăng dần kế tiếp lấy theo giờ DB và lùi một khoảng chồng lấn
+    @Test
+    void testNextWatermark_DatabaseTimeMinusOverlap() {
+        ReflectionTestUtils.setField(productExportService, "watermarkOverlapSeconds", 300L);
+        when(productRepository.currentTimestamp()).thenReturn(LocalDateTime.of(2024, 5, 1, 10, 30));
+
+        assertEquals(LocalDateTime.of(2024, 5, 1, 10, 25), productExportService.nextWatermark());
+    }
+}
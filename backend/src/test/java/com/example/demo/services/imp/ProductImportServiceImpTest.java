@@ -0,0 +1,191 @@
+package com.example.demo.services.imp;
+
+import com.example.demo.entities.Category;
+import com.example.demo.entities.Color;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.payload.response.ProductImportResponse;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.services.CategoryService;
+import com.example.demo.services.ColorService;
+import com.example.demo.services.SizeService;
+import com.example.demo.services.Imp.ProductImportServiceImp;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ProductImportServiceImpTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private ColorService colorService;
+
+    @Mock
+    private SizeService sizeService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ProductImportServiceImp productImportService;
+
+    // Danh sách sản phẩm đã được "ghi" xuống DB qua insertAll
+    private final List<Product> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        productImportService = new ProductImportServiceImp(productRepository, categoryService, colorService,
+                sizeService, transactionManager);
+        ReflectionTestUtils.setField(productImportService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(productImportService, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(productImportService, "batchSize", 2);
+
+        Category category = new Category();
+        category.setId(1L);
+        category.setName("Áo thun");
+        Color color = new Color();
+        color.setId(3L);
+        color.setName("Đen");
+        Size sizeM = new Size();
+        sizeM.setSizeId(5L);
+        sizeM.setName("M");
+        Size sizeL = new Size();
+        sizeL.setSizeId(6L);
+        sizeL.setName("L");
+        when(categoryService.findAll()).thenReturn(Arrays.asList(category));
+        when(colorService.findAll()).thenReturn(Arrays.asList(color));
+        when(sizeService.findAll()).thenReturn(Arrays.asList(sizeM, sizeL));
+
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            for (Product product : products) {
+                product.setId((long) inserted.size() + 100);
+                inserted.add(product);
+            }
+            return null;
+        }).when(productRepository).insertAll(anyList());
+    }
+
+    private ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // SI051: Kiểm tra nhập NDJSON: dòng hợp lệ được ghi theo batch, dòng lỗi được báo kèm số dòng mà không dừng cả lần nhập
+    @Test
+    void testImportNdjson_ReportsRowErrors() {
+        String ndjson = "{\"name\":\"Áo 1\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":100000,"
+                + "\"category\":\"áo thun\",\"color\":3,\"sizes\":[\"M\",\"L\"]}\n"
+                + "{\"name\":\"Áo 2\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":\"abc\"}\n"
+                + "not json\n"
+                + "{\"name\":\"Áo 3\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":120000,"
+                + "\"color\":\"Xanh\"}\n"
+                + "{\"name\":\"Áo 4\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":130000}\n"
+                + "{\"name\":\"Áo 5\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":140000}\n";
+
+        ProductImportResponse response = productImportService.importNdjson(body(ndjson));
+
+        assertEquals(6, response.getTotal());
+        assertEquals(3, response.getImported());
+        assertEquals(3, response.getFailed());
+        assertEquals(Arrays.asList(2L, 3L, 4L),
+                Arrays.asList(response.getErrors().get(0).getLine(), response.getErrors().get(1).getLine(),
+                        response.getErrors().get(2).getLine()));
+        assertEquals("Unknown color: Xanh", response.getErrors().get(2).getMessage());
+        // 3 dòng hợp lệ với batch 2 -> 2 lần ghi
+        verify(productRepository, times(2)).insertAll(anyList());
+        assertEquals(1L, inserted.get(0).getCategory().getId());
+        assertEquals(2, inserted.get(0).getListSizes().size());
+        verify(eventPublisher, times(3)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    // SI052: Kiểm tra nhập CSV có trường trong ngoặc kép chứa dấu phẩy và xuống dòng
+    @Test
+    void testImportCsv_QuotedFields() {
+        String csv = "name,description,materials,instruction,price,category,sizes\n"
+                + "\"Áo, trắng\",\"Dòng 1\nDòng 2\",Cotton,Giặt tay,150000,1,M|L\n"
+                + "Áo đen,,Cotton,Giặt tay,,1,M\n";
+
+        ProductImportResponse response = productImportService.importCsv(body(csv));
+
+        assertEquals(1, response.getImported());
+        assertEquals("Áo, trắng", inserted.get(0).getName());
+        assertEquals("Dòng 1\nDòng 2", inserted.get(0).getDescription());
+        assertEquals(4L, response.getErrors().get(0).getLine());
+        assertEquals("Missing price", response.getErrors().get(0).getMessage());
+    }
+
+    // SI053: Kiểm tra batch bị DB từ chối thì ghi lại từng dòng để chỉ ra đúng dòng lỗi
+    @Test
+    void testImport_BatchFailureFallsBackToSingleRows() {
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            for (Product product : products) {
+                if (product.getName().equals("Trùng")) {
+                    throw new DataIntegrityViolationException("Duplicate entry");
+                }
+            }
+            products.forEach(product -> product.setId((long) inserted.size() + 100));
+            inserted.addAll(products);
+            return null;
+        }).when(productRepository).insertAll(anyList());
+        String ndjson = "{\"name\":\"Áo 1\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":1}\n"
+                + "{\"name\":\"Trùng\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":1}\n";
+
+        ProductImportResponse response = productImportService.importNdjson(body(ndjson));
+
+        assertEquals(1, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(2L, response.getErrors().get(0).getLine());
+        ArgumentCaptor<ProductChangedEvent> event = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("Áo 1", event.getValue().getProduct().getName());
+    }
+
+    // SI091: Kiểm tra description/instruction dài hơn cột varchar(255) bị từ chối ngay với thông báo theo trường,
+    // không đi tới batch ghi DB
+    @Test
+    void testImport_RejectsOverLongDescriptionAndInstruction() {
+        String tooLong = "a".repeat(256);
+        String ndjson = "{\"name\":\"Áo 1\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":100000,"
+                + "\"description\":\"" + tooLong + "\"}\n"
+                + "{\"name\":\"Áo 2\",\"materials\":\"Cotton\",\"instruction\":\"" + tooLong + "\",\"price\":100000}\n"
+                + "{\"name\":\"Áo 3\",\"materials\":\"Cotton\",\"instruction\":\"Giặt tay\",\"price\":100000,"
+                + "\"description\":\"" + "a".repeat(255) + "\"}\n";
+
+        ProductImportResponse response = productImportService.importNdjson(body(ndjson));
+
+        assertEquals(1, response.getImported());
+        assertEquals(2, response.getFailed());
+        assertEquals("description is longer than 255 characters", response.getErrors().get(0).getMessage());
+        assertEquals("instruction is longer than 255 characters", response.getErrors().get(1).getMessage());
+        assertEquals(1, inserted.size());
+    }
+}
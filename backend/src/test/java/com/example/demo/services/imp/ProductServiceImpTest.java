@@ -1,9 +1,13 @@
 package com.example.demo.services.imp;
 
+import com.example.demo.caching.CategoryTreeCache;
 import com.example.demo.entities.Product;
 import com.example.demo.models.ProductDTO;
+import com.example.demo.models.ProductView;
+import com.example.demo.payload.response.CursorPage;
 import com.example.demo.repositories.ProductRepository;
 import com.example.demo.services.Imp.ProductServiceImp;
+import com.example.demo.services.search.ProductSearchIndex;
 
 import org.springframework.test.util.ReflectionTestUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,15 +16,19 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ProductServiceImpTest {
@@ -31,6 +39,15 @@ class ProductServiceImpTest {
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+
     @InjectMocks
     private ProductServiceImp productService;
 
@@ -39,6 +56,11 @@ class ProductServiceImpTest {
         MockitoAnnotations.openMocks(this);
         // Thiết lập giá trị cho biến modelMapper bên trong ProductServiceImp
         ReflectionTestUtils.setField(productService, "modelMapper", modelMapper);
+        ReflectionTestUtils.setField(productService, "productSearchIndex", productSearchIndex);
+        ReflectionTestUtils.setField(productService, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(productService, "categoryTreeCache", categoryTreeCache);
+        ReflectionTestUtils.setField(productService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(productService, "maxPageSize", 100);
     }
 
     // SI027: Kiểm tra lấy danh sách toàn bộ sản phẩm
@@ -262,4 +284,90 @@ class ProductServiceImpTest {
         verify(productRepository, times(1)).searchProducts("query");
     }
 
+    // SI039: Kiểm tra phân trang theo cursor trả về cursor trang tiếp theo khi còn dữ liệu
+    @Test
+    void testFindPage_ReturnsNextCursor() {
+        Product product1 = new Product();
+        product1.setId(1L);
+        Product product2 = new Product();
+        product2.setId(2L);
+        Product product3 = new Product();
+        product3.setId(3L);
+
+        // Repository trả về dư 1 bản ghi so với kích thước trang
+        when(productRepository.findIdsAfter(eq(0L), any())).thenReturn(Arrays.asList(1L, 2L, 3L));
+        when(productRepository.findIdsAfter(eq(2L), any())).thenReturn(Arrays.asList(3L));
+        when(productRepository.findAllByIdIn(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(product2, product1));
+        when(productRepository.findAllByIdIn(Arrays.asList(3L))).thenReturn(Arrays.asList(product3));
+
+        CursorPage<ProductView> firstPage = productService.findPage(null, null, "id");
+        CursorPage<ProductView> secondPage = productService.findPage(firstPage.getNext(), null, "id");
+
+        assertEquals(2, firstPage.getItems().size());
+        assertEquals(1L, firstPage.getItems().get(0).getId());
+        assertNotNull(firstPage.getNext());
+        assertEquals(1, secondPage.getItems().size());
+        assertNull(secondPage.getNext());
+    }
+
+    // SI040: Kiểm tra cursor không hợp lệ hoặc không khớp kiểu sắp xếp
+    @Test
+    void testFindPage_InvalidCursor() {
+        assertThrows(ResponseStatusException.class, () -> productService.findPage("not-a-cursor", 10, "price"));
+        assertThrows(ResponseStatusException.class, () -> productService.findPage(null, 10, "unknown"));
+        verify(productRepository, never()).findIdsAfterPrice(any(), any(), any());
+    }
+
+    // SI041: Kiểm tra tìm kiếm dùng chỉ mục trong bộ nhớ khi chỉ mục đã sẵn sàng, giữ nguyên thứ tự xếp hạng
+    @Test
+    void testSearchProducts_UsesIndexWhenReady() {
+        Product product1 = new Product();
+        product1.setId(1L);
+        Product product2 = new Product();
+        product2.setId(2L);
+
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.search("ao")).thenReturn(Arrays.asList(2L, 1L));
+        when(productRepository.findAllByIdIn(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(product1, product2));
+
+        List<Product> products = productService.search("ao");
+
+        // Kết quả theo thứ tự điểm của chỉ mục, không quét bảng bằng LIKE
+        assertEquals(2L, products.get(0).getId());
+        assertEquals(1L, products.get(1).getId());
+        verify(productRepository, never()).searchProducts(anyString());
+    }
+
+    // SI042: Kiểm tra tạo/xoá sản phẩm phát sự kiện để cập nhật chỉ mục
+    @Test
+    void testCreateAndDeleteProduct_PublishEvents() {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setName("New Product");
+        Product mockProduct = new Product();
+        mockProduct.setId(1L);
+        when(modelMapper.map(productDTO, Product.class)).thenReturn(mockProduct);
+        when(productRepository.save(mockProduct)).thenReturn(mockProduct);
+
+        productService.create(productDTO);
+        productService.delete(1L);
+
+        verify(eventPublisher, times(2)).publishEvent(any(Object.class));
+    }
+
+    // SI056: Kiểm tra lấy sản phẩm theo danh mục gồm cả danh mục con bằng một truy vấn IN
+    @Test
+    void testFindAllInCategory_IncludesDescendants() {
+        Product product = new Product();
+        product.setId(1L);
+        when(categoryTreeCache.descendantIds(1L)).thenReturn(Arrays.asList(1L, 2L, 4L));
+        when(productRepository.findAllByCategoryIdIn(Arrays.asList(1L, 2L, 4L))).thenReturn(Arrays.asList(product));
+
+        List<Product> products = productService.findAllInCategory(1L);
+
+        assertEquals(1, products.size());
+        verify(productRepository, times(1)).findAllByCategoryIdIn(any());
+        // Danh mục không tồn tại trả về 404
+        when(categoryTreeCache.descendantIds(99L)).thenReturn(Collections.emptyList());
+        assertThrows(ResponseStatusException.class, () -> productService.findAllInCategory(99L));
+    }
 }
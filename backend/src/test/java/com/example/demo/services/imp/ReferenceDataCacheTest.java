@@ -0,0 +1,86 @@
+package com.example.demo.services.imp;
+
+import com.example.demo.caching.CatalogVersions;
+import com.example.demo.configs.CacheConfig;
+import com.example.demo.entities.Size;
+import com.example.demo.models.SizeDTO;
+import com.example.demo.repositories.SizeRepository;
+import com.example.demo.services.SizeService;
+import com.example.demo.services.Imp.SizeServiceImp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Kiểm tra cache dữ liệu tham chiếu: đọc lần 2 không chạm DB, ghi thì xoá cache.
+ */
+@SpringJUnitConfig(classes = { CacheConfig.class, SizeServiceImp.class })
+class ReferenceDataCacheTest {
+
+    @MockBean
+    private SizeRepository sizeRepository;
+
+    @MockBean
+    private ModelMapper modelMapper;
+
+    @MockBean
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private SizeService sizeService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    // SI049: Đọc danh sách size và size theo id nhiều lần chỉ truy vấn DB một lần
+    @Test
+    void testFindAllAndGet_AreCached() {
+        Size size = new Size();
+        size.setSizeId(1L);
+        size.setName("M");
+        when(sizeRepository.findAll()).thenReturn(List.of(size));
+        when(sizeRepository.findById(1L)).thenReturn(Optional.of(size));
+
+        sizeService.findAll();
+        sizeService.findAll();
+        sizeService.get(1L);
+        Size cached = sizeService.get(1L);
+
+        assertEquals("M", cached.getName());
+        verify(sizeRepository, times(1)).findAll();
+        verify(sizeRepository, times(1)).findById(1L);
+    }
+
+    // SI050: Tạo mới size làm mất hiệu lực cache
+    @Test
+    void testCreate_EvictsCache() {
+        Size size = new Size();
+        size.setSizeId(2L);
+        when(sizeRepository.findAll()).thenReturn(List.of(size));
+        when(modelMapper.map(any(SizeDTO.class), eq(Size.class))).thenReturn(size);
+        when(sizeRepository.save(size)).thenReturn(size);
+
+        sizeService.findAll();
+        sizeService.create(new SizeDTO());
+        sizeService.findAll();
+
+        verify(sizeRepository, times(2)).findAll();
+    }
+}
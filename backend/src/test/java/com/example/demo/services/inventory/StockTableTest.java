@@ -0,0 +1,130 @@
+package com.example.demo.services.inventory;
+
+import com.example.demo.entities.ProductStock;
+import com.example.demo.repositories.ProductStockRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class StockTableTest {
+
+    @Mock
+    private ProductStockRepository productStockRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StockTable stockTable;
+
+    private ProductStock stock(long productId, long sizeId, long quantity) {
+        ProductStock stock = new ProductStock();
+        stock.setProductId(productId);
+        stock.setSizeId(sizeId);
+        stock.setQuantity(quantity);
+        return stock;
+    }
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        stockTable = new StockTable(productStockRepository, transactionManager);
+        ReflectionTestUtils.setField(stockTable, "flushBatchSize", 100);
+        when(productStockRepository.findAll()).thenReturn(List.of(stock(1L, 5L, 500L), stock(2L, 5L, 1L)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // SI062: Kiểm tra giữ hàng cả giỏ: thiếu một dòng thì không giữ dòng nào, giữ đồng thời không bao giờ bán quá tồn kho
+    @Test
+    void testReserveAll_AllOrNothingAndNoOversell() throws Exception {
+        Map<StockKey, Integer> lines = new LinkedHashMap<>();
+        lines.put(StockKey.of(1L, 5L), 10);
+        lines.put(StockKey.of(2L, 5L), 2);
+        // sản phẩm không theo dõi tồn kho thì bỏ qua
+        lines.put(StockKey.of(3L, 5L), 1000);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> stockTable.reserveAll(lines));
+        assertEquals(409, exception.getRawStatusCode());
+        assertEquals(500L, stockTable.available(1L, 5L));
+        assertEquals(1L, stockTable.available(2L, 5L));
+        assertNull(stockTable.available(3L, 5L));
+
+        AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 800; i++) {
+            executor.submit(() -> {
+                try {
+                    stockTable.reserveAll(Map.of(StockKey.of(1L, 5L), 1));
+                    succeeded.incrementAndGet();
+                } catch (ResponseStatusException e) {
+                    // hết hàng
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(500, succeeded.get());
+        assertEquals(0L, stockTable.available(1L, 5L));
+    }
+
+    // SI063: Kiểm tra transaction checkout rollback thì trả lại hàng đã giữ, và lúc nạp bảng thì áp doanh số còn treo trước
+    @Test
+    void testReserveAll_ReleasedOnRollbackAndLoadReconciles() {
+        TransactionSynchronizationManager.initSynchronization();
+        stockTable.reserveAll(Map.of(StockKey.of(1L, 5L), 30));
+        assertEquals(470L, stockTable.available(1L, 5L));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertEquals(500L, stockTable.available(1L, 5L));
+        InOrder inOrder = inOrder(productStockRepository);
+        inOrder.verify(productStockRepository).applyPendingSales(anyInt());
+        inOrder.verify(productStockRepository).findAll();
+        assertThrows(ResponseStatusException.class, () -> stockTable.requireAvailable(2L, 5L, 2));
+        stockTable.requireAvailable(3L, 5L, 1000);
+    }
+
+    // SI088: Kiểm tra giỏ có dòng số lượng 0 hoặc âm thì checkout trả 400, không dòng nào được giữ, tồn kho không tăng
+    @Test
+    void testReserveAll_RejectsNonPositiveQuantity() {
+        Map<StockKey, Integer> lines = new LinkedHashMap<>();
+        lines.put(StockKey.of(1L, 5L), 10);
+        lines.put(StockKey.of(2L, 5L), -5);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> stockTable.reserveAll(lines));
+        assertEquals(400, exception.getRawStatusCode());
+        assertThrows(ResponseStatusException.class, () -> stockTable.reserveAll(Map.of(StockKey.of(1L, 5L), 0)));
+        assertEquals(500L, stockTable.available(1L, 5L));
+        assertEquals(1L, stockTable.available(2L, 5L));
+    }
+}
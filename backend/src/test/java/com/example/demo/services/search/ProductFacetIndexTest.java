@@ -0,0 +1,173 @@
+package com.example.demo.services.search;
+
+import com.example.demo.caching.CategoryTreeCache;
+import com.example.demo.entities.Category;
+import com.example.demo.entities.Color;
+import com.example.demo.entities.Product;
+import com.example.demo.entities.Size;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.payload.request.ProductFilterRequest;
+import com.example.demo.payload.response.ProductFilterResponse;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.ProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+
+    private Category men;
+    private Category shirt;
+    private Category women;
+
+    private Category createCategory(Long id, Category parent) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName("Category " + id);
+        category.setParentCategory(parent);
+        return category;
+    }
+
+    private Color createColor(Long id) {
+        Color color = new Color();
+        color.setId(id);
+        return color;
+    }
+
+    private Size createSize(Long id) {
+        Size size = new Size();
+        size.setSizeId(id);
+        return size;
+    }
+
+    private Product createProduct(Long id, Category category, Color color, Long price, Size... sizes) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategory(category);
+        product.setColor(color);
+        product.setPrice(price);
+        product.setListSizes(Set.of(sizes));
+        return product;
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Cây danh mục: Nam (1) -> Áo sơ mi (2); Nữ (3)
+        men = createCategory(1L, null);
+        shirt = createCategory(2L, men);
+        women = createCategory(3L, null);
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(Arrays.asList(men, shirt, women));
+        when(productRepository.findIdsAfter(anyLong(), any())).thenReturn(Arrays.asList(1L, 2L, 3L));
+        when(productRepository.findAllByIdIn(any())).thenReturn(Arrays.asList(
+                createProduct(1L, men, createColor(1L), 150000L, createSize(1L), createSize(2L)),
+                createProduct(2L, shirt, createColor(2L), 350000L, createSize(2L)),
+                createProduct(3L, women, createColor(1L), 900000L, createSize(3L))));
+
+        index = new ProductFacetIndex(productRepository, new CategoryTreeCache(categoryRepository));
+        ReflectionTestUtils.setField(index, "priceBucketBounds", new long[] { 200000L, 400000L, 600000L, 800000L });
+        index.build();
+    }
+
+    // SI046: Lọc theo danh mục cha bao gồm cả sản phẩm thuộc danh mục con
+    @Test
+    void testFilter_CategoryIncludesSubCategories() {
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setCategoryId(Collections.singletonList(1L));
+
+        ProductFacetIndex.Result result = index.filter(request, 0, 10);
+
+        assertEquals(Arrays.asList(1L, 2L), result.getPageProductIds());
+        assertEquals(2, result.getResponse().getTotal());
+    }
+
+    // SI047: Facet của một chiều được đếm khi bỏ qua bộ lọc của chính chiều đó
+    @Test
+    void testFilter_FacetCounts() {
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setColorId(Collections.singletonList(1L));
+        request.setSizeId(Arrays.asList(2L, 3L));
+
+        ProductFilterResponse response = index.filter(request, 0, 10).getResponse();
+
+        // sản phẩm 1 (màu 1, size 2) và 3 (màu 1, size 3)
+        assertEquals(2, response.getTotal());
+        assertEquals(Integer.valueOf(2), response.getColorCounts().get(1L));
+        assertEquals(Integer.valueOf(1), response.getColorCounts().get(2L));
+        assertEquals(Integer.valueOf(1), response.getCategoryCounts().get(1L));
+        assertEquals(Integer.valueOf(1), response.getCategoryCounts().get(3L));
+        assertEquals(Arrays.asList(1, 0, 0, 0, 1), response.getPriceBucketCounts());
+        assertEquals(150000L, response.getMinPrice());
+        assertEquals(900000L, response.getMaxPrice());
+    }
+
+    // SI048: Snapshot được cập nhật khi sản phẩm thay đổi và lọc theo khoảng giá
+    @Test
+    void testFilter_UpdatedOnProductEvents() {
+        index.onProductChanged(ProductChangedEvent.saved(
+                createProduct(2L, women, createColor(2L), 500000L, createSize(1L))));
+        index.onProductChanged(ProductChangedEvent.deleted(3L));
+
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setCategoryId(Collections.singletonList(3L));
+        request.setMinPrice(400000L);
+        request.setMaxPrice(600000L);
+
+        List<Long> ids = index.filter(request, 0, 10).getPageProductIds();
+
+        assertEquals(Collections.singletonList(2L), ids);
+    }
+
+    // SI085: Trang vượt quá số kết quả (kể cả page lớn làm page * pageSize tràn int) trả trang rỗng,
+    // không quay về trang đầu
+    @Test
+    void testFilter_PageBeyondTotalIsEmpty() {
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setCategoryId(Collections.singletonList(1L));
+
+        assertEquals(Collections.singletonList(2L), index.filter(request, 1, 1).getPageProductIds());
+        assertTrue(index.filter(request, 1, 10).getPageProductIds().isEmpty());
+        ProductFacetIndex.Result overflow = index.filter(request, Integer.MAX_VALUE / 10 + 1, 10);
+        assertTrue(overflow.getPageProductIds().isEmpty());
+        assertEquals(2, overflow.getResponse().getTotal());
+    }
+
+    // SI089: Kiểm tra slot của sản phẩm đã xoá được cấp lại (số slot không tăng theo số lần tạo/xoá), sản phẩm đã
+    // xoá không còn trong kết quả hay facet, và kết quả vẫn xếp theo id dù sản phẩm mới nằm ở slot cũ
+    @Test
+    void testFilter_DeletedSlotsAreReused() {
+        for (long id = 10; id < 110; id++) {
+            index.onProductChanged(ProductChangedEvent.saved(
+                    createProduct(id, women, createColor(3L), 100000L, createSize(4L))));
+            index.onProductChanged(ProductChangedEvent.deleted(id));
+        }
+        index.onProductChanged(ProductChangedEvent.deleted(1L));
+        index.onProductChanged(ProductChangedEvent.saved(
+                createProduct(200L, men, createColor(1L), 150000L, createSize(1L))));
+
+        assertEquals(4, (int) ReflectionTestUtils.getField(index, "nextSlot"));
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setCategoryId(Collections.singletonList(1L));
+        ProductFacetIndex.Result result = index.filter(request, 0, 10);
+        assertEquals(Arrays.asList(2L, 200L), result.getPageProductIds());
+        assertEquals(Collections.singletonList(200L), index.filter(request, 1, 1).getPageProductIds());
+        assertNull(result.getResponse().getColorCounts().get(3L));
+        assertNull(result.getResponse().getSizeCounts().get(4L));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.services.search;
+
+import com.example.demo.entities.Product;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.repositories.ProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex index;
+
+    private Product createProduct(Long id, String name, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        return product;
+    }
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        // Dữ liệu ban đầu trong DB khi ứng dụng khởi động
+        when(productRepository.findPageAfterId(anyLong(), any())).thenReturn(Arrays.asList(
+                createProduct(1L, "Áo thun trắng", "Áo thun cotton"),
+                createProduct(2L, "Quần jean", "Quần jean xanh, phối áo thun"),
+                createProduct(3L, "Đầm dạ hội", "Trang phục sang trọng")), Collections.emptyList());
+        index = new ProductSearchIndex(productRepository);
+        index.build();
+    }
+
+    // SI043: Tìm kiếm không dấu, không phân biệt hoa thường, xếp hạng theo tần suất
+    @Test
+    void testSearch_AccentFoldingAndRanking() {
+        assertTrue(index.isReady());
+
+        // "áo thun" xuất hiện ở tên sản phẩm 1 (trọng số cao hơn) và ở mô tả sản phẩm 2
+        List<Long> results = index.search("AO THUN");
+
+        assertEquals(Arrays.asList(1L, 2L), results);
+        assertEquals(Collections.singletonList(3L), index.search("dam"));
+    }
+
+    // SI044: Từ cuối của truy vấn được khớp theo tiền tố
+    @Test
+    void testSearch_PrefixOnLastToken() {
+        assertEquals(Collections.singletonList(2L), index.search("quần je"));
+        assertTrue(index.search("khongtontai").isEmpty());
+        assertTrue(index.search("   ").isEmpty());
+    }
+
+    // SI045: Chỉ mục được cập nhật khi sản phẩm thay đổi hoặc bị xoá
+    @Test
+    void testIndexUpdatedOnProductEvents() {
+        index.onProductChanged(ProductChangedEvent.saved(createProduct(3L, "Đầm maxi", "Váy đi biển")));
+        index.onProductChanged(ProductChangedEvent.deleted(1L));
+
+        assertTrue(index.search("hoi").isEmpty());
+        assertEquals(Collections.singletonList(3L), index.search("maxi"));
+        assertEquals(Collections.singletonList(2L), index.search("thun"));
+        assertEquals(2, index.size());
+    }
+
+    // SI084: Kiểm tra slot của sản phẩm đã xoá được cấp lại (số slot không tăng theo số lần tạo/xoá),
+    // kết quả vẫn đúng và hoà điểm thì xếp theo id
+    @Test
+    void testDeletedSlotsAreReused() {
+        for (long id = 10; id < 110; id++) {
+            index.onProductChanged(ProductChangedEvent.saved(createProduct(id, "Váy hoa", null)));
+            index.onProductChanged(ProductChangedEvent.deleted(id));
+        }
+        index.onProductChanged(ProductChangedEvent.saved(createProduct(200L, "Áo thun đen", "Áo thun cotton")));
+
+        assertEquals(4, (int) ReflectionTestUtils.getField(index, "nextSlot"));
+        assertEquals(4, index.size());
+        assertTrue(index.search("vay").isEmpty());
+        assertEquals(Arrays.asList(1L, 200L, 2L), index.search("ao thun"));
+        assertEquals(Arrays.asList(1L, 200L), index.search("thun c"));
+    }
+}
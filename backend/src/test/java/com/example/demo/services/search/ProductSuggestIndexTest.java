@@ -0,0 +1,124 @@
+package com.example.demo.services.search;
+
+import com.example.demo.caching.CatalogVersions;
+import com.example.demo.caching.CatalogVersions.Table;
+import com.example.demo.caching.CategoryTreeCache;
+import com.example.demo.entities.Category;
+import com.example.demo.entities.Product;
+import com.example.demo.events.ProductChangedEvent;
+import com.example.demo.models.Suggestion;
+import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.OrderItemRepository;
+import com.example.demo.repositories.ProductRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSuggestIndexTest {
+
+    private ProductSuggestIndex index;
+
+    private Category shirt;
+
+    private CategoryTreeCache categoryTreeCache;
+
+    private CatalogVersions catalogVersions;
+
+    @BeforeEach
+    void setUp() {
+        shirt = new Category();
+        shirt.setId(1L);
+        shirt.setName("Áo thun");
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(Arrays.asList(shirt));
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findAllNames()).thenReturn(Arrays.asList(
+                new Object[] { 1L, "Áo thun trắng", 1L },
+                new Object[] { 2L, "Áo thun đen", 1L },
+                new Object[] { 3L, "Áo khoác", null }));
+        OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+        // Áo thun đen bán chạy hơn Áo thun trắng
+        when(orderItemRepository.sumQuantityByProduct()).thenReturn(Arrays.asList(
+                new Object[] { 1L, 5L },
+                new Object[] { 2L, 20L }));
+
+        categoryTreeCache = new CategoryTreeCache(categoryRepository);
+        catalogVersions = new CatalogVersions();
+        index = new ProductSuggestIndex(productRepository, orderItemRepository, categoryTreeCache, catalogVersions);
+        ReflectionTestUtils.setField(index, "topK", 10);
+        index.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    private List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).collect(Collectors.toList());
+    }
+
+    // SI057: Gợi ý theo tiền tố (không dấu, khớp cả đầu từ ở giữa tên), xếp theo độ phổ biến
+    @Test
+    void testSuggest_RankedByPopularity() {
+        // Danh mục "Áo thun" cộng dồn lượt bán của cả 2 sản phẩm nên đứng đầu
+        assertEquals(Arrays.asList("Áo thun", "Áo thun đen", "Áo thun trắng"), texts(index.suggest("ao th", 10)));
+        assertEquals(Arrays.asList("Áo thun trắng"), texts(index.suggest("tra", 10)));
+        assertEquals(2, index.suggest("ao", 2).size());
+        assertTrue(index.suggest("quan", 10).isEmpty());
+        assertEquals("category", index.suggest("ao thun", 1).get(0).getType());
+    }
+
+    // SI058: Ghi sản phẩm (thêm/xoá) được phản ánh sau khi dựng lại trie
+    @Test
+    void testSuggest_FreshAfterProductWrites() {
+        Product product = new Product();
+        product.setId(4L);
+        product.setName("Quần jean");
+        index.onProductChanged(ProductChangedEvent.saved(product));
+        index.onProductChanged(ProductChangedEvent.deleted(3L));
+        index.rebuild();
+
+        assertEquals(Arrays.asList("Quần jean"), texts(index.suggest("jea", 10)));
+        assertTrue(index.suggest("khoac", 10).isEmpty());
+    }
+
+    // SI083: Kiểm tra phiên bản gợi ý (ETag) chỉ tăng khi trie đã được thay, đổi tên danh mục cũng dựng lại trie
+    @Test
+    void testSuggestVersionBumpedAfterRebuild_AndCategoryRename() throws Exception {
+        long before = catalogVersions.get(Table.SUGGESTIONS);
+        Product product = new Product();
+        product.setId(5L);
+        product.setName("Váy hoa");
+        ReflectionTestUtils.setField(index, "rebuildDelayMs", 60_000L);
+        index.onProductChanged(ProductChangedEvent.saved(product));
+
+        // lần dựng lại còn đang chờ: gợi ý cũ đi kèm phiên bản cũ
+        assertTrue(index.suggest("vay", 10).isEmpty());
+        assertEquals(before, catalogVersions.get(Table.SUGGESTIONS));
+        index.rebuild();
+        assertEquals(Arrays.asList("Váy hoa"), texts(index.suggest("vay", 10)));
+        assertEquals(before + 1, catalogVersions.get(Table.SUGGESTIONS));
+
+        ReflectionTestUtils.setField(index, "rebuildDelayMs", 0L);
+        shirt.setName("Áo polo");
+        categoryTreeCache.rebuild();
+        index.scheduleRebuild();
+        for (int i = 0; i < 100 && catalogVersions.get(Table.SUGGESTIONS) == before + 1; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(before + 2, catalogVersions.get(Table.SUGGESTIONS));
+        assertEquals("Áo polo", index.suggest("polo", 1).get(0).getText());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.services.stats;
+
+import com.example.demo.entities.OrderStatusRollup;
+import com.example.demo.entities.ProductDailyRollup;
+import com.example.demo.entities.SalesDailyRollup;
+import com.example.demo.events.OrderChangedEvent;
+import com.example.demo.models.DailySales;
+import com.example.demo.repositories.OrderItemRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.OrderStatusRollupRepository;
+import com.example.demo.repositories.ProductDailyRollupRepository;
+import com.example.demo.repositories.SalesDailyRollupRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SalesStatsTest {
+
+    @Mock
+    private SalesDailyRollupRepository salesDailyRollupRepository;
+
+    @Mock
+    private ProductDailyRollupRepository productDailyRollupRepository;
+
+    @Mock
+    private OrderStatusRollupRepository orderStatusRollupRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SalesStats salesStats;
+
+    private final LocalDate today = LocalDate.now();
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        salesStats = new SalesStats(salesDailyRollupRepository, productDailyRollupRepository,
+                orderStatusRollupRepository, orderRepository, orderItemRepository, transactionManager);
+        ReflectionTestUtils.setField(salesStats, "topProductCount", 2);
+    }
+
+    private OrderChangedEvent placed(long total, Long statusId, Map<Long, Integer> units) {
+        return new OrderChangedEvent(OrderChangedEvent.Type.PLACED, 1L, today.atTime(10, 0), total, null, statusId,
+                units);
+    }
+
+    // SI068: Kiểm tra nạp thống kê: ngày cũ lấy từ rollup, từ hôm trước ngày ghi cuối tính lại từ bảng order/order_item
+    @Test
+    void testLoad_RollupsPlusRecomputedDays() {
+        LocalDate lastDay = today.minusDays(1);
+        SalesDailyRollup old = new SalesDailyRollup();
+        old.setDay(today.minusDays(5));
+        old.setRevenue(1000L);
+        old.setOrders(4L);
+        when(salesDailyRollupRepository.findLastDay()).thenReturn(lastDay);
+        when(salesDailyRollupRepository.findAllByDayBefore(lastDay.minusDays(1))).thenReturn(List.of(old));
+        when(productDailyRollupRepository.sumUnitsByProductBefore(lastDay.minusDays(1)))
+                .thenReturn(rows(new Object[] { 7L, 10L }));
+        when(orderRepository.sumTotalByDaySince(lastDay.minusDays(1).atStartOfDay()))
+                .thenReturn(rows(new Object[] { Date.valueOf(today), 500L, 2L }));
+        when(orderItemRepository.sumQuantityByDayAndProductSince(lastDay.minusDays(1).atStartOfDay()))
+                .thenReturn(rows(new Object[] { Date.valueOf(today), 7L, 3L }, new Object[] { Date.valueOf(today), 8L, 1L }));
+        when(orderRepository.countByStatus()).thenReturn(rows(new Object[] { 1L, 6L }));
+
+        salesStats.load();
+
+        List<DailySales> revenue = salesStats.revenueBetween(today.minusDays(5), today);
+        assertEquals(6, revenue.size());
+        assertEquals(1000L, revenue.get(0).getRevenue());
+        assertEquals(0L, revenue.get(1).getRevenue());
+        assertEquals(500L, revenue.get(5).getRevenue());
+        assertEquals(2L, revenue.get(5).getOrders());
+        assertEquals(6L, salesStats.ordersByStatus().get(1L));
+        assertEquals(7L, salesStats.topProducts().get(0).getProductId());
+        assertEquals(13L, salesStats.topProducts().get(0).getUnits());
+    }
+
+    // SI069: Kiểm tra cộng dồn đồng thời không mất đơn nào, đổi trạng thái chuyển số đếm, flush ghi giá trị tuyệt đối
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnOrderChanged_ConcurrentCountersAndFlush() throws Exception {
+        when(orderRepository.countByStatus()).thenReturn(rows());
+        when(orderStatusRollupRepository.findAll()).thenReturn(List.of());
+        salesStats.load();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> salesStats.onOrderChanged(placed(100L, 1L, Map.of(7L, 2, 8L, 1))));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        salesStats.onOrderChanged(new OrderChangedEvent(OrderChangedEvent.Type.STATUS_CHANGED, 1L,
+                today.atTime(10, 0), 100L, 1L, 2L, Map.of()));
+
+        DailySales sales = salesStats.revenueBetween(today, today).get(0);
+        assertEquals(100000L, sales.getRevenue());
+        assertEquals(1000L, sales.getOrders());
+        assertEquals(999L, salesStats.ordersByStatus().get(1L));
+        assertEquals(1L, salesStats.ordersByStatus().get(2L));
+
+        salesStats.flush();
+
+        ArgumentCaptor<List<SalesDailyRollup>> days = ArgumentCaptor.forClass(List.class);
+        verify(salesDailyRollupRepository).saveAll(days.capture());
+        assertEquals(1, days.getValue().size());
+        assertEquals(100000L, days.getValue().get(0).getRevenue());
+        ArgumentCaptor<List<ProductDailyRollup>> products = ArgumentCaptor.forClass(List.class);
+        verify(productDailyRollupRepository).saveAll(products.capture());
+        assertEquals(2, products.getValue().size());
+        ArgumentCaptor<List<OrderStatusRollup>> statuses = ArgumentCaptor.forClass(List.class);
+        verify(orderStatusRollupRepository).saveAll(statuses.capture());
+        assertEquals(2, statuses.getValue().size());
+        assertEquals(7L, salesStats.topProducts().get(0).getProductId());
+        assertEquals(2000L, salesStats.topProducts().get(0).getUnits());
+
+        // không có gì đổi thì lần flush sau không ghi thêm dòng nào
+        salesStats.flush();
+        verify(salesDailyRollupRepository, times(1)).saveAll(argThat(list -> !((List<?>) list).isEmpty()));
+        verify(orderRepository, never()).findAll();
+        verify(salesDailyRollupRepository, never()).save(any());
+    }
+}
@@ -1,6 +1,6 @@
-// xử lý khung tính toán giá tiền
-async function getCartItemsService() {
-    const response = await fetch(`${api}/api/v1/cart-items`, {
+// xử lý khung tính toán giá tiền: server trả sẵn thành tiền từng dòng và tổng tiền
+async function getCartSummaryService() {
+    const response = await fetch(`${api}/api/v1/cart-items/summary`, {
       method: "GET",
       headers: { 
         "Content-Type": "application/json",
@@ -8,24 +8,16 @@ async function getCartItemsService() {
         Authorization: "Bearer " + localStorage.getItem("token"),
       },
     });
-    const cartItems = response.json();
-    return cartItems;
+    const summary = response.json();
+    return summary;
   }
 
-function mathang(c) {
+function cartItem(line){
     return `
-        <li>${c.product?.name}</li>
-        <span>${numberToVnd(c?.quantity * c?.product?.price)}/span>
-    `;
-}
-
-function cartItem(cart){
-    return `
-        <li>${cart?.product?.name}<span>${numberToVnd(cart?.quantity * cart?.product?.price)}</span></li>
+        <li>${line?.productName}<span>${numberToVnd(line?.lineTotal)}</span></li>
     `
 }
 
-// let listCart = getCartItem();
 let listCart;
 
 async function initializeCart() {
@@ -33,27 +25,19 @@ async function initializeCart() {
 }
 
 async function getCartItem() {
-    const carts = await getCartItemsService();
-    listCart = carts;
-    return carts;
+    const summary = await getCartSummaryService();
+    listCart = summary?.lines || [];
+    return listCart;
 }
 
-getCartItem();
-
-//tính toán giá tiền + tải thông tin đơn hàng lên khung thanh toán
+//tải thông tin đơn hàng và tổng tiền lên khung thanh toán
 async function loadCart() {
-    const carts = await getCartItemsService();
-    console.log(carts);
-    let total = 0;
-    console.log('cartitem');
-    if (Array.isArray(carts)) {
-        carts.forEach((c) => {
-          $("#total_checkout").append(cartItem(c));
-          total += parseInt(c?.quantity || 0) * parseInt(c?.product?.price || 0);
-        });
-    }
-    console.log(total);
-    document.getElementById("total").innerHTML = numberToVnd(total);  
+    const summary = await getCartSummaryService();
+    listCart = summary?.lines || [];
+    listCart.forEach((line) => {
+      $("#total_checkout").append(cartItem(line));
+    });
+    document.getElementById("total").innerHTML = numberToVnd(summary?.total || 0);  
 }
 loadCart();
 
@@ -226,16 +210,8 @@ async function chotdon(event){
         return false;
     }
     else{
-        const carts = await getCartItemsService();
-        console.log(carts);
-        let total = 0;
-        console.log('cartitem');
-        if (Array.isArray(carts)) {
-            carts.forEach((c) => {
-            total += parseInt(c?.quantity || 0) * parseInt(c?.product?.price || 0);
-            });
-        }
-        console.log(total);
+        const summary = await getCartSummaryService();
+        const total = summary?.total || 0;
         document.getElementById("total").innerHTML = numberToVnd(total);  
         if(!kiemTraDaDienDu(event)) {
             event.preventDefault();
@@ -261,13 +237,19 @@ function veTrangChu(){
     window.href.location = "index.html";
 }
 
+// một key cho mỗi lần vào trang thanh toán: bấm lại hoặc gửi lại request không tạo thêm đơn
+const idempotencyKey = (window.crypto && crypto.randomUUID)
+    ? crypto.randomUUID()
+    : Date.now() + '-' + Math.random().toString(36).slice(2);
+
 //đặt hàng, gửi data lên server
 async function dathang() {
     if(token !== ''){
         const res = await fetch('http://localhost:8081/api/v1/orders', {
             method: "POST",
             headers: {
-                ...defaultHeader
+                ...defaultHeader,
+                "Idempotency-Key": idempotencyKey
             },
             body: JSON.stringify({
                 address: document.getElementById('diachi').value,
@@ -29,8 +29,10 @@ async function updateUserService(username, email, phone, password) {
     return updatedUser;
 }
 
-async function getAllOrders() {
-    const response = await fetch(`${api}/api/v1/orders`, {
+// Lịch sử đơn hàng dạng tóm tắt, phân trang bằng cursor
+async function getOrderSummaries(cursor) {
+    const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : "";
+    const response = await fetch(`${api}/api/v1/orders/summaries${query}`, {
         method: "GET",
         headers: {
             "Content-Type": "application/json",
@@ -42,8 +44,7 @@ async function getAllOrders() {
         throw new Error("Failed to fetch orders");
     }
 
-    const orders = await response.json();
-    return orders;
+    return await response.json();
 }
 
   
@@ -138,35 +139,49 @@ saveUser.addEventListener("click", async () => {
     } 
 });
 
+let nextOrderCursor = null;
+let loadedOrderCount = 0;
+
 async function loadOrdersToTable() {
-    const orders = await getAllOrders(); // Lấy danh sách đơn hàng
     const tableBody = document.getElementById("orderTableBody")
+    tableBody.innerHTML = "";
+    nextOrderCursor = null;
+    loadedOrderCount = 0;
+    await loadMoreOrders();
+}
 
-    tableBody.innerHTML = ""; 
+async function loadMoreOrders() {
+    const page = await getOrderSummaries(nextOrderCursor); // Lấy trang đơn hàng tiếp theo
+    const tableBody = document.getElementById("orderTableBody")
 
-    for (const [index, order] of orders.entries()) {
+    for (const order of page.items) {
+        loadedOrderCount++;
         const row = document.createElement("tr");
         row.innerHTML = `
-            <td>${index + 1}</td> 
+            <td>${loadedOrderCount}</td> 
             <td>${formatDateTime(order.createdAt)}</td> 
             <td>${numberToVnd(order.total)}</td>
-            <td>${order.status.name}</td>  
+            <td>${order.status ? order.status.name : ""}</td>  
             <td>
                 <button class="btn btn-info btn-view-details" data-order-id="${order.id}">Xem chi tiết</button> <!-- Nút xem chi tiết -->
             </td>
         `;
-
-        tableBody.appendChild(row);
-    }
-    // Sự kiện cho nút xem chi tiết
-    document.querySelectorAll(".btn-view-details").forEach((button) => {
-        button.addEventListener("click", async function () {
+        // Sự kiện cho nút xem chi tiết
+        row.querySelector(".btn-view-details").addEventListener("click", async function () {
             const orderId = this.getAttribute("data-order-id");
             await loadOrderDetails(orderId); // Hiển thị thông tin chi tiết
         });
-    });
+
+        tableBody.appendChild(row);
+    }
+
+    // Còn trang sau thì hiện nút "Xem thêm"
+    nextOrderCursor = page.next;
+    document.getElementById("btn_load_more_orders").style.display = nextOrderCursor ? "" : "none";
 }
 
+document.getElementById("btn_load_more_orders").addEventListener("click", loadMoreOrders);
+
 // Hàm để tải chi tiết OrderItem vào modal
 async function loadOrderDetails(orderId) {
     const response = await fetch(`${api}/api/v1/orders/${orderId}`);
@@ -23,20 +23,22 @@ async function removeCartItemService(cartItemId) {
   return cartItems;
 }
 
-async function updateCartItemService(cartItemId, quantity, size) {
-  const cartItems = await fetch(`${api}/api/v1/cart-items/${cartItemId}`, {
-    method: "PUT",
+// gửi nhiều thao tác ADD/UPDATE/REMOVE trong một request, nhận lại giỏ sau khi áp
+async function patchCartItemsService(operations, keepalive) {
+  const response = await fetch(`${api}/api/v1/cart-items`, {
+    method: "PATCH",
+    keepalive: keepalive === true,
     headers: { 
       "Content-Type": "application/json",
       Accept: "application/json",
       Authorization: "Bearer " + localStorage.getItem("token")
     },
-    body: JSON.stringify({
-      quantity: quantity,
-      size: size
-    }),
-  }).then((res) => res.json());
-  return cartItems;
+    body: JSON.stringify(operations),
+  });
+  if (!response.ok) {
+    throw new Error("Failed to update cart");
+  }
+  return response.json();
 }
 
 async function addCartItemService(productId) {
@@ -118,15 +120,17 @@ function cartItem(cart) {
 
   
 async function loadCart() {
-  document.getElementById("cart-items").innerHTML = "";
   await getCartItem();
-  let total = 0;
+  renderCart();
+}
+
+function renderCart() {
+  document.getElementById("cart-items").innerHTML = "";
   const carts = listCart;
   if (Array.isArray(carts)) {
     carts.forEach((c) => {
       $("#cart-items").append(cartItem(c));
       generateSizeButtons(c);
-      total += parseInt(c?.quantity || 0) * parseInt(c?.product?.price || 0);
     });
   }
   updateTotal();
@@ -136,71 +140,85 @@ async function updateTotal() {
   let total = 0;
   if (Array.isArray(listCart)) {
     listCart.forEach((c) => {
-      $(`.cart__total${c?.id}`).html(numberToVnd(c?.quantity * c?.product?.price));
+      $(`.cart__price${c?.id}`).html(numberToVnd(c?.quantity * c?.product?.price));
       total += parseInt(c?.quantity || 0) * parseInt(c?.product?.price || 0);
     });
   }
   document.querySelector(".total_money").innerHTML = numberToVnd(total);
 }
 
+// các thay đổi trên trang giỏ được gom theo từng dòng (thao tác sau đè thao tác trước)
+// rồi gửi một lần bằng PATCH khi người dùng ngừng bấm, bấm "Cập nhật giỏ hàng" hoặc rời trang
+const pendingCartOps = new Map();
+let cartPatchTimer = null;
 
-async function updateSL(id,dau, size) {
-  let quantity = Number($(`.${id}`).val());
-  size = $(`#sizeProduct_${id}`).val();
-  console.log($(`#sizeProduct_${id}`).val());
-  if (quantity > 1 && dau <0)
-  {
-    quantity = quantity+dau;
-    const res = await updateCartItemService(id, quantity, size);
-    console.log(res);
-    $(`.${id}`).val(quantity);
-    $(`.${id}`).html(quantity);
+function queueCartOperation(id, operation) {
+  pendingCartOps.set(id, operation);
+  clearTimeout(cartPatchTimer);
+  cartPatchTimer = setTimeout(saveCartChanges, 800);
+}
+
+async function saveCartChanges() {
+  clearTimeout(cartPatchTimer);
+  if (pendingCartOps.size === 0) {
+    return;
   }
-  else 
-  if (quantity<999 && dau >0)
-  {
-    quantity = quantity +dau;
-    const res = await updateCartItemService(id, quantity, size);
-    console.log(res);
-    $(`.${id}`).val(quantity);
-    $(`.${id}`).html(quantity);
+  const operations = Array.from(pendingCartOps.values());
+  pendingCartOps.clear();
+  try {
+    listCart = await patchCartItemsService(operations);
+  } catch (e) {
+    alert("Đã có lỗi xảy ra");
+    await getCartItem();
   }
-  else if (dau ==0)
-  {
-    const res = await updateCartItemService(id, quantity, size);
-    console.log(res);
-    $(`.${id}`).val(quantity);
-    $(`.${id}`).html(quantity);
+  renderCart();
+}
+
+window.addEventListener("beforeunload", () => {
+  if (pendingCartOps.size > 0) {
+    patchCartItemsService(Array.from(pendingCartOps.values()), true);
+    pendingCartOps.clear();
   }
-  loadCart();
-  for (let i =0;i<listCart.length;i++)
+});
+
+function updateSL(id, dau) {
+  let quantity = Number($(`.${id}`).val());
+  const size = $(`#sizeProduct_${id}`).val();
+  if ((quantity > 1 && dau < 0) || (quantity < 999 && dau > 0)) {
+    quantity = quantity + dau;
+  } else if (dau != 0) {
+    return;
+  }
+  $(`.${id}`).val(quantity);
+  $(`.${id}`).html(quantity);
+  for (let i = 0; i < listCart.length; i++)
     if (listCart[i].id == id) listCart[i].quantity = quantity;
+  queueCartOperation(id, { type: "UPDATE", id: id, quantity: quantity, size: size });
   updateTotal();
 }
 
 async function textChange1(id, size) {
-  console.log(size);
-  await updateSL(id,0, size);
+  updateSL(id, 0);
 }
 
 async function textChange(id, size) {
   quantity = $(`.${id}`).val();
   $(`.${id}`).html(quantity);
-  await updateSL(id,0, size);
+  updateSL(id, 0);
 }
 
 async function removeItem(id) {
-  const res = await removeCartItemService(id);
-  loadCart();
-  updateTotal();
+  listCart = listCart.filter((c) => c.id != id);
+  queueCartOperation(id, { type: "REMOVE", id: id });
+  renderCart();
 }
 
-$(document).on('click', '.update-cart', async function () {
+$(document).on('click', '.update-cart', async function (e) {
+  e.preventDefault();
   await updateCart();
-  location.reload();
 });
 
 async function updateCart() {
-  loadCart();
-  updateTotal();
+  await saveCartChanges();
+  await loadCart();
 }